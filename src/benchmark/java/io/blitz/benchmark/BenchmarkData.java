@@ -0,0 +1,51 @@
+package io.blitz.benchmark;
+
+/**
+ * Generates blitz.io like responses for the benchmarks.
+ * @author ghermeto
+ */
+public final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+    
+    /**
+     * Creates a rush job status response.
+     * @param points number of points in the timeline
+     * @param steps number of steps per point
+     * @return the JSON response
+     */
+    public static String rushStatus(int points, int steps) {
+        StringBuilder builder = new StringBuilder(points * 200);
+        builder.append("{\"_id\":\"c123\",\"ok\":true,\"status\":\"running\",")
+                .append("\"result\":{\"region\":\"california\",\"timeline\":[");
+        for(int i = 0; i < points; i++) {
+            if(i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"timestamp\":").append(1000 + i)
+                    .append(".5,\"duration\":0.").append(100 + i % 50)
+                    .append(",\"total\":").append(i * 10)
+                    .append(",\"executed\":").append(i * 9)
+                    .append(",\"errors\":").append(i / 2)
+                    .append(",\"timeouts\":").append(i / 3)
+                    .append(",\"volume\":").append(i)
+                    .append(",\"txbytes\":").append(i * 1000L)
+                    .append(",\"rxbytes\":").append(i * 20000L)
+                    .append(",\"steps\":[");
+            for(int s = 0; s < steps; s++) {
+                if(s > 0) {
+                    builder.append(',');
+                }
+                builder.append("{\"d\":0.0").append(s + 1)
+                        .append(",\"c\":0.00").append(s + 1)
+                        .append(",\"e\":").append(i / 4)
+                        .append(",\"t\":").append(i / 5)
+                        .append(",\"a\":0}");
+            }
+            builder.append("]}");
+        }
+        builder.append("]}}");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package io.blitz.benchmark;
+
+import io.blitz.command.CommandBatch;
+import io.blitz.command.CommandLoader;
+import io.blitz.command.Curl;
+import io.blitz.curl.AbstractTest;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares loading a command file line by line with <code>Curl.parse</code>
+ * and in parallel with <code>CommandLoader</code>.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CommandLoader
+ * </pre>
+ * @author ghermeto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandLoaderBenchmark {
+
+    @Param({"1000", "10000"})
+    private int lines;
+
+    private byte[] file;
+
+    private CommandLoader loader;
+
+    @Setup
+    public void setup() {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < lines; i++) {
+            if(i % 2 == 0) {
+                text.append("-p 1-250:60 -r ireland -A 'Mozilla Firefox' -H 'Accept: text/html' http://example.com/")
+                        .append(i).append('\n');
+            }
+            else {
+                text.append("-X POST -d '{\"user\":\"#{name}\"}' -v:name alpha[3,8] -s 201 http://example.com/users/")
+                        .append(i).append('\n');
+            }
+        }
+        file = text.toString().getBytes(Charset.forName("UTF-8"));
+        loader = new CommandLoader("user", "key");
+    }
+
+    @Benchmark
+    public List<AbstractTest> sequential() {
+        String[] commands = new String(file, Charset.forName("UTF-8")).split("\n");
+        List<AbstractTest> tests = new ArrayList<AbstractTest>(commands.length);
+        for(String command : commands) {
+            tests.add(Curl.parse("user", "key", command));
+        }
+        return tests;
+    }
+
+    @Benchmark
+    public CommandBatch parallel() {
+        return loader.load(ByteBuffer.wrap(file));
+    }
+}
@@ -0,0 +1,50 @@
+package io.blitz.benchmark;
+
+import io.blitz.command.Curl;
+import io.blitz.command.RegexCurl;
+import io.blitz.curl.AbstractTest;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares parsing a command line with the lexer of <code>Curl</code> and
+ * with the previous regex and <code>Scanner</code> based parser.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CurlParse
+ * </pre>
+ * @author ghermeto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurlParseBenchmark {
+
+    @Param({
+        "http://example.com",
+        "-p 1-250:60 -r ireland -A 'Mozilla Firefox' -H 'Accept: text/html' -T 2000 http://example.com/a",
+        "-X POST -d '{\"user\":\"#{name}\"}' -v:name alpha[3,8] -v:id number[1,1000] -s 201 http://example.com/users -X GET http://example.com/users/1"
+    })
+    private String command;
+
+    @Benchmark
+    public AbstractTest regex() {
+        return RegexCurl.parse("user", "key", null, null, command, null);
+    }
+
+    @Benchmark
+    public AbstractTest lexer() {
+        return Curl.parse("user", "key", null, null, command, null);
+    }
+}
@@ -0,0 +1,119 @@
+package io.blitz.benchmark;
+
+import io.blitz.curl.sprint.HeaderMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the response headers kept in a <code>HashMap</code> (case
+ * sensitive), a case-insensitive <code>TreeMap</code> and the
+ * <code>HeaderMap</code>: allocation to build them (see gc.alloc.rate.norm)
+ * and time to look a few headers up.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=HeaderMap
+ * </pre>
+ * @author ghermeto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderMapBenchmark {
+
+    private static final String[] NAMES = {"Date", "Server", "Content-Type",
+        "Content-Length", "Connection", "Cache-Control", "Expires", "ETag",
+        "Last-Modified", "Vary", "X-Powered-By", "Set-Cookie"};
+
+    private String[] names;
+
+    private Object[] values;
+
+    private Map<String, Object> hashMap;
+
+    private Map<String, Object> treeMap;
+
+    private HeaderMap headerMap;
+
+    @Setup
+    public void setup() {
+        names = new String[NAMES.length];
+        values = new Object[NAMES.length];
+        for(int i = 0; i < NAMES.length; i++) {
+            //as decoded from JSON, not the constants
+            names[i] = new String(NAMES[i]);
+            values[i] = "value " + i;
+        }
+        hashMap = buildHashMap();
+        treeMap = buildTreeMap();
+        headerMap = buildHeaderMap();
+    }
+
+    @Benchmark
+    public Map<String, Object> buildHashMap() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        for(int i = 0; i < names.length; i++) {
+            map.put(names[i], values[i]);
+        }
+        return map;
+    }
+
+    /**
+     * The usual case-insensitive map
+     */
+    @Benchmark
+    public Map<String, Object> buildTreeMap() {
+        Map<String, Object> map = new TreeMap<String, Object>(String.CASE_INSENSITIVE_ORDER);
+        for(int i = 0; i < names.length; i++) {
+            map.put(names[i], values[i]);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public HeaderMap buildHeaderMap() {
+        return new HeaderMap(names, values, names.length);
+    }
+
+    @Benchmark
+    public int lookupHashMap() {
+        return lookup(hashMap);
+    }
+
+    @Benchmark
+    public int lookupTreeMap() {
+        return lookup(treeMap);
+    }
+
+    @Benchmark
+    public int lookupHeaderMap() {
+        return lookup(headerMap);
+    }
+
+    private static int lookup(Map<String, Object> headers) {
+        int found = 0;
+        if(headers.get("Content-Type") != null) {
+            found++;
+        }
+        if(headers.get("Content-Length") != null) {
+            found++;
+        }
+        if(headers.get("Location") != null) {
+            found++;
+        }
+        return found;
+    }
+}
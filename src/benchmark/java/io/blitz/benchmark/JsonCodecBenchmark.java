@@ -0,0 +1,103 @@
+package io.blitz.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.blitz.curl.TestEntity;
+import io.blitz.curl.TestStep;
+import io.blitz.curl.config.BasicAuthentication;
+import io.blitz.curl.config.HttpHeader;
+import io.blitz.gson.ArrayDeserializer;
+import io.blitz.gson.BasicAuthenticationSerializer;
+import io.blitz.gson.HttpCookieSerializer;
+import io.blitz.gson.HttpHeaderSerializer;
+import io.blitz.gson.JsonCodec;
+import io.blitz.gson.MapDeserializer;
+import java.io.StringReader;
+import java.lang.reflect.Modifier;
+import java.net.HttpCookie;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares building a <code>Gson</code> per call (the previous behaviour of
+ * <code>Client</code>) with the shared <code>JsonCodec</code>. Run with the
+ * gc profiler to see the allocation per call:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=JsonCodec
+ * </pre>
+ * @author ghermeto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+    
+    private String status;
+    
+    private TestEntity test;
+
+    @Setup
+    public void setup() throws Exception {
+        status = BenchmarkData.rushStatus(60, 2);
+        test = new TestEntity();
+        test.setRegion("california");
+        Collection<TestStep> steps = new ArrayList<TestStep>();
+        TestStep step = new TestStep(new URL("http://example.com/path?a=b"));
+        step.setUserAgent("blitz-java");
+        Collection<HttpHeader> headers = new ArrayList<HttpHeader>();
+        headers.add(new HttpHeader("Accept", "application/json"));
+        step.setHeaders(headers);
+        Collection<HttpCookie> cookies = new ArrayList<HttpCookie>();
+        cookies.add(new HttpCookie("session", "abc"));
+        step.setCookies(cookies);
+        step.setUser(new BasicAuthentication("user", "pass"));
+        steps.add(step);
+        test.setSteps(steps);
+    }
+    
+    @Benchmark
+    public Map perCallReader() {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(Map.class, new MapDeserializer())
+                .registerTypeAdapter(Collection.class, new ArrayDeserializer())
+                .disableHtmlEscaping().create();
+        return gson.fromJson(new StringReader(status), Map.class);
+    }
+    
+    @Benchmark
+    public Map sharedReader() {
+        return JsonCodec.fromJson(new StringReader(status));
+    }
+    
+    @Benchmark
+    public String perCallWriter() {
+        Gson gson = new GsonBuilder()
+                .excludeFieldsWithModifiers(Modifier.TRANSIENT, Modifier.FINAL)
+                .registerTypeAdapter(HttpHeader.class, new HttpHeaderSerializer())
+                .registerTypeAdapter(HttpCookie.class, new HttpCookieSerializer())
+                .registerTypeAdapter(BasicAuthentication.class, new BasicAuthenticationSerializer())
+                .disableHtmlEscaping().create();
+        return gson.toJson(test);
+    }
+    
+    @Benchmark
+    public String sharedWriter() {
+        return JsonCodec.toJson(test);
+    }
+}
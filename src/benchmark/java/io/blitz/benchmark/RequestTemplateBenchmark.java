@@ -0,0 +1,113 @@
+package io.blitz.benchmark;
+
+import io.blitz.command.Curl;
+import io.blitz.curl.TestStep;
+import io.blitz.curl.config.HttpHeader;
+import io.blitz.curl.local.RequestTemplate;
+import java.net.HttpCookie;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares encoding the request of a step for every send, as
+ * <code>HttpConnection</code> does, and filling a compiled
+ * <code>RequestTemplate</code>, without and with variables expanded by the
+ * local generators.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=RequestTemplate
+ * </pre>
+ * @author ghermeto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestTemplateBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final String COMMAND = "-A 'Mozilla Firefox' -e http://example.com "
+            + "-u user:pass -b session=abc123 -b theme=dark -H 'Accept: text/html' "
+            + "-H 'X-Request: load' http://example.com:8080/users/list?page=1";
+
+    private static final String VARIABLES = "-v:id number[1,1000000] -v:name alpha[4,12] "
+            + "-v:device udid -v:lang list[en,fr,pt] -A 'Mozilla Firefox' "
+            + "-H 'X-Device: #{device}' -d name=#{name}&lang=#{lang} "
+            + "http://example.com:8080/users/#{id}";
+
+    private TestStep step;
+
+    private RequestTemplate.Writer writer;
+
+    private RequestTemplate.Writer variableWriter;
+
+    @Setup
+    public void setup() {
+        step = Curl.parse(null, null, COMMAND).getSteps().iterator().next();
+        writer = RequestTemplate.compile(step).newWriter();
+        TestStep variableStep = Curl.parse(null, null, VARIABLES).getSteps().iterator().next();
+        variableWriter = RequestTemplate.compile(variableStep).newWriter();
+    }
+
+    @Benchmark
+    public long encode() {
+        URL url = step.getUrl();
+        StringBuilder builder = new StringBuilder(256);
+        builder.append("GET ").append(url.getFile()).append(" HTTP/1.1\r\n");
+        builder.append("Host: ").append(url.getHost()).append(':')
+                .append(url.getPort()).append("\r\n");
+        builder.append("User-Agent: ").append(step.getUserAgent()).append("\r\n");
+        builder.append("Referer: ").append(step.getReferrer()).append("\r\n");
+        builder.append("Authorization: Basic ").append(Base64.encodeBase64String(
+                step.getUser().toString().getBytes(UTF8))).append("\r\n");
+        builder.append("Cookie: ");
+        String separator = "";
+        for(HttpCookie cookie : step.getCookies()) {
+            builder.append(separator).append(cookie.getName())
+                    .append('=').append(cookie.getValue());
+            separator = "; ";
+        }
+        builder.append("\r\n");
+        for(HttpHeader header : step.getHeaders()) {
+            builder.append(header.getField()).append(": ")
+                    .append(header.getValue()).append("\r\n");
+        }
+        builder.append("\r\n");
+        return builder.toString().getBytes(ISO_8859_1).length;
+    }
+
+    @Benchmark
+    public long template() {
+        long size = 0;
+        for(ByteBuffer part : writer.next()) {
+            size += part.remaining();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public long variables() {
+        long size = 0;
+        for(ByteBuffer part : variableWriter.next()) {
+            size += part.remaining();
+        }
+        return size;
+    }
+}
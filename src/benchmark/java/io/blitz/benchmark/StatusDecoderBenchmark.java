@@ -0,0 +1,64 @@
+package io.blitz.benchmark;
+
+import com.google.gson.stream.JsonReader;
+import io.blitz.curl.JobStatus;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.gson.JsonCodec;
+import io.blitz.gson.RushResultReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares decoding a rush job status into the map tree with the streaming
+ * <code>RushResultReader</code>.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=StatusDecoder
+ * </pre>
+ * @author ghermeto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatusDecoderBenchmark {
+    
+    @Param({"60", "600"})
+    private int points;
+    
+    private String status;
+    
+    private RushResultReader reader;
+
+    @Setup
+    public void setup() {
+        status = BenchmarkData.rushStatus(points, 2);
+        reader = new RushResultReader();
+    }
+    
+    @Benchmark
+    public Map mapTree() {
+        return JsonCodec.fromJson(new StringReader(status));
+    }
+    
+    @Benchmark
+    public JobStatus<RushResult> streaming() throws IOException {
+        JsonReader json = new JsonReader(new StringReader(status));
+        json.setLenient(true);
+        return reader.read(json);
+    }
+}
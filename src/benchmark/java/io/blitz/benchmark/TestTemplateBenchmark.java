@@ -0,0 +1,62 @@
+package io.blitz.benchmark;
+
+import io.blitz.command.Curl;
+import io.blitz.curl.AbstractTest;
+import io.blitz.curl.TestTemplate;
+import io.blitz.gson.JsonCodec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares preparing the JSON body of a test by parsing the command line
+ * every run and by creating the test from a compiled <code>TestTemplate</code>.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TestTemplate
+ * </pre>
+ * @author ghermeto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestTemplateBenchmark {
+
+    @Param({
+        "http://example.com",
+        "-p 1-250:60 -r ireland -A 'Mozilla Firefox' -H 'Accept: text/html' -T 2000 http://example.com/a",
+        "-X POST -d '{\"user\":\"#{name}\"}' -v:name alpha[3,8] -v:id number[1,1000] -s 201 http://example.com/users -X GET http://example.com/users/1"
+    })
+    private String command;
+
+    private TestTemplate template;
+
+    @Setup
+    public void setup() {
+        template = Curl.compile(command);
+    }
+
+    @Benchmark
+    public String parse() {
+        AbstractTest test = Curl.parse("user", "key", command);
+        test.setRegion("california");
+        return JsonCodec.toJson(test);
+    }
+
+    @Benchmark
+    public String template() {
+        AbstractTest test = template.newTest("user", "key", "california");
+        return test.toJson();
+    }
+}
@@ -0,0 +1,97 @@
+package io.blitz.benchmark;
+
+import io.blitz.curl.rush.Point;
+import io.blitz.curl.rush.Step;
+import io.blitz.curl.rush.Timeline;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a timeline of boxed <code>Point</code> objects with the columnar
+ * <code>Timeline</code>: allocation to build it (see gc.alloc.rate.norm) and
+ * time to scan the durations.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=Timeline
+ * </pre>
+ * @author ghermeto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimelineBenchmark {
+    
+    @Param({"3600"})
+    private int points;
+    
+    @Param({"4"})
+    private int steps;
+    
+    private List<Point> boxed;
+    
+    private Timeline columnar;
+
+    @Setup
+    public void setup() {
+        boxed = buildBoxed();
+        columnar = buildColumnar();
+    }
+    
+    @Benchmark
+    public List<Point> buildBoxed() {
+        List<Point> timeline = new ArrayList<Point>();
+        for(int i = 0; i < points; i++) {
+            Collection<Step> list = new ArrayList<Step>();
+            for(int j = 0; j < steps; j++) {
+                list.add(new Step(0.1 + j, 0.01 * j, i * 3 + 1000, i + 1000, j + 1000));
+            }
+            timeline.add(new Point((double) i, 0.25 + i, i * 10 + 1000, 
+                    i * 9 + 1000, i * 3 + 1000, i + 1000, i + 1000, 
+                    i * 1024 + 1000, i * 2048 + 1000, list));
+        }
+        return timeline;
+    }
+    
+    @Benchmark
+    public Timeline buildColumnar() {
+        Timeline timeline = new Timeline();
+        for(int i = 0; i < points; i++) {
+            for(int j = 0; j < steps; j++) {
+                timeline.addStep(0.1 + j, 0.01 * j, i * 3 + 1000, i + 1000, j + 1000);
+            }
+            timeline.addPoint(i, 0.25 + i, i * 10 + 1000, i * 9 + 1000, 
+                    i * 3 + 1000, i + 1000, i + 1000, i * 1024 + 1000, 
+                    i * 2048 + 1000);
+        }
+        return timeline;
+    }
+    
+    @Benchmark
+    public double scanBoxed() {
+        double sum = 0;
+        for(Point point : boxed) {
+            sum += point.getDuration();
+        }
+        return sum / boxed.size();
+    }
+    
+    @Benchmark
+    public double scanColumnar() {
+        return columnar.averageDuration(0, columnar.size());
+    }
+}
@@ -0,0 +1,103 @@
+package io.blitz.benchmark;
+
+import com.google.gson.stream.JsonReader;
+import io.blitz.curl.JobStatus;
+import io.blitz.curl.archive.TimelineArchive;
+import io.blitz.curl.archive.TimelineEncoder;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.curl.rush.Timeline;
+import io.blitz.gson.RushResultReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the compressed timeline archive with the JSON of the same rush:
+ * time to encode and decode the whole timeline and to read a range of it.
+ * The size of both encodings is printed on setup.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TimelineCodec
+ * </pre>
+ * @author ghermeto
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimelineCodecBenchmark {
+
+    @Param({"3600"})
+    private int points;
+
+    @Param({"2"})
+    private int steps;
+
+    private String json;
+
+    private Timeline timeline;
+
+    private byte[] archive;
+
+    @Setup
+    public void setup() throws IOException {
+        json = BenchmarkData.rushStatus(points, steps);
+        timeline = new Timeline();
+        read(timeline);
+        archive = encode();
+        int jsonSize = json.getBytes(Charset.forName("UTF-8")).length;
+        System.out.println();
+        System.out.println("json: " + jsonSize + " bytes, archive: "
+                + archive.length + " bytes, ratio: "
+                + String.format("%.1f", (double) jsonSize / archive.length));
+    }
+
+    @Benchmark
+    public JobStatus<RushResult> decodeJson() throws IOException {
+        return read(new Timeline());
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(points * 16);
+        TimelineEncoder encoder = new TimelineEncoder(out);
+        for(int row = 0; row < timeline.size(); row++) {
+            encoder.append(timeline, row);
+        }
+        encoder.close();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Timeline decodeArchive() throws IOException {
+        return new TimelineArchive(ByteBuffer.wrap(archive)).readAll(new Timeline());
+    }
+
+    @Benchmark
+    public Timeline decodeLastMinute() throws IOException {
+        TimelineArchive reader = new TimelineArchive(ByteBuffer.wrap(archive));
+        double last = reader.getLastTimestamp();
+        return reader.read(last - 60, last, new Timeline());
+    }
+
+    private JobStatus<RushResult> read(Timeline target) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        return new RushResultReader(target).read(reader);
+    }
+}
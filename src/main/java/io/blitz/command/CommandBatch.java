@@ -0,0 +1,57 @@
+package io.blitz.command;
+
+import io.blitz.curl.AbstractTest;
+import java.util.List;
+
+/**
+ * Tests loaded from a command file by <code>CommandLoader</code>, in the
+ * order of the file, and the lines that couldn't be parsed.
+ * @author ghermeto
+ * @see CommandLoader
+ */
+public class CommandBatch {
+
+    private final List<AbstractTest> tests;
+
+    private final int[] lines;
+
+    private final List<CommandError> errors;
+
+    CommandBatch(List<AbstractTest> tests, int[] lines, List<CommandError> errors) {
+        this.tests = tests;
+        this.lines = lines;
+        this.errors = errors;
+    }
+
+    /**
+     * @return the parsed tests, ready to run, in the order of the file
+     */
+    public List<AbstractTest> getTests() {
+        return tests;
+    }
+
+    /**
+     * @param index index of the test in <code>getTests()</code>
+     * @return line number of the test, starting at 1
+     */
+    public int getLine(int index) {
+        if(index < 0 || index >= tests.size()) {
+            throw new IndexOutOfBoundsException("Test " + index);
+        }
+        return lines[index];
+    }
+
+    /**
+     * @return the lines that couldn't be parsed, in the order of the file
+     */
+    public List<CommandError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return true if any line couldn't be parsed
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
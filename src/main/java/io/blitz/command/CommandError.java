@@ -0,0 +1,50 @@
+package io.blitz.command;
+
+/**
+ * Command line of a file that couldn't be parsed by <code>CommandLoader</code>.
+ * @author ghermeto
+ * @see CommandLoader
+ */
+public class CommandError {
+
+    private final int line;
+
+    private final String command;
+
+    private final RuntimeException cause;
+
+    /**
+     * @param line line number, starting at 1
+     * @param command the command line
+     * @param cause exception thrown by the parser
+     */
+    public CommandError(int line, String command, RuntimeException cause) {
+        this.line = line;
+        this.command = command;
+        this.cause = cause;
+    }
+
+    /**
+     * @return line number, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getMessage() {
+        return cause.getMessage();
+    }
+
+    public RuntimeException getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return "line " + line + ": " + getMessage();
+    }
+}
@@ -0,0 +1,164 @@
+package io.blitz.command;
+
+/**
+ * Single pass tokenizer of a curl command line. Splits the command exactly
+ * like the <code>Scanner</code> and regular expressions it replaces:
+ * <ul>
+ * <li><code>next</code> returns the next run of characters that are not
+ * <code>Character.isWhitespace</code>, like <code>Scanner.next</code></li>
+ * <li><code>nextValue</code> returns the next double quoted, single quoted
+ * or non-blank (<code>\S+</code>) value on the same line, like
+ * <code>Scanner.findInLine(RE_DQ|RE_SQ|RE_WS)</code></li>
+ * </ul>
+ * @author ghermeto
+ * @see Curl
+ */
+final class CommandLexer {
+
+    private final String input;
+
+    private final int length;
+
+    private int position;
+
+    CommandLexer(String input) {
+        this.input = input;
+        this.length = input.length();
+    }
+
+    /**
+     * @return true if there is another token
+     */
+    boolean hasNext() {
+        skipWhitespace();
+        return position < length;
+    }
+
+    /**
+     * @return the next token or null if none
+     */
+    String next() {
+        skipWhitespace();
+        if(position == length) {
+            return null;
+        }
+        int start = position;
+        while(position < length && !Character.isWhitespace(input.charAt(position))) {
+            position++;
+        }
+        return input.substring(start, position);
+    }
+
+    /**
+     * Reads the value of an option, quotes included. Blank characters before
+     * the value are skipped, but not line separators.
+     * @return the value or null (without moving) if the line has no value
+     */
+    String nextValue() {
+        int lineEnd = position;
+        while(lineEnd < length && !isLineSeparator(input.charAt(lineEnd))) {
+            lineEnd++;
+        }
+        int start = position;
+        while(start < lineEnd && isSpace(input.charAt(start))) {
+            start++;
+        }
+        if(start == lineEnd) {
+            return null;
+        }
+        int end = quoted(start, lineEnd, '"');
+        if(end < 0) {
+            end = quoted(start, lineEnd, '\'');
+        }
+        if(end < 0) {
+            end = start;
+            while(end < lineEnd && !isSpace(input.charAt(end))) {
+                end++;
+            }
+        }
+        position = end;
+        return input.substring(start, end);
+    }
+
+    /**
+     * Verifies if the command line has <code>-p</code> or
+     * <code>--pattern</code> like <code>command.matches(RE_PATTERN)</code>:
+     * at the start or after a blank character (with no line break before
+     * it), followed by a blank character and something else (with no line
+     * break after it).
+     */
+    static boolean hasPattern(String command) {
+        int length = command.length();
+        int firstBreak = length;
+        int lastBreak = -1;
+        for(int i = 0; i < length; i++) {
+            if(isLineSeparator(command.charAt(i))) {
+                firstBreak = Math.min(firstBreak, i);
+                lastBreak = i;
+            }
+        }
+        for(int i = command.indexOf('-'); i >= 0; i = command.indexOf('-', i + 1)) {
+            if(i > 0 && !(isSpace(command.charAt(i - 1)) && firstBreak >= i - 1)) {
+                continue;
+            }
+            if(command.startsWith("-p", i) && follows(command, i + 2, lastBreak)) {
+                return true;
+            }
+            if(command.startsWith("--pattern", i) && follows(command, i + 9, lastBreak)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the option ending at end is followed by a blank
+     * character and at least one more character, with no line break after
+     */
+    private static boolean follows(String command, int end, int lastBreak) {
+        return end + 1 < command.length() && isSpace(command.charAt(end))
+                && lastBreak < end + 1;
+    }
+
+    /**
+     * Matches a quoted string (RE_DQ or RE_SQ) starting at start.
+     * @return the end of the string (after the closing quote) or -1
+     */
+    private int quoted(int start, int lineEnd, char quote) {
+        if(input.charAt(start) != quote) {
+            return -1;
+        }
+        int i = start + 1;
+        while(i < lineEnd) {
+            char c = input.charAt(i);
+            if(c == quote) {
+                return i + 1;
+            }
+            i += (c == '\\') ? 2 : 1;
+        }
+        return -1;
+    }
+
+    private void skipWhitespace() {
+        while(position < length && Character.isWhitespace(input.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * The regular expression \s
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+                || c == '\f' || c == '\r';
+    }
+
+    /**
+     * The characters that end a line for <code>Scanner.findInLine</code>,
+     * also the ones the regular expression . doesn't match
+     */
+    private static boolean isLineSeparator(char c) {
+        return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029'
+                || c == '\u0085';
+    }
+}
@@ -0,0 +1,229 @@
+package io.blitz.command;
+
+import io.blitz.curl.AbstractTest;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loads a file of curl commands, one per line, into ready to run sprints
+ * and rushes. The file is memory mapped and split into lines in one pass,
+ * then the lines are parsed in parallel on a fork-join pool. Blank lines
+ * and lines starting with <code>#</code> are skipped.
+ * <p>
+ * A line that can't be parsed doesn't stop the others: it is reported with
+ * its line number in <code>CommandBatch.getErrors()</code>.
+ * </p>
+ * <pre>
+ * CommandLoader loader = new CommandLoader("john@example.com", "aqbcdge-sjfkgurti-sjdhgft-skdiues");
+ * CommandBatch batch = loader.load(new File("nightly.txt"));
+ * for(CommandError error : batch.getErrors()) {
+ *     System.err.println(error);
+ * }
+ * </pre>
+ * @author ghermeto
+ * @see Curl#parse(java.lang.String, java.lang.String, java.lang.String, java.lang.Integer, java.lang.String, java.lang.String)
+ */
+public class CommandLoader {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Lines parsed by a task before it is split
+     */
+    private static final int THRESHOLD = 32;
+
+    private final String username;
+
+    private final String apiKey;
+
+    private final String host;
+
+    private final Integer port;
+
+    private final String protocol;
+
+    private ForkJoinPool pool;
+
+    /**
+     * @param username username to be used in the tests
+     * @param apiKey api key used to authenticate
+     */
+    public CommandLoader(String username, String apiKey) {
+        this(username, apiKey, null, null, null);
+    }
+
+    /**
+     * @param username username to be used in the tests
+     * @param apiKey api key used to authenticate
+     * @param host host to connect
+     * @param port port for the service
+     * @param protocol protocol for the service
+     */
+    public CommandLoader(String username, String apiKey, String host,
+            Integer port, String protocol) {
+        this.username = username;
+        this.apiKey = apiKey;
+        this.host = host;
+        this.port = port;
+        this.protocol = protocol;
+    }
+
+    /**
+     * Sets the pool parsing the commands. Uses the common pool by default.
+     * @param pool fork-join pool
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Maps the file read-only and loads its commands.
+     * @param path UTF-8 file with one command per line
+     * @return the tests and the lines that couldn't be parsed
+     * @throws IOException if the file can't be read
+     */
+    public CommandBatch load(File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            if(size > Integer.MAX_VALUE) {
+                throw new IOException("Command file too large: " + path);
+            }
+            return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Loads the commands between the position and the limit of the buffer,
+     * which are not changed.
+     * @param buffer UTF-8 text with one command per line
+     * @return the tests and the lines that couldn't be parsed
+     */
+    public CommandBatch load(ByteBuffer buffer) {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        //skips the byte order mark
+        if(limit - start >= 3 && buffer.get(start) == (byte) 0xEF
+                && buffer.get(start + 1) == (byte) 0xBB
+                && buffer.get(start + 2) == (byte) 0xBF) {
+            start += 3;
+        }
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        int count = 0;
+        for(int i = start; i <= limit; i++) {
+            if(i < limit && buffer.get(i) != '\n') {
+                continue;
+            }
+            if(i == limit && i == start) {
+                break;
+            }
+            if(count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = (i > start && buffer.get(i - 1) == '\r') ? i - 1 : i;
+            count++;
+            start = i + 1;
+        }
+
+        AbstractTest[] tests = new AbstractTest[count];
+        CommandError[] errors = new CommandError[count];
+        ForkJoinPool executor = (pool != null) ? pool : ForkJoinPool.commonPool();
+        executor.invoke(new ParseTask(buffer, starts, ends, 0, count, tests, errors));
+
+        List<AbstractTest> loaded = new ArrayList<AbstractTest>(count);
+        int[] lines = new int[count];
+        List<CommandError> failed = new ArrayList<CommandError>();
+        for(int i = 0; i < count; i++) {
+            if(tests[i] != null) {
+                lines[loaded.size()] = i + 1;
+                loaded.add(tests[i]);
+            }
+            else if(errors[i] != null) {
+                failed.add(errors[i]);
+            }
+        }
+        return new CommandBatch(Collections.unmodifiableList(loaded),
+                Arrays.copyOf(lines, loaded.size()),
+                Collections.unmodifiableList(failed));
+    }
+
+    /**
+     * Parses a range of lines, splitting it in halves while too large. Each
+     * line writes only to its own slot of the results.
+     */
+    private class ParseTask extends RecursiveAction {
+
+        private final ByteBuffer buffer;
+
+        private final int[] starts;
+
+        private final int[] ends;
+
+        private final int from;
+
+        private final int to;
+
+        private final AbstractTest[] tests;
+
+        private final CommandError[] errors;
+
+        ParseTask(ByteBuffer buffer, int[] starts, int[] ends, int from, int to,
+                AbstractTest[] tests, CommandError[] errors) {
+            this.buffer = buffer;
+            this.starts = starts;
+            this.ends = ends;
+            this.from = from;
+            this.to = to;
+            this.tests = tests;
+            this.errors = errors;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(buffer, starts, ends, from, middle, tests, errors),
+                        new ParseTask(buffer, starts, ends, middle, to, tests, errors));
+                return;
+            }
+            //each task reads through its own view of the buffer
+            ByteBuffer source = buffer.duplicate();
+            byte[] bytes = new byte[256];
+            for(int i = from; i < to; i++) {
+                int length = ends[i] - starts[i];
+                if(length > bytes.length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                source.limit(ends[i]);
+                source.position(starts[i]);
+                source.get(bytes, 0, length);
+                String command = new String(bytes, 0, length, UTF8).trim();
+                if(command.length() == 0 || command.charAt(0) == '#') {
+                    continue;
+                }
+                try {
+                    tests[i] = Curl.parse(username, apiKey, host, port, command, protocol);
+                }
+                catch(RuntimeException e) {
+                    errors[i] = new CommandError(i + 1, command, e);
+                }
+            }
+        }
+    }
+}
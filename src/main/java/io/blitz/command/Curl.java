@@ -25,6 +25,7 @@ import io.blitz.curl.AbstractTest;
 import io.blitz.curl.Rush;
 import io.blitz.curl.Sprint;
 import io.blitz.curl.TestStep;
+import io.blitz.curl.TestTemplate;
 import io.blitz.curl.config.BasicAuthentication;
 import io.blitz.curl.config.Content;
 import io.blitz.curl.config.HttpHeader;
@@ -42,13 +43,15 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Creates a curl (rush or sprint) test from a command line 
- * identical to the blitz bar.
+ * identical to the blitz bar. The command is read in a single pass by
+ * <code>CommandLexer</code> and the options are looked up in a table; the
+ * <code>RE_*</code> expressions document the accepted syntax.
  * @author ghermeto
  */
 public class Curl {
@@ -65,8 +68,62 @@ public class Curl {
     public static String RE_VAR_NUMBER_1 = "^(n|number)$";
     public static String RE_VAR_NUMBER_2 = "^(n|number)\\[(-?\\d+),(-?\\d+)(,(\\d+))?\\]$";
     public static String RE_VAR_UDID = "^(u|udid)$";
+
+    private static final Pattern PATTERN_VALUE = Pattern.compile(RE_PATTERN_VALUE);
+    private static final Pattern VAR_LIST = Pattern.compile(RE_VAR_LIST);
+    private static final Pattern VAR_ALPHA_1 = Pattern.compile(RE_VAR_ALPHA_1);
+    private static final Pattern VAR_ALPHA_2 = Pattern.compile(RE_VAR_ALPHA_2);
+    private static final Pattern VAR_NUMBER_1 = Pattern.compile(RE_VAR_NUMBER_1);
+    private static final Pattern VAR_NUMBER_2 = Pattern.compile(RE_VAR_NUMBER_2);
+    private static final Pattern VAR_UDID = Pattern.compile(RE_VAR_UDID);
+
+    /**
+     * Options taking a value or setting the ssl version
+     */
+    private enum Option {
+        USER_AGENT, COOKIE, DATA, REFERER, HEADER, REGION, STATUS, TIMEOUT,
+        USER, REQUEST, PATTERN, TLSV1, SSLV2, SSLV3
+    }
+
+    /**
+     * Short and long names of each option
+     */
+    private static final Map<String, Option> OPTIONS = new HashMap<String, Option>();
+
+    static {
+        addOption(Option.USER_AGENT, "-A", "--user-agent");
+        addOption(Option.COOKIE, "-b", "--cookie");
+        addOption(Option.DATA, "-d", "--data");
+        addOption(Option.REFERER, "-e", "--referer");
+        addOption(Option.HEADER, "-H", "--header");
+        addOption(Option.REGION, "-r", "--region");
+        addOption(Option.STATUS, "-s", "--status");
+        addOption(Option.TIMEOUT, "-T", "--timeout");
+        addOption(Option.USER, "-u", "--user");
+        addOption(Option.REQUEST, "-X", "--request");
+        addOption(Option.PATTERN, "-p", "--pattern");
+        addOption(Option.TLSV1, "-1", "--tlsv1");
+        addOption(Option.SSLV2, "-2", "--sslv2");
+        addOption(Option.SSLV3, "-3", "--sslv3");
+    }
+
+    private static void addOption(Option option, String shortName, String longName) {
+        OPTIONS.put(shortName, option);
+        OPTIONS.put(longName, option);
+    }
     
 
+    /**
+     * Parse a curl command line once into a template, creating sprint or 
+     * rush instances with their own credentials and region without parsing 
+     * or serializing the command again.
+     * @param command the command to be parsed
+     * @return an immutable and thread safe template
+     */
+    public static TestTemplate compile(String command) {
+        return new TestTemplate(parse(null, null, command));
+    }
+    
     /**
      * Parse a curl command line and create a sprint or rush instance, 
      * ready to be sent by the Client.
@@ -114,252 +171,153 @@ public class Curl {
             throw new IllegalArgumentException("No command line provided");
         }
         
-        String quotesAndSpace = RE_DQ + "|" + RE_SQ + "|" + RE_WS;
-        Pattern pattern = Pattern.compile(quotesAndSpace);
-        Scanner scanner = new Scanner(command);
+        CommandLexer lexer = new CommandLexer(command);
 
         // create the correct test instance based on the command
         AbstractTest test;
-        if(command.matches(RE_PATTERN)) {
+        if(CommandLexer.hasPattern(command)) {
             test = new Rush(username, apiKey, host, port, protocol);
         }
         else {
             test = new Sprint(username, apiKey, host, port, protocol);
         }
         
-        while(scanner.hasNext()) {
+        while(lexer.hasNext()) {
             String url = null;
             TestStep step = new TestStep();
 
-            while(scanner.hasNext()) {
-                String cmd = scanner.next();
+            while(lexer.hasNext()) {
+                String cmd = lexer.next();
                 if(!cmd.startsWith("-")) {
                     url = cmd;
                     break;
                 }
 
-                //user-agent
-                if(cmd.matches("-A|--user-agent")) {
-                    String value = stripQuotes(scanner.findInLine(pattern));
-                    step.setUserAgent(value);
-                }
-                //cookies
-                else if(cmd.matches("-b|--cookie")) {
-                    try {
-                        String value = stripQuotes(scanner.findInLine(pattern));
-                        if(step.getCookies() == null) {
-                            step.setCookies(new ArrayList<HttpCookie>());
-                        }
-                        String[] pair = value.split("=");
-                        step.getCookies().add(new HttpCookie(pair[0], pair[1]));
-                    } 
-                    catch (ArrayIndexOutOfBoundsException e) {
-                        String msg = "Invalid cookie. Format: name=value";
-                        throw new IllegalArgumentException(msg, e);
-                    }
-                }
-                //input data
-                else if(cmd.matches("-d|--data")) {
-                    String value = stripQuotes(scanner.findInLine(pattern));
-                    if(step.getContent() == null) {
-                        step.setContent(new Content(new ArrayList<String>()));
-                    }
-                    step.getContent().getData().add(value);
-                }
-                //referer url
-                else if(cmd.matches("-e|--referer")) {
-                    try {
-                        String value = stripQuotes(scanner.findInLine(pattern));
-                        step.setReferrer(new URL(value));
-                    } catch (MalformedURLException e) {
-                        String msg = "Invalid referer URL";
-                        throw new IllegalArgumentException(msg, e);
-                    }
-                }
-                //header
-                else if(cmd.matches("-H|--header")) {
-                    try {
-                        String value = stripQuotes(scanner.findInLine(pattern));
-                        if(step.getHeaders() == null) {
-                            step.setHeaders(new ArrayList<HttpHeader>());
-                        }
-                        String[] pair = value.split(":");
-                        step.getHeaders().add(new HttpHeader(pair[0], pair[1]));
-                    } 
-                    catch (ArrayIndexOutOfBoundsException e) {
-                        String msg = "Invalid header. Format: name:value";
-                        throw new IllegalArgumentException(msg, e);
+                Option option = OPTIONS.get(cmd);
+                if(option == null) {
+                    String vname = variableName(cmd);
+                    //if the command is unknown
+                    if(vname == null) {
+                        throw new IllegalArgumentException("Unknown option " + cmd);
                     }
+                    String value = stripQuotes(lexer.nextValue());
+                    addVariable(step, vname, value);
+                    continue;
                 }
-                //region
-                else if(cmd.matches("-r|--region")) {
-                    String value = stripQuotes(scanner.findInLine(pattern));
-                    if("".equals(value)) {
-                        String msg = "Missing value for region";
-                        throw new IllegalArgumentException(msg);
-                    }
-                    test.setRegion(value);
-                }
-                //HTTP status code
-                else if(cmd.matches("-s|--status")) {
-                    try {
-                        String value = stripQuotes(scanner.findInLine(pattern));
-                        Integer status = Integer.parseInt(value);
-                        step.setStatus(status);
-                    }
-                    catch(NumberFormatException e) {
-                        String msg = "Wrong HTTP status code format";
-                        throw new IllegalArgumentException(msg, e);
-                    }
-                }
-                //timeout
-                else if(cmd.matches("-T|--timeout")) {
-                    try {
-                        String value = stripQuotes(scanner.findInLine(pattern));
-                        Integer timeout = Integer.parseInt(value);
-                        step.setTimeout(timeout);
-                    }
-                    catch(NumberFormatException e) {
-                        String msg = "Timeout must be an integer";
-                        throw new IllegalArgumentException(msg, e);
-                    }
-                }
-                //user authentication
-                else if(cmd.matches("-u|--user")) {
-                    try {
-                        String value = stripQuotes(scanner.findInLine(pattern));
-                        String[] pair = value.split(":");
-                        step.setUser(new BasicAuthentication(pair[0], pair[1]));
-                    } 
-                    catch (ArrayIndexOutOfBoundsException e) {
-                        String msg = "Invalid user. Format: username:password";
-                        throw new IllegalArgumentException(msg, e);
-                    }
-                }
-                //request method: GET, POST, PUT
-                else if(cmd.matches("-X|--request")) {
-                    String value = stripQuotes(scanner.findInLine(pattern));
-                    step.setRequest(value);
-                }
-                //pattern
-                else if(cmd.matches("-p|--pattern")) {
-                    //requires a rush object
-                    Rush rush = (Rush) test;
-                    String value = stripQuotes(scanner.findInLine(pattern));
-                    String[] list = value.split(",");
-                    //initialize if needed
-                    if(rush.getPattern() == null) {
-                        Collection<Interval> i = new ArrayList<Interval>();
-                        rush.setPattern(new io.blitz.curl.config.Pattern(1, i));
-                    }
-                    //for each pattern given
-                    for(String ptn : list) {
+                switch(option) {
+                    //user-agent
+                    case USER_AGENT:
+                        step.setUserAgent(stripQuotes(lexer.nextValue()));
+                        break;
+                    //cookies
+                    case COOKIE:
                         try {
-                            //if doesn't match a valid pattern
-                            if(!ptn.matches(RE_PATTERN_VALUE)) {
-                                String msg = "Invalid ramp pattern";
-                                throw new IllegalArgumentException(msg);
+                            String value = stripQuotes(lexer.nextValue());
+                            if(step.getCookies() == null) {
+                                step.setCookies(new ArrayList<HttpCookie>());
                             }
-                            //gets the regex capture groups
-                            Matcher matcher = Pattern.compile(RE_PATTERN_VALUE).matcher(ptn);
-                            matcher.matches();
-                            Integer start = Integer.parseInt(matcher.group(1));
-                            Integer end = Integer.parseInt(matcher.group(2));
-                            Integer duration = Integer.parseInt(matcher.group(3));
-                            //creates interval
-                            Interval interval = new Interval(1, start, end, duration);
-                            rush.getPattern().getIntervals().add(interval);
+                            String[] pair = value.split("=");
+                            step.getCookies().add(new HttpCookie(pair[0], pair[1]));
+                        } 
+                        catch (ArrayIndexOutOfBoundsException e) {
+                            String msg = "Invalid cookie. Format: name=value";
+                            throw new IllegalArgumentException(msg, e);
                         }
-                        catch(Exception e) {
-                            String msg = "Invalid ramp pattern";
+                        break;
+                    //input data
+                    case DATA:
+                        String data = stripQuotes(lexer.nextValue());
+                        if(step.getContent() == null) {
+                            step.setContent(new Content(new ArrayList<String>()));
+                        }
+                        step.getContent().getData().add(data);
+                        break;
+                    //referer url
+                    case REFERER:
+                        try {
+                            String value = stripQuotes(lexer.nextValue());
+                            step.setReferrer(new URL(value));
+                        } catch (MalformedURLException e) {
+                            String msg = "Invalid referer URL";
                             throw new IllegalArgumentException(msg, e);
                         }
-                    }
-                }
-                //variables
-                else if(cmd.matches(RE_VARIABLE)) {
-                    String value = stripQuotes(scanner.findInLine(pattern));
-                    //gets the variable name
-                    Matcher matcher = Pattern.compile(RE_VARIABLE).matcher(cmd);
-                    matcher.matches();
-                    String vname = matcher.group(1);
-                    //validated the name
-                    if(!vname.matches("^[a-zA-Z][a-zA-Z0-9]*")) {
-                        String msg = "Variable name must be alphanumeric: " + vname;
-                        throw new IllegalArgumentException(msg);
-                    }
-                    //initializes if needed
-                    if(step.getVariables() == null) {
-                        step.setVariables(new HashMap<String, IVariable>());
-                    }
-                    try {
-                        IVariable variable;
-                        //if variable is a list
-                        if(value.matches(RE_VAR_LIST)) {
-                            Matcher m = Pattern.compile(RE_VAR_LIST).matcher(value);
-                            m.matches();
-                            String[] values = m.group(2).split(",");
-                            List<String> list = Arrays.asList(values);
-                            variable = new ListVariable(list);
+                        break;
+                    //header
+                    case HEADER:
+                        try {
+                            String value = stripQuotes(lexer.nextValue());
+                            if(step.getHeaders() == null) {
+                                step.setHeaders(new ArrayList<HttpHeader>());
+                            }
+                            String[] pair = value.split(":");
+                            step.getHeaders().add(new HttpHeader(pair[0], pair[1]));
+                        } 
+                        catch (ArrayIndexOutOfBoundsException e) {
+                            String msg = "Invalid header. Format: name:value";
+                            throw new IllegalArgumentException(msg, e);
                         }
-                        //if is just a or alpha
-                        else if(value.matches(RE_VAR_ALPHA_1)) {
-                            variable = new AlphaVariable();
+                        break;
+                    //region
+                    case REGION:
+                        String region = stripQuotes(lexer.nextValue());
+                        if("".equals(region)) {
+                            String msg = "Missing value for region";
+                            throw new IllegalArgumentException(msg);
                         }
-                        //if is alpha with min and max values
-                        else if(value.matches(RE_VAR_ALPHA_2)) {
-                            Matcher m = Pattern.compile(RE_VAR_ALPHA_2).matcher(value);
-                            m.matches();
-                            Integer min = Integer.parseInt(m.group(2));
-                            Integer max = Integer.parseInt(m.group(3));
-                            variable = new AlphaVariable(min, max);
+                        test.setRegion(region);
+                        break;
+                    //HTTP status code
+                    case STATUS:
+                        try {
+                            String value = stripQuotes(lexer.nextValue());
+                            step.setStatus(Integer.parseInt(value));
                         }
-                        //if is just n or number
-                        else if(value.matches(RE_VAR_NUMBER_1)) {
-                            variable = new NumberVariable();
+                        catch(NumberFormatException e) {
+                            String msg = "Wrong HTTP status code format";
+                            throw new IllegalArgumentException(msg, e);
                         }
-                        //if is number with min and max values
-                        else if(value.matches(RE_VAR_NUMBER_2)) {
-                            Matcher m = Pattern.compile(RE_VAR_NUMBER_2).matcher(value);
-                            m.matches();
-                            Integer min = Integer.parseInt(m.group(2));
-                            Integer max = Integer.parseInt(m.group(3));
-                            variable = new NumberVariable(min, max);
+                        break;
+                    //timeout
+                    case TIMEOUT:
+                        try {
+                            String value = stripQuotes(lexer.nextValue());
+                            step.setTimeout(Integer.parseInt(value));
                         }
-                        //if is just u or uuid
-                        else if(value.matches(RE_VAR_UDID)) {
-                            variable = new UdidVariable();
+                        catch(NumberFormatException e) {
+                            String msg = "Timeout must be an integer";
+                            throw new IllegalArgumentException(msg, e);
                         }
-                        //if not pattern was matched
-                        else {
-                            String msg = "Invalid variable args for " + vname 
-                                    + ": " + value;
-                            throw new IllegalArgumentException(msg);
+                        break;
+                    //user authentication
+                    case USER:
+                        try {
+                            String value = stripQuotes(lexer.nextValue());
+                            String[] pair = value.split(":");
+                            step.setUser(new BasicAuthentication(pair[0], pair[1]));
+                        } 
+                        catch (ArrayIndexOutOfBoundsException e) {
+                            String msg = "Invalid user. Format: username:password";
+                            throw new IllegalArgumentException(msg, e);
                         }
-                        // add variable to map
-                        step.getVariables().put(vname, variable);
-                    }
-                    catch(Exception e) {
-                        String msg = "Invalid variable args for " + vname 
-                                + ": " + value;
-                        throw new IllegalArgumentException(msg, e);
-                    }
-                }
-                //ssl
-                else if(cmd.matches("-1|--tlsv1")) {
-                    step.setSsl("tlsv1");
-                }
-                //ssl
-                else if(cmd.matches("-2|--sslv2")) {
-                    step.setSsl("sslv2");
-                }
-                //ssl
-                else if(cmd.matches("-3|--sslv3")) {
-                    step.setSsl("sslv3");
-                }
-                //if the command is unknown
-                else {
-                    throw new IllegalArgumentException("Unknown option " + cmd);
+                        break;
+                    //request method: GET, POST, PUT
+                    case REQUEST:
+                        step.setRequest(stripQuotes(lexer.nextValue()));
+                        break;
+                    //pattern, requires a rush object
+                    case PATTERN:
+                        addPattern((Rush) test, stripQuotes(lexer.nextValue()));
+                        break;
+                    //ssl
+                    case TLSV1:
+                        step.setSsl("tlsv1");
+                        break;
+                    case SSLV2:
+                        step.setSsl("sslv2");
+                        break;
+                    case SSLV3:
+                        step.setSsl("sslv3");
+                        break;
                 }
             }
             // no URL provided
@@ -378,6 +336,136 @@ public class Curl {
         }
         return test;
     }
+
+    /**
+     * Adds the intervals of a ramp pattern (start-end:duration,...) to the
+     * rush.
+     */
+    private static void addPattern(Rush rush, String value) {
+        String[] list = value.split(",");
+        //initialize if needed
+        if(rush.getPattern() == null) {
+            Collection<Interval> i = new ArrayList<Interval>();
+            rush.setPattern(new io.blitz.curl.config.Pattern(1, i));
+        }
+        //for each pattern given
+        for(String ptn : list) {
+            try {
+                //gets the regex capture groups
+                Matcher matcher = PATTERN_VALUE.matcher(ptn);
+                //if doesn't match a valid pattern
+                if(!matcher.matches()) {
+                    String msg = "Invalid ramp pattern";
+                    throw new IllegalArgumentException(msg);
+                }
+                Integer start = Integer.parseInt(matcher.group(1));
+                Integer end = Integer.parseInt(matcher.group(2));
+                Integer duration = Integer.parseInt(matcher.group(3));
+                //creates interval
+                Interval interval = new Interval(1, start, end, duration);
+                rush.getPattern().getIntervals().add(interval);
+            }
+            catch(Exception e) {
+                String msg = "Invalid ramp pattern";
+                throw new IllegalArgumentException(msg, e);
+            }
+        }
+    }
+
+    /**
+     * Gets the name of a variable option (-v:name or --variable:name).
+     * @return the variable name or null if not a variable option
+     */
+    private static String variableName(String cmd) {
+        String vname;
+        if(cmd.startsWith("-v:")) {
+            vname = cmd.substring(3);
+        }
+        else if(cmd.startsWith("--variable:")) {
+            vname = cmd.substring(11);
+        }
+        else {
+            return null;
+        }
+        //tokens never have blanks, so any non-empty name matches RE_VARIABLE
+        return (vname.length() == 0) ? null : vname;
+    }
+
+    /**
+     * Adds a variable to the step.
+     */
+    private static void addVariable(TestStep step, String vname, String value) {
+        //validated the name
+        if(!isAlphanumericName(vname)) {
+            String msg = "Variable name must be alphanumeric: " + vname;
+            throw new IllegalArgumentException(msg);
+        }
+        //initializes if needed
+        if(step.getVariables() == null) {
+            step.setVariables(new HashMap<String, IVariable>());
+        }
+        try {
+            IVariable variable;
+            Matcher m;
+            //if variable is a list
+            if((m = VAR_LIST.matcher(value)).matches()) {
+                String[] values = m.group(2).split(",");
+                List<String> list = Arrays.asList(values);
+                variable = new ListVariable(list);
+            }
+            //if is just a or alpha
+            else if(VAR_ALPHA_1.matcher(value).matches()) {
+                variable = new AlphaVariable();
+            }
+            //if is alpha with min and max values
+            else if((m = VAR_ALPHA_2.matcher(value)).matches()) {
+                Integer min = Integer.parseInt(m.group(2));
+                Integer max = Integer.parseInt(m.group(3));
+                variable = new AlphaVariable(min, max);
+            }
+            //if is just n or number
+            else if(VAR_NUMBER_1.matcher(value).matches()) {
+                variable = new NumberVariable();
+            }
+            //if is number with min and max values
+            else if((m = VAR_NUMBER_2.matcher(value)).matches()) {
+                Integer min = Integer.parseInt(m.group(2));
+                Integer max = Integer.parseInt(m.group(3));
+                variable = new NumberVariable(min, max);
+            }
+            //if is just u or uuid
+            else if(VAR_UDID.matcher(value).matches()) {
+                variable = new UdidVariable();
+            }
+            //if not pattern was matched
+            else {
+                String msg = "Invalid variable args for " + vname 
+                        + ": " + value;
+                throw new IllegalArgumentException(msg);
+            }
+            // add variable to map
+            step.getVariables().put(vname, variable);
+        }
+        catch(Exception e) {
+            String msg = "Invalid variable args for " + vname 
+                    + ": " + value;
+            throw new IllegalArgumentException(msg, e);
+        }
+    }
+
+    /**
+     * @return true if the name matches ^[a-zA-Z][a-zA-Z0-9]*
+     */
+    private static boolean isAlphanumericName(String name) {
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            if(!letter && (i == 0 || c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return name.length() > 0;
+    }
     
     /**
      * Removed the quotes from around the string
@@ -1,12 +1,22 @@
 package io.blitz.curl;
 
 import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
 import io.blitz.curl.exception.AuthenticationException;
 import io.blitz.curl.exception.BlitzException;
 import io.blitz.curl.exception.ValidationException;
+import io.blitz.curl.transport.ITransport;
+import io.blitz.gson.JobStatusReader;
+import io.blitz.gson.JsonCodec;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Abstract class that templates the core tests execution
@@ -52,18 +62,73 @@ public abstract class AbstractTest<Listener extends IListener, Result>
      */
     private transient Client client;
     
+    /**
+     * HTTP layer to be used by the client. Can be shared between tests.
+     * Not meant to be serialized.
+     */
+    private transient ITransport transport;
+    
     /**
      * Transient property to be used during a test execution. 
      * Not meant to be serialized.
      */
     private transient String jobId;
     
+    /**
+     * Decides the delay between status requests. Not meant to be serialized.
+     */
+    private transient IPollStrategy pollStrategy;
+    
+    /**
+     * Polling statistics of the current job. Not meant to be serialized.
+     */
+    private transient PollStats pollStats;
+    
+    /**
+     * Runs <code>executeAsync</code>. Not meant to be serialized.
+     */
+    private transient Executor executor;
+    
+    /**
+     * Last result notified to the listeners. Not meant to be serialized.
+     */
+    private transient volatile Result lastResult;
+    
+    /**
+     * Runs the listeners in asynchronous dispatch mode, null to notify them
+     * on the polling thread. Not meant to be serialized.
+     */
+    private transient Executor dispatchExecutor;
+    
+    private transient int dispatchCapacity;
+    
+    private transient OverflowPolicy overflowPolicy;
+    
+    /**
+     * One queue per listener in asynchronous dispatch mode. 
+     * Not meant to be serialized.
+     */
+    private transient Map<Listener, ListenerDispatcher<Result>> dispatchers;
+    
+    /**
+     * Set when an asynchronous listener asked to abort the job.
+     * Not meant to be serialized.
+     */
+    private transient volatile boolean abortRequested;
+    
     /**
      * Listener to be notified when the <code>Client</code> send a response.
      * Will not be serialized into the json.
      */
     private transient Collection<Listener> listeners;
     
+    /**
+     * Template the test was created from, if any. Provides the JSON body 
+     * while the steps and pattern are still the shared ones.
+     * Not meant to be serialized.
+     */
+    private transient TestTemplate template;
+    
     /**
      * Adds a listener to the test which will fire when the test receives a 
      * status response from the client. The execute method does not invoke the
@@ -86,6 +151,55 @@ public abstract class AbstractTest<Listener extends IListener, Result>
      */
     public void removeListener(Listener listner) {
         listeners.remove(listner);
+        if(dispatchers != null) {
+            dispatchers.remove(listner);
+        }
+    }
+    
+    /**
+     * Enables the asynchronous dispatch mode: each listener gets a bounded 
+     * queue drained on the given executor, so slow listeners don't delay the
+     * polling. A listener returning false still aborts the job; the abort is
+     * sent from the dispatch thread and the polling stops at the next status.
+     * @param executor runs the listeners, null to go back to synchronous 
+     * notifications
+     * @param capacity maximum pending status notifications per listener
+     * @param policy what to do when a listener queue is full
+     */
+    public void setAsyncDispatch(Executor executor, int capacity, 
+            OverflowPolicy policy) {
+        if(executor != null && (capacity < 1 || policy == null)) {
+            throw new IllegalArgumentException("Invalid dispatch configuration");
+        }
+        this.dispatchExecutor = executor;
+        this.dispatchCapacity = capacity;
+        this.overflowPolicy = policy;
+        this.dispatchers = null;
+    }
+    
+    /**
+     * Waits until the asynchronous listeners handled every notification. 
+     * Returns immediately in synchronous mode.
+     * @param timeout maximum time to wait
+     * @param unit time unit of the timeout
+     * @return false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     * @throws RuntimeException the first exception thrown by a listener
+     * since the last call
+     */
+    public boolean awaitListeners(long timeout, TimeUnit unit) 
+            throws InterruptedException {
+        if(dispatchers == null) {
+            return true;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for(ListenerDispatcher<Result> dispatcher : dispatchers.values()) {
+            long remaining = deadline - System.nanoTime();
+            if(!dispatcher.awaitDrained(remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
@@ -102,6 +216,42 @@ public abstract class AbstractTest<Listener extends IListener, Result>
      * <code>Client</code> and will notify all attached listeners.
      */
     public void execute() {
+        start();
+        checkStatus();
+    }
+    
+    /**
+     * Executes the test on the test executor (virtual threads when 
+     * available, see <code>TestExecutors</code>). The listeners are notified 
+     * from that thread.
+     * @return future completed with the last result when the test is over
+     */
+    public CompletableFuture<Result> executeAsync() {
+        final CompletableFuture<Result> future = new CompletableFuture<Result>();
+        Runnable task = new Runnable() {
+            public void run() {
+                try {
+                    execute();
+                    future.complete(lastResult);
+                } catch(Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        };
+        try {
+            getExecutor().execute(task);
+        } catch(RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+    
+    /**
+     * Sends the test to the server without waiting for its status. Used by 
+     * <code>execute</code> and by the <code>JobMonitor</code>.
+     * @return the job id
+     */
+    String start() {
         //specific for each subclass
         checkRequirements();
         //handle the client creation
@@ -125,7 +275,11 @@ public abstract class AbstractTest<Listener extends IListener, Result>
         }
         
         jobId = (String) response.get("job_id");
-        checkStatus();
+        pollStats = new PollStats();
+        lastResult = null;
+        abortRequested = false;
+        dispatchers = null;
+        return jobId;
     }
     
     /**
@@ -136,32 +290,106 @@ public abstract class AbstractTest<Listener extends IListener, Result>
      * @return if the execution will be aborted
      */
     protected boolean notifyStatus(Map<String, Object> result) {
+        if(listeners == null) {
+            return true;
+        }
+        return fireStatus(createSuccessResult(result));
+    }
+    
+    /**
+     * Notify all listneres that the test finished successfully.
+     * @param result the result object from the JSON response 
+     */
+    protected void notifyComplete(Map<String, Object> result) {
+        if(listeners != null) {
+            fireComplete(createSuccessResult(result));
+        }
+    }
+    
+    /**
+     * Notify all listneres about an already decoded success response. If a 
+     * listener returns false, it will automatically call abort after 
+     * notifying all.
+     * @param success the decoded result
+     * @return false if the execution was aborted
+     */
+    protected boolean fireStatus(Result success) {
+        if(listeners != null && dispatchExecutor != null) {
+            try {
+                for(Listener listener : listeners) {
+                    getDispatcher(listener).offerStatus(success);
+                }
+            } catch (InterruptedException ex) {
+                throw new BlitzException("client", ex.getLocalizedMessage());
+            }
+            return !abortRequested;
+        }
         boolean progress = true;
         if(listeners != null) {
-            Result success = createSuccessResult(result);
             for(Listener listener : listeners) {
                  progress = progress && listener.onStatus(success);
             }
             if(!progress) {
-                abort();
+                requestAbort();
             }
         }
-        return progress;
+        return progress && !abortRequested;
     }
     
     /**
      * Notify all listneres that the test finished successfully.
-     * @param result the result object from the JSON response 
+     * @param success the decoded result
      */
-    protected void notifyComplete(Map<String, Object> result) {
+    protected void fireComplete(Result success) {
         if(listeners != null) {
-            Result success = createSuccessResult(result);
             for(Listener listener : listeners) {
-                 listener.onComplete(success);
+                if(dispatchExecutor != null) {
+                    getDispatcher(listener).offerComplete(success);
+                }
+                else {
+                    listener.onComplete(success);
+                }
             }
         }
     }
     
+    /**
+     * Returns the queue of the listener in asynchronous dispatch mode, 
+     * creating it when needed.
+     * @param listener the listener
+     * @return the listener dispatcher
+     */
+    private ListenerDispatcher<Result> getDispatcher(Listener listener) {
+        if(dispatchers == null) {
+            dispatchers = new HashMap<Listener, ListenerDispatcher<Result>>();
+        }
+        ListenerDispatcher<Result> dispatcher = dispatchers.get(listener);
+        if(dispatcher == null) {
+            dispatcher = new ListenerDispatcher<Result>(listener, 
+                    dispatchExecutor, dispatchCapacity, overflowPolicy, 
+                    new Runnable() {
+                public void run() {
+                    requestAbort();
+                }
+            });
+            dispatchers.put(listener, dispatcher);
+        }
+        return dispatcher;
+    }
+    
+    /**
+     * Aborts the job only once, whatever asked for it: a listener returning
+     * false (on the polling or the dispatch thread) or a cancelled 
+     * <code>ResultPublisher</code> subscription. The polling stops at the 
+     * next status.
+     */
+    synchronized void requestAbort() {
+        if(!abortRequested) {
+            abortRequested = true;
+            abort();
+        }
+    }
+    
     /**
      * Should return a <code>Result</code> object populated with the 
      * successful response from the server.
@@ -170,6 +398,32 @@ public abstract class AbstractTest<Listener extends IListener, Result>
      * @see io.blitz.curl.Rush#createSuccessResult(java.util.Map) 
      */
     protected abstract Result createSuccessResult(Map<String, Object> result);
+    
+    /**
+     * Returns the decoder used to read the job status responses. The default
+     * implementation deserializes the result into a map and converts it with
+     * <code>createSuccessResult</code>. Subclasses should return a streaming
+     * decoder.
+     * @return the job status decoder
+     * @see io.blitz.curl.Sprint#createStatusReader() 
+     * @see io.blitz.curl.Rush#createStatusReader() 
+     */
+    protected JobStatusReader<Result> createStatusReader() {
+        return new JobStatusReader<Result>() {
+            @Override
+            protected Result readResult(JsonReader reader, JobStatus<Result> job) 
+                    throws IOException {
+                Map<String, Object> result = JsonCodec.getReader()
+                        .getAdapter(Map.class).read(reader);
+                if(result.get("error") != null) {
+                    job.setResultError((String) result.get("error"));
+                    job.setResultReason((String) result.get("reason"));
+                    return null;
+                }
+                return createSuccessResult(result);
+            }
+        };
+    }
 
     /**
      * Verifies if the client instance was created and tries to create a new 
@@ -191,6 +445,9 @@ public abstract class AbstractTest<Listener extends IListener, Result>
             else {
                 client = new Client(username, apiKey);
             }
+            if(transport != null) {
+                client.setTransport(transport);
+            }
         }
     }
     
@@ -199,46 +456,12 @@ public abstract class AbstractTest<Listener extends IListener, Result>
      * sucessful responses from the server.
      */
     public void checkStatus() {
+        JobStatusReader<Result> statusReader = createStatusReader();
+        IPollStrategy strategy = getPollStrategy();
         try {
             do {
-                Thread.sleep(2000);
-
-                Map<String, Object> job = client.getJobStatus(jobId);
-                Map<String, Object> result = getResult(job);
-                String status = (String) job.get("status");
-
-                if(job == null) {
-                    throw new BlitzException("client", "No response.");
-                }
-                //if no result was issued yet (nothing to notify)
-                else if("queued".equalsIgnoreCase(status) || 
-                    ("running".equalsIgnoreCase(status) && result == null)) {
-                    
-                    continue;
-                }
-                //if the server retuned an error
-                else if(job.containsKey("error")) {
-                    String error = (String) job.get("error");
-                    String reason = (String) job.get("reason");
-                    throw new BlitzException(error, reason);
-                }
-                //if the result was an error
-                else if(result != null && result.containsKey("error")) {
-                    String error = (String) result.get("error");
-                    String reason = (String) result.get("reason");
-                    throw new BlitzException(error, reason);
-                }
-                else if("completed".equalsIgnoreCase(status)) {
-                    // notify the listeners that the test was successful
-                    notifyComplete(result);
-                    break;
-                }
-                //notify the listeners that a successful status was acquired
-                if(!notifyStatus(result)) {
-                    break;
-                }
-                
-            }while(true);
+                Thread.sleep(strategy.getDelay(getPollStats()));
+            }while(!processStatus(client.getJobStatus(jobId, statusReader)));
             
         } catch (InterruptedException ex) {
             throw new BlitzException("client", ex.getLocalizedMessage());
@@ -246,18 +469,129 @@ public abstract class AbstractTest<Listener extends IListener, Result>
     }
     
     /**
-     * Verifies if the job has a result map and returns it.
-     * @param job map response from the job status
-     * @return the job result map or null
+     * Handles a single job status response: updates the polling statistics,
+     * throws errors and notifies the listeners.
+     * @param job the decoded job status
+     * @return true if the job is over (completed or aborted by a listener)
      */
-    private Map<String, Object> getResult(Map<String, Object> job) {
-        if(job != null && job.get("result") != null) {
-            Object obj = job.get("result");
-            if(Map.class.isAssignableFrom(obj.getClass())) {
-                return (Map<String, Object>) obj;
-            }
+    boolean processStatus(JobStatus<Result> job) {
+        if(job == null) {
+            throw new BlitzException("client", "No response.");
+        }
+        PollStats stats = getPollStats();
+        String status = job.getStatus();
+        //if no result was issued yet (nothing to notify)
+        if("queued".equalsIgnoreCase(status) || 
+            ("running".equalsIgnoreCase(status) && !job.hasResult())) {
+
+            stats.record(status, false);
+            return false;
+        }
+        //if the server retuned an error
+        else if(job.getError() != null) {
+            throw new BlitzException(job.getError(), job.getReason());
+        }
+        //if the result was an error
+        else if(job.getResultError() != null) {
+            throw new BlitzException(job.getResultError(), job.getResultReason());
+        }
+        Result result = job.getResult();
+        lastResult = result;
+        stats.record(status, hasNewData(result));
+        if("completed".equalsIgnoreCase(status)) {
+            // notify the listeners that the test was successful
+            fireComplete(result);
+            return true;
+        }
+        long resolution = getResolution(result);
+        if(resolution > 0) {
+            stats.setResolution(resolution);
+        }
+        //notify the listeners that a successful status was acquired
+        return !fireStatus(result);
+    }
+    
+    /**
+     * Tells if a status result brought anything new since the previous one.
+     * Polls without new data are counted as wasted on <code>PollStats</code>.
+     * @param result the decoded result
+     * @return true if the result has new data
+     * @see io.blitz.curl.Rush#hasNewData(io.blitz.curl.rush.RushResult) 
+     */
+    protected boolean hasNewData(Result result) {
+        return true;
+    }
+    
+    /**
+     * Returns the time between two snapshots of the result, so the poll 
+     * strategy can match it. The default implementation doesn't know it.
+     * @param result the decoded result
+     * @return the resolution in milliseconds or 0 if unknown
+     * @see io.blitz.curl.Rush#getResolution(io.blitz.curl.rush.RushResult) 
+     */
+    protected long getResolution(Result result) {
+        return 0;
+    }
+    
+    /**
+     * Getter for the poll strategy. Defaults to an 
+     * <code>AdaptivePollStrategy</code>.
+     * @return the strategy deciding the delay between status requests
+     */
+    public IPollStrategy getPollStrategy() {
+        if(pollStrategy == null) {
+            pollStrategy = new AdaptivePollStrategy();
+        }
+        return pollStrategy;
+    }
+
+    /**
+     * Sets the strategy deciding the delay between status requests. Use
+     * <code>new FixedPollStrategy(2000)</code> for the previous behaviour.
+     * @param pollStrategy the poll strategy
+     */
+    public void setPollStrategy(IPollStrategy pollStrategy) {
+        this.pollStrategy = pollStrategy;
+    }
+
+    /**
+     * Getter for the executor used by <code>executeAsync</code>. Defaults to
+     * the shared <code>TestExecutors.getDefaultExecutor()</code>.
+     * @return the test executor
+     */
+    public Executor getExecutor() {
+        if(executor == null) {
+            return TestExecutors.getDefaultExecutor();
         }
-        return null;
+        return executor;
+    }
+
+    /**
+     * Sets the executor used by <code>executeAsync</code>, for example 
+     * <code>TestExecutors.newVirtualThreadExecutor()</code>.
+     * @param executor the test executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return the last result notified to the listeners or null
+     */
+    public Result getLastResult() {
+        return lastResult;
+    }
+    
+    /**
+     * Returns the polling statistics of the current (or last) job, with the 
+     * number of status requests and how many of them had no new data.
+     * @return the polling statistics
+     */
+    public PollStats getPollStats() {
+        if(pollStats == null) {
+            pollStats = new PollStats();
+        }
+        return pollStats;
     }
     
     /**
@@ -289,6 +623,54 @@ public abstract class AbstractTest<Listener extends IListener, Result>
         this.protocol = protocol;
     }
     
+    /**
+     * Sets the HTTP layer used to talk with blitz.io. A single 
+     * <code>PooledTransport</code> can be shared by many tests so the 
+     * connections are reused between them.
+     * @param transport the transport to be used by the client
+     */
+    public void setTransport(ITransport transport) {
+        this.transport = transport;
+        if(client != null && transport != null) {
+            client.setTransport(transport);
+        }
+    }
+    
+    /**
+     * @return the id of the current (or last) job, null if not started
+     */
+    public String getJobId() {
+        return jobId;
+    }
+    
+    /**
+     * @return the client instance, null before the test is started
+     */
+    Client getClient() {
+        return client;
+    }
+    
+    /**
+     * Links the test to the template it was created from.
+     * @param template the template
+     */
+    void setTemplate(TestTemplate template) {
+        this.template = template;
+    }
+    
+    /**
+     * Uses the JSON pre-serialized by the template when the test still has 
+     * the template steps and pattern, otherwise serializes the test.
+     * @return JSON string
+     */
+    @Override
+    public String toJson() {
+        if(template != null && template.isShapeOf(this)) {
+            return template.toJson(getRegion());
+        }
+        return super.toJson();
+    }
+    
     /**
      * Aborts the current job. Sending a abort request doesn't guarantee that 
      * the job will stop immediately.
@@ -311,6 +693,25 @@ public abstract class AbstractTest<Listener extends IListener, Result>
         return ((Number)number).intValue();
     }
     
+    /**
+     * Convert com.google.gson.internal.LazilyParsedNumber to a primitive 
+     * long. Integral values are parsed exactly, without going through a 
+     * double; fractional ones are truncated.
+     * @param number LazilyParsedNumber
+     * @return long
+     */
+    protected long parseLong(Object number) {
+        if (number instanceof LazilyParsedNumber) {
+            String value = number.toString();
+            try {
+                return Long.parseLong(value);
+            } catch(NumberFormatException ex) {
+                return (long) Double.parseDouble(value);
+            }
+        }
+        return ((Number)number).longValue();
+    }
+    
     /**
      * convert com.google.gson.internal.LazilyParsedNumber to Double
      * @param number LazilyParsedNumber
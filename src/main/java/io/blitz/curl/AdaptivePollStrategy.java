@@ -0,0 +1,110 @@
+package io.blitz.curl;
+
+import io.blitz.curl.config.Interval;
+import io.blitz.curl.config.Pattern;
+
+/**
+ * Poll strategy that adapts to the job status.
+ * <ul>
+ * <li>While the job is queued the delay grows exponentially from 
+ * <code>queuedDelay</code> up to <code>maxDelay</code>.</li>
+ * <li>While running it polls every <code>runningDelay</code>, or at the 
+ * resolution of the timeline when it is known, so a poll rarely comes back
+ * without new data. Consecutive polls without new data slow it down.</li>
+ * </ul>
+ * @author ghermeto
+ */
+public class AdaptivePollStrategy implements IPollStrategy {
+    
+    private long initialDelay;
+    
+    private long queuedDelay;
+    
+    private long runningDelay;
+    
+    private long maxDelay;
+    
+    private double backoff;
+
+    public AdaptivePollStrategy() {
+        this(1000, 1000, 1000, 10000, 1.5);
+    }
+
+    /**
+     * @param initialDelay delay before the first poll
+     * @param queuedDelay first delay while the job is queued
+     * @param runningDelay minimum delay while the job is running
+     * @param maxDelay maximum delay between polls
+     * @param backoff growth factor applied on each poll without new data
+     */
+    public AdaptivePollStrategy(long initialDelay, long queuedDelay, 
+            long runningDelay, long maxDelay, double backoff) {
+        if(initialDelay < 0 || queuedDelay < 0 || runningDelay < 0 || 
+                maxDelay < runningDelay || backoff < 1) {
+            throw new IllegalArgumentException("Invalid poll configuration");
+        }
+        this.initialDelay = initialDelay;
+        this.queuedDelay = queuedDelay;
+        this.runningDelay = runningDelay;
+        this.maxDelay = maxDelay;
+        this.backoff = backoff;
+    }
+    
+    /**
+     * Creates a strategy that polls at least four times during the shortest
+     * interval of the rush pattern, so every ramp shows up in the updates.
+     * @param pattern the rush pattern
+     * @return the poll strategy
+     */
+    public static AdaptivePollStrategy forPattern(Pattern pattern) {
+        AdaptivePollStrategy strategy = new AdaptivePollStrategy();
+        if(pattern != null && pattern.getIntervals() != null) {
+            for(Interval interval : pattern.getIntervals()) {
+                if(interval.getDuration() != null && interval.getDuration() > 0) {
+                    long quarter = interval.getDuration() * 1000L / 4;
+                    strategy.maxDelay = Math.max(strategy.runningDelay, 
+                            Math.min(strategy.maxDelay, quarter));
+                }
+            }
+        }
+        return strategy;
+    }
+
+    public long getDelay(PollStats stats) {
+        String status = stats.getLastStatus();
+        if(status == null) {
+            return initialDelay;
+        }
+        int wasted = stats.getConsecutiveWastedPolls();
+        if("queued".equalsIgnoreCase(status)) {
+            return grow(queuedDelay, wasted);
+        }
+        long delay = Math.max(runningDelay, Math.min(maxDelay, stats.getResolution()));
+        return grow(delay, wasted);
+    }
+    
+    private long grow(long delay, int times) {
+        double value = delay * Math.pow(backoff, Math.min(times, 32));
+        return (long) Math.min(maxDelay, value);
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public long getQueuedDelay() {
+        return queuedDelay;
+    }
+
+    public long getRunningDelay() {
+        return runningDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public double getBackoff() {
+        return backoff;
+    }
+}
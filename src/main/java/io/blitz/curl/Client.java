@@ -1,32 +1,31 @@
 package io.blitz.curl;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
-import io.blitz.curl.config.BasicAuthentication;
-import io.blitz.curl.config.HttpHeader;
+import com.google.gson.stream.JsonReader;
 import io.blitz.curl.exception.BlitzException;
-import io.blitz.gson.ArrayDeserializer;
-import io.blitz.gson.BasicAuthenticationSerializer;
-import io.blitz.gson.HttpCookieSerializer;
-import io.blitz.gson.HttpHeaderSerializer;
-import io.blitz.gson.MapDeserializer;
+import io.blitz.curl.transport.HttpClientTransport;
+import io.blitz.curl.transport.IAsyncTransport;
+import io.blitz.curl.transport.ITransport;
+import io.blitz.curl.transport.TransportResponse;
+import io.blitz.curl.transport.URLConnectionTransport;
+import io.blitz.gson.JobStatusReader;
+import io.blitz.gson.JsonCodec;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Modifier;
-import java.net.HttpCookie;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Collection;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -65,7 +64,18 @@ public class Client {
     /**
      * Api Key returned by the login, to be used on all subsequent requests.
      */
-    private String authenticatedKey;
+    private volatile String authenticatedKey;
+    
+    /**
+     * HTTP layer used to send the requests
+     */
+    private ITransport transport;
+    
+    /**
+     * Non-blocking HTTP layer used by the asynchronous methods. The shared
+     * default one when the transport is not asynchronous itself.
+     */
+    private IAsyncTransport asyncTransport;
 
     public Client(String user, String apiKey) {
         this(user, apiKey, "blitz.io", 80);
@@ -82,6 +92,13 @@ public class Client {
         this.host = host;
         this.protocol = protocol;
         this.authenticatedKey = null;
+        this.transport = new URLConnectionTransport();
+    }
+
+    public Client(String user, String apiKey, String host, int port, 
+            String protocol, ITransport transport) {
+        this(user, apiKey, host, port, protocol);
+        setTransport(transport);
     }
 
     /**
@@ -90,32 +107,24 @@ public class Client {
      * @return the deserialized JSON response with the authenticated api key.
      */
     public Map<String, Object> login() {
-        try {
-            URL url = new URL(protocol, host, port, "/login/api");
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            //set the headers
-            addCredentials(connection);
-            //gets the response
-            InputStream stream = connection.getInputStream();
-            Map<String, Object> response = fromJsonStream(stream);
-            //handle response error
-            if(response == null) {
-                throw new BlitzException("client", "No response.");
-            }
-            //authenticate
-            else if(response.get("ok") != null) {
-                if(response.get("api_key") != null) {
-                    authenticatedKey = response.get("api_key").toString();
-                }
-            }
-            return response;
-        } catch (MalformedURLException ex) {
-            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
-            throw new BlitzException("client", "Malformed URL. Please check your host");
-        } catch (IOException ex) {
-            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
-            throw new BlitzException("server", "Can't connect to the server");
-        }
+        Map<String, Object> response = request("GET", "/login/api", null, 
+                "Can't connect to the server");
+        return authenticate(response);
+    }
+    
+    /**
+     * Asynchronous version of <code>login()</code>. 
+     * @return a future completed with the deserialized JSON response or 
+     * completed exceptionally with a <code>BlitzException</code>
+     * @see #login() 
+     */
+    public CompletableFuture<Map<String, Object>> loginAsync() {
+        return requestAsync("GET", "/login/api", null, "Can't connect to the server")
+                .thenApply(new Function<Map<String, Object>, Map<String, Object>>() {
+                    public Map<String, Object> apply(Map<String, Object> response) {
+                        return authenticate(response);
+                    }
+                });
     }
 
     /**
@@ -127,32 +136,24 @@ public class Client {
         if(test == null) {
             throw new BlitzException("client", "Test exeuction requires a valid test");
         }
-        try {
-            String data = toJson(test);
-            URL url = new URL(protocol, host, port, "/api/1/curl/execute");
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            //set the method
-            connection.setRequestMethod("POST");
-            //set the headers
-            connection.setRequestProperty("content-length", Integer.toString(data.length()));
-            addCredentials(connection);
-            //sends the JSON data
-            connection.setDoOutput(true);
-            OutputStream ost = connection.getOutputStream();
-            PrintWriter pw = new PrintWriter(ost);
-            pw.print(data);
-            pw.flush();
-            pw.close();
-            //gets the response
-            InputStream stream = connection.getInputStream();
-            return fromJsonStream(stream);
-        } catch (MalformedURLException ex) {
-            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
-            throw new BlitzException("client", "Malformed URL. Please check your host");
-        } catch (IOException ex) {
-            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
-            throw new BlitzException("server", "Unknown problem connecting with the server");
+        String data = toJson(test);
+        return request("POST", "/api/1/curl/execute", data, 
+                "Unknown problem connecting with the server");
+    }
+    
+    /**
+     * Asynchronous version of <code>execute(TestEntity)</code>.
+     * @param test the test configuration properties to be serialized
+     * @return a future completed with the deserialized JSON with job id
+     * @see #execute(io.blitz.curl.TestEntity) 
+     */
+    public CompletableFuture<Map<String, Object>> executeAsync(TestEntity test) {
+        if(test == null) {
+            throw new BlitzException("client", "Test exeuction requires a valid test");
         }
+        String data = toJson(test);
+        return requestAsync("POST", "/api/1/curl/execute", data, 
+                "Unknown problem connecting with the server");
     }
 
     /**
@@ -164,21 +165,39 @@ public class Client {
         if(jobId == null) {
             throw new BlitzException("client", "Invalid job ID");
         }
-        try {
-            URL url = new URL(protocol, host, port, "/api/1/jobs/"+jobId+"/status");
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            //set the headers
-            addCredentials(connection);
-            //gets the response
-            InputStream stream = connection.getInputStream();
-            return fromJsonStream(stream);
-        } catch (MalformedURLException ex) {
-            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
-            throw new BlitzException("client", "Malformed URL. Please check your host");
-        } catch (IOException ex) {
-            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
-            throw new BlitzException("server", "Unknown problem connecting with the server");
+        return request("GET", "/api/1/jobs/"+jobId+"/status", null, 
+                "Unknown problem connecting with the server");
+    }
+    
+    /**
+     * Issue a job status request to the server and decodes the response 
+     * straight into a typed result, without the intermediate map tree.
+     * @param jobId the id of the job
+     * @param statusReader the decoder of the job result
+     * @return the current status with the decoded result
+     */
+    public <Result> JobStatus<Result> getJobStatus(String jobId, 
+            JobStatusReader<Result> statusReader) {
+        if(jobId == null) {
+            throw new BlitzException("client", "Invalid job ID");
+        }
+        TransportResponse response = send("GET", "/api/1/jobs/"+jobId+"/status", 
+                null, "Unknown problem connecting with the server");
+        return fromJsonStream(response.getBodyStream(), statusReader);
+    }
+    
+    /**
+     * Asynchronous version of <code>getJobStatus(String)</code>.
+     * @param jobId the id of the job
+     * @return a future completed with the current status
+     * @see #getJobStatus(java.lang.String) 
+     */
+    public CompletableFuture<Map<String, Object>> getJobStatusAsync(String jobId) {
+        if(jobId == null) {
+            throw new BlitzException("client", "Invalid job ID");
         }
+        return requestAsync("GET", "/api/1/jobs/"+jobId+"/status", null, 
+                "Unknown problem connecting with the server");
     }
     
     /**
@@ -190,47 +209,146 @@ public class Client {
         if(jobId == null) {
             throw new BlitzException("client", "Invalid job ID");
         }
+        return request("PUT", "/api/1/jobs/"+jobId+"/abort", "", 
+                "Unknown problem connecting with the server");
+    }
+    
+    /**
+     * Asynchronous version of <code>abort(String)</code>.
+     * @param jobId the id of the job to be aborted
+     * @return a future completed with the deserialized response
+     * @see #abort(java.lang.String) 
+     */
+    public CompletableFuture<Map<String, Object>> abortAsync(String jobId) {
+        if(jobId == null) {
+            throw new BlitzException("client", "Invalid job ID");
+        }
+        return requestAsync("PUT", "/api/1/jobs/"+jobId+"/abort", "", 
+                "Unknown problem connecting with the server");
+    }
+    
+    /**
+     * Sends a request through the transport and deserializes the response.
+     * @param method the HTTP method
+     * @param path the API path
+     * @param data the request body or null
+     * @param ioMessage reason of the exception thrown on connection problems
+     * @return the deserialized JSON response
+     */
+    private Map<String, Object> request(String method, String path, 
+            String data, String ioMessage) {
+        return fromJsonStream(send(method, path, data, ioMessage).getBodyStream());
+    }
+    
+    /**
+     * Sends a request through the transport.
+     * @param method the HTTP method
+     * @param path the API path
+     * @param data the request body or null
+     * @param ioMessage reason of the exception thrown on connection problems
+     * @return the drained response
+     */
+    private TransportResponse send(String method, String path, 
+            String data, String ioMessage) {
         try {
-            String data = "";
-            URL url = new URL(protocol, host, port, "/api/1/jobs/"+jobId+"/abort");
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            //set the headers
-            addCredentials(connection);
-            connection.setRequestProperty("content-length", Integer.toString(data.length()));
-            //set the method
-            connection.setRequestMethod("PUT");
-            //sends the empty data
-            connection.setDoOutput(true);
-            OutputStream ost = connection.getOutputStream();
-            PrintWriter pw = new PrintWriter(ost);
-            pw.print(data);
-            pw.flush();
-            pw.close();
-            //gets the response
-            InputStream stream = connection.getInputStream();
-            return fromJsonStream(stream);
+            URL url = new URL(protocol, host, port, path);
+            Map<String, String> headers = new LinkedHashMap<String, String>();
+            byte[] body = createBody(data, headers);
+            addCredentials(headers);
+            return transport.execute(method, url, headers, body);
         } catch (MalformedURLException ex) {
             Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
             throw new BlitzException("client", "Malformed URL. Please check your host");
         } catch (IOException ex) {
             Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
-            throw new BlitzException("server", "Unknown problem connecting with the server");
+            throw new BlitzException("server", ioMessage);
         }
     }
     
+    /**
+     * Sends a request through the asynchronous transport. Connection problems
+     * complete the future with a <code>BlitzException</code>.
+     * @param method the HTTP method
+     * @param path the API path
+     * @param data the request body or null
+     * @param ioMessage reason of the exception on connection problems
+     * @return a future completed with the deserialized JSON response
+     */
+    private CompletableFuture<Map<String, Object>> requestAsync(String method, 
+            String path, String data, final String ioMessage) {
+        
+        CompletableFuture<TransportResponse> future;
+        try {
+            URL url = new URL(protocol, host, port, path);
+            Map<String, String> headers = new LinkedHashMap<String, String>();
+            byte[] body = createBody(data, headers);
+            addCredentials(headers);
+            future = getAsyncTransport().executeAsync(method, url, headers, body);
+        } catch (MalformedURLException ex) {
+            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
+            future = new CompletableFuture<TransportResponse>();
+            future.completeExceptionally(new BlitzException("client", 
+                    "Malformed URL. Please check your host"));
+        }
+        return future.handle(new BiFunction<TransportResponse, Throwable, Map<String, Object>>() {
+            public Map<String, Object> apply(TransportResponse response, Throwable error) {
+                if(error == null) {
+                    return fromJsonStream(response.getBodyStream());
+                }
+                Throwable cause = (error instanceof CompletionException && 
+                        error.getCause() != null) ? error.getCause() : error;
+                if(cause instanceof BlitzException) {
+                    throw (BlitzException) cause;
+                }
+                Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, cause);
+                throw new BlitzException("server", ioMessage);
+            }
+        });
+    }
+    
+    /**
+     * Encodes the request body and sets its content length.
+     * @param data request body or null
+     * @param headers the request headers
+     * @return the encoded body or null
+     */
+    private byte[] createBody(String data, Map<String, String> headers) {
+        if(data == null) {
+            return null;
+        }
+        byte[] body = data.getBytes(StandardCharsets.UTF_8);
+        headers.put("content-length", Integer.toString(body.length));
+        return body;
+    }
+    
+    /**
+     * Stores the authenticated api key returned by a login request.
+     * @param response the deserialized login response
+     * @return the same response
+     */
+    private Map<String, Object> authenticate(Map<String, Object> response) {
+        //handle response error
+        if(response == null) {
+            throw new BlitzException("client", "No response.");
+        }
+        //authenticate
+        else if(response.get("ok") != null) {
+            if(response.get("api_key") != null) {
+                authenticatedKey = response.get("api_key").toString();
+            }
+        }
+        return response;
+    }
+    
     /**
      * Gets a JSON string from a <code>InputStream</code> and deserialize it.
      * @param stream the stream that will input the JSON
      * @return a map with the deserialized JSON response
      */
     protected Map<String, Object> fromJsonStream(InputStream stream) {
-        Gson gson = new GsonBuilder()
-                .registerTypeAdapter(Map.class, new MapDeserializer())
-                .registerTypeAdapter(Collection.class, new ArrayDeserializer())
-                .disableHtmlEscaping().create();
         try {
             Reader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
-            return gson.fromJson(reader, Map.class);
+            return JsonCodec.fromJson(reader);
         } catch (JsonSyntaxException ex) {
             Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
             throw new BlitzException("server", "Invalid JSON syntax from the server");
@@ -243,36 +361,100 @@ public class Client {
         }
     }
     
+    /**
+     * Gets a JSON job status from a <code>InputStream</code> and decodes it 
+     * with the given reader.
+     * @param stream the stream that will input the JSON
+     * @param statusReader the decoder of the job result
+     * @return the decoded job status or null if there is no response
+     */
+    protected <Result> JobStatus<Result> fromJsonStream(InputStream stream, 
+            JobStatusReader<Result> statusReader) {
+        try {
+            Reader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+            JsonReader json = new JsonReader(reader);
+            json.setLenient(true);
+            return statusReader.read(json);
+        } catch (UnsupportedEncodingException ex) {
+            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
+            throw new BlitzException("server", "Response encoding not compatible with UTF-8");
+        } catch (IOException ex) {
+            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
+            throw new BlitzException("server", "Invalid JSON syntax from the server");
+        } catch (IllegalStateException ex) {
+            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
+            throw new BlitzException("server", "Invalid JSON syntax from the server");
+        } catch (NumberFormatException ex) {
+            Logger.getLogger(Client.class.getName()).log(Level.SEVERE, null, ex);
+            throw new BlitzException("server", "Invalid JSON syntax from the server");
+        }
+    }
+    
     /**
      * Private method that serializes all the non transient properties of the
      * current object to a JSON string.
-     * Use Google Gson implementation to handle the JSON serialization.
+     * Use the shared Google Gson codec to handle the JSON serialization, 
+     * unless the test was created from a <code>TestTemplate</code>.
      * @return 
      */
     private String toJson(TestEntity test) {
-        Gson gson = new GsonBuilder()
-                .excludeFieldsWithModifiers(Modifier.TRANSIENT, Modifier.FINAL)
-                .registerTypeAdapter(HttpHeader.class, new HttpHeaderSerializer())
-                .registerTypeAdapter(HttpCookie.class, new HttpCookieSerializer())
-                .registerTypeAdapter(BasicAuthentication.class, new BasicAuthenticationSerializer())
-                .disableHtmlEscaping().create();
-        return gson.toJson(test);
+        return test.toJson();
     }
 
     /**
-     * Add the necessary headers to the connection to authenticate the call on blitz.io
-     * @param connection the connection to set the headers
+     * Add the necessary headers to the request to authenticate the call on blitz.io
+     * @param headers the request headers
      */
-    private void addCredentials(HttpURLConnection connection) {
+    private void addCredentials(Map<String, String> headers) {
         String key = (authenticatedKey == null) ? apiKey : authenticatedKey;
-        connection.setRequestProperty("X-API-User", user);
-        connection.setRequestProperty("X-API-Key", key);
-        connection.setRequestProperty("X-API-Client", "java");
+        headers.put("X-API-User", user);
+        headers.put("X-API-Key", key);
+        headers.put("X-API-Client", "java");
     }
 
     public boolean isAuthenticated() {
         return (authenticatedKey!=null);
     }
+
+    public ITransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Returns the HTTP layer used by the asynchronous methods. If the 
+     * transport is not asynchronous and none was set, the default
+     * <code>HttpClientTransport</code> shared by all the clients is used.
+     * @return the asynchronous transport
+     */
+    public synchronized IAsyncTransport getAsyncTransport() {
+        if(asyncTransport == null) {
+            asyncTransport = (transport instanceof IAsyncTransport) ? 
+                    (IAsyncTransport) transport : HttpClientTransport.getDefault();
+        }
+        return asyncTransport;
+    }
+
+    /**
+     * Replaces the HTTP layer used by the asynchronous methods.
+     * @param asyncTransport the non-blocking transport
+     */
+    public synchronized void setAsyncTransport(IAsyncTransport asyncTransport) {
+        this.asyncTransport = asyncTransport;
+    }
+
+    /**
+     * Replaces the HTTP layer used by this client. 
+     * @param transport the transport, such as a <code>PooledTransport</code>
+     */
+    public void setTransport(ITransport transport) {
+        if(transport == null) {
+            throw new IllegalArgumentException("Transport can't be null");
+        }
+        this.transport = transport;
+        if(transport instanceof IAsyncTransport) {
+            setAsyncTransport((IAsyncTransport) transport);
+        }
+    }
     
     
 }
@@ -0,0 +1,28 @@
+package io.blitz.curl;
+
+/**
+ * Polls the job status at a fixed interval, whatever the job status is.
+ * @author ghermeto
+ */
+public class FixedPollStrategy implements IPollStrategy {
+    
+    private final long interval;
+
+    /**
+     * @param interval delay between status requests in milliseconds
+     */
+    public FixedPollStrategy(long interval) {
+        if(interval < 0) {
+            throw new IllegalArgumentException("Interval can't be negative");
+        }
+        this.interval = interval;
+    }
+
+    public long getDelay(PollStats stats) {
+        return interval;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+}
@@ -0,0 +1,18 @@
+package io.blitz.curl;
+
+/**
+ * Decides how long to wait before the next job status request.
+ * @author ghermeto
+ * @see FixedPollStrategy
+ * @see AdaptivePollStrategy
+ */
+public interface IPollStrategy {
+    
+    /**
+     * Returns the delay before the next status request.
+     * @param stats the polling statistics of the current job (the last 
+     * status is null before the first poll)
+     * @return the delay in milliseconds
+     */
+    long getDelay(PollStats stats);
+}
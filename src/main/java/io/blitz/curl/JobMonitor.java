@@ -0,0 +1,193 @@
+package io.blitz.curl;
+
+import io.blitz.curl.exception.BlitzException;
+import io.blitz.curl.transport.ITransport;
+import io.blitz.curl.transport.PooledTransport;
+import io.blitz.gson.JobStatusReader;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Monitors many running tests with a fixed number of threads. Instead of
+ * blocking a thread per test inside <code>execute</code>, each job is
+ * scheduled on a shared <code>ScheduledExecutorService</code>: a thread only
+ * runs when a status request is due, sends it, notifies the test listeners
+ * and reschedules the job according to the test poll strategy.
+ * <pre>
+ * JobMonitor monitor = new JobMonitor(4);
+ * CompletableFuture&lt;RushResult&gt; future = monitor.submit(rush);
+ * </pre>
+ * The listeners of a test are always notified by one thread at a time.
+ * @author ghermeto
+ */
+public class JobMonitor {
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Shared by all submitted tests, bounds the concurrent requests
+     */
+    private final ITransport transport;
+
+    /**
+     * True if the transport was created by the monitor, closed on shutdown
+     */
+    private final boolean ownTransport;
+
+    /**
+     * Jobs submitted and not finished yet
+     */
+    private final Set<MonitoredJob<?>> activeJobs =
+            ConcurrentHashMap.<MonitoredJob<?>>newKeySet();
+
+    /**
+     * @param threads number of threads sending status requests
+     */
+    public JobMonitor(int threads) {
+        this(threads, null);
+    }
+
+    /**
+     * @param threads number of threads sending status requests
+     * @param transport transport set on every submitted test, null for a
+     * <code>PooledTransport</code> with one connection per thread
+     */
+    public JobMonitor(int threads, ITransport transport) {
+        if(threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        final AtomicInteger count = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable,
+                        "blitz-monitor-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+        this.ownTransport = (transport == null);
+        this.transport = ownTransport ? new PooledTransport(threads, threads,
+                PooledTransport.DEFAULT_IDLE_TIMEOUT) : transport;
+    }
+
+    /**
+     * Starts the test and monitors its status until it completes. Errors are
+     * reported by completing the future exceptionally. Cancelling the future
+     * aborts the job.
+     * @param test the sprint or rush to execute
+     * @return future completed with the final result
+     */
+    public <Result> CompletableFuture<Result> submit(AbstractTest<?, Result> test) {
+        test.setTransport(transport);
+        MonitoredJob<Result> job = new MonitoredJob<Result>(test);
+        activeJobs.add(job);
+        try {
+            scheduler.execute(job);
+        } catch(RejectedExecutionException ex) {
+            job.fail(new BlitzException("client", "Monitor is shut down"));
+        }
+        return job.future;
+    }
+
+    /**
+     * @return number of submitted jobs still being monitored
+     */
+    public int getActiveJobs() {
+        return activeJobs.size();
+    }
+
+    /**
+     * @return the transport set on every submitted test
+     */
+    public ITransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Stops monitoring. Jobs still running are not aborted on the server;
+     * their futures complete exceptionally.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for(MonitoredJob<?> job : activeJobs) {
+            job.fail(new BlitzException("client", "Monitor is shut down"));
+        }
+        if(ownTransport) {
+            transport.close();
+        }
+    }
+
+    /**
+     * @return true if shutdown was called
+     */
+    public boolean isShutdown() {
+        return scheduler.isShutdown();
+    }
+
+    /**
+     * A single test being monitored. Runs once to start the job and once per
+     * status request afterwards, never concurrently with itself.
+     */
+    private class MonitoredJob<Result> implements Runnable {
+
+        private final AbstractTest<?, Result> test;
+
+        private final CompletableFuture<Result> future;
+
+        private JobStatusReader<Result> statusReader;
+
+        public MonitoredJob(AbstractTest<?, Result> test) {
+            this.test = test;
+            this.future = new CompletableFuture<Result>();
+        }
+
+        public void run() {
+            try {
+                if(future.isCancelled()) {
+                    activeJobs.remove(this);
+                    if(statusReader != null) {
+                        test.abort();
+                    }
+                    return;
+                }
+                if(statusReader == null) {
+                    test.start();
+                    statusReader = test.createStatusReader();
+                }
+                else {
+                    JobStatus<Result> job = test.getClient()
+                            .getJobStatus(test.getJobId(), statusReader);
+                    if(test.processStatus(job)) {
+                        activeJobs.remove(this);
+                        future.complete(job.getResult());
+                        return;
+                    }
+                }
+                long delay = test.getPollStrategy().getDelay(test.getPollStats());
+                scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+            } catch(RejectedExecutionException ex) {
+                fail(new BlitzException("client", "Monitor is shut down"));
+            } catch(RuntimeException ex) {
+                fail(ex);
+            }
+        }
+
+        /**
+         * Stops monitoring the job, completing its future exceptionally.
+         */
+        void fail(RuntimeException ex) {
+            activeJobs.remove(this);
+            future.completeExceptionally(ex);
+        }
+    }
+}
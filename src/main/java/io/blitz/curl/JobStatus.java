@@ -0,0 +1,101 @@
+package io.blitz.curl;
+
+/**
+ * Typed job status response. Contains the job status, the server error (if
+ * any) and the decoded result.
+ * @author ghermeto
+ * @see io.blitz.gson.JobStatusReader
+ */
+public class JobStatus<Result> {
+    
+    /**
+     * The job status (queued, running, completed...)
+     */
+    private String status;
+    
+    /**
+     * Error key returned by the server
+     */
+    private String error;
+    
+    /**
+     * Error message returned by the server
+     */
+    private String reason;
+    
+    /**
+     * Error key of the job result
+     */
+    private String resultError;
+    
+    /**
+     * Error message of the job result
+     */
+    private String resultReason;
+    
+    /**
+     * True if the response contained a result object
+     */
+    private boolean resultPresent;
+    
+    /**
+     * The decoded result
+     */
+    private Result result;
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public String getResultError() {
+        return resultError;
+    }
+
+    public void setResultError(String resultError) {
+        this.resultError = resultError;
+    }
+
+    public String getResultReason() {
+        return resultReason;
+    }
+
+    public void setResultReason(String resultReason) {
+        this.resultReason = resultReason;
+    }
+
+    public boolean hasResult() {
+        return resultPresent;
+    }
+
+    public void setResultPresent(boolean resultPresent) {
+        this.resultPresent = resultPresent;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    public void setResult(Result result) {
+        this.result = result;
+    }
+}
@@ -0,0 +1,261 @@
+package io.blitz.curl;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers the notifications of a test to a single listener on a separate
+ * executor, through a bounded queue. The polling thread only enqueues, so a
+ * slow listener doesn't delay the next status request. Notifications are
+ * delivered in order, by one thread at a time.
+ * <p>
+ * When the listener returns false from <code>onStatus</code> the abort
+ * callback is called once and no further status is delivered. Exceptions
+ * thrown by the listener are rethrown by <code>awaitDrained</code>.
+ * </p>
+ * @author ghermeto
+ * @see OverflowPolicy
+ */
+public class ListenerDispatcher<Result> {
+
+    private final IListener<Result> listener;
+
+    private final Executor executor;
+
+    private final int capacity;
+
+    private final OverflowPolicy policy;
+
+    private final Runnable abortCallback;
+
+    private final ArrayDeque<Notification<Result>> queue;
+
+    private final Runnable drain = new Runnable() {
+        public void run() {
+            drain();
+        }
+    };
+
+    private boolean draining;
+
+    private volatile boolean aborted;
+
+    private RuntimeException failure;
+
+    private long dropped;
+
+    /**
+     * Number of status notifications in the queue
+     */
+    private int pending;
+
+    /**
+     * @param listener the listener to be notified
+     * @param executor runs the listener
+     * @param capacity maximum number of pending status notifications
+     * @param policy what to do when the queue is full
+     * @param abortCallback called when the listener returns false
+     */
+    public ListenerDispatcher(IListener<Result> listener, Executor executor,
+            int capacity, OverflowPolicy policy, Runnable abortCallback) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.listener = listener;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.abortCallback = abortCallback;
+        this.queue = new ArrayDeque<Notification<Result>>(capacity + 1);
+    }
+
+    /**
+     * Enqueues a status notification according to the overflow policy.
+     * @param result the status result
+     * @return false if the listener asked to abort the job
+     * @throws InterruptedException if interrupted while blocked on a full
+     * queue
+     * @throws java.util.concurrent.RejectedExecutionException if the executor
+     * doesn't accept the delivery, the status is then discarded
+     */
+    public boolean offerStatus(Result result) throws InterruptedException {
+        if(aborted) {
+            return false;
+        }
+        synchronized(this) {
+            if(policy == OverflowPolicy.BLOCK) {
+                while(pending >= capacity && !aborted) {
+                    wait();
+                }
+            }
+            else if(pending >= capacity) {
+                dropped++;
+                if(policy == OverflowPolicy.DROP_OLDEST) {
+                    removeFirstStatus();
+                }
+                else {
+                    removeLastStatus();
+                }
+            }
+            queue.addLast(new Notification<Result>(result, false));
+            pending++;
+            schedule();
+        }
+        return !aborted;
+    }
+
+    /**
+     * Enqueues the completion notification. It is never dropped and doesn't
+     * count toward the capacity.
+     * @param result the final result
+     * @throws java.util.concurrent.RejectedExecutionException if the executor
+     * doesn't accept the delivery, the notification is then discarded
+     */
+    public synchronized void offerComplete(Result result) {
+        queue.addLast(new Notification<Result>(result, true));
+        schedule();
+    }
+
+    /**
+     * Waits until every queued notification was delivered.
+     * @param timeout maximum time to wait
+     * @param unit time unit of the timeout
+     * @return false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     * @throws RuntimeException the first exception thrown by the listener 
+     * since the last call, the next ones are suppressed
+     */
+    public synchronized boolean awaitDrained(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while(draining || !queue.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if(remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        if(failure != null) {
+            RuntimeException ex = failure;
+            failure = null;
+            throw ex;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of status notifications discarded by the policy
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return true if the listener asked to abort the job
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public IListener<Result> getListener() {
+        return listener;
+    }
+
+    /**
+     * Starts the delivery of the notification just enqueued if no thread is
+     * draining the queue. When the executor rejects it, the notification is
+     * removed so that a blocked producer doesn't wait for a drain that will
+     * never run.
+     */
+    private void schedule() {
+        if(!draining) {
+            draining = true;
+            try {
+                executor.execute(drain);
+            } catch (RuntimeException ex) {
+                draining = false;
+                if(!queue.pollLast().complete) {
+                    pending--;
+                }
+                notifyAll();
+                throw ex;
+            }
+        }
+    }
+
+    private void removeFirstStatus() {
+        for(Iterator<Notification<Result>> it = queue.iterator(); it.hasNext();) {
+            if(!it.next().complete) {
+                it.remove();
+                pending--;
+                return;
+            }
+        }
+    }
+
+    private void removeLastStatus() {
+        for(Iterator<Notification<Result>> it = queue.descendingIterator(); it.hasNext();) {
+            if(!it.next().complete) {
+                it.remove();
+                pending--;
+                return;
+            }
+        }
+    }
+
+    private void drain() {
+        while(true) {
+            Notification<Result> notification;
+            synchronized(this) {
+                notification = queue.pollFirst();
+                if(notification == null) {
+                    draining = false;
+                    notifyAll();
+                    return;
+                }
+                if(!notification.complete) {
+                    pending--;
+                }
+                notifyAll();
+            }
+            try {
+                if(notification.complete) {
+                    listener.onComplete(notification.result);
+                }
+                else if(!aborted && !listener.onStatus(notification.result)) {
+                    aborted = true;
+                    synchronized(this) {
+                        notifyAll();
+                    }
+                    abortCallback.run();
+                }
+            } catch(RuntimeException ex) {
+                synchronized(this) {
+                    if(failure == null) {
+                        failure = ex;
+                    }
+                    else {
+                        failure.addSuppressed(ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A queued notification
+     */
+    private static class Notification<Result> {
+
+        private final Result result;
+
+        private final boolean complete;
+
+        public Notification(Result result, boolean complete) {
+            this.result = result;
+            this.complete = complete;
+        }
+    }
+}
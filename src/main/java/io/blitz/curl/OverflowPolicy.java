@@ -0,0 +1,26 @@
+package io.blitz.curl;
+
+/**
+ * What an asynchronous listener queue does with a new status when it is 
+ * full. Completion notifications are never dropped.
+ * @author ghermeto
+ * @see ListenerDispatcher
+ */
+public enum OverflowPolicy {
+    
+    /**
+     * Discards the oldest pending status to make room for the new one
+     */
+    DROP_OLDEST,
+    
+    /**
+     * Replaces the newest pending status with the new one, so the listener
+     * skips the intermediate snapshots but always sees the latest
+     */
+    COALESCE_LATEST,
+    
+    /**
+     * Blocks the polling thread until the listener catches up
+     */
+    BLOCK
+}
@@ -0,0 +1,86 @@
+package io.blitz.curl;
+
+/**
+ * Polling statistics of a single job. Counts the status requests and the 
+ * ones that came back without new data (wasted), so the poll interval can 
+ * be tuned between API load and result latency.
+ * @author ghermeto
+ * @see IPollStrategy
+ */
+public class PollStats {
+    
+    private int polls;
+    
+    private int wastedPolls;
+    
+    private int consecutiveWastedPolls;
+    
+    private String lastStatus;
+    
+    /**
+     * Time in milliseconds between two timeline snapshots, 0 if unknown
+     */
+    private long resolution;
+    
+    /**
+     * Records a status request. A change of status (from queued to running)
+     * starts the count of consecutive wasted polls again, so the backoff of
+     * one phase doesn't slow down the next one.
+     * @param status the job status returned by the server
+     * @param newData false if the response had nothing new to notify
+     */
+    public synchronized void record(String status, boolean newData) {
+        polls++;
+        boolean changed = lastStatus != null && !lastStatus.equalsIgnoreCase(status);
+        lastStatus = status;
+        if(!newData) {
+            wastedPolls++;
+        }
+        if(newData || changed) {
+            consecutiveWastedPolls = 0;
+        }
+        else {
+            consecutiveWastedPolls++;
+        }
+    }
+
+    /**
+     * @return the number of status requests sent
+     */
+    public synchronized int getPolls() {
+        return polls;
+    }
+
+    /**
+     * @return the number of status requests without new data
+     */
+    public synchronized int getWastedPolls() {
+        return wastedPolls;
+    }
+
+    /**
+     * @return the number of status requests without new data since the 
+     * last one with new data
+     */
+    public synchronized int getConsecutiveWastedPolls() {
+        return consecutiveWastedPolls;
+    }
+
+    /**
+     * @return the status returned by the last request or null
+     */
+    public synchronized String getLastStatus() {
+        return lastStatus;
+    }
+
+    /**
+     * @return time in milliseconds between timeline snapshots, 0 if unknown
+     */
+    public synchronized long getResolution() {
+        return resolution;
+    }
+
+    public synchronized void setResolution(long resolution) {
+        this.resolution = resolution;
+    }
+}
@@ -0,0 +1,302 @@
+package io.blitz.curl;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Reactive view of a test progress. Each status result is published to the
+ * subscribers, which control the demand through their subscription. Results
+ * are buffered per subscriber up to the capacity; when a subscriber falls
+ * behind, the <code>OverflowPolicy</code> decides if results are dropped or
+ * if the polling waits for demand. The final result is never dropped.
+ * <p>
+ * Cancelling the last active subscription aborts the job. The publisher is
+ * registered as a listener of the test, see <code>Rush.publisher</code> and
+ * <code>Sprint.publisher</code>.
+ * </p>
+ * <pre>
+ * ResultPublisher&lt;RushResult&gt; publisher = rush.publisher(16, OverflowPolicy.DROP_OLDEST);
+ * publisher.subscribe(analytics);
+ * publisher.start();
+ * </pre>
+ * @author ghermeto
+ */
+public class ResultPublisher<Result> implements Flow.Publisher<Result>, IListener<Result> {
+
+    private final AbstractTest<?, Result> test;
+
+    private final int capacity;
+
+    private final OverflowPolicy policy;
+
+    private final CopyOnWriteArrayList<ResultSubscription> subscriptions =
+            new CopyOnWriteArrayList<ResultSubscription>();
+
+    /**
+     * Set once every subscriber cancelled
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Set when the test is over, late subscribers are completed immediately
+     */
+    private volatile boolean terminated;
+
+    private volatile Throwable failure;
+
+    /**
+     * Last result published, not published again when the test ends
+     */
+    private volatile Result published;
+
+    /**
+     * @param test the test to be published
+     * @param capacity maximum buffered results per subscriber
+     * @param policy what to do when a subscriber buffer is full
+     */
+    public ResultPublisher(AbstractTest<?, Result> test, int capacity,
+            OverflowPolicy policy) {
+        if(capacity < 1 || policy == null) {
+            throw new IllegalArgumentException("Invalid publisher configuration");
+        }
+        this.test = test;
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    public void subscribe(Flow.Subscriber<? super Result> subscriber) {
+        if(subscriber == null) {
+            throw new NullPointerException("Subscriber can't be null");
+        }
+        ResultSubscription subscription = new ResultSubscription(subscriber);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if(terminated) {
+            subscription.terminate(failure);
+        }
+    }
+
+    /**
+     * Executes the test asynchronously. Execution errors are signaled to the
+     * subscribers with <code>onError</code>. When the test ends without 
+     * completing, aborted by another listener for example, the subscribers
+     * are completed with the last result.
+     * @return future completed with the last result when the test is over
+     */
+    public CompletableFuture<Result> start() {
+        return test.executeAsync().whenComplete(new BiConsumer<Result, Throwable>() {
+            public void accept(Result result, Throwable error) {
+                if(error != null) {
+                    terminate(error);
+                }
+                else if(result == null || result == published) {
+                    terminate(null);
+                }
+                else {
+                    onComplete(result);
+                }
+            }
+        });
+    }
+
+    /**
+     * Publishes a status result to every subscriber.
+     * @param result the status result
+     * @return false once every subscriber cancelled, aborting the job
+     */
+    public boolean onStatus(Result result) {
+        if(cancelled) {
+            return false;
+        }
+        published = result;
+        try {
+            for(ResultSubscription subscription : subscriptions) {
+                subscription.offer(result, false);
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return !cancelled;
+    }
+
+    /**
+     * Publishes the final result and completes every subscriber.
+     * @param result the final result
+     */
+    public void onComplete(Result result) {
+        published = result;
+        terminated = true;
+        for(ResultSubscription subscription : subscriptions) {
+            try {
+                subscription.offer(result, true);
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Signals an error to every subscriber.
+     * @param error the failure, null to complete the subscribers with the 
+     * results already published
+     */
+    public void terminate(Throwable error) {
+        failure = error;
+        terminated = true;
+        for(ResultSubscription subscription : subscriptions) {
+            subscription.terminate(error);
+        }
+    }
+
+    /**
+     * @return the number of active subscriptions
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    private void cancelled(ResultSubscription subscription) {
+        if(subscriptions.remove(subscription) && subscriptions.isEmpty()
+                && !terminated) {
+            cancelled = true;
+            if(test.getJobId() != null) {
+                test.requestAbort();
+            }
+        }
+    }
+
+    /**
+     * Subscription of a single subscriber, with its demand and buffer.
+     * Signals are serialized: only one thread delivers at a time.
+     */
+    private class ResultSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Result> subscriber;
+
+        private final ArrayDeque<Result> buffer = new ArrayDeque<Result>();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private long demand;
+
+        private boolean completed;
+
+        private Throwable error;
+
+        private volatile boolean done;
+
+        public ResultSubscription(Flow.Subscriber<? super Result> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        public void request(long n) {
+            synchronized(this) {
+                if(n <= 0) {
+                    error = new IllegalArgumentException(
+                            "Demand must be positive: " + n);
+                    buffer.clear();
+                }
+                else {
+                    demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+                }
+                notifyAll();
+            }
+            drain();
+        }
+
+        public void cancel() {
+            synchronized(this) {
+                done = true;
+                buffer.clear();
+                notifyAll();
+            }
+            cancelled(this);
+        }
+
+        private void offer(Result result, boolean last) throws InterruptedException {
+            synchronized(this) {
+                if(done || completed) {
+                    return;
+                }
+                if(!last && buffer.size() >= capacity) {
+                    if(policy == OverflowPolicy.BLOCK) {
+                        while(buffer.size() >= capacity && !done) {
+                            wait();
+                        }
+                    }
+                    else if(policy == OverflowPolicy.DROP_OLDEST) {
+                        buffer.pollFirst();
+                    }
+                    else {
+                        buffer.pollLast();
+                    }
+                }
+                if(done) {
+                    return;
+                }
+                buffer.addLast(result);
+                completed = last;
+            }
+            drain();
+        }
+
+        private void terminate(Throwable failure) {
+            synchronized(this) {
+                if(failure != null) {
+                    error = failure;
+                }
+                completed = true;
+            }
+            drain();
+        }
+
+        private void drain() {
+            if(wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while(true) {
+                    Result item = null;
+                    Throwable failure = null;
+                    boolean complete = false;
+                    synchronized(this) {
+                        if(done) {
+                            break;
+                        }
+                        if(error != null) {
+                            failure = error;
+                            done = true;
+                        }
+                        else if(demand > 0 && !buffer.isEmpty()) {
+                            item = buffer.pollFirst();
+                            demand--;
+                            notifyAll();
+                        }
+                        else if(completed && buffer.isEmpty()) {
+                            complete = true;
+                            done = true;
+                        }
+                        else {
+                            break;
+                        }
+                    }
+                    if(failure != null) {
+                        subscriptions.remove(this);
+                        subscriber.onError(failure);
+                        break;
+                    }
+                    else if(complete) {
+                        subscriptions.remove(this);
+                        subscriber.onComplete();
+                        break;
+                    }
+                    subscriber.onNext(item);
+                }
+            } while(wip.decrementAndGet() != 0);
+        }
+    }
+}
@@ -2,12 +2,17 @@ package io.blitz.curl;
 
 import io.blitz.curl.exception.ValidationException;
 import io.blitz.curl.rush.IRushListener;
+import io.blitz.curl.rush.RushAnalytics;
 import io.blitz.curl.rush.RushResult;
 import io.blitz.curl.config.Pattern;
 import io.blitz.curl.rush.Point;
 import io.blitz.curl.rush.Step;
+import io.blitz.curl.rush.Timeline;
+import io.blitz.gson.JobStatusReader;
+import io.blitz.gson.RushResultReader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -99,6 +104,76 @@ public class Rush extends AbstractTest<IRushListener, RushResult> {
         }
     }
 
+    /**
+     * Creates a reactive view of this test progress, registered as one of 
+     * its listeners. Cancelling every subscription aborts the job.
+     * @param capacity maximum buffered results per subscriber
+     * @param policy what to do when a subscriber falls behind
+     * @return the result publisher
+     * @see ResultPublisher
+     */
+    public ResultPublisher<RushResult> publisher(int capacity, OverflowPolicy policy) {
+        final ResultPublisher<RushResult> publisher = 
+                new ResultPublisher<RushResult>(this, capacity, policy);
+        addListener(new IRushListener() {
+            public boolean onStatus(RushResult result) {
+                return publisher.onStatus(result);
+            }
+            public void onComplete(RushResult result) {
+                publisher.onComplete(result);
+            }
+        });
+        return publisher;
+    }
+
+    /**
+     * Returns a streaming decoder that reads the job status straight into 
+     * a <code>RushResult</code>, without the intermediate map tree. The 
+     * decoder keeps the timeline between polls and only decodes new points,
+     * which also feed the <code>RushAnalytics</code> of the results.
+     * @return the rush job status decoder
+     * @see RushResultReader
+     */
+    @Override
+    protected JobStatusReader<RushResult> createStatusReader() {
+        return new RushResultReader(new Timeline(), new RushAnalytics());
+    }
+
+    /**
+     * A rush status only has new data if points were added to the timeline.
+     * @param result the decoded result
+     * @return true if the delta is not empty
+     */
+    @Override
+    protected boolean hasNewData(RushResult result) {
+        return result != null && result.getDelta() != null && 
+                !result.getDelta().isEmpty();
+    }
+
+    /**
+     * Returns the average time between the timeline points, so the adaptive
+     * poll strategy requests the status about once per new point.
+     * @param result the decoded result
+     * @return the resolution in milliseconds or 0 if unknown
+     */
+    @Override
+    protected long getResolution(RushResult result) {
+        if(result == null || !(result.getTimeline() instanceof List)) {
+            return 0;
+        }
+        List<Point> points = (List<Point>) result.getTimeline();
+        int size = points.size();
+        if(size < 2) {
+            return 0;
+        }
+        Double first = points.get(0).getTimestamp();
+        Double last = points.get(size - 1).getTimestamp();
+        if(first == null || last == null || last <= first) {
+            return 0;
+        }
+        return (long) ((last - first) * 1000 / (size - 1));
+    }
+
     /**
      * Should return a <code>RushResult</code> object populated with the 
      * successful response from the server.
@@ -142,10 +217,10 @@ public class Rush extends AbstractTest<IRushListener, RushResult> {
                 }
                 
                 Double time = (timestamp==null) ? null : timestamp.doubleValue();
-                Integer tx = (txBytes==null) ? null : parseDouble(txBytes).intValue();
-                Integer rx = (rxBytes==null) ? null : parseDouble(rxBytes).intValue();
-                Point point = new Point(time, duration.doubleValue(), total, 
-                        hits, errors, timeouts, volume, tx, rx, steps);
+                long tx = (txBytes==null) ? -1 : parseLong(txBytes);
+                long rx = (rxBytes==null) ? -1 : parseLong(rxBytes);
+                Point point = Point.withByteCounts(time, duration.doubleValue(), 
+                        total, hits, errors, timeouts, volume, tx, rx, steps);
                
                 timeline.add(point);
             }
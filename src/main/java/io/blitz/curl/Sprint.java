@@ -6,6 +6,8 @@ import io.blitz.curl.sprint.Request;
 import io.blitz.curl.sprint.Response;
 import io.blitz.curl.sprint.SprintResult;
 import io.blitz.curl.sprint.Step;
+import io.blitz.gson.JobStatusReader;
+import io.blitz.gson.SprintResultReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
@@ -66,6 +68,39 @@ public class Sprint extends AbstractTest<ISprintListener, SprintResult> {
         }
     }
 
+    /**
+     * Creates a reactive view of this test progress, registered as one of 
+     * its listeners. Cancelling every subscription aborts the job.
+     * @param capacity maximum buffered results per subscriber
+     * @param policy what to do when a subscriber falls behind
+     * @return the result publisher
+     * @see ResultPublisher
+     */
+    public ResultPublisher<SprintResult> publisher(int capacity, OverflowPolicy policy) {
+        final ResultPublisher<SprintResult> publisher = 
+                new ResultPublisher<SprintResult>(this, capacity, policy);
+        addListener(new ISprintListener() {
+            public boolean onStatus(SprintResult result) {
+                return publisher.onStatus(result);
+            }
+            public void onComplete(SprintResult result) {
+                publisher.onComplete(result);
+            }
+        });
+        return publisher;
+    }
+
+    /**
+     * Returns a streaming decoder that reads the job status straight into 
+     * a <code>SprintResult</code>, without the intermediate map tree.
+     * @return the sprint job status decoder
+     * @see SprintResultReader
+     */
+    @Override
+    protected JobStatusReader<SprintResult> createStatusReader() {
+        return new SprintResultReader();
+    }
+
     /**
      * Should return a <code>SprintResult</code> object populated with the 
      * successful response from the server.
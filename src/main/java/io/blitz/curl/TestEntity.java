@@ -1,5 +1,6 @@
 package io.blitz.curl;
 
+import io.blitz.gson.JsonCodec;
 import java.util.Collection;
 
 /**
@@ -49,4 +50,13 @@ public class TestEntity {
     public void setSteps(Collection<TestStep> steps) {
         this.steps = steps;
     }
+
+    /**
+     * Serializes all the non transient properties of the test to the JSON
+     * body of the execute request.
+     * @return JSON string
+     */
+    public String toJson() {
+        return JsonCodec.toJson(this);
+    }
 }
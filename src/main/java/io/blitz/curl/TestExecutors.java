@@ -0,0 +1,77 @@
+package io.blitz.curl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory of executors for <code>AbstractTest.executeAsync</code>. When
+ * running on Java 21 or newer, tests run on virtual threads, so the blocking
+ * client calls and the poll sleep don't hold a platform thread. On older
+ * runtimes a cached pool of daemon threads is used instead.
+ * @author ghermeto
+ */
+public final class TestExecutors {
+
+    private static final Method VIRTUAL_FACTORY = findVirtualFactory();
+
+    private static volatile ExecutorService shared;
+
+    private TestExecutors() {
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task, or a cached
+     * pool of daemon threads when virtual threads are not supported.
+     * @return a new executor service
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        if(VIRTUAL_FACTORY != null) {
+            try {
+                return (ExecutorService) VIRTUAL_FACTORY.invoke(null);
+            } catch (Exception ex) {
+                //falls back to platform threads
+            }
+        }
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable,
+                        "blitz-test-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return the executor shared by tests without an executor of their own
+     */
+    public static ExecutorService getDefaultExecutor() {
+        if(shared == null) {
+            synchronized(TestExecutors.class) {
+                if(shared == null) {
+                    shared = newVirtualThreadExecutor();
+                }
+            }
+        }
+        return shared;
+    }
+
+    private static Method findVirtualFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package io.blitz.curl;
+
+import io.blitz.curl.config.BasicAuthentication;
+import io.blitz.curl.config.Content;
+import io.blitz.curl.config.HttpHeader;
+import io.blitz.curl.config.Interval;
+import io.blitz.curl.config.Pattern;
+import io.blitz.curl.config.variable.AlphaVariable;
+import io.blitz.curl.config.variable.IVariable;
+import io.blitz.curl.config.variable.ListVariable;
+import io.blitz.curl.config.variable.NumberVariable;
+import io.blitz.curl.config.variable.UdidVariable;
+import io.blitz.gson.JsonCodec;
+import java.net.HttpCookie;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable and thread safe template of a sprint or rush, usually compiled
+ * once from a command line with <code>Curl.compile</code>. The template
+ * keeps a private snapshot of the steps and pattern, and the JSON body sent
+ * to the server is serialized once, by the template. Each call to
+ * <code>newTest</code> creates a new test with its own credentials, region
+ * and copy of the steps and pattern.
+ * <p>
+ * A test keeps the pre-serialized body while its steps and pattern are equal
+ * to the snapshot; once modified, or given others, it is serialized as
+ * usual. Variables of unknown types can't be copied, so templates using them
+ * are shared by the tests and never pre-serialize.
+ * </p>
+ * <pre>
+ * TestTemplate template = Curl.compile("-p 1-250:60 http://your.cool.app");
+ * AbstractTest test = template.newTest("john@example.com", "aqbcdge-sjfkgurti-sjdhgft-skdiues", "ireland");
+ * </pre>
+ * @author ghermeto
+ * @see io.blitz.command.Curl#compile(java.lang.String)
+ */
+public final class TestTemplate {
+
+    private static final String REGION_MARKER = "blitz-template-region";
+
+    private final boolean rush;
+
+    /**
+     * Snapshot of the steps and pattern, never handed out
+     */
+    private final Collection<TestStep> steps;
+
+    private final Pattern pattern;
+
+    /**
+     * False when the snapshot has variables of unknown types
+     */
+    private final boolean copied;
+
+    private final String region;
+
+    /**
+     * JSON body before and after the region value
+     */
+    private final String jsonPrefix;
+
+    private final String jsonSuffix;
+
+    /**
+     * JSON body when the test has no region
+     */
+    private final String jsonWithoutRegion;
+
+    /**
+     * Compiles a template from a sprint or rush. The steps and pattern are
+     * copied, later changes to the prototype don't affect the template.
+     * @param prototype the test to be copied
+     */
+    public TestTemplate(AbstractTest prototype) {
+        this.rush = prototype instanceof Rush;
+        this.steps = copySteps(prototype.getSteps());
+        this.pattern = rush ? copy(((Rush) prototype).getPattern()) : null;
+        this.region = prototype.getRegion();
+        this.copied = isCopy(prototype.getSteps(), steps);
+
+        AbstractTest test = create(null, null, null, null, null);
+        this.jsonWithoutRegion = JsonCodec.toJson(test);
+        test.setRegion(REGION_MARKER);
+        String json = JsonCodec.toJson(test);
+        String value = JsonCodec.toJson(REGION_MARKER);
+        int index = json.indexOf("\"region\":" + value);
+        if(index < 0) {
+            throw new IllegalStateException("Region not found in " + json);
+        }
+        int start = index + "\"region\":".length();
+        this.jsonPrefix = json.substring(0, start);
+        this.jsonSuffix = json.substring(start + value.length());
+    }
+
+    /**
+     * Creates a new test from the template.
+     * @param username username to be used in the test
+     * @param apiKey api key used to authenticate
+     * @param region region of the test, null for the template region
+     * @return a sprint or rush instance ready to run
+     */
+    public AbstractTest newTest(String username, String apiKey, String region) {
+        return newTest(username, apiKey, null, null, null, region);
+    }
+
+    /**
+     * Creates a new test from the template.
+     * @param username username to be used in the test
+     * @param apiKey api key used to authenticate
+     * @param host host to connect
+     * @param port port for the service
+     * @param protocol protocol for the service
+     * @param region region of the test, null for the template region
+     * @return a sprint or rush instance ready to run
+     */
+    public AbstractTest newTest(String username, String apiKey, String host,
+            Integer port, String protocol, String region) {
+        AbstractTest test = create(username, apiKey, host, port, protocol);
+        test.setRegion(region != null ? region : this.region);
+        test.setTemplate(this);
+        return test;
+    }
+
+    /**
+     * @return true if the template creates rushes, false for sprints
+     */
+    public boolean isRush() {
+        return rush;
+    }
+
+    /**
+     * @return the default region of the tests
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * @return a new copy of the steps
+     */
+    public Collection<TestStep> getSteps() {
+        return copySteps(steps);
+    }
+
+    /**
+     * @return a new copy of the pattern, null for sprints
+     */
+    public Pattern getPattern() {
+        return copy(pattern);
+    }
+
+    /**
+     * @return true if the steps and pattern of the test are equal to the
+     * snapshot, so its JSON body only differs in the region
+     */
+    boolean isShapeOf(AbstractTest test) {
+        if(!copied || !sameSteps(test.getSteps(), steps)) {
+            return false;
+        }
+        return !rush || same(((Rush) test).getPattern(), pattern);
+    }
+
+    /**
+     * @param region region of the test
+     * @return the JSON body of a test created by the template
+     */
+    String toJson(String region) {
+        if(region == null) {
+            return jsonWithoutRegion;
+        }
+        return jsonPrefix + JsonCodec.toJson(region) + jsonSuffix;
+    }
+
+    private AbstractTest create(String username, String apiKey, String host,
+            Integer port, String protocol) {
+        AbstractTest test;
+        if(rush) {
+            Rush instance = new Rush(username, apiKey, host, port, protocol);
+            instance.setPattern(copy(pattern));
+            test = instance;
+        }
+        else {
+            test = new Sprint(username, apiKey, host, port, protocol);
+        }
+        test.setSteps(copySteps(steps));
+        return test;
+    }
+
+    /**
+     * Deep copies the steps. Strings, URLs and numbers are immutable and
+     * shared by the copies, which keeps the comparisons cheap. New serialized
+     * fields must be copied here and compared in <code>same</code>, 
+     * <code>TestTemplateTest</code> lists the known ones.
+     */
+    private static Collection<TestStep> copySteps(Collection<TestStep> source) {
+        if(source == null) {
+            return null;
+        }
+        Collection<TestStep> copy = new ArrayList<TestStep>(source.size());
+        for(TestStep step : source) {
+            copy.add(copy(step));
+        }
+        return copy;
+    }
+
+    private static TestStep copy(TestStep step) {
+        if(step == null || step.getClass() != TestStep.class) {
+            return step;
+        }
+        TestStep copy = new TestStep(step.getUrl());
+        copy.setUserAgent(step.getUserAgent());
+        copy.setReferrer(step.getReferrer());
+        copy.setStatus(step.getStatus());
+        copy.setTimeout(step.getTimeout());
+        copy.setSsl(step.getSsl());
+        copy.setRequest(step.getRequest());
+        if(step.getCookies() != null) {
+            Collection<HttpCookie> cookies = new ArrayList<HttpCookie>();
+            for(HttpCookie cookie : step.getCookies()) {
+                cookies.add((cookie == null) ? null : (HttpCookie) cookie.clone());
+            }
+            copy.setCookies(cookies);
+        }
+        if(step.getHeaders() != null) {
+            Collection<HttpHeader> headers = new ArrayList<HttpHeader>();
+            for(HttpHeader header : step.getHeaders()) {
+                headers.add((header == null) ? null 
+                        : new HttpHeader(header.getField(), header.getValue()));
+            }
+            copy.setHeaders(headers);
+        }
+        BasicAuthentication user = step.getUser();
+        if(user != null) {
+            copy.setUser(new BasicAuthentication(user.getUsername(), user.getPassword()));
+        }
+        Content content = step.getContent();
+        if(content != null) {
+            copy.setContent(new Content((content.getData() == null) ? null 
+                    : new ArrayList<String>(content.getData())));
+        }
+        if(step.getVariables() != null) {
+            Map<String, IVariable> variables = new LinkedHashMap<String, IVariable>();
+            for(Map.Entry<String, IVariable> entry : step.getVariables().entrySet()) {
+                variables.put(entry.getKey(), copy(entry.getValue()));
+            }
+            copy.setVariables(variables);
+        }
+        return copy;
+    }
+
+    /**
+     * @return a copy of the variable, or the variable itself if its type is
+     * unknown
+     */
+    private static IVariable copy(IVariable variable) {
+        if(variable == null) {
+            return null;
+        }
+        if(variable.getClass() == AlphaVariable.class) {
+            AlphaVariable alpha = (AlphaVariable) variable;
+            return new AlphaVariable(alpha.getMin(), alpha.getMax());
+        }
+        if(variable.getClass() == NumberVariable.class) {
+            NumberVariable number = (NumberVariable) variable;
+            return new NumberVariable(number.getMin(), number.getMax());
+        }
+        if(variable.getClass() == ListVariable.class) {
+            Collection<String> entries = ((ListVariable) variable).getEntries();
+            return new ListVariable((entries == null) ? null 
+                    : new ArrayList<String>(entries));
+        }
+        if(variable.getClass() == UdidVariable.class) {
+            return new UdidVariable();
+        }
+        return variable;
+    }
+
+    private static Pattern copy(Pattern pattern) {
+        if(pattern == null || pattern.getClass() != Pattern.class) {
+            return pattern;
+        }
+        Collection<Interval> intervals = null;
+        if(pattern.getIntervals() != null) {
+            intervals = new ArrayList<Interval>();
+            for(Interval interval : pattern.getIntervals()) {
+                intervals.add((interval == null) ? null : new Interval(
+                        interval.getInteractions(), interval.getStart(), 
+                        interval.getEnd(), interval.getDuration()));
+            }
+        }
+        return new Pattern(pattern.getInteractions(), intervals);
+    }
+
+    /**
+     * @return true if every step and variable of the source was copied
+     */
+    private static boolean isCopy(Collection<TestStep> source, Collection<TestStep> copy) {
+        if(source == null) {
+            return true;
+        }
+        Iterator<TestStep> copies = copy.iterator();
+        for(TestStep step : source) {
+            TestStep other = copies.next();
+            if(step == null) {
+                continue;
+            }
+            if(step == other) {
+                return false;
+            }
+            if(step.getVariables() != null) {
+                for(Map.Entry<String, IVariable> entry : step.getVariables().entrySet()) {
+                    IVariable variable = entry.getValue();
+                    if(variable != null && variable == other.getVariables().get(entry.getKey())) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameSteps(Collection<TestStep> steps, Collection<TestStep> others) {
+        if(steps == null || others == null) {
+            return steps == others;
+        }
+        if(steps.size() != others.size()) {
+            return false;
+        }
+        Iterator<TestStep> iterator = others.iterator();
+        for(TestStep step : steps) {
+            if(!same(step, iterator.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean same(TestStep step, TestStep other) {
+        if(step == null || other == null) {
+            return step == other;
+        }
+        if(step.getClass() != TestStep.class
+                || !equal(step.getUrl(), other.getUrl())
+                || !equal(step.getUserAgent(), other.getUserAgent())
+                || !equal(step.getReferrer(), other.getReferrer())
+                || !equal(step.getStatus(), other.getStatus())
+                || !equal(step.getTimeout(), other.getTimeout())
+                || !equal(step.getSsl(), other.getSsl())
+                || !equal(step.getRequest(), other.getRequest())) {
+            return false;
+        }
+        if(!sameCookies(step.getCookies(), other.getCookies())
+                || !sameHeaders(step.getHeaders(), other.getHeaders())) {
+            return false;
+        }
+        BasicAuthentication user = step.getUser();
+        BasicAuthentication otherUser = other.getUser();
+        if(user == null || otherUser == null) {
+            if(user != otherUser) {
+                return false;
+            }
+        }
+        else if(user.getClass() != BasicAuthentication.class
+                || !equal(user.getUsername(), otherUser.getUsername())
+                || !equal(user.getPassword(), otherUser.getPassword())) {
+            return false;
+        }
+        Content content = step.getContent();
+        Content otherContent = other.getContent();
+        if(content == null || otherContent == null) {
+            if(content != otherContent) {
+                return false;
+            }
+        }
+        else if(content.getClass() != Content.class
+                || !sameStrings(content.getData(), otherContent.getData())) {
+            return false;
+        }
+        return sameVariables(step.getVariables(), other.getVariables());
+    }
+
+    private static boolean sameCookies(Collection<HttpCookie> cookies, 
+            Collection<HttpCookie> others) {
+        if(cookies == null || others == null) {
+            return cookies == others;
+        }
+        if(cookies.size() != others.size()) {
+            return false;
+        }
+        Iterator<HttpCookie> iterator = others.iterator();
+        for(HttpCookie cookie : cookies) {
+            HttpCookie other = iterator.next();
+            if(cookie == null || other == null) {
+                if(cookie != other) {
+                    return false;
+                }
+            }
+            else if(!equal(cookie.getName(), other.getName()) 
+                    || !equal(cookie.getValue(), other.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameHeaders(Collection<HttpHeader> headers, 
+            Collection<HttpHeader> others) {
+        if(headers == null || others == null) {
+            return headers == others;
+        }
+        if(headers.size() != others.size()) {
+            return false;
+        }
+        Iterator<HttpHeader> iterator = others.iterator();
+        for(HttpHeader header : headers) {
+            HttpHeader other = iterator.next();
+            if(header == null || other == null) {
+                if(header != other) {
+                    return false;
+                }
+            }
+            else if(header.getClass() != HttpHeader.class
+                    || !equal(header.getField(), other.getField()) 
+                    || !equal(header.getValue(), other.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameVariables(Map<String, IVariable> variables, 
+            Map<String, IVariable> others) {
+        if(variables == null || others == null) {
+            return variables == others;
+        }
+        if(variables.size() != others.size()) {
+            return false;
+        }
+        //serialized in iteration order
+        Iterator<Map.Entry<String, IVariable>> iterator = others.entrySet().iterator();
+        for(Map.Entry<String, IVariable> entry : variables.entrySet()) {
+            Map.Entry<String, IVariable> other = iterator.next();
+            if(!equal(entry.getKey(), other.getKey()) 
+                    || !same(entry.getValue(), other.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean same(IVariable variable, IVariable other) {
+        if(variable == null || other == null) {
+            return variable == other;
+        }
+        if(variable.getClass() != other.getClass()) {
+            return false;
+        }
+        if(variable instanceof AlphaVariable) {
+            AlphaVariable alpha = (AlphaVariable) variable;
+            AlphaVariable otherAlpha = (AlphaVariable) other;
+            return alpha.getMin() == otherAlpha.getMin() 
+                    && alpha.getMax() == otherAlpha.getMax();
+        }
+        if(variable instanceof NumberVariable) {
+            NumberVariable number = (NumberVariable) variable;
+            NumberVariable otherNumber = (NumberVariable) other;
+            return number.getMin() == otherNumber.getMin() 
+                    && number.getMax() == otherNumber.getMax();
+        }
+        if(variable instanceof ListVariable) {
+            return sameStrings(((ListVariable) variable).getEntries(), 
+                    ((ListVariable) other).getEntries());
+        }
+        return variable instanceof UdidVariable;
+    }
+
+    private static boolean same(Pattern pattern, Pattern other) {
+        if(pattern == null || other == null) {
+            return pattern == other;
+        }
+        if(pattern.getClass() != Pattern.class 
+                || !equal(pattern.getInteractions(), other.getInteractions())) {
+            return false;
+        }
+        Collection<Interval> intervals = pattern.getIntervals();
+        Collection<Interval> others = other.getIntervals();
+        if(intervals == null || others == null) {
+            return intervals == others;
+        }
+        if(intervals.size() != others.size()) {
+            return false;
+        }
+        Iterator<Interval> iterator = others.iterator();
+        for(Interval interval : intervals) {
+            Interval next = iterator.next();
+            if(interval == null || next == null) {
+                if(interval != next) {
+                    return false;
+                }
+            }
+            else if(interval.getClass() != Interval.class
+                    || !equal(interval.getInteractions(), next.getInteractions())
+                    || !equal(interval.getStart(), next.getStart())
+                    || !equal(interval.getEnd(), next.getEnd())
+                    || !equal(interval.getDuration(), next.getDuration())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameStrings(Collection<String> strings, 
+            Collection<String> others) {
+        if(strings == null || others == null) {
+            return strings == others;
+        }
+        if(strings.size() != others.size()) {
+            return false;
+        }
+        Iterator<String> iterator = others.iterator();
+        for(String string : strings) {
+            if(!equal(string, iterator.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * URLs are compared as text, <code>URL.equals</code> resolves the hosts
+     */
+    private static boolean equal(Object value, Object other) {
+        if(value == other) {
+            return true;
+        }
+        if(value instanceof URL && other instanceof URL) {
+            return ((URL) value).toExternalForm().equals(((URL) other).toExternalForm());
+        }
+        return value != null && value.equals(other);
+    }
+}
@@ -0,0 +1,66 @@
+package io.blitz.curl.archive;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the bits written by <code>BitWriter</code> from a region of a
+ * buffer, using absolute gets so the buffer position is never changed.
+ * @author ghermeto
+ */
+final class BitReader {
+
+    private final ByteBuffer buffer;
+
+    private final int offset;
+
+    private final long limit;
+
+    private long position;
+
+    /**
+     * @param buffer the buffer
+     * @param offset first byte of the bits
+     * @param length number of bytes
+     */
+    BitReader(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.limit = (long) length << 3;
+    }
+
+    /**
+     * @param bits number of bits to read (0-64)
+     * @return the bits read in the lowest bits of the value
+     */
+    long readBits(int bits) {
+        if(position + bits > limit) {
+            throw new IllegalStateException("Truncated block");
+        }
+        long value = 0;
+        while(bits > 0) {
+            int available = 8 - (int) (position & 7);
+            int take = Math.min(available, bits);
+            int current = buffer.get(offset + (int) (position >>> 3)) & 0xFF;
+            value = (value << take) | ((current >>> (available - take)) & ((1 << take) - 1));
+            position += take;
+            bits -= take;
+        }
+        return value;
+    }
+
+    boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    long readVarint() {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            long group = readBits(8);
+            value |= (group & 0x7F) << shift;
+            if((group & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+}
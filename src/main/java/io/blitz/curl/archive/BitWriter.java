@@ -0,0 +1,77 @@
+package io.blitz.curl.archive;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Growable buffer written bit by bit, most significant bit first.
+ * @author ghermeto
+ */
+final class BitWriter {
+
+    private byte[] buffer = new byte[256];
+
+    /**
+     * Number of bits written
+     */
+    private long position;
+
+    /**
+     * Writes the lowest bits of a value.
+     * @param value the value
+     * @param bits number of bits to write (0-64)
+     */
+    void writeBits(long value, int bits) {
+        ensureCapacity(bits);
+        while(bits > 0) {
+            int free = 8 - (int) (position & 7);
+            int take = Math.min(free, bits);
+            int chunk = (int) (value >>> (bits - take)) & ((1 << take) - 1);
+            buffer[(int) (position >>> 3)] |= chunk << (free - take);
+            position += take;
+            bits -= take;
+        }
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Writes an unsigned varint, 7 bits per group with a continuation bit.
+     */
+    void writeVarint(long value) {
+        while((value & ~0x7FL) != 0) {
+            writeBits((value & 0x7F) | 0x80, 8);
+            value >>>= 7;
+        }
+        writeBits(value, 8);
+    }
+
+    /**
+     * @return the number of bytes used by the bits written
+     */
+    int length() {
+        return (int) ((position + 7) >>> 3);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.write(buffer, 0, length());
+    }
+
+    /**
+     * Empties the buffer, keeping its capacity.
+     */
+    void reset() {
+        Arrays.fill(buffer, 0, length(), (byte) 0);
+        position = 0;
+    }
+
+    private void ensureCapacity(int bits) {
+        long needed = (position + bits + 7) >>> 3;
+        if(needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, (int) Math.max(needed, buffer.length * 2L));
+        }
+    }
+}
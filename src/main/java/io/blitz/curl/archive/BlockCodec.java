@@ -0,0 +1,381 @@
+package io.blitz.curl.archive;
+
+import io.blitz.curl.rush.Timeline;
+import java.util.Arrays;
+
+/**
+ * Compression state of a block of the archive. Every block starts from a
+ * fresh state, so it can be decoded without the blocks before it.
+ * <ul>
+ * <li>timestamps: delta-of-delta of the milliseconds, raw double bits when
+ * the timestamp isn't a whole number of milliseconds</li>
+ * <li>durations and connect times: XOR with the previous value</li>
+ * <li>counters: a 0 bit when they grow at the same rate as before,
+ * otherwise the zigzag varint of the delta-of-delta</li>
+ * <li>number of steps: a 0 bit when the same as the previous point</li>
+ * </ul>
+ * The same state is used to encode and to decode.
+ * @author ghermeto
+ */
+final class BlockCodec {
+
+    /**
+     * Largest magnitude where every millisecond is exact in a double
+     */
+    private static final double MAX_MILLIS = 1L << 52;
+
+    private boolean millisKnown;
+
+    private long lastMillis;
+
+    private long lastDelta;
+
+    private final Xor duration = new Xor();
+
+    /**
+     * Number of steps of the previous point
+     */
+    private int steps;
+
+    private final Counter total = new Counter();
+
+    private final Counter hits = new Counter();
+
+    private final Counter errors = new Counter();
+
+    private final Counter timeouts = new Counter();
+
+    private final Counter volume = new Counter();
+
+    private final Counter txBytes = new Counter();
+
+    private final Counter rxBytes = new Counter();
+
+    /**
+     * Per step index state
+     */
+    private Xor[] stepDurations = new Xor[0];
+
+    private Xor[] stepConnects = new Xor[0];
+
+    private Counter[] stepErrors = new Counter[0];
+
+    private Counter[] stepTimeouts = new Counter[0];
+
+    private Counter[] stepAsserts = new Counter[0];
+
+    /**
+     * Clears the state at the beginning of a block.
+     */
+    void reset() {
+        millisKnown = false;
+        lastMillis = 0;
+        lastDelta = 0;
+        duration.reset();
+        steps = 0;
+        total.reset();
+        hits.reset();
+        errors.reset();
+        timeouts.reset();
+        volume.reset();
+        txBytes.reset();
+        rxBytes.reset();
+        for(int i = 0; i < stepDurations.length; i++) {
+            stepDurations[i].reset();
+            stepConnects[i].reset();
+            stepErrors[i].reset();
+            stepTimeouts[i].reset();
+            stepAsserts[i].reset();
+        }
+    }
+
+    void writePoint(BitWriter out, double timestamp, double pointDuration,
+            int total, int hits, int errors, int timeouts, int volume,
+            long txBytes, long rxBytes, int steps) {
+        writeTimestamp(out, timestamp);
+        duration.write(out, pointDuration);
+        this.total.write(out, total);
+        this.hits.write(out, hits);
+        this.errors.write(out, errors);
+        this.timeouts.write(out, timeouts);
+        this.volume.write(out, volume);
+        this.txBytes.write(out, txBytes);
+        this.rxBytes.write(out, rxBytes);
+        if(steps == this.steps) {
+            out.writeBit(false);
+        }
+        else {
+            out.writeBit(true);
+            out.writeVarint(steps);
+            this.steps = steps;
+        }
+        ensureSteps(steps);
+    }
+
+    /**
+     * Writes a step of the last point written.
+     */
+    void writeStep(BitWriter out, int step, double stepDuration,
+            double connect, int errors, int timeouts, int asserts) {
+        stepDurations[step].write(out, stepDuration);
+        stepConnects[step].write(out, connect);
+        stepErrors[step].write(out, errors);
+        stepTimeouts[step].write(out, timeouts);
+        stepAsserts[step].write(out, asserts);
+    }
+
+    /**
+     * Reads the next point of the block and appends it to the timeline if
+     * its timestamp is in the range. Points without a timestamp are only
+     * appended when the range is unbounded.
+     * @return true if the point was appended
+     */
+    boolean readPoint(BitReader in, Timeline target, double from, double to) {
+        double timestamp = readTimestamp(in);
+        double pointDuration = duration.read(in);
+        long pointTotal = total.read(in);
+        long pointHits = hits.read(in);
+        long pointErrors = errors.read(in);
+        long pointTimeouts = timeouts.read(in);
+        long pointVolume = volume.read(in);
+        long pointTx = txBytes.read(in);
+        long pointRx = rxBytes.read(in);
+        if(in.readBit()) {
+            steps = (int) in.readVarint();
+        }
+        ensureSteps(steps);
+        for(int i = 0; i < steps; i++) {
+            double stepDuration = stepDurations[i].read(in);
+            double connect = stepConnects[i].read(in);
+            target.addStep(stepDuration, connect, (int) stepErrors[i].read(in),
+                    (int) stepTimeouts[i].read(in), (int) stepAsserts[i].read(in));
+        }
+        boolean unbounded = from == Double.NEGATIVE_INFINITY
+                && to == Double.POSITIVE_INFINITY;
+        if(unbounded || (timestamp >= from && timestamp <= to)) {
+            target.addPoint(timestamp, pointDuration, (int) pointTotal,
+                    (int) pointHits, (int) pointErrors, (int) pointTimeouts,
+                    (int) pointVolume, pointTx, pointRx);
+            return true;
+        }
+        target.discardSteps();
+        return false;
+    }
+
+    /**
+     * A whole number of milliseconds is written as a delta-of-delta bucket
+     * (after a 1 bit); anything else as the raw double (after a 0 bit).
+     */
+    private void writeTimestamp(BitWriter out, double timestamp) {
+        long millis = toMillis(timestamp);
+        boolean exact = millis != Long.MIN_VALUE;
+        if(exact && millisKnown) {
+            out.writeBit(true);
+            long delta = millis - lastMillis;
+            long zigzag = zigzag(delta - lastDelta);
+            if(zigzag == 0) {
+                out.writeBits(0, 1);
+            }
+            else if(zigzag < (1 << 7)) {
+                out.writeBits(0x2, 2);
+                out.writeBits(zigzag, 7);
+            }
+            else if(zigzag < (1 << 9)) {
+                out.writeBits(0x6, 3);
+                out.writeBits(zigzag, 9);
+            }
+            else if(zigzag < (1 << 12)) {
+                out.writeBits(0xE, 4);
+                out.writeBits(zigzag, 12);
+            }
+            else {
+                out.writeBits(0xF, 4);
+                out.writeBits(zigzag, 64);
+            }
+            lastDelta = delta;
+            lastMillis = millis;
+        }
+        else {
+            out.writeBit(false);
+            out.writeBits(Double.doubleToRawLongBits(timestamp), 64);
+            setMillis(millis);
+        }
+    }
+
+    private double readTimestamp(BitReader in) {
+        if(!in.readBit()) {
+            double timestamp = Double.longBitsToDouble(in.readBits(64));
+            setMillis(toMillis(timestamp));
+            return timestamp;
+        }
+        long zigzag;
+        if(!in.readBit()) {
+            zigzag = 0;
+        }
+        else if(!in.readBit()) {
+            zigzag = in.readBits(7);
+        }
+        else if(!in.readBit()) {
+            zigzag = in.readBits(9);
+        }
+        else if(!in.readBit()) {
+            zigzag = in.readBits(12);
+        }
+        else {
+            zigzag = in.readBits(64);
+        }
+        lastDelta += unzigzag(zigzag);
+        lastMillis += lastDelta;
+        return lastMillis / 1000.0;
+    }
+
+    private void setMillis(long millis) {
+        millisKnown = millis != Long.MIN_VALUE;
+        if(millisKnown) {
+            lastMillis = millis;
+            lastDelta = 0;
+        }
+    }
+
+    /**
+     * @return the timestamp in milliseconds or Long.MIN_VALUE if it can't be
+     * restored exactly from them
+     */
+    private static long toMillis(double timestamp) {
+        double scaled = timestamp * 1000;
+        if(!(Math.abs(scaled) < MAX_MILLIS)) {
+            return Long.MIN_VALUE;
+        }
+        long millis = Math.round(scaled);
+        return (millis / 1000.0 == timestamp) ? millis : Long.MIN_VALUE;
+    }
+
+    private void ensureSteps(int steps) {
+        if(steps > stepDurations.length) {
+            int previous = stepDurations.length;
+            stepDurations = Arrays.copyOf(stepDurations, steps);
+            stepConnects = Arrays.copyOf(stepConnects, steps);
+            stepErrors = Arrays.copyOf(stepErrors, steps);
+            stepTimeouts = Arrays.copyOf(stepTimeouts, steps);
+            stepAsserts = Arrays.copyOf(stepAsserts, steps);
+            for(int i = previous; i < steps; i++) {
+                stepDurations[i] = new Xor();
+                stepConnects[i] = new Xor();
+                stepErrors[i] = new Counter();
+                stepTimeouts[i] = new Counter();
+                stepAsserts[i] = new Counter();
+            }
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Delta-of-delta of a cumulative counter: a 0 bit if it grew by the same
+     * amount as before, otherwise a 1 bit and the zigzag varint of the
+     * change. Absent values (<code>Timeline.ABSENT_INT</code> and
+     * <code>ABSENT_LONG</code>) are encoded like any other, the differences
+     * wrap around and are restored exactly.
+     */
+    private static final class Counter {
+
+        private long last;
+
+        private long delta;
+
+        void reset() {
+            last = 0;
+            delta = 0;
+        }
+
+        void write(BitWriter out, long value) {
+            long current = value - last;
+            long change = current - delta;
+            if(change == 0) {
+                out.writeBit(false);
+            }
+            else {
+                out.writeBit(true);
+                out.writeVarint(zigzag(change));
+            }
+            last = value;
+            delta = current;
+        }
+
+        long read(BitReader in) {
+            if(in.readBit()) {
+                delta += unzigzag(in.readVarint());
+            }
+            last += delta;
+            return last;
+        }
+    }
+
+    /**
+     * XOR compression of a series of doubles: a 0 bit if the value repeats,
+     * otherwise the meaningful bits of the XOR with the previous value,
+     * reusing the previous window of leading and trailing zeros when they
+     * fit in it.
+     */
+    private static final class Xor {
+
+        private long last;
+
+        private int leading;
+
+        private int trailing;
+
+        Xor() {
+            reset();
+        }
+
+        void reset() {
+            last = 0;
+            leading = Integer.MAX_VALUE;
+            trailing = 0;
+        }
+
+        void write(BitWriter out, double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            long xor = bits ^ last;
+            last = bits;
+            if(xor == 0) {
+                out.writeBit(false);
+                return;
+            }
+            out.writeBit(true);
+            int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trail = Long.numberOfTrailingZeros(xor);
+            if(lead >= leading && trail >= trailing) {
+                out.writeBit(false);
+                out.writeBits(xor >>> trailing, 64 - leading - trailing);
+            }
+            else {
+                int length = 64 - lead - trail;
+                out.writeBit(true);
+                out.writeBits(lead, 5);
+                out.writeBits(length - 1, 6);
+                out.writeBits(xor >>> trail, length);
+                leading = lead;
+                trailing = trail;
+            }
+        }
+
+        double read(BitReader in) {
+            if(in.readBit()) {
+                if(in.readBit()) {
+                    leading = (int) in.readBits(5);
+                    trailing = 64 - leading - (int) in.readBits(6) - 1;
+                }
+                last ^= in.readBits(64 - leading - trailing) << trailing;
+            }
+            return Double.longBitsToDouble(last);
+        }
+    }
+}
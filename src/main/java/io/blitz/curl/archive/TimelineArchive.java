@@ -0,0 +1,164 @@
+package io.blitz.curl.archive;
+
+import io.blitz.curl.rush.Timeline;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static io.blitz.curl.archive.TimelineEncoder.*;
+
+/**
+ * Random access to an archive written by <code>TimelineEncoder</code>. The
+ * block index at the end of the archive is read once; a range read only
+ * decodes the blocks overlapping the range.
+ * <pre>
+ * TimelineArchive archive = new TimelineArchive(new File("rush.blz"));
+ * Timeline lastMinute = archive.read(end - 60, end, new Timeline());
+ * </pre>
+ * @author ghermeto
+ * @see TimelineEncoder
+ */
+public class TimelineArchive {
+
+    private final ByteBuffer buffer;
+
+    private final int blocks;
+
+    private final long[] offsets;
+
+    private final int[] counts;
+
+    private final double[] mins;
+
+    private final double[] maxs;
+
+    /**
+     * Maps the archive file read-only.
+     * @param path the archive file
+     * @throws IOException if the file can't be read or isn't an archive
+     */
+    public TimelineArchive(File path) throws IOException {
+        this(map(path));
+    }
+
+    /**
+     * @param buffer the whole archive, its position and limit are ignored
+     * @throws IOException if the buffer doesn't contain an archive
+     */
+    public TimelineArchive(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int capacity = buffer.capacity();
+        if(capacity < HEADER_SIZE + 8 + TRAILER_SIZE
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(capacity - 4) != MAGIC) {
+            throw new IOException("Not a timeline archive");
+        }
+        if(buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported archive version " + buffer.getInt(4));
+        }
+        long index = buffer.getLong(capacity - TRAILER_SIZE);
+        if(index < HEADER_SIZE || index > capacity - TRAILER_SIZE - 4) {
+            throw new IOException("Corrupted archive index");
+        }
+        blocks = buffer.getInt((int) index);
+        if(blocks < 0 || index + 4 + (long) blocks * INDEX_ENTRY_SIZE
+                > capacity - TRAILER_SIZE) {
+            throw new IOException("Corrupted archive index");
+        }
+        offsets = new long[blocks];
+        counts = new int[blocks];
+        mins = new double[blocks];
+        maxs = new double[blocks];
+        for(int i = 0; i < blocks; i++) {
+            int entry = (int) index + 4 + i * INDEX_ENTRY_SIZE;
+            offsets[i] = buffer.getLong(entry);
+            counts[i] = buffer.getInt(entry + 8);
+            mins[i] = buffer.getDouble(entry + 12);
+            maxs[i] = buffer.getDouble(entry + 20);
+        }
+    }
+
+    /**
+     * @return the number of blocks
+     */
+    public int getBlockCount() {
+        return blocks;
+    }
+
+    /**
+     * @return the number of points in the archive
+     */
+    public long getPointCount() {
+        long points = 0;
+        for(int count : counts) {
+            points += count;
+        }
+        return points;
+    }
+
+    /**
+     * @return the lowest timestamp in the archive or NaN if none
+     */
+    public double getFirstTimestamp() {
+        double min = Double.POSITIVE_INFINITY;
+        for(double value : mins) {
+            min = Math.min(min, value);
+        }
+        return (min == Double.POSITIVE_INFINITY) ? Double.NaN : min;
+    }
+
+    /**
+     * @return the highest timestamp in the archive or NaN if none
+     */
+    public double getLastTimestamp() {
+        double max = Double.NEGATIVE_INFINITY;
+        for(double value : maxs) {
+            max = Math.max(max, value);
+        }
+        return (max == Double.NEGATIVE_INFINITY) ? Double.NaN : max;
+    }
+
+    /**
+     * Appends every point of the archive to the timeline.
+     * @param target the timeline receiving the points
+     * @return the timeline
+     */
+    public Timeline readAll(Timeline target) {
+        return read(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, target);
+    }
+
+    /**
+     * Appends the points with a timestamp in the range to the timeline,
+     * decoding only the blocks overlapping it. Points without a timestamp
+     * are skipped.
+     * @param from lowest timestamp (inclusive)
+     * @param to highest timestamp (inclusive)
+     * @param target the timeline receiving the points
+     * @return the timeline
+     */
+    public Timeline read(double from, double to, Timeline target) {
+        BlockCodec codec = new BlockCodec();
+        boolean unbounded = from == Double.NEGATIVE_INFINITY
+                && to == Double.POSITIVE_INFINITY;
+        for(int i = 0; i < blocks; i++) {
+            if(unbounded || (maxs[i] >= from && mins[i] <= to)) {
+                int offset = (int) offsets[i];
+                TimelineDecoder.decodeBlock(codec, buffer, offset + 4,
+                        buffer.getInt(offset), target, from, to);
+            }
+        }
+        return target;
+    }
+
+    private static ByteBuffer map(File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            file.close();
+        }
+    }
+}
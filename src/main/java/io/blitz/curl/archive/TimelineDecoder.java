@@ -0,0 +1,112 @@
+package io.blitz.curl.archive;
+
+import io.blitz.curl.rush.Timeline;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static io.blitz.curl.archive.TimelineEncoder.*;
+
+/**
+ * Decodes an archive written by <code>TimelineEncoder</code> from a stream,
+ * one block at a time, so the archive doesn't need to fit in memory.
+ * <pre>
+ * TimelineDecoder decoder = new TimelineDecoder(new FileInputStream("rush.blz"));
+ * Timeline timeline = new Timeline();
+ * while(decoder.readBlock(timeline)) {
+ *     //process and clear the timeline
+ * }
+ * decoder.close();
+ * </pre>
+ * @author ghermeto
+ * @see TimelineArchive
+ */
+public class TimelineDecoder implements Closeable {
+
+    private final DataInputStream in;
+
+    private final BlockCodec codec = new BlockCodec();
+
+    private byte[] block = new byte[0];
+
+    private boolean finished;
+
+    /**
+     * @param in the stream with the archive
+     * @throws IOException if the stream can't be read or isn't an archive
+     */
+    public TimelineDecoder(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        if(this.in.readInt() != MAGIC) {
+            throw new IOException("Not a timeline archive");
+        }
+        int version = this.in.readInt();
+        if(version != VERSION) {
+            throw new IOException("Unsupported archive version " + version);
+        }
+    }
+
+    /**
+     * Appends the points of the next block to the timeline.
+     * @param target the timeline receiving the points
+     * @return false if there are no more blocks
+     */
+    public boolean readBlock(Timeline target) throws IOException {
+        if(finished) {
+            return false;
+        }
+        int length = in.readInt();
+        if(length == END_OF_BLOCKS) {
+            finished = true;
+            return false;
+        }
+        if(length < BLOCK_HEADER_SIZE) {
+            throw new IOException("Corrupted block length " + length);
+        }
+        if(block.length < length) {
+            block = new byte[length];
+        }
+        in.readFully(block, 0, length);
+        decodeBlock(codec, ByteBuffer.wrap(block), 0, length, target,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        return true;
+    }
+
+    /**
+     * Appends every remaining point to the timeline.
+     * @param target the timeline receiving the points
+     * @return the timeline
+     */
+    public Timeline readAll(Timeline target) throws IOException {
+        while(readBlock(target)) {
+            //the points are appended by readBlock
+        }
+        return target;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Decodes a block body (without its length) from a buffer.
+     * @return the number of points appended
+     */
+    static int decodeBlock(BlockCodec codec, ByteBuffer buffer, int offset,
+            int length, Timeline target, double from, double to) {
+        int count = buffer.getInt(offset);
+        BitReader bits = new BitReader(buffer, offset + BLOCK_HEADER_SIZE,
+                length - BLOCK_HEADER_SIZE);
+        codec.reset();
+        int appended = 0;
+        for(int i = 0; i < count; i++) {
+            if(codec.readPoint(bits, target, from, to)) {
+                appended++;
+            }
+        }
+        return appended;
+    }
+}
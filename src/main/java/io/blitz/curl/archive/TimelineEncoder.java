@@ -0,0 +1,280 @@
+package io.blitz.curl.archive;
+
+import io.blitz.curl.rush.Point;
+import io.blitz.curl.rush.Step;
+import io.blitz.curl.rush.Timeline;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compresses rush timelines for archiving. The points are written as they
+ * are appended, in blocks that are compressed independently:
+ * delta-of-delta timestamps, XOR compressed durations and varint counters
+ * (see <code>BlockCodec</code>). A regular rush takes a few bytes per point
+ * instead of the hundreds of its JSON.
+ * <p>
+ * The archive ends with an index of the time range of every block, so
+ * <code>TimelineArchive</code> only decodes the blocks overlapping the
+ * requested range; <code>TimelineDecoder</code> reads the blocks in order
+ * from a stream.
+ * </p>
+ * <pre>
+ * TimelineEncoder encoder = new TimelineEncoder(new FileOutputStream("rush.blz"));
+ * encoder.append(result.getTimeline());
+ * encoder.close();
+ * </pre>
+ * @author ghermeto
+ * @see TimelineArchive
+ * @see TimelineDecoder
+ */
+public class TimelineEncoder implements Closeable {
+
+    /**
+     * "BLZG"
+     */
+    static final int MAGIC = 0x424C5A47;
+
+    static final int VERSION = 1;
+
+    /**
+     * Magic and version
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Block length marking the end of the blocks
+     */
+    static final int END_OF_BLOCKS = -1;
+
+    /**
+     * Block body: point count, lowest and highest timestamps, then the bits
+     */
+    static final int BLOCK_HEADER_SIZE = 20;
+
+    /**
+     * Index entry: block offset, point count, lowest and highest timestamps
+     */
+    static final int INDEX_ENTRY_SIZE = 28;
+
+    /**
+     * Index offset and magic
+     */
+    static final int TRAILER_SIZE = 12;
+
+    /**
+     * Default number of points per block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 256;
+
+    private final DataOutputStream out;
+
+    private final int blockSize;
+
+    private final BitWriter bits = new BitWriter();
+
+    private final BlockCodec codec = new BlockCodec();
+
+    /**
+     * Index entries of the blocks written
+     */
+    private final List<long[]> index = new ArrayList<long[]>();
+
+    /**
+     * Bytes written so far
+     */
+    private long offset;
+
+    private int count;
+
+    /**
+     * Time range of the pending block, NaN timestamps are ignored
+     */
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    private boolean closed;
+
+    /**
+     * Creates an encoder with blocks of 256 points.
+     * @param out the stream receiving the archive
+     */
+    public TimelineEncoder(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param out the stream receiving the archive
+     * @param blockSize number of points per block, smaller blocks make
+     * range reads cheaper at the cost of a worse compression
+     */
+    public TimelineEncoder(OutputStream out, int blockSize) throws IOException {
+        if(blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.blockSize = blockSize;
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+        this.offset = HEADER_SIZE;
+    }
+
+    /**
+     * Appends a row of a timeline, reading the columns directly.
+     * @param timeline the timeline
+     * @param row the row
+     */
+    public void append(Timeline timeline, int row) throws IOException {
+        checkOpen();
+        int steps = timeline.getStepCount(row);
+        double timestamp = timeline.getTimestamp(row);
+        codec.writePoint(bits, timestamp, timeline.getDuration(row),
+                timeline.getTotal(row), timeline.getHits(row),
+                timeline.getErrors(row), timeline.getTimeouts(row),
+                timeline.getVolume(row), timeline.getTxBytes(row),
+                timeline.getRxBytes(row), steps);
+        for(int i = 0; i < steps; i++) {
+            codec.writeStep(bits, i, timeline.getStepDuration(row, i),
+                    timeline.getStepConnect(row, i),
+                    timeline.getStepErrors(row, i),
+                    timeline.getStepTimeouts(row, i),
+                    timeline.getStepAsserts(row, i));
+        }
+        appended(timestamp);
+    }
+
+    /**
+     * Appends a point and its steps.
+     * @param point the point
+     */
+    public void append(Point point) throws IOException {
+        checkOpen();
+        Collection<Step> steps = point.getSteps();
+        double timestamp = unbox(point.getTimestamp());
+        codec.writePoint(bits, timestamp, unbox(point.getDuration()),
+                unbox(point.getTotal()), unbox(point.getHits()),
+                unbox(point.getErrors()), unbox(point.getTimeouts()),
+                unbox(point.getVolume()), unboxLong(point.getTxByteCount()),
+                unboxLong(point.getRxByteCount()),
+                (steps == null) ? 0 : steps.size());
+        if(steps != null) {
+            int index = 0;
+            for(Step step : steps) {
+                codec.writeStep(bits, index++, unbox(step.getDuration()),
+                        unbox(step.getConnect()), unbox(step.getErrors()),
+                        unbox(step.getTimeouts()), unbox(step.getAsserts()));
+            }
+        }
+        appended(timestamp);
+    }
+
+    /**
+     * Appends every point of a timeline, like the one of a
+     * <code>RushResult</code>. Timeline views are read from their columns.
+     * @param points the points
+     */
+    public void append(Collection<Point> points) throws IOException {
+        if(points instanceof Timeline.View) {
+            Timeline.View view = (Timeline.View) points;
+            for(int row = view.getFrom(); row < view.getTo(); row++) {
+                append(view.getTimeline(), row);
+            }
+        }
+        else {
+            for(Point point : points) {
+                append(point);
+            }
+        }
+    }
+
+    /**
+     * Writes the pending block and flushes the stream. The block is
+     * compressed on its own, so flushing often hurts the compression.
+     */
+    public void flush() throws IOException {
+        checkOpen();
+        writeBlock();
+        out.flush();
+    }
+
+    /**
+     * Writes the pending block and the index, then closes the stream.
+     */
+    public void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBlock();
+            out.writeInt(END_OF_BLOCKS);
+            long indexOffset = offset + 4;
+            out.writeInt(index.size());
+            for(long[] entry : index) {
+                out.writeLong(entry[0]);
+                out.writeInt((int) entry[1]);
+                out.writeLong(entry[2]);
+                out.writeLong(entry[3]);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void appended(double timestamp) throws IOException {
+        if(!Double.isNaN(timestamp)) {
+            min = Math.min(min, timestamp);
+            max = Math.max(max, timestamp);
+        }
+        if(++count == blockSize) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if(count == 0) {
+            return;
+        }
+        int length = BLOCK_HEADER_SIZE + bits.length();
+        index.add(new long[] {offset, count,
+                Double.doubleToRawLongBits(min),
+                Double.doubleToRawLongBits(max)});
+        out.writeInt(length);
+        out.writeInt(count);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        bits.writeTo(out);
+        offset += 4 + length;
+        bits.reset();
+        codec.reset();
+        count = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    private void checkOpen() throws IOException {
+        if(closed) {
+            throw new IOException("Encoder closed");
+        }
+    }
+
+    private static double unbox(Double value) {
+        return (value == null) ? Double.NaN : value;
+    }
+
+    private static int unbox(Integer value) {
+        return (value == null) ? Timeline.ABSENT_INT : value;
+    }
+
+    private static long unboxLong(long value) {
+        return (value < 0) ? Timeline.ABSENT_LONG : value;
+    }
+}
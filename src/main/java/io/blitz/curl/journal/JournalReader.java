@@ -0,0 +1,222 @@
+package io.blitz.curl.journal;
+
+import io.blitz.curl.rush.IRushListener;
+import io.blitz.curl.rush.Point;
+import io.blitz.curl.rush.RushAnalytics;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.curl.rush.Timeline;
+import io.blitz.curl.sprint.ISprintListener;
+import io.blitz.curl.sprint.Response;
+import io.blitz.curl.sprint.SprintResult;
+import io.blitz.curl.sprint.Step;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static io.blitz.curl.journal.ResultJournal.*;
+
+/**
+ * Replays a journal written by <code>ResultJournal</code> without the server.
+ * The file is mapped read-only and the records are read in place from the
+ * mapping, without reading the file into a buffer first. The rush points are
+ * appended to an on-heap <code>Timeline</code> as they are replayed, and the
+ * sprint steps are built as objects for each status.
+ * <pre>
+ * JournalReader journal = new JournalReader(new File("rush.journal"));
+ * journal.replay(myRushListener);
+ * </pre>
+ * @author ghermeto
+ * @see ResultJournal
+ */
+public class JournalReader {
+
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Number of records up to the last complete status
+     */
+    private final int count;
+
+    private final String region;
+
+    /**
+     * Maps the journal file.
+     * @param path the journal file
+     * @throws IOException if the file can't be read or isn't a journal
+     */
+    public JournalReader(File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if(channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a journal: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            file.close();
+        }
+        if(buffer.getInt(0) != MAGIC || buffer.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+            throw new IOException("Not a journal: " + path);
+        }
+        if(buffer.getInt(HEADER_VERSION) != VERSION) {
+            throw new IOException("Unsupported journal version "
+                    + buffer.getInt(HEADER_VERSION));
+        }
+        int available = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        count = Math.min(buffer.getInt(HEADER_COUNT), available);
+        int length = Math.min(buffer.getShort(HEADER_REGION_LENGTH), MAX_REGION);
+        if(length > 0) {
+            byte[] bytes = new byte[length];
+            for(int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(HEADER_REGION + i);
+            }
+            region = new String(bytes, UTF8);
+        }
+        else {
+            region = null;
+        }
+    }
+
+    /**
+     * @return the region stored in the header or null
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * @return the number of records up to the last complete status
+     */
+    public int getRecordCount() {
+        return count;
+    }
+
+    /**
+     * Replays the rush statuses in order. Each status is notified with the
+     * timeline up to that status and the points added by it; the last one
+     * (if completed) with <code>onComplete</code>.
+     * @param listener the listener to be notified
+     * @return false if the listener stopped the replay by returning false
+     */
+    public boolean replay(IRushListener listener) {
+        Timeline timeline = new Timeline();
+        RushAnalytics analytics = new RushAnalytics();
+        int mark = 0;
+        for(int i = 0; i < count; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            byte type = buffer.get(offset);
+            if(type == POINT) {
+                //the steps follow their point in the journal
+                int steps = buffer.getInt(offset + POINT_STEPS);
+                for(int s = 1; s <= steps && i + s < count; s++) {
+                    int step = offset + s * RECORD_SIZE;
+                    timeline.addStep(buffer.getDouble(step + STEP_DURATION),
+                            buffer.getDouble(step + STEP_CONNECT),
+                            buffer.getInt(step + STEP_ERRORS),
+                            buffer.getInt(step + STEP_TIMEOUTS),
+                            buffer.getInt(step + STEP_ASSERTS));
+                }
+                i += steps;
+                timeline.addPoint(buffer.getDouble(offset + POINT_TIMESTAMP),
+                        buffer.getDouble(offset + POINT_DURATION),
+                        buffer.getInt(offset + POINT_TOTAL),
+                        buffer.getInt(offset + POINT_HITS),
+                        buffer.getInt(offset + POINT_ERRORS),
+                        buffer.getInt(offset + POINT_TIMEOUTS),
+                        buffer.getInt(offset + POINT_VOLUME),
+                        buffer.getLong(offset + POINT_TX),
+                        buffer.getLong(offset + POINT_RX));
+                analytics.update(timeline, timeline.size() - 1);
+            }
+            else if(type == STATUS) {
+                int size = timeline.size();
+                RushResult result = new RushResult(region, timeline.view(0, size),
+                        timeline.view(mark, size), analytics);
+                mark = size;
+                if(buffer.get(offset + STATUS_COMPLETED) != 0) {
+                    listener.onComplete(result);
+                }
+                else if(!listener.onStatus(result)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the whole rush timeline in the journal.
+     * @return the rush result with every journaled point
+     */
+    public RushResult readRush() {
+        final RushResult[] last = new RushResult[1];
+        replay(new IRushListener() {
+            public boolean onStatus(RushResult result) {
+                last[0] = result;
+                return true;
+            }
+            public void onComplete(RushResult result) {
+                last[0] = result;
+            }
+        });
+        return (last[0] == null)
+                ? new RushResult(region, new ArrayList<Point>())
+                : last[0];
+    }
+
+    /**
+     * Replays the sprint statuses in order. The steps only carry the
+     * journaled timings and response status code, each status gets new step
+     * objects.
+     * @param listener the listener to be notified
+     * @return false if the listener stopped the replay by returning false
+     */
+    public boolean replay(ISprintListener listener) {
+        Collection<Step> steps = new ArrayList<Step>();
+        for(int i = 0; i < count; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            byte type = buffer.get(offset);
+            if(type == SPRINT_STEP) {
+                int status = buffer.getInt(offset + STEP_STATUS);
+                Response response = (status == Timeline.ABSENT_INT) ? null
+                        : new Response(null, status, null, null, null);
+                steps.add(new Step(box(buffer.getDouble(offset + STEP_DURATION)),
+                        box(buffer.getDouble(offset + STEP_CONNECT)),
+                        null, response));
+            }
+            else if(type == STATUS) {
+                SprintResult result = new SprintResult(region,
+                        box(buffer.getDouble(offset + STATUS_DURATION)), steps);
+                steps = new ArrayList<Step>();
+                if(buffer.get(offset + STATUS_COMPLETED) != 0) {
+                    listener.onComplete(result);
+                }
+                else if(!listener.onStatus(result)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param record the record index
+     * @return the time the status was journaled, 0 if not a status record
+     */
+    public long getStatusTime(int record) {
+        if(record < 0 || record >= count) {
+            throw new IndexOutOfBoundsException("Record: " + record);
+        }
+        int offset = HEADER_SIZE + record * RECORD_SIZE;
+        return (buffer.get(offset) == STATUS)
+                ? buffer.getLong(offset + STATUS_TIME) : 0;
+    }
+
+    private static Double box(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+}
@@ -0,0 +1,374 @@
+package io.blitz.curl.journal;
+
+import io.blitz.curl.rush.IRushListener;
+import io.blitz.curl.rush.Point;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.curl.rush.Step;
+import io.blitz.curl.rush.Timeline;
+import io.blitz.curl.sprint.ISprintListener;
+import io.blitz.curl.sprint.SprintResult;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Append-only binary journal of test results, written to a memory-mapped
+ * file. Every rush point, rush step and sprint step timing is stored as a
+ * fixed-width record; a status record marks the end of each poll so the
+ * journal can be replayed later with <code>JournalReader</code>.
+ * <p>
+ * Appending doesn't allocate: records are written straight into the mapped
+ * buffer, which only grows (and is remapped) when full.
+ * </p>
+ * <pre>
+ * ResultJournal journal = new ResultJournal(new File("rush.journal"));
+ * rush.addListener(journal.rushListener());
+ * rush.execute();
+ * journal.close();
+ * </pre>
+ * @author ghermeto
+ * @see JournalReader
+ */
+public class ResultJournal implements Closeable {
+
+    static final int MAGIC = 0x424C5A4A;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+
+    static final int RECORD_SIZE = 64;
+
+    /**
+     * Maximum length of the UTF-8 region name in the header
+     */
+    static final int MAX_REGION = 48;
+
+    //header offsets
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_RECORD_SIZE = 8;
+    static final int HEADER_COUNT = 12;
+    static final int HEADER_REGION_LENGTH = 16;
+    static final int HEADER_REGION = 18;
+
+    //record types
+    static final byte POINT = 1;
+    static final byte RUSH_STEP = 2;
+    static final byte SPRINT_STEP = 3;
+    static final byte STATUS = 4;
+
+    //point record offsets
+    static final int POINT_TIMESTAMP = 8;
+    static final int POINT_DURATION = 16;
+    static final int POINT_TOTAL = 24;
+    static final int POINT_HITS = 28;
+    static final int POINT_ERRORS = 32;
+    static final int POINT_TIMEOUTS = 36;
+    static final int POINT_VOLUME = 40;
+    static final int POINT_STEPS = 44;
+    static final int POINT_TX = 48;
+    static final int POINT_RX = 56;
+
+    //step record offsets (rush and sprint)
+    static final int STEP_DURATION = 8;
+    static final int STEP_CONNECT = 16;
+    static final int STEP_ERRORS = 24;
+    static final int STEP_TIMEOUTS = 28;
+    static final int STEP_ASSERTS = 32;
+    static final int STEP_STATUS = 24;
+
+    //status record offsets
+    static final int STATUS_COMPLETED = 1;
+    static final int STATUS_TIME = 8;
+    static final int STATUS_DURATION = 16;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int INITIAL_SIZE = 1024 * 1024;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    /**
+     * Number of records written
+     */
+    private int count;
+
+    /**
+     * Creates (or truncates) the journal file.
+     * @param path the journal file
+     * @throws IOException if the file can't be mapped
+     */
+    public ResultJournal(File path) throws IOException {
+        this(path, INITIAL_SIZE);
+    }
+
+    /**
+     * Creates (or truncates) the journal file.
+     * @param path the journal file
+     * @param initialSize initial size of the mapping in bytes
+     * @throws IOException if the file can't be mapped
+     */
+    public ResultJournal(File path, int initialSize) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        this.file.setLength(0);
+        this.channel = file.getChannel();
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(initialSize, HEADER_SIZE + RECORD_SIZE));
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(HEADER_VERSION, VERSION);
+        buffer.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+        buffer.putInt(HEADER_COUNT, 0);
+        buffer.putShort(HEADER_REGION_LENGTH, (short) 0);
+    }
+
+    /**
+     * Stores the region of the test in the header (truncated to 48 bytes).
+     * @param region the region name
+     */
+    public synchronized void setRegion(String region) {
+        byte[] bytes = (region == null) ? new byte[0] : region.getBytes(UTF8);
+        int length = Math.min(bytes.length, MAX_REGION);
+        buffer.putShort(HEADER_REGION_LENGTH, (short) length);
+        for(int i = 0; i < length; i++) {
+            buffer.put(HEADER_REGION + i, bytes[i]);
+        }
+    }
+
+    /**
+     * Appends a row of a timeline and its steps, reading the columns
+     * directly.
+     * @param timeline the timeline
+     * @param row the row to append
+     * @throws IOException if the journal can't grow
+     */
+    public synchronized void append(Timeline timeline, int row) throws IOException {
+        int steps = timeline.getStepCount(row);
+        int offset = next();
+        buffer.put(offset, POINT);
+        buffer.putDouble(offset + POINT_TIMESTAMP, timeline.getTimestamp(row));
+        buffer.putDouble(offset + POINT_DURATION, timeline.getDuration(row));
+        buffer.putInt(offset + POINT_TOTAL, timeline.getTotal(row));
+        buffer.putInt(offset + POINT_HITS, timeline.getHits(row));
+        buffer.putInt(offset + POINT_ERRORS, timeline.getErrors(row));
+        buffer.putInt(offset + POINT_TIMEOUTS, timeline.getTimeouts(row));
+        buffer.putInt(offset + POINT_VOLUME, timeline.getVolume(row));
+        buffer.putInt(offset + POINT_STEPS, steps);
+        buffer.putLong(offset + POINT_TX, timeline.getTxBytes(row));
+        buffer.putLong(offset + POINT_RX, timeline.getRxBytes(row));
+        for(int i = 0; i < steps; i++) {
+            putRushStep(timeline.getStepDuration(row, i),
+                    timeline.getStepConnect(row, i),
+                    timeline.getStepErrors(row, i),
+                    timeline.getStepTimeouts(row, i),
+                    timeline.getStepAsserts(row, i));
+        }
+    }
+
+    /**
+     * Appends a rush point and its steps.
+     * @param point the point
+     * @throws IOException if the journal can't grow
+     */
+    public synchronized void append(Point point) throws IOException {
+        int steps = (point.getSteps() == null) ? 0 : point.getSteps().size();
+        int offset = next();
+        buffer.put(offset, POINT);
+        buffer.putDouble(offset + POINT_TIMESTAMP, unbox(point.getTimestamp()));
+        buffer.putDouble(offset + POINT_DURATION, unbox(point.getDuration()));
+        buffer.putInt(offset + POINT_TOTAL, unbox(point.getTotal()));
+        buffer.putInt(offset + POINT_HITS, unbox(point.getHits()));
+        buffer.putInt(offset + POINT_ERRORS, unbox(point.getErrors()));
+        buffer.putInt(offset + POINT_TIMEOUTS, unbox(point.getTimeouts()));
+        buffer.putInt(offset + POINT_VOLUME, unbox(point.getVolume()));
+        buffer.putInt(offset + POINT_STEPS, steps);
+        buffer.putLong(offset + POINT_TX, (point.getTxByteCount() < 0)
+                ? Timeline.ABSENT_LONG : point.getTxByteCount());
+        buffer.putLong(offset + POINT_RX, (point.getRxByteCount() < 0)
+                ? Timeline.ABSENT_LONG : point.getRxByteCount());
+        if(steps > 0) {
+            for(Step step : point.getSteps()) {
+                putRushStep(unbox(step.getDuration()), unbox(step.getConnect()),
+                        unbox(step.getErrors()), unbox(step.getTimeouts()),
+                        unbox(step.getAsserts()));
+            }
+        }
+    }
+
+    /**
+     * Appends the step timings of a sprint result followed by a status
+     * record. Request and response contents are not journaled, only the
+     * response status code.
+     * @param result the sprint result
+     * @param completed true if it is the final result
+     * @throws IOException if the journal can't grow
+     */
+    public synchronized void append(SprintResult result, boolean completed)
+            throws IOException {
+        if(result.getSteps() != null) {
+            for(io.blitz.curl.sprint.Step step : result.getSteps()) {
+                int offset = next();
+                buffer.put(offset, SPRINT_STEP);
+                buffer.putDouble(offset + STEP_DURATION, unbox(step.getDuration()));
+                buffer.putDouble(offset + STEP_CONNECT, unbox(step.getConnect()));
+                buffer.putInt(offset + STEP_STATUS, (step.getResponse() == null)
+                        ? Timeline.ABSENT_INT : unbox(step.getResponse().getStatus()));
+            }
+        }
+        markStatus(completed, unbox(result.getDuration()));
+    }
+
+    /**
+     * Marks the end of a poll: the records since the previous status are
+     * replayed as one status (or the completion) of the test.
+     * @param completed true if it is the final result
+     * @throws IOException if the journal can't grow
+     */
+    public synchronized void markStatus(boolean completed) throws IOException {
+        markStatus(completed, Double.NaN);
+    }
+
+    private void markStatus(boolean completed, double duration) throws IOException {
+        int offset = next();
+        buffer.put(offset, STATUS);
+        buffer.put(offset + STATUS_COMPLETED, (byte) (completed ? 1 : 0));
+        buffer.putLong(offset + STATUS_TIME, System.currentTimeMillis());
+        buffer.putDouble(offset + STATUS_DURATION, duration);
+        //readers only see complete statuses
+        buffer.putInt(HEADER_COUNT, count);
+    }
+
+    /**
+     * @return the number of records written
+     */
+    public synchronized int getRecordCount() {
+        return count;
+    }
+
+    /**
+     * Flushes the mapped buffer to the storage device.
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    /**
+     * Flushes the journal and truncates the file to the written records.
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.truncate(HEADER_SIZE + (long) count * RECORD_SIZE);
+        file.close();
+    }
+
+    /**
+     * Listener that journals the new points of each rush status. Points of
+     * a columnar timeline are copied straight from the columns.
+     * @return the rush listener
+     */
+    public IRushListener rushListener() {
+        return new IRushListener() {
+            public boolean onStatus(RushResult result) {
+                write(result, false);
+                return true;
+            }
+            public void onComplete(RushResult result) {
+                write(result, true);
+            }
+        };
+    }
+
+    /**
+     * Listener that journals the step timings of each sprint status.
+     * @return the sprint listener
+     */
+    public ISprintListener sprintListener() {
+        return new ISprintListener() {
+            public boolean onStatus(SprintResult result) {
+                writeSprint(result, false);
+                return true;
+            }
+            public void onComplete(SprintResult result) {
+                writeSprint(result, true);
+            }
+        };
+    }
+
+    private synchronized void write(RushResult result, boolean completed) {
+        try {
+            if(count == 0) {
+                setRegion(result.getRegion());
+            }
+            if(result.getDelta() instanceof Timeline.View) {
+                Timeline.View delta = (Timeline.View) result.getDelta();
+                for(int row = delta.getFrom(); row < delta.getTo(); row++) {
+                    append(delta.getTimeline(), row);
+                }
+            }
+            else if(result.getDelta() != null) {
+                for(Point point : result.getDelta()) {
+                    append(point);
+                }
+            }
+            markStatus(completed);
+        } catch(IOException ex) {
+            throw new IllegalStateException("Journal write failed", ex);
+        }
+    }
+
+    private synchronized void writeSprint(SprintResult result, boolean completed) {
+        try {
+            if(count == 0) {
+                setRegion(result.getRegion());
+            }
+            append(result, completed);
+        } catch(IOException ex) {
+            throw new IllegalStateException("Journal write failed", ex);
+        }
+    }
+
+    private void putRushStep(double duration, double connect, int errors,
+            int timeouts, int asserts) throws IOException {
+        int offset = next();
+        buffer.put(offset, RUSH_STEP);
+        buffer.putDouble(offset + STEP_DURATION, duration);
+        buffer.putDouble(offset + STEP_CONNECT, connect);
+        buffer.putInt(offset + STEP_ERRORS, errors);
+        buffer.putInt(offset + STEP_TIMEOUTS, timeouts);
+        buffer.putInt(offset + STEP_ASSERTS, asserts);
+    }
+
+    /**
+     * Reserves the next record, growing the mapping when needed.
+     * @return the offset of the record in the buffer
+     */
+    private int next() throws IOException {
+        long offset = HEADER_SIZE + (long) count * RECORD_SIZE;
+        if(offset + RECORD_SIZE > buffer.capacity()) {
+            long size = (long) buffer.capacity() * 2;
+            if(size > Integer.MAX_VALUE) {
+                throw new IOException("Journal is full");
+            }
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        count++;
+        return (int) offset;
+    }
+
+    private static double unbox(Double value) {
+        return (value == null) ? Double.NaN : value;
+    }
+
+    private static int unbox(Integer value) {
+        return (value == null) ? Timeline.ABSENT_INT : value;
+    }
+}
@@ -0,0 +1,69 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.config.variable.AlphaVariable;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the values of an <code>AlphaVariable</code>: random letters, in
+ * upper and lower case, as many as a random length between the minimum and
+ * the maximum of the variable. A variable without length, <code>alpha</code>
+ * on the command line, is sent as [0,0] and gets the default lengths.
+ * @author ghermeto
+ * @see AlphaVariable
+ */
+public final class AlphaGenerator implements IValueGenerator {
+
+    private static final byte[] LETTERS =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".getBytes();
+
+    /**
+     * Lengths of the variables without one
+     */
+    public static final int DEFAULT_MIN = 1;
+
+    public static final int DEFAULT_MAX = 16;
+
+    private final int min;
+
+    private final int max;
+
+    /**
+     * @param variable the variable, with 0 &lt;= min &lt;= max
+     */
+    public AlphaGenerator(AlphaVariable variable) {
+        if(variable.getMin() < 0 || variable.getMin() > variable.getMax()) {
+            throw new IllegalArgumentException("Invalid alpha length ["
+                    + variable.getMin() + "," + variable.getMax() + "]");
+        }
+        if(variable.getMax() == 0) {
+            this.min = DEFAULT_MIN;
+            this.max = DEFAULT_MAX;
+        }
+        else {
+            this.min = variable.getMin();
+            this.max = variable.getMax();
+        }
+    }
+
+    public int getMaxLength() {
+        return max;
+    }
+
+    public int next(byte[] slot, int offset) {
+        SplittableRandom random = LocalRandom.current();
+        int length = (min == max) ? min : random.nextInt(min, max + 1);
+        int i = 0;
+        while(i < length) {
+            //five letters from each draw, six bits each
+            long bits = random.nextLong();
+            for(int j = 0; j < 5 && i < length; j++) {
+                int index = (int) (bits & 63);
+                bits >>>= 6;
+                if(index < LETTERS.length) {
+                    slot[offset + i++] = LETTERS[index];
+                }
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,41 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.TestStep;
+import io.blitz.curl.exception.BlitzException;
+import java.util.List;
+
+/**
+ * HTTP layer of the local rush engine. Runs a number of concurrent virtual
+ * users, each one running all the steps in a loop, and records what
+ * happens in the <code>LoadStats</code>.
+ * @author ghermeto
+ * @see LocalRushEngine
+ * @see ThreadLoadDriver
+ */
+public interface ILoadDriver {
+
+    /**
+     * Prepares the driver, with no users yet.
+     * @param steps the steps run by every user, in order
+     * @param defaultTimeout timeout in milliseconds of steps without one
+     * @param stats where the users record their hits
+     */
+    void start(List<TestStep> steps, int defaultTimeout, LoadStats stats);
+
+    /**
+     * Adds or removes users. Removed users finish the step they are running.
+     * @param users number of concurrent users
+     * @throws BlitzException if the driver failed and lost its users
+     */
+    void setConcurrency(int users);
+
+    /**
+     * @return number of concurrent users
+     */
+    int getConcurrency();
+
+    /**
+     * Stops all the users and releases the connections.
+     */
+    void stop();
+}
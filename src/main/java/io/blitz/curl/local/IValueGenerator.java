@@ -0,0 +1,26 @@
+package io.blitz.curl.local;
+
+/**
+ * Source of the values of a variable for the local engines. Each value is
+ * written straight into the slot of a request, so generating one allocates
+ * nothing. Generators are shared by the threads running a test and must be
+ * thread-safe.
+ * @author ghermeto
+ * @see RequestTemplate
+ */
+public interface IValueGenerator {
+
+    /**
+     * @return the maximum size in bytes of a value
+     */
+    int getMaxLength();
+
+    /**
+     * Writes the next value.
+     * @param slot where the value is written, with room for
+     * <code>getMaxLength()</code> bytes from the offset
+     * @param offset position of the first byte of the value
+     * @return the size in bytes of the value
+     */
+    int next(byte[] slot, int offset);
+}
@@ -0,0 +1,47 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.config.variable.ListVariable;
+import java.nio.charset.Charset;
+
+/**
+ * Generates the values of a <code>ListVariable</code>: one of its entries,
+ * picked at random. The entries are encoded once, in UTF-8.
+ * @author ghermeto
+ * @see ListVariable
+ */
+public final class ListGenerator implements IValueGenerator {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final byte[][] entries;
+
+    private final int maxLength;
+
+    /**
+     * @param variable the variable, with at least one entry
+     */
+    public ListGenerator(ListVariable variable) {
+        if(variable.getEntries() == null || variable.getEntries().isEmpty()) {
+            throw new IllegalArgumentException("List variable without entries");
+        }
+        entries = new byte[variable.getEntries().size()][];
+        int max = 0;
+        int i = 0;
+        for(String entry : variable.getEntries()) {
+            entries[i] = entry.getBytes(UTF8);
+            max = Math.max(max, entries[i++].length);
+        }
+        maxLength = max;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int next(byte[] slot, int offset) {
+        byte[] entry = (entries.length == 1)
+                ? entries[0] : entries[LocalRandom.current().nextInt(entries.length)];
+        System.arraycopy(entry, 0, slot, offset, entry.length);
+        return entry.length;
+    }
+}
@@ -0,0 +1,227 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.rush.Timeline;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by the virtual users of a local rush. A hit is one run of
+ * all the steps; it fails on the first step with an error, a timeout or an
+ * unexpected status (an assert, also counted as an error). The counters are
+ * striped, so thousands of users can record without contention.
+ * @author ghermeto
+ * @see ILoadDriver
+ * @see LocalRushEngine
+ */
+public final class LoadStats {
+
+    private final int steps;
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LongAdder txBytes = new LongAdder();
+
+    private final LongAdder rxBytes = new LongAdder();
+
+    /**
+     * Sum of the durations of the successful hits, in nanoseconds
+     */
+    private final LongAdder hitNanos = new LongAdder();
+
+    private final LongAdder[] stepHits;
+
+    private final LongAdder[] stepNanos;
+
+    private final LongAdder[] stepConnects;
+
+    private final LongAdder[] stepConnectNanos;
+
+    private final LongAdder[] stepErrors;
+
+    private final LongAdder[] stepTimeouts;
+
+    private final LongAdder[] stepAsserts;
+
+    /**
+     * Values at the previous sample, to average the durations of the hits
+     * since then
+     */
+    private long lastHits;
+
+    private long lastHitNanos;
+
+    private final long[] lastStepHits;
+
+    private final long[] lastStepNanos;
+
+    private final long[] lastStepConnects;
+
+    private final long[] lastStepConnectNanos;
+
+    /**
+     * @param steps number of steps of each hit
+     */
+    public LoadStats(int steps) {
+        this.steps = steps;
+        stepHits = adders(steps);
+        stepNanos = adders(steps);
+        stepConnects = adders(steps);
+        stepConnectNanos = adders(steps);
+        stepErrors = adders(steps);
+        stepTimeouts = adders(steps);
+        stepAsserts = adders(steps);
+        lastStepHits = new long[steps];
+        lastStepNanos = new long[steps];
+        lastStepConnects = new long[steps];
+        lastStepConnectNanos = new long[steps];
+    }
+
+    /**
+     * @return number of steps of each hit
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Records a step that got the expected response.
+     * @param step index of the step
+     * @param nanos duration of the step, connect included
+     * @param connectNanos time to connect or -1 if the connection was reused
+     */
+    public void stepSucceeded(int step, long nanos, long connectNanos) {
+        stepHits[step].increment();
+        stepNanos[step].add(nanos);
+        if(connectNanos >= 0) {
+            stepConnects[step].increment();
+            stepConnectNanos[step].add(connectNanos);
+        }
+    }
+
+    public void stepFailed(int step) {
+        stepErrors[step].increment();
+    }
+
+    public void stepTimedOut(int step) {
+        stepTimeouts[step].increment();
+    }
+
+    /**
+     * Records a step that got an unexpected status.
+     * @param step index of the step
+     */
+    public void stepAsserted(int step) {
+        stepAsserts[step].increment();
+    }
+
+    /**
+     * Records a hit where every step succeeded.
+     * @param nanos duration of all the steps
+     */
+    public void hit(long nanos) {
+        total.increment();
+        hits.increment();
+        hitNanos.add(nanos);
+    }
+
+    /**
+     * Records a hit that failed with an error or an assert.
+     */
+    public void error() {
+        total.increment();
+        errors.increment();
+    }
+
+    /**
+     * Records a hit that failed with a timeout.
+     */
+    public void timeout() {
+        total.increment();
+        timeouts.increment();
+    }
+
+    /**
+     * @param tx bytes sent
+     * @param rx bytes received
+     */
+    public void bytes(long tx, long rx) {
+        txBytes.add(tx);
+        rxBytes.add(rx);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Appends a point with the cumulative counters and the average durations
+     * since the previous sample (NaN if no hit succeeded since then).
+     * @param target the timeline
+     * @param timestamp seconds since the start of the rush
+     * @param volume number of concurrent users
+     */
+    synchronized void sample(Timeline target, double timestamp, int volume) {
+        for(int i = 0; i < steps; i++) {
+            long count = stepHits[i].sum();
+            long nanos = stepNanos[i].sum();
+            long connects = stepConnects[i].sum();
+            long connectNanos = stepConnectNanos[i].sum();
+            double duration = average(nanos - lastStepNanos[i], count - lastStepHits[i]);
+            double connect = average(connectNanos - lastStepConnectNanos[i],
+                    connects - lastStepConnects[i]);
+            //with a reused connection there is no connect time
+            if(Double.isNaN(connect) && !Double.isNaN(duration)) {
+                connect = 0;
+            }
+            target.addStep(duration, connect, saturate(stepErrors[i].sum()),
+                    saturate(stepTimeouts[i].sum()), saturate(stepAsserts[i].sum()));
+            lastStepHits[i] = count;
+            lastStepNanos[i] = nanos;
+            lastStepConnects[i] = connects;
+            lastStepConnectNanos[i] = connectNanos;
+        }
+        long hit = hits.sum();
+        long nanos = hitNanos.sum();
+        target.addPoint(timestamp, average(nanos - lastHitNanos, hit - lastHits),
+                saturate(total.sum()), saturate(hit), saturate(errors.sum()),
+                saturate(timeouts.sum()), volume, txBytes.sum(), rxBytes.sum());
+        lastHits = hit;
+        lastHitNanos = nanos;
+    }
+
+    /**
+     * @return the average in seconds or NaN if none
+     */
+    private static double average(long nanos, long count) {
+        return (count <= 0) ? Double.NaN : nanos / 1e9 / count;
+    }
+
+    private static int saturate(long value) {
+        return (value > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) value;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for(int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
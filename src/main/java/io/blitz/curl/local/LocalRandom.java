@@ -0,0 +1,34 @@
+package io.blitz.curl.local;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random numbers of the value generators: a <code>SplittableRandom</code> per
+ * thread, split from a common one, so the threads of a test never contend.
+ * @author ghermeto
+ * @see IValueGenerator
+ */
+final class LocalRandom {
+
+    private static final SplittableRandom ROOT = new SplittableRandom();
+
+    private static final ThreadLocal<SplittableRandom> CURRENT =
+            new ThreadLocal<SplittableRandom>() {
+        @Override
+        protected SplittableRandom initialValue() {
+            synchronized(ROOT) {
+                return ROOT.split();
+            }
+        }
+    };
+
+    private LocalRandom() {
+    }
+
+    /**
+     * @return the generator of the calling thread
+     */
+    static SplittableRandom current() {
+        return CURRENT.get();
+    }
+}
@@ -0,0 +1,225 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.IObservable;
+import io.blitz.curl.Rush;
+import io.blitz.curl.TestStep;
+import io.blitz.curl.config.Interval;
+import io.blitz.curl.exception.BlitzException;
+import io.blitz.curl.exception.ValidationException;
+import io.blitz.curl.rush.IRushListener;
+import io.blitz.curl.rush.RushAnalytics;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.curl.rush.Timeline;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs a rush in-process, on our own hardware, following its pattern: the
+ * number of concurrent users ramps linearly from the start to the end of
+ * each interval, one interval after the other. Every sample interval (one
+ * second by default) a point with the cumulative hits, errors, timeouts and
+ * bytes, the concurrency and the average durations since the previous
+ * point is added to the timeline and sent to the listeners, like the
+ * service status of a hosted rush.
+ * <p>
+ * The HTTP layer is a <code>ILoadDriver</code>; the default one runs a
+ * thread per user.
+ * </p>
+ * <pre>
+ * Rush rush = (Rush) Curl.parse(null, null, "-p 1-250:60 http://staging.cool.app");
+ * LocalRushEngine engine = new LocalRushEngine();
+ * engine.addListener(new IRushListener() {
+ *     public boolean onStatus(RushResult result) {
+ *         //do something...
+ *     }
+ *     public void onComplete(RushResult result) {
+ *         //do something...
+ *     }
+ * });
+ * RushResult result = engine.execute(rush);
+ * </pre>
+ * @author ghermeto
+ * @see ILoadDriver
+ */
+public class LocalRushEngine implements IObservable<IRushListener> {
+
+    /**
+     * Milliseconds between the points of the timeline
+     */
+    public static final long DEFAULT_SAMPLE_INTERVAL = 1000;
+
+    /**
+     * Milliseconds between concurrency updates during a ramp
+     */
+    private static final long RAMP_INTERVAL = 50;
+
+    private final ILoadDriver driver;
+
+    private final Collection<IRushListener> listeners =
+            new CopyOnWriteArrayList<IRushListener>();
+
+    private int defaultTimeout = LocalSprintExecutor.DEFAULT_TIMEOUT;
+
+    private long sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+
+    private volatile boolean aborted;
+
+    public LocalRushEngine() {
+        this(new ThreadLoadDriver());
+    }
+
+    /**
+     * @param driver the HTTP layer running the users
+     */
+    public LocalRushEngine(ILoadDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Adds a listener notified of each new point. The rush is aborted when
+     * a listener returns false.
+     * @param listener <code>IRushListener</code> to be notified
+     */
+    public void addListener(IRushListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(IRushListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param defaultTimeout timeout in milliseconds of steps without one
+     */
+    public void setDefaultTimeout(int defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    /**
+     * @param sampleInterval milliseconds between the points of the timeline
+     */
+    public void setSampleInterval(long sampleInterval) {
+        if(sampleInterval < 1) {
+            throw new IllegalArgumentException("Invalid sample interval " + sampleInterval);
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Stops the running rush after the current point.
+     */
+    public void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Runs the rush until the end of its pattern, an abort or an interrupt.
+     * @param rush the rush to run
+     * @return the result with the whole timeline
+     * @throws ValidationException if the rush has no URL or pattern
+     * @throws BlitzException if the driver fails
+     */
+    public RushResult execute(Rush rush) {
+        rush.checkRequirements();
+        List<TestStep> steps = new ArrayList<TestStep>(rush.getSteps());
+        List<Interval> intervals = new ArrayList<Interval>(rush.getPattern().getIntervals());
+        long length = 0;
+        for(Interval interval : intervals) {
+            length += duration(interval);
+        }
+
+        LoadStats stats = new LoadStats(steps.size());
+        Timeline timeline = new Timeline();
+        RushAnalytics analytics = new RushAnalytics();
+        aborted = false;
+        driver.start(steps, defaultTimeout, stats);
+        long start = System.nanoTime();
+        long nextSample = sampleInterval;
+        int volume = 0;
+        try {
+            while(!aborted) {
+                long elapsed = (System.nanoTime() - start) / 1000000L;
+                if(elapsed >= length) {
+                    break;
+                }
+                volume = concurrency(intervals, elapsed);
+                driver.setConcurrency(volume);
+                if(elapsed >= nextSample) {
+                    RushResult result = sample(stats, timeline, analytics,
+                            elapsed, driver.getConcurrency());
+                    nextSample += sampleInterval;
+                    if(!fireStatus(result)) {
+                        break;
+                    }
+                }
+                long wait = Math.min(RAMP_INTERVAL,
+                        Math.min(nextSample, length) - elapsed);
+                if(wait > 0) {
+                    Thread.sleep(wait);
+                }
+            }
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            driver.stop();
+        }
+        long elapsed = (System.nanoTime() - start) / 1000000L;
+        RushResult result = sample(stats, timeline, analytics, elapsed, volume);
+        for(IRushListener listener : listeners) {
+            listener.onComplete(result);
+        }
+        return result;
+    }
+
+    private RushResult sample(LoadStats stats, Timeline timeline,
+            RushAnalytics analytics, long elapsed, int volume) {
+        stats.sample(timeline, elapsed / 1000.0, volume);
+        int size = timeline.size();
+        analytics.update(timeline, size - 1);
+        return new RushResult(LocalSprintExecutor.REGION, timeline.view(0, size),
+                timeline.view(size - 1, size), analytics);
+    }
+
+    /**
+     * @return false if a listener asked to abort
+     */
+    private boolean fireStatus(RushResult result) {
+        boolean progress = true;
+        for(IRushListener listener : listeners) {
+            progress = progress && listener.onStatus(result);
+        }
+        return progress;
+    }
+
+    /**
+     * @param elapsed milliseconds since the start of the rush
+     * @return the number of users of the pattern at that time
+     */
+    static int concurrency(List<Interval> intervals, long elapsed) {
+        long offset = 0;
+        int last = 0;
+        for(Interval interval : intervals) {
+            int from = (interval.getStart() == null) ? 0 : interval.getStart();
+            int to = (interval.getEnd() == null) ? from : interval.getEnd();
+            long duration = duration(interval);
+            if(elapsed < offset + duration) {
+                double progress = (elapsed - offset) / (double) duration;
+                return (int) Math.round(from + (to - from) * progress);
+            }
+            offset += duration;
+            last = to;
+        }
+        return last;
+    }
+
+    /**
+     * @return the duration of the interval in milliseconds
+     */
+    private static long duration(Interval interval) {
+        return (interval.getDuration() == null) ? 0 : interval.getDuration() * 1000L;
+    }
+}
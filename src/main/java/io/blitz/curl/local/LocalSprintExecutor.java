@@ -0,0 +1,211 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.Sprint;
+import io.blitz.curl.TestStep;
+import io.blitz.curl.exception.BlitzException;
+import io.blitz.curl.exception.ValidationException;
+import io.blitz.curl.sprint.Request;
+import io.blitz.curl.sprint.Response;
+import io.blitz.curl.sprint.SprintResult;
+import io.blitz.curl.sprint.Step;
+import io.blitz.curl.transport.HttpConnection;
+import io.blitz.curl.transport.TransportResponse;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * Runs the steps of a sprint in-process, straight against the target, and
+ * returns the same <code>SprintResult</code> the service would. Meant for
+ * quick smoke checks without the round trip through the job queue.
+ * <p>
+ * The steps run in order, on one keep-alive connection while they go to the
+ * same host. Each step honors its url, request method, headers, cookies,
+ * user, content, timeout (for both connect and response) and expected
+ * status. The variables are expanded with new values by their local
+ * generators, and the requests of the result show the values sent.
+ * </p>
+ * <pre>
+ * Sprint sprint = (Sprint) Curl.parse(null, null, "-s 200 http://staging.cool.app/health");
+ * SprintResult result = new LocalSprintExecutor().execute(sprint);
+ * </pre>
+ * @author ghermeto
+ * @see Sprint
+ */
+public class LocalSprintExecutor {
+
+    /**
+     * Region of the results of local tests
+     */
+    public static final String REGION = "local";
+
+    /**
+     * Timeout in milliseconds of steps without one, as in the service
+     */
+    public static final int DEFAULT_TIMEOUT = 1000;
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private int defaultTimeout = DEFAULT_TIMEOUT;
+
+    /**
+     * @param defaultTimeout timeout in milliseconds of steps without one
+     */
+    public void setDefaultTimeout(int defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    /**
+     * Runs the steps of the sprint.
+     * @param sprint the sprint to run
+     * @return the result with the measured times of each step
+     * @throws ValidationException if a step has no URL
+     * @throws IllegalArgumentException if a step has an invalid variable
+     * @throws BlitzException with the error <code>connect</code>,
+     * <code>timeout</code>, <code>assert</code> (unexpected status) or
+     * <code>client</code> if a step fails
+     */
+    public SprintResult execute(Sprint sprint) {
+        sprint.checkRequirements();
+        Collection<Step> steps = new ArrayList<Step>();
+        HttpConnection connection = null;
+        StepRequest previous = null;
+        long start = System.nanoTime();
+        try {
+            for(TestStep item : sprint.getSteps()) {
+                StepRequest request = new StepRequest(item, defaultTimeout);
+                byte[] sent = bytes(RequestTemplate.compile(item).newWriter().next());
+                if(connection != null && !(connection.isReusable()
+                        && previous.sameOrigin(request))) {
+                    connection.close();
+                    connection = null;
+                }
+                long stepStart = System.nanoTime();
+                double connect = 0;
+                if(connection == null) {
+                    connection = connect(request);
+                    connect = seconds(System.nanoTime() - stepStart);
+                }
+                TransportResponse response = send(connection, request, sent);
+                double duration = seconds(System.nanoTime() - stepStart);
+                Step step = new Step(duration, connect, 
+                        createRequest(request.getUrl(), sent), createResponse(response));
+                steps.add(step);
+                previous = request;
+
+                if(request.getStatus() != null
+                        && request.getStatus() != response.getStatus()) {
+                    throw new BlitzException("assert", "Expected status "
+                            + request.getStatus() + " but was "
+                            + response.getStatus() + " for " + request.getUrl());
+                }
+            }
+        } finally {
+            if(connection != null) {
+                connection.close();
+            }
+        }
+        return new SprintResult(REGION, seconds(System.nanoTime() - start), steps);
+    }
+
+    private HttpConnection connect(StepRequest request) {
+        try {
+            return new HttpConnection(request.getUrl(),
+                    request.getTimeout(), request.getTimeout());
+        }
+        catch(SocketTimeoutException ex) {
+            throw new BlitzException("timeout", "Connect timed out after "
+                    + request.getTimeout() + "ms to " + request.getUrl());
+        }
+        catch(ConnectException ex) {
+            throw new BlitzException("connect", ex.getLocalizedMessage());
+        }
+        catch(UnknownHostException ex) {
+            throw new BlitzException("connect", "Unknown host " + ex.getLocalizedMessage());
+        }
+        catch(IOException ex) {
+            throw new BlitzException("client", ex.getLocalizedMessage());
+        }
+    }
+
+    private TransportResponse send(HttpConnection connection, StepRequest request,
+            byte[] sent) {
+        try {
+            connection.write(ByteBuffer.wrap(sent));
+            return connection.read(request.getMethod());
+        }
+        catch(SocketTimeoutException ex) {
+            throw new BlitzException("timeout", "No response after "
+                    + request.getTimeout() + "ms from " + request.getUrl());
+        }
+        catch(IOException ex) {
+            throw new BlitzException("client", ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Describes the request as it was sent, with the values of its variables.
+     * @param url the url of the step
+     * @param sent the whole request
+     */
+    private static Request createRequest(URL url, byte[] sent) {
+        int end = 0;
+        while(!(sent[end] == '\r' && sent[end + 1] == '\n'
+                && sent[end + 2] == '\r' && sent[end + 3] == '\n')) {
+            end++;
+        }
+        String[] lines = new String(sent, 0, end, ISO_8859_1).split("\r\n");
+        String line = lines[0];
+        String method = line.substring(0, line.indexOf(' '));
+        String target = line.substring(method.length() + 1, line.lastIndexOf(' '));
+        Map<String, Object> headers = new LinkedHashMap<String, Object>();
+        for(int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            headers.put(lines[i].substring(0, colon), lines[i].substring(colon + 2));
+        }
+        int start = end + 4;
+        String content = (start == sent.length) ? null
+                : Base64.encodeBase64String(Arrays.copyOfRange(sent, start, sent.length));
+        return new Request(line, method, url.getProtocol() + "://" + url.getAuthority() + target,
+                headers, content);
+    }
+
+    private static byte[] bytes(ByteBuffer[] parts) {
+        int size = 0;
+        for(ByteBuffer part : parts) {
+            size += part.remaining();
+        }
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for(ByteBuffer part : parts) {
+            int length = part.remaining();
+            part.get(bytes, offset, length);
+            offset += length;
+        }
+        return bytes;
+    }
+
+    private static Response createResponse(TransportResponse response) {
+        Map<String, Object> headers = new LinkedHashMap<String, Object>(response.getHeaders());
+        String line = "HTTP/1.1 " + response.getStatus() + " " + response.getMessage();
+        byte[] body = response.getBody();
+        String content = (body == null || body.length == 0)
+                ? null : Base64.encodeBase64String(body);
+        return new Response(line.trim(), response.getStatus(),
+                response.getMessage(), headers, content);
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+}
@@ -0,0 +1,708 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.TestStep;
+import io.blitz.curl.config.variable.IVariable;
+import io.blitz.curl.exception.BlitzException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking load driver: a few event loops, each one a thread with a
+ * <code>Selector</code>, run all the virtual users, so the concurrency is
+ * limited by sockets instead of threads.
+ * <p>
+ * Each user owns a keep-alive connection. The requests are compiled once
+ * into <code>RequestTemplate</code>s and gathered from their direct buffers
+ * on every send, with new values of the variables; each event loop reads into
+ * a single reusable direct buffer and the responses are parsed
+ * incrementally, skipping the bodies. With a pipeline depth above one a
+ * user sends its next requests (across hits) without waiting for the
+ * responses, while they go to the same host.
+ * </p>
+ * <p>
+ * A failed hit abandons the requests already pipelined after it. Only
+ * plain HTTP is supported. The hosts are resolved once, when the driver
+ * starts: every connect to an unknown host fails.
+ * </p>
+ * <p>
+ * If an event loop dies, its users are lost and the driver fails: the next
+ * change of concurrency throws.
+ * </p>
+ * @author ghermeto
+ * @see ILoadDriver
+ */
+public class NioLoadDriver implements ILoadDriver {
+
+    /**
+     * Milliseconds between the timeout checks
+     */
+    private static final long TICK = 20;
+
+    private static final long TICK_NANOS = TICK * 1000000L;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Time to wait for the event loops to finish when stopping, in
+     * milliseconds
+     */
+    private static final long STOP_GRACE = 5000;
+
+    private final int loopCount;
+
+    private final int pipelineDepth;
+
+    private StepRequest[] requests;
+
+    private RequestTemplate[] templates;
+
+    /**
+     * Most buffers of a request
+     */
+    private int maxParts;
+
+    private InetSocketAddress[] addresses;
+
+    private long[] timeouts;
+
+    private boolean[] heads;
+
+    private LoadStats stats;
+
+    private EventLoop[] loops;
+
+    private final List<Session> sessions = new ArrayList<Session>();
+
+    private int nextLoop;
+
+    /**
+     * Why an event loop died, null while they run
+     */
+    private volatile Exception failure;
+
+    /**
+     * Creates a driver with one event loop per processor, up to four, and
+     * no pipelining.
+     */
+    public NioLoadDriver() {
+        this(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())), 1);
+    }
+
+    /**
+     * @param loops number of event loop threads
+     * @param pipelineDepth maximum requests of a user waiting for response
+     */
+    public NioLoadDriver(int loops, int pipelineDepth) {
+        if(loops < 1 || pipelineDepth < 1) {
+            throw new IllegalArgumentException("Invalid loops or pipeline depth");
+        }
+        this.loopCount = loops;
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a step uses https or has an
+     * invalid variable
+     * @throws BlitzException if the event loops can't be opened
+     */
+    public synchronized void start(List<TestStep> steps, int defaultTimeout, LoadStats stats) {
+        int count = steps.size();
+        requests = new StepRequest[count];
+        templates = new RequestTemplate[count];
+        maxParts = 0;
+        addresses = new InetSocketAddress[count];
+        timeouts = new long[count];
+        heads = new boolean[count];
+        for(int i = 0; i < count; i++) {
+            StepRequest request = new StepRequest(steps.get(i), defaultTimeout);
+            if(!"http".equalsIgnoreCase(request.getUrl().getProtocol())) {
+                throw new IllegalArgumentException("Only http is supported: " + request.getUrl());
+            }
+            requests[i] = request;
+            Map<String, IVariable> variables = steps.get(i).getVariables();
+            templates[i] = new RequestTemplate(request,
+                    (variables == null) ? Collections.<String>emptySet() : variables.keySet(),
+                    ValueGenerators.create(variables));
+            maxParts = Math.max(maxParts, templates[i].getPartCount());
+            int port = request.getUrl().getPort();
+            //resolved once for the whole rush, unresolved if unknown
+            addresses[i] = new InetSocketAddress(request.getUrl().getHost(),
+                    (port == -1) ? request.getUrl().getDefaultPort() : port);
+            timeouts[i] = request.getTimeout() * 1000000L;
+            heads[i] = "HEAD".equals(request.getMethod());
+        }
+        this.stats = stats;
+        failure = null;
+        loops = new EventLoop[loopCount];
+        try {
+            for(int i = 0; i < loopCount; i++) {
+                loops[i] = new EventLoop();
+            }
+        }
+        catch(IOException ex) {
+            throw new BlitzException("client", ex.getLocalizedMessage());
+        }
+        for(int i = 0; i < loopCount; i++) {
+            Thread thread = new Thread(loops[i], "blitz-loop-" + i);
+            thread.setDaemon(true);
+            loops[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * @throws BlitzException if an event loop died
+     */
+    public synchronized void setConcurrency(int count) {
+        if(loops == null) {
+            throw new IllegalStateException("Driver not started");
+        }
+        Exception failed = failure;
+        if(failed != null) {
+            BlitzException ex = new BlitzException("client", 
+                    "Event loop failed: " + failed);
+            ex.initCause(failed);
+            throw ex;
+        }
+        while(sessions.size() < count) {
+            EventLoop loop = loops[nextLoop++ % loops.length];
+            Session session = new Session(loop);
+            sessions.add(session);
+            loop.added.add(session);
+            loop.selector.wakeup();
+        }
+        while(sessions.size() > count) {
+            Session session = sessions.remove(sessions.size() - 1);
+            session.loop.removed.add(session);
+        }
+    }
+
+    public synchronized int getConcurrency() {
+        return sessions.size();
+    }
+
+    public void stop() {
+        EventLoop[] stopped;
+        synchronized(this) {
+            stopped = loops;
+            loops = null;
+            sessions.clear();
+        }
+        if(stopped == null) {
+            return;
+        }
+        for(EventLoop loop : stopped) {
+            loop.running = false;
+            loop.selector.wakeup();
+        }
+        long deadline = System.currentTimeMillis() + STOP_GRACE;
+        for(EventLoop loop : stopped) {
+            long remaining = deadline - System.currentTimeMillis();
+            if(remaining > 0) {
+                try {
+                    loop.thread.join(remaining);
+                }
+                catch(InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Thread running the users of its selector.
+     */
+    private final class EventLoop implements Runnable {
+
+        private final Selector selector;
+
+        /**
+         * Shared by the users of the loop: each response is parsed as the
+         * bytes arrive
+         */
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        private final Queue<Session> added = new ConcurrentLinkedQueue<Session>();
+
+        private final Queue<Session> removed = new ConcurrentLinkedQueue<Session>();
+
+        /**
+         * Users of the loop, only used by its thread
+         */
+        private final List<Session> users = new ArrayList<Session>();
+
+        private volatile boolean running = true;
+
+        private Thread thread;
+
+        EventLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        public void run() {
+            long nextTick = System.nanoTime();
+            try {
+                while(running) {
+                    selector.select(TICK);
+                    long now = System.nanoTime();
+                    Session session;
+                    while((session = added.poll()) != null) {
+                        users.add(session);
+                        session.pump(now);
+                    }
+                    while((session = removed.poll()) != null) {
+                        session.stopping = true;
+                        session.pump(now);
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while(keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        ((Session) key.attachment()).ready(key, now);
+                    }
+                    if(now - nextTick >= 0) {
+                        nextTick = now + TICK_NANOS;
+                        for(int i = users.size() - 1; i >= 0; i--) {
+                            Session user = users.get(i);
+                            user.tick(now);
+                            if(user.finished) {
+                                //swap remove, the order doesn't matter
+                                users.set(i, users.get(users.size() - 1));
+                                users.remove(users.size() - 1);
+                            }
+                        }
+                    }
+                }
+            }
+            catch(IOException ex) {
+                //the selector is broken, the users of the loop stop
+                failure = ex;
+            }
+            catch(RuntimeException ex) {
+                failure = ex;
+            }
+            finally {
+                for(Session user : users) {
+                    user.close();
+                }
+                try {
+                    selector.close();
+                }
+                catch(IOException ex) {
+                    //nothing to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Virtual user: a connection and the requests waiting for response, in
+     * the order they were sent. Only used by the thread of its loop.
+     */
+    private final class Session {
+
+        private final EventLoop loop;
+
+        private final ResponseParser parser = new ResponseParser();
+
+        private SocketChannel channel;
+
+        private SelectionKey key;
+
+        private boolean connected;
+
+        /**
+         * Step the connection was opened for
+         */
+        private int origin;
+
+        private long connectStart;
+
+        /**
+         * Connect time to be reported by the next request, -1 if none
+         */
+        private long connectNanos = -1;
+
+        private long retryAt;
+
+        private boolean stopping;
+
+        private boolean finished;
+
+        /**
+         * Requests waiting for response, a ring of <code>count</code>
+         * entries starting at <code>head</code>
+         */
+        private final int[] steps = new int[pipelineDepth];
+
+        private final long[] sent = new long[pipelineDepth];
+
+        private final long[] connects = new long[pipelineDepth];
+
+        private final long[] hits = new long[pipelineDepth];
+
+        private final long[] hitStarts = new long[pipelineDepth];
+
+        private int head;
+
+        private int count;
+
+        /**
+         * Writers of each entry of the ring, by step, created when first
+         * used: an entry is reused once its request was written
+         */
+        private final RequestTemplate.Writer[][] writers =
+                new RequestTemplate.Writer[pipelineDepth][];
+
+        /**
+         * Buffers of the requests not completely written yet
+         */
+        private final ByteBuffer[] writes = new ByteBuffer[pipelineDepth * maxParts];
+
+        private int writeCount;
+
+        private int nextStep;
+
+        /**
+         * Sequence number and start of the current hit
+         */
+        private long hit;
+
+        private long hitStart;
+
+        /**
+         * Last hit that failed, its remaining responses are ignored
+         */
+        private long failedHit = -1;
+
+        Session(EventLoop loop) {
+            this.loop = loop;
+        }
+
+        /**
+         * Sends as many requests as the pipeline allows, connecting when
+         * needed.
+         */
+        void pump(long now) {
+            if(finished) {
+                return;
+            }
+            if(stopping) {
+                if(count == 0) {
+                    close();
+                    finished = true;
+                }
+                return;
+            }
+            if(channel == null) {
+                if(now - retryAt >= 0) {
+                    connect(nextStep, now);
+                }
+                return;
+            }
+            if(!connected) {
+                return;
+            }
+            while(count < pipelineDepth) {
+                if(nextStep != 0 && hit == failedHit) {
+                    nextStep = 0;
+                }
+                int step = nextStep;
+                if(!requests[origin].sameOrigin(requests[step])) {
+                    if(count == 0) {
+                        close();
+                        connect(step, now);
+                    }
+                    break;
+                }
+                long start = (connectNanos >= 0) ? connectStart : now;
+                if(step == 0) {
+                    hit++;
+                    hitStart = start;
+                }
+                int slot = (head + count) % pipelineDepth;
+                steps[slot] = step;
+                sent[slot] = start;
+                connects[slot] = connectNanos;
+                hits[slot] = hit;
+                hitStarts[slot] = hitStart;
+                connectNanos = -1;
+                if(count++ == 0) {
+                    parser.reset(heads[step]);
+                }
+                ByteBuffer[] parts = writer(slot, step).next();
+                System.arraycopy(parts, 0, writes, writeCount, parts.length);
+                writeCount += parts.length;
+                nextStep = (step + 1) % requests.length;
+            }
+            try {
+                flush();
+            }
+            catch(IOException ex) {
+                fail(now, false);
+            }
+        }
+
+        void ready(SelectionKey selected, long now) {
+            try {
+                if(!selected.isValid()) {
+                    return;
+                }
+                if(selected.isConnectable()) {
+                    try {
+                        if(channel.finishConnect()) {
+                            connected(now);
+                        }
+                    }
+                    catch(IOException ex) {
+                        connectFailed(now, false);
+                    }
+                    return;
+                }
+                if(selected.isWritable()) {
+                    flush();
+                }
+                if(selected.isReadable()) {
+                    read(now);
+                }
+            }
+            catch(CancelledKeyException ex) {
+                //closed while processing
+            }
+            catch(IOException ex) {
+                fail(now, false);
+            }
+        }
+
+        /**
+         * Checks the timeouts and reconnects after a failure.
+         */
+        void tick(long now) {
+            if(channel != null && !connected) {
+                if(now - connectStart > timeouts[origin]) {
+                    connectFailed(now, true);
+                }
+            }
+            else if(count > 0 && now - sent[head] > timeouts[steps[head]]) {
+                fail(now, true);
+            }
+            pump(now);
+        }
+
+        private void connect(int step, long now) {
+            origin = step;
+            connected = false;
+            connectStart = now;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+                if(channel.connect(addresses[step])) {
+                    key = channel.register(loop.selector, SelectionKey.OP_READ, this);
+                    connected(now);
+                }
+                else {
+                    key = channel.register(loop.selector, SelectionKey.OP_CONNECT, this);
+                }
+            }
+            catch(IOException ex) {
+                connectFailed(now, false);
+            }
+            catch(UnresolvedAddressException ex) {
+                connectFailed(now, false);
+            }
+        }
+
+        private void connected(long now) {
+            connected = true;
+            connectNanos = System.nanoTime() - connectStart;
+            key.interestOps(SelectionKey.OP_READ);
+            pump(now);
+        }
+
+        /**
+         * The current hit fails on the step the connection was for; the
+         * user tries again on the next tick.
+         */
+        private void connectFailed(long now, boolean timedOut) {
+            if(timedOut) {
+                stats.stepTimedOut(origin);
+                stats.timeout();
+            }
+            else {
+                stats.stepFailed(origin);
+                stats.error();
+            }
+            close();
+            nextStep = 0;
+            retryAt = now + TICK_NANOS;
+        }
+
+        /**
+         * The oldest request failed: its hit fails and the requests
+         * pipelined after it are abandoned.
+         */
+        private void fail(long now, boolean timedOut) {
+            if(count > 0) {
+                int step = steps[head];
+                if(timedOut) {
+                    stats.stepTimedOut(step);
+                }
+                else {
+                    stats.stepFailed(step);
+                }
+                if(hits[head] != failedHit) {
+                    if(timedOut) {
+                        stats.timeout();
+                    }
+                    else {
+                        stats.error();
+                    }
+                }
+                nextStep = 0;
+            }
+            close();
+            retryAt = now + TICK_NANOS;
+        }
+
+        private RequestTemplate.Writer writer(int slot, int step) {
+            if(writers[slot] == null) {
+                writers[slot] = new RequestTemplate.Writer[templates.length];
+            }
+            RequestTemplate.Writer writer = writers[slot][step];
+            if(writer == null) {
+                writer = templates[step].newWriter();
+                writers[slot][step] = writer;
+            }
+            return writer;
+        }
+
+        private void flush() throws IOException {
+            if(writeCount == 0) {
+                return;
+            }
+            long written = channel.write(writes, 0, writeCount);
+            stats.bytes(written, 0);
+            int done = 0;
+            while(done < writeCount && !writes[done].hasRemaining()) {
+                done++;
+            }
+            if(done > 0) {
+                System.arraycopy(writes, done, writes, 0, writeCount - done);
+                for(int i = writeCount - done; i < writeCount; i++) {
+                    writes[i] = null;
+                }
+                writeCount -= done;
+            }
+            key.interestOps((writeCount > 0)
+                    ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        private void read(long now) throws IOException {
+            ByteBuffer buffer = loop.readBuffer;
+            buffer.clear();
+            int read = channel.read(buffer);
+            if(read < 0) {
+                if(count > 0 && parser.endOfStream()) {
+                    complete(now);
+                }
+                if(count > 0) {
+                    fail(now, false);
+                }
+                else {
+                    close();
+                }
+                pump(now);
+                return;
+            }
+            stats.bytes(0, read);
+            buffer.flip();
+            while(count > 0 && buffer.hasRemaining()) {
+                if(!parser.parse(buffer)) {
+                    break;
+                }
+                boolean keepAlive = parser.isKeepAlive();
+                complete(now);
+                if(!keepAlive) {
+                    //the requests pipelined after it are lost
+                    if(count > 0) {
+                        nextStep = 0;
+                    }
+                    close();
+                    break;
+                }
+            }
+            pump(now);
+        }
+
+        /**
+         * Records the response to the oldest request.
+         */
+        private void complete(long now) {
+            int status = parser.getStatus();
+            int step = steps[head];
+            long started = sent[head];
+            long connect = connects[head];
+            long sequence = hits[head];
+            long hitStarted = hitStarts[head];
+            head = (head + 1) % pipelineDepth;
+            count--;
+            if(count > 0) {
+                parser.reset(heads[steps[head]]);
+            }
+            if(sequence == failedHit) {
+                return;
+            }
+            Integer expected = requests[step].getStatus();
+            if(expected != null && expected != status) {
+                stats.stepAsserted(step);
+                stats.error();
+                failedHit = sequence;
+                return;
+            }
+            stats.stepSucceeded(step, now - started, connect);
+            if(step == requests.length - 1) {
+                stats.hit(now - hitStarted);
+            }
+        }
+
+        private void close() {
+            if(key != null) {
+                key.cancel();
+                key = null;
+            }
+            if(channel != null) {
+                try {
+                    channel.close();
+                }
+                catch(IOException ex) {
+                    //nothing to do
+                }
+                channel = null;
+            }
+            connected = false;
+            connectNanos = -1;
+            head = 0;
+            count = 0;
+            for(int i = 0; i < writeCount; i++) {
+                writes[i] = null;
+            }
+            writeCount = 0;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.config.variable.NumberVariable;
+
+/**
+ * Generates the values of a <code>NumberVariable</code>: random integers
+ * between the minimum and the maximum of the variable, both included, in
+ * decimal. A variable without range, <code>number</code> on the command
+ * line, is sent as [0,0] and gets the default range.
+ * @author ghermeto
+ * @see NumberVariable
+ */
+public final class NumberGenerator implements IValueGenerator {
+
+    /**
+     * Range of the variables without one
+     */
+    public static final int DEFAULT_MIN = 0;
+
+    public static final int DEFAULT_MAX = Integer.MAX_VALUE;
+
+    private final long min;
+
+    /**
+     * Number of possible values
+     */
+    private final long range;
+
+    private final int maxLength;
+
+    /**
+     * @param variable the variable, with min &lt;= max
+     */
+    public NumberGenerator(NumberVariable variable) {
+        if(variable.getMin() > variable.getMax()) {
+            throw new IllegalArgumentException("Invalid number range ["
+                    + variable.getMin() + "," + variable.getMax() + "]");
+        }
+        boolean unbounded = variable.getMin() == 0 && variable.getMax() == 0;
+        int first = unbounded ? DEFAULT_MIN : variable.getMin();
+        int last = unbounded ? DEFAULT_MAX : variable.getMax();
+        this.min = first;
+        this.range = (long) last - first + 1;
+        this.maxLength = Math.max(length(first), length(last));
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int next(byte[] slot, int offset) {
+        long value = min + LocalRandom.current().nextLong(range);
+        int length = length(value);
+        int at = offset + length;
+        long rest = Math.abs(value);
+        do {
+            slot[--at] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        } while(rest > 0);
+        if(value < 0) {
+            slot[offset] = '-';
+        }
+        return length;
+    }
+
+    /**
+     * @return the number of characters of the value in decimal
+     */
+    private static int length(long value) {
+        int length = (value < 0) ? 2 : 1;
+        for(long rest = Math.abs(value) / 10; rest > 0; rest /= 10) {
+            length++;
+        }
+        return length;
+    }
+}
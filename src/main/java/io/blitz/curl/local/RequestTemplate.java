@@ -0,0 +1,376 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.TestStep;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request of a <code>TestStep</code> compiled to bytes, to be sent many
+ * times. The request line, the headers (user agent, referrer, authorization,
+ * cookies and the custom ones) and the body are encoded once into read-only
+ * direct buffers; each reference to a variable, <code>#{name}</code>, is a
+ * slot filled in place on every send by the <code>IValueGenerator</code> of
+ * the variable, as is the Content-Length when the body has slots. A
+ * <code>Writer</code> returns the same array of buffers on every send, ready
+ * for a gather write, so no string is built per request.
+ * <p>
+ * A template is immutable and can be shared by threads, its writers can't.
+ * The references of a variable in one request all get the same value.
+ * Variables without generator are sent unexpanded, as are the ones in the
+ * user credentials, hidden by the Base64 encoding.
+ * </p>
+ * <pre>
+ * RequestTemplate template = RequestTemplate.compile(step, generators);
+ * RequestTemplate.Writer writer = template.newWriter();
+ * channel.write(writer.next());
+ * </pre>
+ * @author ghermeto
+ * @see IValueGenerator
+ */
+public final class RequestTemplate {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final int STATIC = -1;
+
+    private static final int LENGTH = -2;
+
+    /**
+     * Maximum digits of the Content-Length
+     */
+    private static final int LENGTH_DIGITS = 10;
+
+    /**
+     * Static bytes of each part, null for the slots
+     */
+    private final ByteBuffer[] segments;
+
+    /**
+     * <code>STATIC</code>, <code>LENGTH</code> or the slot of each part
+     */
+    private final int[] kinds;
+
+    private final String[] names;
+
+    private final IValueGenerator[] generators;
+
+    /**
+     * References of each slot in the body
+     */
+    private final int[] bodyReferences;
+
+    private final int staticBodyLength;
+
+    private final boolean variableLength;
+
+    /**
+     * @param request the request of the step
+     * @param variables names of the variables of the step
+     * @param available generators of the variables, by name
+     */
+    RequestTemplate(StepRequest request, Collection<String> variables,
+            Map<String, IValueGenerator> available) {
+        Parts parts = new Parts(variables, available);
+        String file = request.getUrl().getFile();
+        String target = (file.length() == 0) ? "/" : file;
+        //a reference in the url is parsed as its fragment
+        String ref = request.getUrl().getRef();
+        if(ref != null && parts.nextReference("#" + ref, 0) == 0) {
+            target += "#" + ref;
+        }
+        StringBuilder head = new StringBuilder(256);
+        request.head(head, target);
+        parts.split(head.toString(), ISO_8859_1, false);
+
+        byte[] body = request.getBody();
+        if(body == null) {
+            parts.literal("\r\n", ISO_8859_1, false);
+        }
+        else {
+            String text = new String(body, UTF8);
+            parts.literal("Content-Length: ", ISO_8859_1, false);
+            if(parts.nextReference(text, 0) >= 0) {
+                parts.kinds.add(LENGTH);
+                parts.bytes.add(null);
+            }
+            else {
+                parts.literal(String.valueOf(body.length), ISO_8859_1, false);
+            }
+            parts.literal("\r\n\r\n", ISO_8859_1, false);
+            parts.split(text, UTF8, true);
+        }
+
+        int size = 0;
+        for(byte[] bytes : parts.bytes) {
+            size += (bytes == null) ? 0 : bytes.length;
+        }
+        ByteBuffer all = ByteBuffer.allocateDirect(size);
+        segments = new ByteBuffer[parts.kinds.size()];
+        kinds = new int[segments.length];
+        for(int i = 0; i < segments.length; i++) {
+            kinds[i] = parts.kinds.get(i);
+            byte[] bytes = parts.bytes.get(i);
+            if(bytes != null) {
+                int start = all.position();
+                all.put(bytes);
+                ByteBuffer segment = all.duplicate();
+                segment.position(start);
+                segment.limit(start + bytes.length);
+                segments[i] = segment.slice().asReadOnlyBuffer();
+            }
+        }
+        names = parts.names.toArray(new String[parts.names.size()]);
+        generators = parts.generators.toArray(new IValueGenerator[parts.generators.size()]);
+        bodyReferences = new int[names.length];
+        for(int i = 0; i < names.length; i++) {
+            bodyReferences[i] = parts.bodyReferences.get(i);
+        }
+        staticBodyLength = parts.staticBodyLength;
+        variableLength = parts.kinds.contains(LENGTH);
+    }
+
+    /**
+     * Compiles the request of a step, with the local generators of its
+     * variables.
+     * @param step the test step, with an URL
+     * @return the template of the request
+     * @throws IllegalArgumentException if a variable is invalid
+     * @see ValueGenerators
+     */
+    public static RequestTemplate compile(TestStep step) {
+        return compile(step, ValueGenerators.create(step.getVariables()));
+    }
+
+    /**
+     * Compiles the request of a step.
+     * @param step the test step, with an URL
+     * @param generators generators of the variables of the step, by name
+     * @return the template of the request
+     */
+    public static RequestTemplate compile(TestStep step,
+            Map<String, IValueGenerator> generators) {
+        Collection<String> variables = (step.getVariables() == null)
+                ? Collections.<String>emptySet() : step.getVariables().keySet();
+        return new RequestTemplate(new StepRequest(step, LocalSprintExecutor.DEFAULT_TIMEOUT),
+                variables, generators);
+    }
+
+    /**
+     * @return the names of the variables with slots, in order of appearance
+     */
+    public List<String> getSlotNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * @return the number of buffers returned by the writers
+     */
+    public int getPartCount() {
+        return kinds.length;
+    }
+
+    /**
+     * @return a new writer, to be used by one thread
+     */
+    public Writer newWriter() {
+        return new Writer();
+    }
+
+    /**
+     * Fills the slots of the template for each send. Not thread-safe.
+     */
+    public final class Writer {
+
+        private final ByteBuffer[] parts;
+
+        /**
+         * Value of each slot
+         */
+        private final ByteBuffer[] values;
+
+        private final int[] lengths;
+
+        private final ByteBuffer length;
+
+        private final byte[] scratch;
+
+        private Writer() {
+            int max = LENGTH_DIGITS;
+            values = new ByteBuffer[names.length];
+            lengths = new int[names.length];
+            for(int i = 0; i < names.length; i++) {
+                values[i] = ByteBuffer.allocateDirect(generators[i].getMaxLength());
+                max = Math.max(max, generators[i].getMaxLength());
+            }
+            scratch = new byte[max];
+            length = variableLength ? ByteBuffer.allocateDirect(LENGTH_DIGITS) : null;
+            parts = new ByteBuffer[kinds.length];
+            for(int i = 0; i < parts.length; i++) {
+                switch(kinds[i]) {
+                    case STATIC:
+                        parts[i] = segments[i].duplicate();
+                        break;
+                    case LENGTH:
+                        parts[i] = length;
+                        break;
+                    default:
+                        //each reference has its own position
+                        parts[i] = values[kinds[i]].duplicate();
+                }
+            }
+        }
+
+        /**
+         * Fills the slots with the next values and rewinds the buffers.
+         * @return the buffers of the whole request, the same array on every
+         * call, valid until the next call
+         */
+        public ByteBuffer[] next() {
+            long body = staticBodyLength;
+            for(int i = 0; i < values.length; i++) {
+                int size = generators[i].next(scratch, 0);
+                ByteBuffer value = values[i];
+                value.clear();
+                value.put(scratch, 0, size);
+                lengths[i] = size;
+                body += (long) size * bodyReferences[i];
+            }
+            if(length != null) {
+                int at = scratch.length;
+                do {
+                    scratch[--at] = (byte) ('0' + body % 10);
+                    body /= 10;
+                } while(body > 0);
+                length.clear();
+                length.put(scratch, at, scratch.length - at);
+                length.flip();
+            }
+            for(int i = 0; i < parts.length; i++) {
+                int kind = kinds[i];
+                if(kind == STATIC) {
+                    parts[i].rewind();
+                }
+                else if(kind != LENGTH) {
+                    parts[i].position(0);
+                    parts[i].limit(lengths[kind]);
+                }
+            }
+            return parts;
+        }
+    }
+
+    /**
+     * Parts of a template being compiled.
+     */
+    private static final class Parts {
+
+        private final Collection<String> variables;
+
+        private final Map<String, IValueGenerator> available;
+
+        private final List<Integer> kinds = new ArrayList<Integer>();
+
+        private final List<byte[]> bytes = new ArrayList<byte[]>();
+
+        private final Map<String, Integer> slots = new HashMap<String, Integer>();
+
+        private final List<String> names = new ArrayList<String>();
+
+        private final List<IValueGenerator> generators = new ArrayList<IValueGenerator>();
+
+        private final List<Integer> bodyReferences = new ArrayList<Integer>();
+
+        private int staticBodyLength;
+
+        Parts(Collection<String> variables, Map<String, IValueGenerator> available) {
+            this.variables = variables;
+            this.available = available;
+        }
+
+        /**
+         * Splits the text into static parts and slots.
+         */
+        void split(String text, Charset charset, boolean body) {
+            int from = 0;
+            int start = nextReference(text, 0);
+            while(start >= 0) {
+                int end = text.indexOf('}', start);
+                literal(text.substring(from, start), charset, body);
+                reference(text.substring(start + 2, end), body);
+                from = end + 1;
+                start = nextReference(text, from);
+            }
+            literal(text.substring(from), charset, body);
+        }
+
+        /**
+         * @return the start of the next reference to a variable with
+         * generator, or -1
+         */
+        int nextReference(String text, int from) {
+            int start = text.indexOf("#{", from);
+            while(start >= 0) {
+                int end = text.indexOf('}', start + 2);
+                if(end < 0) {
+                    return -1;
+                }
+                String name = text.substring(start + 2, end);
+                if(variables.contains(name) && available.containsKey(name)) {
+                    return start;
+                }
+                start = text.indexOf("#{", start + 2);
+            }
+            return -1;
+        }
+
+        /**
+         * Adds static text, merged with the previous part when static too.
+         */
+        void literal(String text, Charset charset, boolean body) {
+            if(text.length() == 0) {
+                return;
+            }
+            byte[] encoded = text.getBytes(charset);
+            if(body) {
+                staticBodyLength += encoded.length;
+            }
+            int last = kinds.size() - 1;
+            if(last >= 0 && kinds.get(last) == STATIC) {
+                byte[] previous = bytes.get(last);
+                byte[] merged = new byte[previous.length + encoded.length];
+                System.arraycopy(previous, 0, merged, 0, previous.length);
+                System.arraycopy(encoded, 0, merged, previous.length, encoded.length);
+                bytes.set(last, merged);
+            }
+            else {
+                kinds.add(STATIC);
+                bytes.add(encoded);
+            }
+        }
+
+        private void reference(String name, boolean body) {
+            Integer slot = slots.get(name);
+            if(slot == null) {
+                slot = names.size();
+                slots.put(name, slot);
+                names.add(name);
+                generators.add(available.get(name));
+                bodyReferences.add(0);
+            }
+            if(body) {
+                bodyReferences.set(slot, bodyReferences.get(slot) + 1);
+            }
+            kinds.add(slot);
+            bytes.add(null);
+        }
+    }
+}
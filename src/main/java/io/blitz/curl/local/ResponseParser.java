@@ -0,0 +1,368 @@
+package io.blitz.curl.local;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental HTTP/1.1 response parser for the load drivers. Consumes the
+ * bytes as they arrive, in buffers of any size, keeping only the status,
+ * the framing of the body (fixed length, chunked or until the connection
+ * closes) and whether the connection can be kept alive. The body is
+ * skipped, so nothing is allocated per response.
+ * @author ghermeto
+ * @see NioLoadDriver
+ */
+final class ResponseParser {
+
+    private static final int STATUS_LINE = 0;
+
+    private static final int HEADER = 1;
+
+    private static final int BODY = 2;
+
+    private static final int CHUNK_SIZE = 3;
+
+    private static final int CHUNK_DATA = 4;
+
+    private static final int CHUNK_END = 5;
+
+    private static final int TRAILER = 6;
+
+    private static final int UNTIL_CLOSE = 7;
+
+    private static final int DONE = 8;
+
+    private static final int MAX_LINE = 16384;
+
+    private static final byte[] CONTENT_LENGTH = ascii("content-length");
+
+    private static final byte[] TRANSFER_ENCODING = ascii("transfer-encoding");
+
+    private static final byte[] CONNECTION = ascii("connection");
+
+    private static final byte[] CHUNKED = ascii("chunked");
+
+    private static final byte[] CLOSE = ascii("close");
+
+    private static final byte[] KEEP_ALIVE = ascii("keep-alive");
+
+    private byte[] line = new byte[256];
+
+    private int lineLength;
+
+    private int state;
+
+    /**
+     * Response to a HEAD request, without body
+     */
+    private boolean head;
+
+    private int status;
+
+    private boolean keepAlive;
+
+    private boolean chunked;
+
+    private long contentLength;
+
+    private long remaining;
+
+    ResponseParser() {
+        reset(false);
+    }
+
+    /**
+     * Prepares the parser for the next response.
+     * @param head true if the request was a HEAD
+     */
+    void reset(boolean head) {
+        this.head = head;
+        state = STATUS_LINE;
+        lineLength = 0;
+        status = -1;
+        keepAlive = true;
+        chunked = false;
+        contentLength = -1;
+        remaining = 0;
+    }
+
+    /**
+     * Parses the next bytes of the response.
+     * @param buffer bytes received, consumed up to the end of the response
+     * @return true when the response is complete
+     * @throws IOException if the response is malformed
+     */
+    boolean parse(ByteBuffer buffer) throws IOException {
+        while(true) {
+            switch(state) {
+                case BODY:
+                case CHUNK_DATA:
+                    int skip = (int) Math.min(remaining, buffer.remaining());
+                    buffer.position(buffer.position() + skip);
+                    remaining -= skip;
+                    if(remaining > 0) {
+                        return false;
+                    }
+                    if(state == BODY) {
+                        state = DONE;
+                        return true;
+                    }
+                    state = CHUNK_END;
+                    break;
+                case UNTIL_CLOSE:
+                    buffer.position(buffer.limit());
+                    return false;
+                case DONE:
+                    return true;
+                default:
+                    if(!readLine(buffer)) {
+                        return false;
+                    }
+                    onLine();
+                    if(state == DONE) {
+                        return true;
+                    }
+            }
+        }
+    }
+
+    /**
+     * Called when the server closes the connection.
+     * @return true if the response was complete, its body ending with the
+     * connection
+     */
+    boolean endOfStream() {
+        if(state == UNTIL_CLOSE) {
+            state = DONE;
+            return true;
+        }
+        return state == DONE;
+    }
+
+    /**
+     * @return the status of the response, -1 before the status line
+     */
+    int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true if the connection can be used by the next request
+     */
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    private boolean readLine(ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if(b == '\n') {
+                if(lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return true;
+            }
+            if(lineLength == line.length) {
+                if(lineLength == MAX_LINE) {
+                    throw new IOException("Response line too long");
+                }
+                byte[] larger = new byte[Math.min(MAX_LINE, lineLength * 2)];
+                System.arraycopy(line, 0, larger, 0, lineLength);
+                line = larger;
+            }
+            line[lineLength++] = b;
+        }
+        return false;
+    }
+
+    private void onLine() throws IOException {
+        int length = lineLength;
+        lineLength = 0;
+        switch(state) {
+            case STATUS_LINE:
+                statusLine(length);
+                break;
+            case HEADER:
+                if(length == 0) {
+                    endOfHeaders();
+                }
+                else {
+                    header(length);
+                }
+                break;
+            case CHUNK_SIZE:
+                remaining = chunkSize(length);
+                state = (remaining == 0) ? TRAILER : CHUNK_DATA;
+                break;
+            case CHUNK_END:
+                if(length != 0) {
+                    throw new IOException("Invalid chunk");
+                }
+                state = CHUNK_SIZE;
+                break;
+            case TRAILER:
+                if(length == 0) {
+                    state = DONE;
+                }
+                break;
+            default:
+                throw new IllegalStateException("State " + state);
+        }
+    }
+
+    /**
+     * HTTP/1.1 200 OK
+     */
+    private void statusLine(int length) throws IOException {
+        if(length < 12 || line[0] != 'H' || line[4] != '/' || line[8] != ' ') {
+            throw new IOException("Invalid status line");
+        }
+        int code = 0;
+        for(int i = 9; i < 12; i++) {
+            int digit = line[i] - '0';
+            if(digit < 0 || digit > 9) {
+                throw new IOException("Invalid status line");
+            }
+            code = code * 10 + digit;
+        }
+        status = code;
+        //HTTP/1.0 closes the connection unless asked otherwise
+        keepAlive = !(line[5] == '1' && line[7] == '0');
+        state = HEADER;
+    }
+
+    private void header(int length) throws IOException {
+        int colon = 0;
+        while(colon < length && line[colon] != ':') {
+            colon++;
+        }
+        if(colon == length) {
+            return;
+        }
+        int nameEnd = colon;
+        while(nameEnd > 0 && line[nameEnd - 1] == ' ') {
+            nameEnd--;
+        }
+        int from = colon + 1;
+        while(from < length && (line[from] == ' ' || line[from] == '\t')) {
+            from++;
+        }
+        int to = length;
+        while(to > from && (line[to - 1] == ' ' || line[to - 1] == '\t')) {
+            to--;
+        }
+        if(matches(0, nameEnd, CONTENT_LENGTH)) {
+            long value = 0;
+            for(int i = from; i < to; i++) {
+                int digit = line[i] - '0';
+                if(digit < 0 || digit > 9) {
+                    throw new IOException("Invalid content length");
+                }
+                value = value * 10 + digit;
+            }
+            contentLength = value;
+        }
+        else if(matches(0, nameEnd, TRANSFER_ENCODING)) {
+            chunked = contains(from, to, CHUNKED);
+        }
+        else if(matches(0, nameEnd, CONNECTION)) {
+            if(contains(from, to, CLOSE)) {
+                keepAlive = false;
+            }
+            else if(contains(from, to, KEEP_ALIVE)) {
+                keepAlive = true;
+            }
+        }
+    }
+
+    private void endOfHeaders() {
+        //interim responses (100 Continue) are followed by the real one
+        if(status >= 100 && status < 200) {
+            reset(head);
+            return;
+        }
+        if(head || status == 204 || status == 304) {
+            state = DONE;
+        }
+        else if(chunked) {
+            state = CHUNK_SIZE;
+        }
+        else if(contentLength >= 0) {
+            remaining = contentLength;
+            state = (remaining == 0) ? DONE : BODY;
+        }
+        else {
+            keepAlive = false;
+            state = UNTIL_CLOSE;
+        }
+    }
+
+    private long chunkSize(int length) throws IOException {
+        long size = 0;
+        int digits = 0;
+        for(int i = 0; i < length; i++) {
+            byte b = line[i];
+            int digit;
+            if(b >= '0' && b <= '9') {
+                digit = b - '0';
+            }
+            else if(b >= 'a' && b <= 'f') {
+                digit = b - 'a' + 10;
+            }
+            else if(b >= 'A' && b <= 'F') {
+                digit = b - 'A' + 10;
+            }
+            else if(b == ';' || b == ' ' || b == '\t') {
+                break;
+            }
+            else {
+                throw new IOException("Invalid chunk size");
+            }
+            if(++digits > 15) {
+                throw new IOException("Chunk too large");
+            }
+            size = size * 16 + digit;
+        }
+        if(digits == 0) {
+            throw new IOException("Invalid chunk size");
+        }
+        return size;
+    }
+
+    /**
+     * @return true if the range of the line is the lower case name, in any
+     * case
+     */
+    private boolean matches(int from, int to, byte[] name) {
+        if(to - from != name.length) {
+            return false;
+        }
+        for(int i = 0; i < name.length; i++) {
+            if(lower(line[from + i]) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean contains(int from, int to, byte[] token) {
+        for(int i = from; i <= to - token.length; i++) {
+            if(matches(i, i + token.length, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte lower(byte b) {
+        return (b >= 'A' && b <= 'Z') ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static byte[] ascii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for(int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) text.charAt(i);
+        }
+        return bytes;
+    }
+}
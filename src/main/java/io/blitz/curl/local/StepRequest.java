@@ -0,0 +1,193 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.TestStep;
+import io.blitz.curl.config.HttpHeader;
+import java.net.HttpCookie;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * HTTP request described by a <code>TestStep</code>, resolved the way curl
+ * does: the data of every <code>-d</code> joined by <code>&amp;</code> and
+ * sent as a form by POST, unless a method or content type was given.
+ * @author ghermeto
+ * @see TestStep
+ */
+final class StepRequest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final URL url;
+
+    private final String method;
+
+    private final Map<String, String> headers;
+
+    private final byte[] body;
+
+    private final int timeout;
+
+    private final Integer status;
+
+    /**
+     * @param step the test step, with an URL
+     * @param defaultTimeout timeout in milliseconds when the step has none
+     */
+    StepRequest(TestStep step, int defaultTimeout) {
+        if(step.getUrl() == null) {
+            throw new IllegalArgumentException("Url is required");
+        }
+        this.url = step.getUrl();
+        this.timeout = (step.getTimeout() != null) ? step.getTimeout() : defaultTimeout;
+        this.status = step.getStatus();
+
+        Collection<String> data = (step.getContent() != null)
+                ? step.getContent().getData() : null;
+        if(data != null && !data.isEmpty()) {
+            StringBuilder builder = new StringBuilder();
+            for(String item : data) {
+                if(builder.length() > 0) {
+                    builder.append('&');
+                }
+                builder.append(item);
+            }
+            this.body = builder.toString().getBytes(UTF8);
+        }
+        else {
+            this.body = null;
+        }
+        if(step.getRequest() != null) {
+            this.method = step.getRequest().toUpperCase();
+        }
+        else {
+            this.method = (body != null) ? "POST" : "GET";
+        }
+
+        headers = new LinkedHashMap<String, String>();
+        if(step.getUserAgent() != null) {
+            headers.put("User-Agent", step.getUserAgent());
+        }
+        if(step.getReferrer() != null) {
+            headers.put("Referer", step.getReferrer().toString());
+        }
+        if(step.getUser() != null) {
+            headers.put("Authorization", "Basic "
+                    + Base64.encodeBase64String(step.getUser().toString().getBytes(UTF8)));
+        }
+        if(step.getCookies() != null && !step.getCookies().isEmpty()) {
+            StringBuilder cookie = new StringBuilder();
+            for(HttpCookie item : step.getCookies()) {
+                if(cookie.length() > 0) {
+                    cookie.append("; ");
+                }
+                cookie.append(item.getName()).append('=').append(item.getValue());
+            }
+            headers.put("Cookie", cookie.toString());
+        }
+        if(body != null) {
+            headers.put("Content-Type", "application/x-www-form-urlencoded");
+        }
+        if(step.getHeaders() != null) {
+            for(HttpHeader header : step.getHeaders()) {
+                String name = header.getField().trim();
+                //the content-length is always computed from the body
+                if(!"content-length".equalsIgnoreCase(name)) {
+                    put(name, header.getValue().trim());
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the request line and the headers, without Content-Length and
+     * the blank line.
+     * @param builder where the text is appended
+     * @param target the request target, usually the file of the url
+     */
+    void head(StringBuilder builder, String target) {
+        builder.append(method).append(' ').append(target).append(" HTTP/1.1\r\n");
+        builder.append("Host: ").append(getHostHeader()).append("\r\n");
+        for(Map.Entry<String, String> header : headers.entrySet()) {
+            builder.append(header.getKey()).append(": ")
+                    .append(header.getValue()).append("\r\n");
+        }
+    }
+
+    /**
+     * Adds a header replacing the one with the same name, in any case.
+     */
+    private void put(String name, String value) {
+        for(String key : headers.keySet()) {
+            if(key.equalsIgnoreCase(name)) {
+                headers.remove(key);
+                break;
+            }
+        }
+        headers.put(name, value);
+    }
+
+    URL getUrl() {
+        return url;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the request headers, without Host and Content-Length
+     */
+    Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return the request body or null
+     */
+    byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return connect and read timeout in milliseconds
+     */
+    int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return the expected response status or null for any
+     */
+    Integer getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the value of the Host header
+     */
+    String getHostHeader() {
+        return (url.getPort() == -1) ? url.getHost() : url.getHost() + ":" + url.getPort();
+    }
+
+    /**
+     * @param other request of another step
+     * @return true if a connection opened for this request can be reused by
+     * the other one: same protocol, host, port and timeout
+     */
+    boolean sameOrigin(StepRequest other) {
+        URL a = url;
+        URL b = other.url;
+        return a.getProtocol().equalsIgnoreCase(b.getProtocol())
+                && a.getHost().equalsIgnoreCase(b.getHost())
+                && port(a) == port(b)
+                && timeout == other.timeout;
+    }
+
+    private static int port(URL url) {
+        return (url.getPort() == -1) ? url.getDefaultPort() : url.getPort();
+    }
+}
@@ -0,0 +1,200 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.TestStep;
+import io.blitz.curl.transport.HttpConnection;
+import io.blitz.curl.transport.TransportResponse;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load driver with one thread per virtual user, each one with its own
+ * keep-alive <code>HttpConnection</code>. Simple and accurate, but limited
+ * to a few thousand users by the number of threads. The requests are
+ * compiled once into <code>RequestTemplate</code>s and each user sends them
+ * with new values of the variables. The response bodies are skipped, only
+ * counted: the bytes sent and received are counted from the requests and
+ * responses, without the chunk framing.
+ * @author ghermeto
+ * @see ILoadDriver
+ */
+public class ThreadLoadDriver implements ILoadDriver {
+
+    /**
+     * Time to wait for the users to finish when stopping, in milliseconds
+     */
+    private static final long STOP_GRACE = 5000;
+
+    private List<StepRequest> requests;
+
+    private List<RequestTemplate> templates;
+
+    private LoadStats stats;
+
+    private final List<User> users = new ArrayList<User>();
+
+    private int started;
+
+    /**
+     * @throws IllegalArgumentException if a step has an invalid variable
+     */
+    public synchronized void start(List<TestStep> steps, int defaultTimeout, LoadStats stats) {
+        List<StepRequest> list = new ArrayList<StepRequest>(steps.size());
+        List<RequestTemplate> compiled = new ArrayList<RequestTemplate>(steps.size());
+        for(TestStep step : steps) {
+            list.add(new StepRequest(step, defaultTimeout));
+            compiled.add(RequestTemplate.compile(step));
+        }
+        this.requests = list;
+        this.templates = compiled;
+        this.stats = stats;
+    }
+
+    public synchronized void setConcurrency(int count) {
+        if(requests == null) {
+            throw new IllegalStateException("Driver not started");
+        }
+        while(users.size() < count) {
+            User user = new User();
+            Thread thread = new Thread(user, "blitz-user-" + (++started));
+            thread.setDaemon(true);
+            user.thread = thread;
+            users.add(user);
+            thread.start();
+        }
+        while(users.size() > count) {
+            users.remove(users.size() - 1).running = false;
+        }
+    }
+
+    public synchronized int getConcurrency() {
+        return users.size();
+    }
+
+    public void stop() {
+        List<User> stopped;
+        synchronized(this) {
+            stopped = new ArrayList<User>(users);
+            users.clear();
+        }
+        for(User user : stopped) {
+            user.running = false;
+        }
+        long deadline = System.currentTimeMillis() + STOP_GRACE;
+        for(User user : stopped) {
+            long remaining = deadline - System.currentTimeMillis();
+            if(remaining > 0) {
+                try {
+                    user.thread.join(remaining);
+                }
+                catch(InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Size of a response in bytes, as received, without the chunk framing.
+     * @param bodySize size of the discarded body
+     */
+    private static long wireSize(TransportResponse response, long bodySize) {
+        //HTTP/1.1 200 OK and the blank line
+        long size = 13 + response.getMessage().length() + 2 + 2;
+        for(Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            size += header.getKey().length() + 2 + header.getValue().length() + 2;
+        }
+        return size + bodySize;
+    }
+
+    /**
+     * Virtual user running the steps in a loop until removed.
+     */
+    private class User implements Runnable {
+
+        private volatile boolean running = true;
+
+        private Thread thread;
+
+        private HttpConnection connection;
+
+        private StepRequest connected;
+
+        /**
+         * Writer of each step, with the values of this user
+         */
+        private final RequestTemplate.Writer[] writers;
+
+        User() {
+            writers = new RequestTemplate.Writer[templates.size()];
+            for(int i = 0; i < writers.length; i++) {
+                writers[i] = templates.get(i).newWriter();
+            }
+        }
+
+        public void run() {
+            try {
+                while(running) {
+                    runSteps();
+                }
+            } finally {
+                close();
+            }
+        }
+
+        private void runSteps() {
+            long start = System.nanoTime();
+            for(int i = 0; i < requests.size(); i++) {
+                if(!running) {
+                    return;
+                }
+                StepRequest request = requests.get(i);
+                long stepStart = System.nanoTime();
+                long connect = -1;
+                try {
+                    if(connection == null || !connection.isReusable()
+                            || !connected.sameOrigin(request)) {
+                        close();
+                        connection = new HttpConnection(request.getUrl(),
+                                request.getTimeout(), request.getTimeout());
+                        connected = request;
+                        connect = System.nanoTime() - stepStart;
+                    }
+                    long sent = connection.write(writers[i].next());
+                    TransportResponse response = connection.read(request.getMethod(), true);
+                    stats.bytes(sent, wireSize(response, connection.getBodySize()));
+                    if(request.getStatus() != null
+                            && request.getStatus() != response.getStatus()) {
+                        stats.stepAsserted(i);
+                        stats.error();
+                        return;
+                    }
+                    stats.stepSucceeded(i, System.nanoTime() - stepStart, connect);
+                }
+                catch(SocketTimeoutException ex) {
+                    close();
+                    stats.stepTimedOut(i);
+                    stats.timeout();
+                    return;
+                }
+                catch(IOException ex) {
+                    close();
+                    stats.stepFailed(i);
+                    stats.error();
+                    return;
+                }
+            }
+            stats.hit(System.nanoTime() - start);
+        }
+
+        private void close() {
+            if(connection != null) {
+                connection.close();
+                connection = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.config.variable.UdidVariable;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the values of an <code>UdidVariable</code>: random (version 4)
+ * UUIDs in their canonical form, written straight from two random longs
+ * without <code>java.util.UUID</code>.
+ * @author ghermeto
+ * @see UdidVariable
+ */
+public final class UdidGenerator implements IValueGenerator {
+
+    private static final int LENGTH = 36;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    /**
+     * @param variable the variable, without settings
+     */
+    public UdidGenerator(UdidVariable variable) {
+    }
+
+    public int getMaxLength() {
+        return LENGTH;
+    }
+
+    public int next(byte[] slot, int offset) {
+        SplittableRandom random = LocalRandom.current();
+        //version 4 and the IETF variant
+        long high = (random.nextLong() & ~0xf000L) | 0x4000L;
+        long low = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        hex(high >>> 32, slot, offset, 8);
+        slot[offset + 8] = '-';
+        hex(high >>> 16, slot, offset + 9, 4);
+        slot[offset + 13] = '-';
+        hex(high, slot, offset + 14, 4);
+        slot[offset + 18] = '-';
+        hex(low >>> 48, slot, offset + 19, 4);
+        slot[offset + 23] = '-';
+        hex(low, slot, offset + 24, 12);
+        return LENGTH;
+    }
+
+    /**
+     * Writes the lowest digits of the value in hexadecimal.
+     */
+    private static void hex(long value, byte[] slot, int offset, int digits) {
+        for(int i = offset + digits - 1; i >= offset; i--) {
+            slot[i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+}
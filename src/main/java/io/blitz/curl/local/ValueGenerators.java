@@ -0,0 +1,57 @@
+package io.blitz.curl.local;
+
+import io.blitz.curl.config.variable.AlphaVariable;
+import io.blitz.curl.config.variable.IVariable;
+import io.blitz.curl.config.variable.ListVariable;
+import io.blitz.curl.config.variable.NumberVariable;
+import io.blitz.curl.config.variable.UdidVariable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates the local generators of the variables of a test.
+ * @author ghermeto
+ * @see IValueGenerator
+ */
+public final class ValueGenerators {
+
+    private ValueGenerators() {
+    }
+
+    /**
+     * @param variable the variable descriptor
+     * @return the generator of its values
+     * @throws IllegalArgumentException if the variable is invalid or of an
+     * unknown type
+     */
+    public static IValueGenerator create(IVariable variable) {
+        if(variable instanceof AlphaVariable) {
+            return new AlphaGenerator((AlphaVariable) variable);
+        }
+        else if(variable instanceof NumberVariable) {
+            return new NumberGenerator((NumberVariable) variable);
+        }
+        else if(variable instanceof ListVariable) {
+            return new ListGenerator((ListVariable) variable);
+        }
+        else if(variable instanceof UdidVariable) {
+            return new UdidGenerator((UdidVariable) variable);
+        }
+        throw new IllegalArgumentException("Unknown variable type "
+                + ((variable == null) ? null : variable.getType()));
+    }
+
+    /**
+     * @param variables the variables of a step by name, may be null
+     * @return the generators of the variables, by name
+     */
+    public static Map<String, IValueGenerator> create(Map<String, IVariable> variables) {
+        Map<String, IValueGenerator> generators = new HashMap<String, IValueGenerator>();
+        if(variables != null) {
+            for(Map.Entry<String, IVariable> entry : variables.entrySet()) {
+                generators.put(entry.getKey(), create(entry.getValue()));
+            }
+        }
+        return generators;
+    }
+}
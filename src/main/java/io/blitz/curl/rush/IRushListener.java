@@ -11,6 +11,9 @@ import io.blitz.curl.IListener;
  *      }
  * };
  * </pre>
+ * The results share the timeline decoded on previous polls. Listeners that 
+ * only care about the new snapshots should iterate 
+ * <code>RushResult.getDelta()</code>.
  * @author ghermeto
  * @see io.blitz.curl.IListener
  */
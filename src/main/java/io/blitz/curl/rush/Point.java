@@ -46,20 +46,27 @@ public class Point {
     private Integer volume;
     
     /**
-     * The total number of bytes sent
+     * The total number of bytes sent, -1 if unknown
      */
-    private Integer txBytes;
+    private long txBytes = -1;
     
     /**
-     * The total number of bytes received
+     * The total number of bytes received, -1 if unknown
      */
-    private Integer rxBytes;
+    private long rxBytes = -1;
     
     /**
      * Per-step metric at this point in time
      */
     private Collection<Step> steps;
 
+    /**
+     * Used by flyweight subclasses that read their values from elsewhere
+     * @see Timeline
+     */
+    protected Point() {
+    }
+
     public Point(Double timestamp, Double duration, Integer total, 
             Integer hits, Integer errors, Integer timeouts, Integer volume, 
             Integer txBytes, Integer rxBytes, Collection<Step> steps) {
@@ -71,11 +78,28 @@ public class Point {
         this.errors = errors;
         this.timeouts = timeouts;
         this.volume = volume;
-        this.txBytes = txBytes;
-        this.rxBytes = rxBytes;
+        this.txBytes = (txBytes == null) ? -1 : txBytes;
+        this.rxBytes = (rxBytes == null) ? -1 : rxBytes;
         this.steps = steps;
     }
 
+    /**
+     * Creates a point with byte counters past the range of the constructor.
+     * @param txBytes the total number of bytes sent, -1 if unknown
+     * @param rxBytes the total number of bytes received, -1 if unknown
+     * @return the new point
+     */
+    public static Point withByteCounts(Double timestamp, Double duration, 
+            Integer total, Integer hits, Integer errors, Integer timeouts, 
+            Integer volume, long txBytes, long rxBytes, Collection<Step> steps) {
+        
+        Point point = new Point(timestamp, duration, total, hits, errors, 
+                timeouts, volume, null, null, steps);
+        point.txBytes = txBytes;
+        point.rxBytes = rxBytes;
+        return point;
+    }
+
     public Double getDuration() {
         return duration;
     }
@@ -88,8 +112,14 @@ public class Point {
         return hits;
     }
 
+    /**
+     * @return the total number of bytes received, saturated to 
+     * <code>Integer.MAX_VALUE</code>
+     * @deprecated overflows past 2 GB, use <code>getRxByteCount</code>
+     */
+    @Deprecated
     public Integer getRxBytes() {
-        return rxBytes;
+        return saturate(getRxByteCount());
     }
 
     public Integer getTimeouts() {
@@ -104,10 +134,73 @@ public class Point {
         return total;
     }
 
+    /**
+     * @return the total number of bytes sent, saturated to 
+     * <code>Integer.MAX_VALUE</code>
+     * @deprecated overflows past 2 GB, use <code>getTxByteCount</code>
+     */
+    @Deprecated
     public Integer getTxBytes() {
+        return saturate(getTxByteCount());
+    }
+
+    /**
+     * @return the total number of bytes sent or -1 if unknown
+     */
+    public long getTxByteCount() {
         return txBytes;
     }
 
+    /**
+     * @return the total number of bytes received or -1 if unknown
+     */
+    public long getRxByteCount() {
+        return rxBytes;
+    }
+
+    /**
+     * Bytes sent per second since the previous point of the timeline, or
+     * since the start of the rush for the first point. Only the points of a
+     * <code>Timeline</code> know their predecessor, a standalone point has
+     * no rate.
+     * @return the upload rate or NaN if unknown or standalone
+     * @see Timeline#getTxBytesPerSecond(int)
+     */
+    public double getTxBytesPerSecond() {
+        return Double.NaN;
+    }
+
+    /**
+     * Bytes received per second since the previous point of the timeline, or
+     * since the start of the rush for the first point. Only the points of a
+     * <code>Timeline</code> know their predecessor, a standalone point has
+     * no rate.
+     * @return the download rate or NaN if unknown or standalone
+     * @see Timeline#getRxBytesPerSecond(int)
+     */
+    public double getRxBytesPerSecond() {
+        return Double.NaN;
+    }
+
+    /**
+     * Successful hits per second since the previous point of the timeline,
+     * or since the start of the rush for the first point. Only the points of
+     * a <code>Timeline</code> know their predecessor, a standalone point has
+     * no rate.
+     * @return the hit rate or NaN if unknown or standalone
+     * @see Timeline#getHitsPerSecond(int)
+     */
+    public double getHitsPerSecond() {
+        return Double.NaN;
+    }
+
+    private static Integer saturate(long value) {
+        if(value < 0) {
+            return null;
+        }
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
     public Integer getVolume() {
         return volume;
     }
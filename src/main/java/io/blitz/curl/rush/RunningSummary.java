@@ -0,0 +1,119 @@
+package io.blitz.curl.rush;
+
+/**
+ * Running summary of a metric: count, mean, variance (Welford), min, max
+ * and an exponentially weighted moving average. Each update is O(1).
+ * Not thread-safe, <code>RushAnalytics</code> hands out copies.
+ * @author ghermeto
+ * @see RushAnalytics
+ */
+public class RunningSummary {
+    
+    /**
+     * Weight of the newest sample in the moving average
+     */
+    private final double alpha;
+    
+    private long count;
+    
+    private double mean;
+    
+    /**
+     * Sum of the squared differences from the mean
+     */
+    private double m2;
+    
+    private double min = Double.NaN;
+    
+    private double max = Double.NaN;
+    
+    private double ewma = Double.NaN;
+
+    /**
+     * @param alpha weight of the newest sample in the moving average (0-1]
+     */
+    public RunningSummary(double alpha) {
+        if(!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("Alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+    }
+    
+    /**
+     * Copy constructor
+     * @param other the summary to copy
+     */
+    public RunningSummary(RunningSummary other) {
+        this.alpha = other.alpha;
+        this.count = other.count;
+        this.mean = other.mean;
+        this.m2 = other.m2;
+        this.min = other.min;
+        this.max = other.max;
+        this.ewma = other.ewma;
+    }
+    
+    /**
+     * Adds a sample. NaN samples are ignored.
+     * @param value the sample
+     */
+    public void add(double value) {
+        if(Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if(count == 1) {
+            min = value;
+            max = value;
+            ewma = value;
+        }
+        else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            ewma += alpha * (value - ewma);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean or NaN if empty
+     */
+    public double getMean() {
+        return (count == 0) ? Double.NaN : mean;
+    }
+
+    /**
+     * @return the sample variance or NaN with less than two samples
+     */
+    public double getVariance() {
+        return (count < 2) ? Double.NaN : m2 / (count - 1);
+    }
+
+    /**
+     * @return the sample standard deviation or NaN with less than two samples
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return the exponentially weighted moving average or NaN if empty
+     */
+    public double getEwma() {
+        return ewma;
+    }
+}
@@ -0,0 +1,298 @@
+package io.blitz.curl.rush;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Incremental analytics of a rush, fed once with each new point of the
+ * timeline. Keeps a rolling window over the last points (hits per second,
+ * error and timeout ratios, duration percentiles), a moving average of the
+ * duration and per-step summaries, so listeners can query them on every
+ * <code>onStatus</code> without scanning the timeline.
+ * <p>
+ * The hit, error and timeout counters of the timeline are cumulative, the
+ * window works on the difference between consecutive points. Every update
+ * is O(1); percentiles are computed on demand from the window.
+ * </p>
+ * @author ghermeto
+ * @see RushResult#getAnalytics()
+ */
+public class RushAnalytics {
+
+    private final int window;
+
+    private final double alpha;
+
+    /**
+     * Ring buffer of the window, one slot per point
+     */
+    private final double[] elapsed;
+
+    private final long[] totals;
+
+    private final long[] hits;
+
+    private final long[] errors;
+
+    private final long[] timeouts;
+
+    private final double[] durations;
+
+    /**
+     * Next slot of the ring buffer
+     */
+    private int next;
+
+    /**
+     * Number of used slots
+     */
+    private int used;
+
+    private double sumElapsed;
+
+    private long sumTotals;
+
+    private long sumHits;
+
+    private long sumErrors;
+
+    private long sumTimeouts;
+
+    /**
+     * Summary of the duration of every point
+     */
+    private final RunningSummary duration;
+
+    private final List<StepSummary> steps = new ArrayList<StepSummary>();
+
+    private long points;
+
+    private double lastTimestamp;
+
+    private int lastTotal;
+
+    private int lastHits;
+
+    private int lastErrors;
+
+    private int lastTimeouts;
+
+    /**
+     * Creates analytics with a window of 10 points and a moving average
+     * weight of 0.3
+     */
+    public RushAnalytics() {
+        this(10, 0.3);
+    }
+
+    /**
+     * @param window number of points in the rolling window
+     * @param alpha weight of the newest point in the moving averages (0-1]
+     */
+    public RushAnalytics(int window, double alpha) {
+        if(window < 1) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        this.window = window;
+        this.alpha = alpha;
+        this.duration = new RunningSummary(alpha);
+        this.elapsed = new double[window];
+        this.totals = new long[window];
+        this.hits = new long[window];
+        this.errors = new long[window];
+        this.timeouts = new long[window];
+        this.durations = new double[window];
+    }
+
+    /**
+     * Adds a point (and its steps) to the analytics.
+     * @param point the next point of the timeline
+     */
+    public synchronized void update(Point point) {
+        add(unbox(point.getTimestamp()), unbox(point.getDuration()),
+                unbox(point.getTotal()), unbox(point.getHits()),
+                unbox(point.getErrors()), unbox(point.getTimeouts()));
+        if(point.getSteps() != null) {
+            int index = 0;
+            for(Step step : point.getSteps()) {
+                getStepSummary(index++).add(unbox(step.getDuration()),
+                        unbox(step.getConnect()), unbox(step.getErrors()),
+                        unbox(step.getTimeouts()), unbox(step.getAsserts()));
+            }
+        }
+    }
+
+    /**
+     * Adds a row of a timeline to the analytics, reading the columns
+     * directly without creating any object.
+     * @param timeline the timeline
+     * @param row the next row
+     */
+    public synchronized void update(Timeline timeline, int row) {
+        add(timeline.getTimestamp(row), timeline.getDuration(row),
+                timeline.getTotal(row), timeline.getHits(row),
+                timeline.getErrors(row), timeline.getTimeouts(row));
+        int count = timeline.getStepCount(row);
+        for(int i = 0; i < count; i++) {
+            getStepSummary(i).add(timeline.getStepDuration(row, i),
+                    timeline.getStepConnect(row, i),
+                    timeline.getStepErrors(row, i),
+                    timeline.getStepTimeouts(row, i),
+                    timeline.getStepAsserts(row, i));
+        }
+    }
+
+    private void add(double timestamp, double pointDuration, int total,
+            int hit, int error, int timeout) {
+        if(used == window) {
+            sumElapsed -= elapsed[next];
+            sumTotals -= totals[next];
+            sumHits -= hits[next];
+            sumErrors -= errors[next];
+            sumTimeouts -= timeouts[next];
+        }
+        else {
+            used++;
+        }
+        double since = (points == 0) ? 0 : lastTimestamp;
+        elapsed[next] = (Double.isNaN(timestamp) || Double.isNaN(since))
+                ? 0 : Math.max(0, timestamp - since);
+        totals[next] = delta(total, lastTotal);
+        hits[next] = delta(hit, lastHits);
+        errors[next] = delta(error, lastErrors);
+        timeouts[next] = delta(timeout, lastTimeouts);
+        durations[next] = pointDuration;
+        sumElapsed += elapsed[next];
+        sumTotals += totals[next];
+        sumHits += hits[next];
+        sumErrors += errors[next];
+        sumTimeouts += timeouts[next];
+        next = (next + 1) % window;
+
+        duration.add(pointDuration);
+        points++;
+        lastTimestamp = timestamp;
+        lastTotal = known(total, lastTotal);
+        lastHits = known(hit, lastHits);
+        lastErrors = known(error, lastErrors);
+        lastTimeouts = known(timeout, lastTimeouts);
+    }
+
+    /**
+     * @return the number of points seen
+     */
+    public synchronized long getPoints() {
+        return points;
+    }
+
+    /**
+     * @return successful hits per second over the window or NaN if unknown
+     */
+    public synchronized double getHitsPerSecond() {
+        return (sumElapsed > 0) ? sumHits / sumElapsed : Double.NaN;
+    }
+
+    /**
+     * @return hits generated per second over the window or NaN if unknown
+     */
+    public synchronized double getTotalPerSecond() {
+        return (sumElapsed > 0) ? sumTotals / sumElapsed : Double.NaN;
+    }
+
+    /**
+     * @return errors / hits generated over the window or NaN if none
+     */
+    public synchronized double getErrorRatio() {
+        return (sumTotals > 0) ? (double) sumErrors / sumTotals : Double.NaN;
+    }
+
+    /**
+     * @return timeouts / hits generated over the window or NaN if none
+     */
+    public synchronized double getTimeoutRatio() {
+        return (sumTotals > 0) ? (double) sumTimeouts / sumTotals : Double.NaN;
+    }
+
+    /**
+     * @return the exponentially weighted moving average of the duration
+     */
+    public synchronized double getDurationEwma() {
+        return duration.getEwma();
+    }
+
+    /**
+     * @return a copy of the summary of the duration of every point
+     */
+    public synchronized RunningSummary getDuration() {
+        return new RunningSummary(duration);
+    }
+
+    /**
+     * Percentile of the point durations in the window (nearest rank).
+     * @param percentile the percentile (0-100)
+     * @return the duration or NaN if unknown
+     */
+    public synchronized double getDurationPercentile(double percentile) {
+        if(percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile " + percentile);
+        }
+        double[] values = new double[used];
+        int count = 0;
+        for(int i = 0; i < used; i++) {
+            if(!Double.isNaN(durations[i])) {
+                values[count++] = durations[i];
+            }
+        }
+        if(count == 0) {
+            return Double.NaN;
+        }
+        Arrays.sort(values, 0, count);
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return values[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * @return the number of steps seen
+     */
+    public synchronized int getStepCount() {
+        return steps.size();
+    }
+
+    /**
+     * @param index the step index
+     * @return a copy of the summaries of the step
+     */
+    public synchronized StepSummary getStep(int index) {
+        return new StepSummary(steps.get(index));
+    }
+
+    private StepSummary getStepSummary(int index) {
+        while(steps.size() <= index) {
+            steps.add(new StepSummary(alpha));
+        }
+        return steps.get(index);
+    }
+
+    /**
+     * @return the increase of a cumulative counter, 0 if unknown or reset
+     */
+    private static long delta(int value, int previous) {
+        if(value == Timeline.ABSENT_INT) {
+            return 0;
+        }
+        return Math.max(0, (long) value - previous);
+    }
+
+    private static int known(int value, int previous) {
+        return (value == Timeline.ABSENT_INT) ? previous : value;
+    }
+
+    private static double unbox(Double value) {
+        return (value == null) ? Double.NaN : value;
+    }
+
+    private static int unbox(Integer value) {
+        return (value == null) ? Timeline.ABSENT_INT : value;
+    }
+}
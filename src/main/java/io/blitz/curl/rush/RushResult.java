@@ -23,10 +23,32 @@ public class RushResult implements IResult{
      * timeline of snapshot values from the rush
      */
     private Collection<Point> timeline;
+    
+    /**
+     * points added to the timeline since the previous status
+     */
+    private Collection<Point> delta;
+    
+    /**
+     * incremental analytics of the timeline
+     */
+    private RushAnalytics analytics;
 
     public RushResult(String region, Collection<Point> timeline) {
+        this(region, timeline, timeline);
+    }
+
+    public RushResult(String region, Collection<Point> timeline, 
+            Collection<Point> delta) {
+        this(region, timeline, delta, null);
+    }
+
+    public RushResult(String region, Collection<Point> timeline, 
+            Collection<Point> delta, RushAnalytics analytics) {
         this.region = region;
         this.timeline = timeline;
+        this.delta = delta;
+        this.analytics = analytics;
     }
 
     public String getRegion() {
@@ -36,4 +58,33 @@ public class RushResult implements IResult{
     public Collection<Point> getTimeline() {
         return timeline;
     }
+
+    /**
+     * Listeners that only need the new snapshots should use this instead of
+     * scanning the whole timeline on every status.
+     * @return the points added to the timeline since the previous status
+     */
+    public Collection<Point> getDelta() {
+        return delta;
+    }
+
+    /**
+     * Rolling throughput, error ratios, duration moving average and per-step 
+     * summaries, updated incrementally with each new point. Cheap to query 
+     * on every status. The streaming decoder shares them between the results
+     * of a job, so they always reflect the latest status.
+     * @return the analytics of the timeline, computed on first use when the
+     * decoder didn't provide them
+     */
+    public synchronized RushAnalytics getAnalytics() {
+        if(analytics == null) {
+            analytics = new RushAnalytics();
+            if(timeline != null) {
+                for(Point point : timeline) {
+                    analytics.update(point);
+                }
+            }
+        }
+        return analytics;
+    }
 }
@@ -53,6 +53,13 @@ public class Step {
      */
     private Integer asserts;
 
+    /**
+     * Used by flyweight subclasses that read their values from elsewhere
+     * @see Timeline
+     */
+    protected Step() {
+    }
+
     public Step(Double duration, Double connect, 
             Integer errors, Integer timeouts, Integer asserts) {
         
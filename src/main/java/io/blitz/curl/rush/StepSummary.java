@@ -0,0 +1,90 @@
+package io.blitz.curl.rush;
+
+/**
+ * Running summaries of a step of a transactional rush, across the points
+ * seen so far.
+ * @author ghermeto
+ * @see RushAnalytics
+ */
+public class StepSummary {
+    
+    private final RunningSummary duration;
+    
+    private final RunningSummary connect;
+    
+    /**
+     * Latest cumulative counters, -1 if unknown
+     */
+    private int errors = -1;
+    
+    private int timeouts = -1;
+    
+    private int asserts = -1;
+
+    public StepSummary(double alpha) {
+        this.duration = new RunningSummary(alpha);
+        this.connect = new RunningSummary(alpha);
+    }
+    
+    /**
+     * Copy constructor
+     * @param other the summary to copy
+     */
+    public StepSummary(StepSummary other) {
+        this.duration = new RunningSummary(other.duration);
+        this.connect = new RunningSummary(other.connect);
+        this.errors = other.errors;
+        this.timeouts = other.timeouts;
+        this.asserts = other.asserts;
+    }
+    
+    void add(double duration, double connect, int errors, int timeouts, 
+            int asserts) {
+        this.duration.add(duration);
+        this.connect.add(connect);
+        if(errors != Timeline.ABSENT_INT) {
+            this.errors = errors;
+        }
+        if(timeouts != Timeline.ABSENT_INT) {
+            this.timeouts = timeouts;
+        }
+        if(asserts != Timeline.ABSENT_INT) {
+            this.asserts = asserts;
+        }
+    }
+
+    /**
+     * @return summary of the step duration
+     */
+    public RunningSummary getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return summary of the TCP connect time
+     */
+    public RunningSummary getConnect() {
+        return connect;
+    }
+
+    /**
+     * @return the latest cumulative errors or -1 if unknown
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the latest cumulative timeouts or -1 if unknown
+     */
+    public int getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return the latest cumulative assertion failures or -1 if unknown
+     */
+    public int getAsserts() {
+        return asserts;
+    }
+}
@@ -0,0 +1,652 @@
+package io.blitz.curl.rush;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Append-only columnar timeline of a rush. Each metric is kept in its own
+ * growable primitive array (one row per snapshot) and the per-step metrics
+ * in a second set of columns, so a long rush doesn't allocate any object per
+ * point. <code>Point</code> and <code>Step</code> instances returned by the
+ * views are flyweights reading a row of the columns.
+ * <p>
+ * Keeps the points already decoded between job status polls, so only the
+ * new points have to be decoded each time. The lists returned by
+ * <code>view</code> are immutable snapshots: points appended later are not
+ * visible through them.
+ * </p>
+ * @author ghermeto
+ * @see io.blitz.gson.RushResultReader
+ */
+public class Timeline {
+
+    /**
+     * Marks an absent integer metric
+     */
+    public static final int ABSENT_INT = Integer.MIN_VALUE;
+
+    /**
+     * Marks an absent byte counter
+     */
+    public static final long ABSENT_LONG = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size;
+
+    private double[] timestamps;
+
+    private double[] durations;
+
+    private int[] totals;
+
+    private int[] hits;
+
+    private int[] errors;
+
+    private int[] timeouts;
+
+    private int[] volumes;
+
+    private long[] txBytes;
+
+    private long[] rxBytes;
+
+    /**
+     * Index of the first step of each row in the step columns, the steps of
+     * row i are in [stepStart[i], stepStart[i + 1]).
+     */
+    private int[] stepStart;
+
+    /**
+     * Number of steps in the step columns, including the pending ones
+     */
+    private int stepCount;
+
+    private double[] stepDurations;
+
+    private double[] stepConnects;
+
+    private int[] stepErrors;
+
+    private int[] stepTimeouts;
+
+    private int[] stepAsserts;
+
+    /**
+     * Timestamp of the last point with a timestamp, NaN if none
+     */
+    private double lastTimestamp;
+
+    public Timeline() {
+        clear();
+    }
+
+    /**
+     * Appends a copy of the point to the end of the timeline.
+     * @param point the new point
+     */
+    public synchronized void add(Point point) {
+        if(point.getSteps() != null) {
+            for(Step step : point.getSteps()) {
+                addStep(unbox(step.getDuration()), unbox(step.getConnect()),
+                        unbox(step.getErrors()), unbox(step.getTimeouts()),
+                        unbox(step.getAsserts()));
+            }
+        }
+        addPoint(unbox(point.getTimestamp()), unbox(point.getDuration()),
+                unbox(point.getTotal()), unbox(point.getHits()),
+                unbox(point.getErrors()), unbox(point.getTimeouts()),
+                unbox(point.getVolume()), unboxLong(point.getTxByteCount()),
+                unboxLong(point.getRxByteCount()));
+    }
+
+    /**
+     * Adds a step to the point being decoded. The pending steps belong to
+     * the next point added with <code>addPoint</code>. Absent values are NaN
+     * for decimals and <code>Integer.MIN_VALUE</code> for integers.
+     */
+    public synchronized void addStep(double duration, double connect,
+            int errors, int timeouts, int asserts) {
+        if(stepCount == stepDurations.length) {
+            int capacity = stepCount * 2;
+            stepDurations = Arrays.copyOf(stepDurations, capacity);
+            stepConnects = Arrays.copyOf(stepConnects, capacity);
+            stepErrors = Arrays.copyOf(stepErrors, capacity);
+            stepTimeouts = Arrays.copyOf(stepTimeouts, capacity);
+            stepAsserts = Arrays.copyOf(stepAsserts, capacity);
+        }
+        stepDurations[stepCount] = duration;
+        stepConnects[stepCount] = connect;
+        stepErrors[stepCount] = errors;
+        stepTimeouts[stepCount] = timeouts;
+        stepAsserts[stepCount] = asserts;
+        stepCount++;
+    }
+
+    /**
+     * Discards the steps added since the last point.
+     */
+    public synchronized void discardSteps() {
+        stepCount = stepStart[size];
+    }
+
+    /**
+     * Appends a point with the pending steps to the end of the timeline.
+     * Absent values are NaN for decimals, <code>Integer.MIN_VALUE</code> for
+     * integers and <code>Long.MIN_VALUE</code> for the byte counters.
+     */
+    public synchronized void addPoint(double timestamp, double duration,
+            int total, int hits, int errors, int timeouts, int volume,
+            long txBytes, long rxBytes) {
+        if(size == timestamps.length) {
+            grow(size * 2);
+        }
+        this.timestamps[size] = timestamp;
+        this.durations[size] = duration;
+        this.totals[size] = total;
+        this.hits[size] = hits;
+        this.errors[size] = errors;
+        this.timeouts[size] = timeouts;
+        this.volumes[size] = volume;
+        this.txBytes[size] = txBytes;
+        this.rxBytes[size] = rxBytes;
+        size++;
+        this.stepStart[size] = stepCount;
+        if(!Double.isNaN(timestamp)) {
+            lastTimestamp = timestamp;
+        }
+    }
+
+    /**
+     * @return the number of points in the timeline
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the timestamp of the newest point or NaN if unknown
+     */
+    public synchronized double getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Verifies if a point read from the server was already decoded.
+     * @param index position of the point on the server timeline
+     * @param timestamp timestamp of the point or NaN if unknown
+     * @return true if the point is already in the timeline
+     */
+    public synchronized boolean contains(int index, double timestamp) {
+        if(!Double.isNaN(timestamp) && !Double.isNaN(lastTimestamp)) {
+            return timestamp <= lastTimestamp;
+        }
+        return index < size;
+    }
+
+    /**
+     * Returns an immutable view of a range of the timeline.
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return the points in the range
+     */
+    public synchronized View view(int from, int to) {
+        if(from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Invalid range " + from + "-" + to);
+        }
+        return new View(from, to);
+    }
+
+    /**
+     * Removes all the points.
+     */
+    public synchronized void clear() {
+        size = 0;
+        stepCount = 0;
+        lastTimestamp = Double.NaN;
+        timestamps = new double[INITIAL_CAPACITY];
+        durations = new double[INITIAL_CAPACITY];
+        totals = new int[INITIAL_CAPACITY];
+        hits = new int[INITIAL_CAPACITY];
+        errors = new int[INITIAL_CAPACITY];
+        timeouts = new int[INITIAL_CAPACITY];
+        volumes = new int[INITIAL_CAPACITY];
+        txBytes = new long[INITIAL_CAPACITY];
+        rxBytes = new long[INITIAL_CAPACITY];
+        stepStart = new int[INITIAL_CAPACITY + 1];
+        stepDurations = new double[INITIAL_CAPACITY];
+        stepConnects = new double[INITIAL_CAPACITY];
+        stepErrors = new int[INITIAL_CAPACITY];
+        stepTimeouts = new int[INITIAL_CAPACITY];
+        stepAsserts = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Average response time of the points in a range, ignoring the points
+     * without duration. Scans a single column.
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return the average duration or NaN if none
+     */
+    public synchronized double averageDuration(int from, int to) {
+        checkRange(from, to);
+        double sum = 0;
+        int count = 0;
+        for(int i = from; i < to; i++) {
+            double duration = durations[i];
+            if(!Double.isNaN(duration)) {
+                sum += duration;
+                count++;
+            }
+        }
+        return (count == 0) ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Highest response time of the points in a range.
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return the maximum duration or NaN if none
+     */
+    public synchronized double maxDuration(int from, int to) {
+        checkRange(from, to);
+        double max = Double.NaN;
+        for(int i = from; i < to; i++) {
+            double duration = durations[i];
+            if(!Double.isNaN(duration) && !(duration <= max)) {
+                max = duration;
+            }
+        }
+        return max;
+    }
+
+    public synchronized double getTimestamp(int row) {
+        checkRow(row);
+        return timestamps[row];
+    }
+
+    public synchronized double getDuration(int row) {
+        checkRow(row);
+        return durations[row];
+    }
+
+    public synchronized int getTotal(int row) {
+        checkRow(row);
+        return totals[row];
+    }
+
+    public synchronized int getHits(int row) {
+        checkRow(row);
+        return hits[row];
+    }
+
+    public synchronized int getErrors(int row) {
+        checkRow(row);
+        return errors[row];
+    }
+
+    public synchronized int getTimeouts(int row) {
+        checkRow(row);
+        return timeouts[row];
+    }
+
+    public synchronized int getVolume(int row) {
+        checkRow(row);
+        return volumes[row];
+    }
+
+    public synchronized long getTxBytes(int row) {
+        checkRow(row);
+        return txBytes[row];
+    }
+
+    public synchronized long getRxBytes(int row) {
+        checkRow(row);
+        return rxBytes[row];
+    }
+
+    /**
+     * Bytes sent per second between the previous row and this one (or the
+     * start of the rush for the first row).
+     * @param row the point index
+     * @return the upload rate or NaN if unknown
+     */
+    public synchronized double getTxBytesPerSecond(int row) {
+        checkRow(row);
+        return rate(txBytes, row);
+    }
+
+    /**
+     * Bytes received per second between the previous row and this one (or
+     * the start of the rush for the first row).
+     * @param row the point index
+     * @return the download rate or NaN if unknown
+     */
+    public synchronized double getRxBytesPerSecond(int row) {
+        checkRow(row);
+        return rate(rxBytes, row);
+    }
+
+    /**
+     * Successful hits per second between the previous row and this one (or
+     * the start of the rush for the first row).
+     * @param row the point index
+     * @return the hit rate or NaN if unknown
+     */
+    public synchronized double getHitsPerSecond(int row) {
+        checkRow(row);
+        if(hits[row] == ABSENT_INT || (row > 0 && hits[row - 1] == ABSENT_INT)) {
+            return Double.NaN;
+        }
+        int previous = (row == 0) ? 0 : hits[row - 1];
+        return rate(hits[row] - previous, row);
+    }
+
+    /**
+     * @param row the point index
+     * @param step the step index in the point
+     * @return the step duration or NaN if unknown
+     */
+    public synchronized double getStepDuration(int row, int step) {
+        return stepDurations[checkStep(row, step)];
+    }
+
+    /**
+     * @param row the point index
+     * @param step the step index in the point
+     * @return the step connect time or NaN if unknown
+     */
+    public synchronized double getStepConnect(int row, int step) {
+        return stepConnects[checkStep(row, step)];
+    }
+
+    /**
+     * @param row the point index
+     * @param step the step index in the point
+     * @return the step errors or ABSENT_INT if unknown
+     */
+    public synchronized int getStepErrors(int row, int step) {
+        return stepErrors[checkStep(row, step)];
+    }
+
+    /**
+     * @param row the point index
+     * @param step the step index in the point
+     * @return the step timeouts or ABSENT_INT if unknown
+     */
+    public synchronized int getStepTimeouts(int row, int step) {
+        return stepTimeouts[checkStep(row, step)];
+    }
+
+    /**
+     * @param row the point index
+     * @param step the step index in the point
+     * @return the step assertion failures or ABSENT_INT if unknown
+     */
+    public synchronized int getStepAsserts(int row, int step) {
+        return stepAsserts[checkStep(row, step)];
+    }
+
+    private double rate(long[] column, int row) {
+        long previous = (row == 0) ? 0 : column[row - 1];
+        if(column[row] == ABSENT_LONG || previous == ABSENT_LONG) {
+            return Double.NaN;
+        }
+        return rate(column[row] - previous, row);
+    }
+
+    private double rate(long delta, int row) {
+        double since = (row == 0) ? 0 : timestamps[row - 1];
+        double elapsed = timestamps[row] - since;
+        if(!(elapsed > 0)) {
+            return Double.NaN;
+        }
+        return delta / elapsed;
+    }
+
+    /**
+     * @param row the point index
+     * @return the number of steps of the point
+     */
+    public synchronized int getStepCount(int row) {
+        checkRow(row);
+        return stepStart[row + 1] - stepStart[row];
+    }
+
+    private void grow(int capacity) {
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        totals = Arrays.copyOf(totals, capacity);
+        hits = Arrays.copyOf(hits, capacity);
+        errors = Arrays.copyOf(errors, capacity);
+        timeouts = Arrays.copyOf(timeouts, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+        txBytes = Arrays.copyOf(txBytes, capacity);
+        rxBytes = Arrays.copyOf(rxBytes, capacity);
+        stepStart = Arrays.copyOf(stepStart, capacity + 1);
+    }
+
+    private void checkRow(int row) {
+        if(row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row);
+        }
+    }
+
+    private void checkRange(int from, int to) {
+        if(from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Invalid range " + from + "-" + to);
+        }
+    }
+
+    private int checkStep(int row, int step) {
+        checkRow(row);
+        if(step < 0 || step >= stepStart[row + 1] - stepStart[row]) {
+            throw new IndexOutOfBoundsException("Step: " + step);
+        }
+        return stepStart[row] + step;
+    }
+
+    private static double unbox(Double value) {
+        return (value == null) ? Double.NaN : value;
+    }
+
+    private static int unbox(Integer value) {
+        return (value == null) ? ABSENT_INT : value;
+    }
+
+    private static long unboxLong(long value) {
+        return (value < 0) ? ABSENT_LONG : value;
+    }
+
+    private static Double box(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static Integer box(int value) {
+        return (value == ABSENT_INT) ? null : value;
+    }
+
+    /**
+     * Fixed size window over the timeline
+     */
+    public class View extends AbstractList<Point> {
+
+        private final int from;
+
+        private final int to;
+
+        View(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Point get(int index) {
+            if(index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return new RowPoint(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        /**
+         * @return the timeline backing this view
+         */
+        public Timeline getTimeline() {
+            return Timeline.this;
+        }
+
+        /**
+         * @return the first row of the view in the timeline (inclusive)
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * @return the last row of the view in the timeline (exclusive)
+         */
+        public int getTo() {
+            return to;
+        }
+    }
+
+    /**
+     * Flyweight point reading a row of the columns
+     */
+    private class RowPoint extends Point {
+
+        private final int row;
+
+        RowPoint(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Double getTimestamp() {
+            return box(Timeline.this.getTimestamp(row));
+        }
+
+        @Override
+        public Double getDuration() {
+            return box(Timeline.this.getDuration(row));
+        }
+
+        @Override
+        public Integer getTotal() {
+            return box(Timeline.this.getTotal(row));
+        }
+
+        @Override
+        public Integer getHits() {
+            return box(Timeline.this.getHits(row));
+        }
+
+        @Override
+        public Integer getErrors() {
+            return box(Timeline.this.getErrors(row));
+        }
+
+        @Override
+        public Integer getTimeouts() {
+            return box(Timeline.this.getTimeouts(row));
+        }
+
+        @Override
+        public Integer getVolume() {
+            return box(Timeline.this.getVolume(row));
+        }
+
+        @Override
+        public long getTxByteCount() {
+            long value = Timeline.this.getTxBytes(row);
+            return (value == ABSENT_LONG) ? -1 : value;
+        }
+
+        @Override
+        public long getRxByteCount() {
+            long value = Timeline.this.getRxBytes(row);
+            return (value == ABSENT_LONG) ? -1 : value;
+        }
+
+        @Override
+        public double getTxBytesPerSecond() {
+            return Timeline.this.getTxBytesPerSecond(row);
+        }
+
+        @Override
+        public double getRxBytesPerSecond() {
+            return Timeline.this.getRxBytesPerSecond(row);
+        }
+
+        @Override
+        public double getHitsPerSecond() {
+            return Timeline.this.getHitsPerSecond(row);
+        }
+
+        @Override
+        public Collection<Step> getSteps() {
+            final int count = getStepCount(row);
+            return new AbstractList<Step>() {
+                @Override
+                public Step get(int index) {
+                    if(index < 0 || index >= count) {
+                        throw new IndexOutOfBoundsException("Index: " + index);
+                    }
+                    return new RowStep(row, index);
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+    }
+
+    /**
+     * Flyweight step reading a row of the step columns
+     */
+    private class RowStep extends Step {
+
+        private final int row;
+
+        private final int step;
+
+        RowStep(int row, int step) {
+            this.row = row;
+            this.step = step;
+        }
+
+        @Override
+        public Double getDuration() {
+            return box(getStepDuration(row, step));
+        }
+
+        @Override
+        public Double getConnect() {
+            return box(getStepConnect(row, step));
+        }
+
+        @Override
+        public Integer getErrors() {
+            return box(getStepErrors(row, step));
+        }
+
+        @Override
+        public Integer getTimeouts() {
+            return box(getStepTimeouts(row, step));
+        }
+
+        @Override
+        public Integer getAsserts() {
+            return box(getStepAsserts(row, step));
+        }
+    }
+}
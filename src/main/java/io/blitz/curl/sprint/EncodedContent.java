@@ -0,0 +1,113 @@
+package io.blitz.curl.sprint;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Base64InputStream;
+
+/**
+ * Base64 encoded body of a sprint request or response, as sent by the
+ * server. The body is decoded once, when first needed, and cached in place
+ * of the Base64 text, so only one copy stays on the heap; strings are
+ * decoded on demand from the cached bytes. The stream view decodes on the
+ * fly without keeping a decoded copy.
+ * @author ghermeto
+ * @see Request
+ * @see Response
+ */
+final class EncodedContent {
+
+    /**
+     * The Base64 text, released once decoded
+     */
+    private String encoded;
+
+    private byte[] decoded;
+
+    /**
+     * @param encoded the Base64 encoded body, not null
+     */
+    EncodedContent(String encoded) {
+        this.encoded = encoded;
+    }
+
+    /**
+     * @return the decoded body, shared: must not be modified
+     */
+    synchronized byte[] bytes() {
+        if(decoded == null) {
+            decoded = Base64.decodeBase64(encoded);
+            encoded = null;
+        }
+        return decoded;
+    }
+
+    /**
+     * @return the decoded body in the platform charset
+     */
+    String text() {
+        return new String(bytes());
+    }
+
+    String text(Charset charset) {
+        return new String(bytes(), charset);
+    }
+
+    ByteBuffer buffer() {
+        return ByteBuffer.wrap(bytes()).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the decoded body when already cached, otherwise a stream
+     * decoding the Base64 text as it is read
+     */
+    synchronized InputStream stream() {
+        if(decoded != null) {
+            return new ByteArrayInputStream(decoded);
+        }
+        return new Base64InputStream(new AsciiInputStream(encoded));
+    }
+
+    /**
+     * Reads the characters of a string as bytes, without copying it. Only
+     * meant for ASCII text like Base64.
+     */
+    private static final class AsciiInputStream extends InputStream {
+
+        private final String source;
+
+        private int position;
+
+        AsciiInputStream(String source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() {
+            return (position < source.length())
+                    ? source.charAt(position++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if(length == 0) {
+                return 0;
+            }
+            int count = Math.min(length, source.length() - position);
+            if(count <= 0) {
+                return -1;
+            }
+            for(int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) source.charAt(position++);
+            }
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return source.length() - position;
+        }
+    }
+}
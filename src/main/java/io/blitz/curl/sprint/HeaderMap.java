@@ -0,0 +1,244 @@
+package io.blitz.curl.sprint;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable, case-insensitive map of HTTP headers. The names and values are
+ * kept in parallel arrays instead of one entry object per header, and the
+ * common header names are shared by every map, so keeping thousands of
+ * sprint results around costs little more than the values themselves.
+ * <p>
+ * Names keep the spelling received from the server; lookups ignore case.
+ * If a name repeats (ignoring case), the last value wins.
+ * </p>
+ * @author ghermeto
+ * @see Request#getHeaders()
+ * @see Response#getHeaders()
+ */
+public final class HeaderMap extends AbstractMap<String, Object> {
+
+    /**
+     * Common header names, by their usual spellings, in an open addressing
+     * table indexed by the case-insensitive hash (already computed for each
+     * header).
+     */
+    private static final String[] COMMON = new String[256];
+
+    static {
+        String[] names = {"Accept", "Accept-Charset", "Accept-Encoding",
+            "Accept-Language", "Accept-Ranges", "Age", "Allow",
+            "Authorization", "Cache-Control", "Connection",
+            "Content-Disposition", "Content-Encoding", "Content-Language",
+            "Content-Length", "Content-Location", "Content-Type", "Cookie",
+            "Date", "ETag", "Expect", "Expires", "Host", "If-Match",
+            "If-Modified-Since", "If-None-Match", "Keep-Alive",
+            "Last-Modified", "Location", "Pragma", "Proxy-Authenticate",
+            "Range", "Referer", "Retry-After", "Server", "Set-Cookie",
+            "Strict-Transport-Security", "Transfer-Encoding", "Upgrade",
+            "User-Agent", "Vary", "Via", "WWW-Authenticate",
+            "X-Forwarded-For", "X-Powered-By", "X-Requested-With"};
+        for(String name : names) {
+            intern(name);
+            intern(name.toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    private final String[] names;
+
+    private final Object[] values;
+
+    /**
+     * Case-insensitive hash of each name
+     */
+    private final int[] hashes;
+
+    private final int size;
+
+    private Set<Map.Entry<String, Object>> entries;
+
+    /**
+     * Copies a map of headers.
+     * @param headers the headers
+     */
+    public HeaderMap(Map<String, ?> headers) {
+        int capacity = headers.size();
+        this.names = new String[capacity];
+        this.values = new Object[capacity];
+        this.hashes = new int[capacity];
+        int count = 0;
+        for(Map.Entry<String, ?> entry : headers.entrySet()) {
+            count = put(count, entry.getKey(), entry.getValue());
+        }
+        this.size = count;
+    }
+
+    /**
+     * Creates a map from the first <code>length</code> name/value pairs of
+     * the arrays, which are not modified or kept.
+     * @param names the header names
+     * @param values the header values
+     * @param length the number of headers
+     */
+    public HeaderMap(String[] names, Object[] values, int length) {
+        this.names = new String[length];
+        this.values = new Object[length];
+        this.hashes = new int[length];
+        int count = 0;
+        for(int i = 0; i < length; i++) {
+            count = put(count, names[i], values[i]);
+        }
+        this.size = count;
+    }
+
+    /**
+     * Adds a header while building the map.
+     * @return the new number of headers
+     */
+    private int put(int count, String name, Object value) {
+        if(name == null) {
+            throw new NullPointerException("Header name");
+        }
+        int hash = hash(name);
+        int index = indexOf(name, hash, count);
+        if(index >= 0) {
+            values[index] = value;
+            return count;
+        }
+        names[count] = common(name, hash);
+        values[count] = value;
+        hashes[count] = hash;
+        return count + 1;
+    }
+
+    /**
+     * @param name the header name, in any case
+     * @return the value of the header or null
+     */
+    @Override
+    public Object get(Object name) {
+        int index = indexOf(name);
+        return (index < 0) ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return indexOf(name) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if(entries == null) {
+            entries = new AbstractSet<Map.Entry<String, Object>>() {
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    return new Iterator<Map.Entry<String, Object>>() {
+                        private int next;
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+                        public Map.Entry<String, Object> next() {
+                            if(next >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next++;
+                            return new AbstractMap.SimpleImmutableEntry<String, Object>(
+                                    names[index], values[index]);
+                        }
+                        public void remove() {
+                            throw new UnsupportedOperationException("Immutable headers");
+                        }
+                    };
+                }
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entries;
+    }
+
+    /**
+     * @return the header names, in the order they were received
+     */
+    public String[] names() {
+        return Arrays.copyOf(names, size);
+    }
+
+    private int indexOf(Object name) {
+        if(!(name instanceof String)) {
+            return -1;
+        }
+        //common names are interned, like the constants used to look them up
+        for(int i = 0; i < size; i++) {
+            if(names[i] == name) {
+                return i;
+            }
+        }
+        String key = (String) name;
+        return indexOf(key, hash(key), size);
+    }
+
+    private int indexOf(String name, int hash, int count) {
+        for(int i = 0; i < count; i++) {
+            if(hashes[i] == hash && names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void intern(String name) {
+        int slot = hash(name) & (COMMON.length - 1);
+        while(COMMON[slot] != null) {
+            slot = (slot + 1) & (COMMON.length - 1);
+        }
+        COMMON[slot] = name;
+    }
+
+    /**
+     * @return the shared instance of the name if it is a common one
+     */
+    private static String common(String name, int hash) {
+        int slot = hash & (COMMON.length - 1);
+        for(String common = COMMON[slot]; common != null; common = COMMON[slot]) {
+            if(common.equals(name)) {
+                return common;
+            }
+            slot = (slot + 1) & (COMMON.length - 1);
+        }
+        return name;
+    }
+
+    /**
+     * Hash of the name ignoring case, consistent with equalsIgnoreCase.
+     */
+    private static int hash(String name) {
+        int hash = 0;
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if(c < 0x80) {
+                if(c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+            }
+            else {
+                c = Character.toLowerCase(Character.toUpperCase(c));
+            }
+            hash = 31 * hash + c;
+        }
+        return hash;
+    }
+}
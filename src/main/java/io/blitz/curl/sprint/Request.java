@@ -1,7 +1,9 @@
 package io.blitz.curl.sprint;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Map;
-import org.apache.commons.codec.binary.Base64;
 
 /**
  * Represents the request object generated by the sprint. Contains all
@@ -28,30 +30,80 @@ public class Request {
     /**
      * All of the request headers (as a Map of name/value pairs)
      */
-    private Map<String, Object> headers;
+    private HeaderMap headers;
     
     /**
      * POST/PUT content, if any
      */
-    private String content;
+    private EncodedContent content;
 
     public Request(String line, String method, String url, 
             Map<String, Object> headers, String content) {
         this.line = line;
         this.method = method;
         this.url = url;
-        this.headers = headers;
-        this.content = content;
+        this.headers = (headers == null || headers instanceof HeaderMap)
+                ? (HeaderMap) headers : new HeaderMap(headers);
+        this.content = (content == null) ? null : new EncodedContent(content);
     }
 
+    /**
+     * The content is decoded from Base64 on the first call and the bytes
+     * cached; each call builds a new string from them.
+     * @return the content in the platform charset or null if none
+     */
     public String getContent() {
-        return (content == null) ? null : new String(Base64.decodeBase64(content.getBytes()));
+        return (content == null) ? null : content.text();
+    }
+
+    /**
+     * @param charset the charset of the content
+     * @return the content or null if none
+     */
+    public String getContent(Charset charset) {
+        return (content == null) ? null : content.text(charset);
+    }
+
+    /**
+     * The returned array is cached and shared by every caller, it must not
+     * be modified.
+     * @return the decoded content or null if none
+     */
+    public byte[] getContentBytes() {
+        return (content == null) ? null : content.bytes();
+    }
+
+    /**
+     * @return a read-only view of the decoded content or null if none
+     */
+    public ByteBuffer getContentBuffer() {
+        return (content == null) ? null : content.buffer();
+    }
+
+    /**
+     * Streams the content, decoding it as it is read unless it was already
+     * decoded, so a large body is never fully decoded in memory.
+     * @return a new stream over the content or null if none
+     */
+    public InputStream getContentStream() {
+        return (content == null) ? null : content.stream();
     }
 
+    /**
+     * @return the immutable, case-insensitive headers or null
+     */
     public Map<String, Object> getHeaders() {
         return headers;
     }
 
+    /**
+     * @param name the header name, in any case
+     * @return the header value or null
+     */
+    public Object getHeader(String name) {
+        return (headers == null) ? null : headers.get(name);
+    }
+
     public String getLine() {
         return line;
     }
@@ -0,0 +1,166 @@
+package io.blitz.curl.transport;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Transport backed by <code>java.net.http.HttpClient</code>. Requests are 
+ * multiplexed over a small number of selector threads, so thousands of 
+ * calls can be in flight at the same time.
+ * @author ghermeto
+ */
+public class HttpClientTransport implements ITransport, IAsyncTransport {
+    
+    private final HttpClient httpClient;
+    
+    /**
+     * Timeout for each request
+     */
+    private Duration timeout;
+
+    /**
+     * Transport shared by the clients without one of their own, created on
+     * first use.
+     */
+    private static final class DefaultHolder {
+        private static final HttpClientTransport INSTANCE = new HttpClientTransport();
+    }
+
+    public HttpClientTransport() {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build());
+    }
+    
+    /**
+     * @param executor executor used to complete the futures and run the 
+     * dependent stages
+     */
+    public HttpClientTransport(Executor executor) {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(executor)
+                .build());
+    }
+
+    public HttpClientTransport(HttpClient httpClient) {
+        this.httpClient = httpClient;
+        this.timeout = Duration.ofSeconds(60);
+    }
+
+    /**
+     * Returns the transport shared by every <code>Client</code> without an
+     * asynchronous transport of its own, so all of them use the same
+     * selector threads. Its timeout should not be changed; create another
+     * transport for different settings.
+     * @return the shared transport
+     */
+    public static HttpClientTransport getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @see IAsyncTransport#executeAsync(java.lang.String, java.net.URL, java.util.Map, byte[]) 
+     */
+    public CompletableFuture<TransportResponse> executeAsync(String method, 
+            final URL url, Map<String, String> headers, byte[] body) {
+        
+        HttpRequest request;
+        try {
+            request = createRequest(method, url, headers, body);
+        } catch (URISyntaxException ex) {
+            CompletableFuture<TransportResponse> failed = 
+                    new CompletableFuture<TransportResponse>();
+            failed.completeExceptionally(new IOException("Invalid URL " + url, ex));
+            return failed;
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(new Function<HttpResponse<byte[]>, TransportResponse>() {
+                    public TransportResponse apply(HttpResponse<byte[]> response) {
+                        if(response.statusCode() >= 400) {
+                            throw new CompletionException(new IOException(
+                                    "Server returned HTTP response code: " 
+                                    + response.statusCode() + " for URL: " + url));
+                        }
+                        return toTransportResponse(response);
+                    }
+                });
+    }
+
+    /**
+     * Blocks until the asynchronous request completes.
+     * @see ITransport#execute(java.lang.String, java.net.URL, java.util.Map, byte[]) 
+     */
+    public TransportResponse execute(String method, URL url, 
+            Map<String, String> headers, byte[] body) throws IOException {
+        try {
+            return executeAsync(method, url, headers, body).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for the response");
+        } catch (ExecutionException ex) {
+            if(ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * The connections are owned by the <code>HttpClient</code> and released
+     * when it is garbage collected.
+     */
+    public void close() {
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+    
+    private HttpRequest createRequest(String method, URL url, 
+            Map<String, String> headers, byte[] body) throws URISyntaxException {
+        
+        HttpRequest.BodyPublisher publisher = (body == null) ? 
+                HttpRequest.BodyPublishers.noBody() : 
+                HttpRequest.BodyPublishers.ofByteArray(body);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(url.toURI())
+                .timeout(timeout)
+                .method(method, publisher);
+        if(headers != null) {
+            for(Map.Entry<String, String> header : headers.entrySet()) {
+                //restricted header, computed by the HttpClient
+                if(!"content-length".equalsIgnoreCase(header.getKey())) {
+                    builder.header(header.getKey(), header.getValue());
+                }
+            }
+        }
+        return builder.build();
+    }
+    
+    private TransportResponse toTransportResponse(HttpResponse<byte[]> response) {
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        for(Map.Entry<String, List<String>> entry : response.headers().map().entrySet()) {
+            headers.put(entry.getKey().toLowerCase(), String.join(", ", entry.getValue()));
+        }
+        return new TransportResponse(response.statusCode(), "", headers, response.body());
+    }
+}
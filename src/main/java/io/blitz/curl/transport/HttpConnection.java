@@ -0,0 +1,481 @@
+package io.blitz.curl.transport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * A single persistent HTTP/1.1 connection. Writes requests and reads complete
+ * responses (fixed length, chunked or close delimited) so the socket can be 
+ * reused by the next request.
+ * @author ghermeto
+ * @see PooledTransport
+ */
+public class HttpConnection {
+    
+    private static final String CHARSET = "ISO-8859-1";
+    
+    private static final int SCRATCH_SIZE = 8192;
+    
+    /**
+     * Default maximum size in bytes of a response body kept in memory
+     */
+    public static final int DEFAULT_MAX_BODY_SIZE = 64 * 1024 * 1024;
+    
+    /**
+     * Value of the Host header for this connection
+     */
+    private String hostHeader;
+    
+    private Socket socket;
+    
+    private InputStream input;
+    
+    private OutputStream output;
+    
+    /**
+     * Copies the direct buffers written and the bodies skipped, allocated 
+     * when first needed
+     */
+    private byte[] scratch;
+    
+    /**
+     * Time in milliseconds the TCP connection took to be established
+     */
+    private long connectTime;
+    
+    /**
+     * Last time (System.currentTimeMillis) the connection was used
+     */
+    private long lastUsed;
+    
+    /**
+     * False after the server asked to close the connection
+     */
+    private boolean reusable;
+    
+    private int maxBodySize = DEFAULT_MAX_BODY_SIZE;
+    
+    /**
+     * Size of the body of the last response read
+     */
+    private long bodySize;
+
+    /**
+     * Opens a new connection to the host and port of the given URL.
+     * @param url the URL to connect to (http or https)
+     * @param connectTimeout connect timeout in milliseconds (0 is infinite)
+     * @param readTimeout read timeout in milliseconds (0 is infinite)
+     * @throws IOException 
+     */
+    public HttpConnection(URL url, int connectTimeout, int readTimeout) 
+            throws IOException {
+        this(url, connectTimeout, readTimeout, null);
+    }
+
+    /**
+     * Opens a new connection to the host and port of the given URL. The
+     * certificate of https hosts must be valid for their name.
+     * @param url the URL to connect to (http or https)
+     * @param connectTimeout connect timeout in milliseconds (0 is infinite)
+     * @param readTimeout read timeout in milliseconds (0 is infinite)
+     * @param factory factory of the TLS sockets, null for the default one
+     * @throws IOException 
+     */
+    public HttpConnection(URL url, int connectTimeout, int readTimeout,
+            SSLSocketFactory factory) throws IOException {
+        
+        boolean secure = "https".equalsIgnoreCase(url.getProtocol());
+        int port = (url.getPort() == -1) ? url.getDefaultPort() : url.getPort();
+        
+        long start = System.nanoTime();
+        Socket plain = new Socket();
+        plain.setTcpNoDelay(true);
+        plain.connect(new InetSocketAddress(url.getHost(), port), connectTimeout);
+        connectTime = (System.nanoTime() - start) / 1000000L;
+        
+        if(secure) {
+            if(factory == null) {
+                factory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+            }
+            try {
+                SSLSocket secureSocket = (SSLSocket) factory.createSocket(
+                        plain, url.getHost(), port, true);
+                //checks the host name like HttpsURLConnection does
+                SSLParameters parameters = secureSocket.getSSLParameters();
+                parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                secureSocket.setSSLParameters(parameters);
+                secureSocket.setSoTimeout(readTimeout);
+                secureSocket.startHandshake();
+                socket = secureSocket;
+            } catch (IOException ex) {
+                plain.close();
+                throw ex;
+            }
+        }
+        else {
+            socket = plain;
+        }
+        socket.setSoTimeout(readTimeout);
+        input = new BufferedInputStream(socket.getInputStream());
+        output = new BufferedOutputStream(socket.getOutputStream());
+        hostHeader = (url.getPort() == -1) ? url.getHost() : url.getHost() + ":" + port;
+        lastUsed = System.currentTimeMillis();
+        reusable = true;
+    }
+    
+    /**
+     * Writes a request into the connection.
+     * @param method the HTTP method
+     * @param url the request URL (only the path and query are sent)
+     * @param headers additional request headers
+     * @param body request payload or null
+     * @throws IOException 
+     */
+    public void write(String method, URL url, Map<String, String> headers, 
+            byte[] body) throws IOException {
+        
+        String file = url.getFile();
+        StringBuilder builder = new StringBuilder(256);
+        builder.append(method).append(' ')
+                .append(file.length() == 0 ? "/" : file)
+                .append(" HTTP/1.1\r\n");
+        builder.append("Host: ").append(hostHeader).append("\r\n");
+        if(headers != null) {
+            for(Map.Entry<String, String> header : headers.entrySet()) {
+                //the content-length is always computed from the body
+                if(!"content-length".equalsIgnoreCase(header.getKey())) {
+                    builder.append(header.getKey()).append(": ")
+                            .append(header.getValue()).append("\r\n");
+                }
+            }
+        }
+        if(body != null) {
+            builder.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        builder.append("\r\n");
+        output.write(builder.toString().getBytes(CHARSET));
+        if(body != null) {
+            output.write(body);
+        }
+        output.flush();
+    }
+    
+    /**
+     * Writes a request already encoded, from the request line to the end of
+     * the body. The Host header must match the one of the connection.
+     * @param parts the buffers of the request, consumed
+     * @return the number of bytes written
+     * @throws IOException 
+     */
+    public long write(ByteBuffer... parts) throws IOException {
+        long size = 0;
+        for(ByteBuffer part : parts) {
+            size += part.remaining();
+            if(part.hasArray()) {
+                output.write(part.array(), part.arrayOffset() + part.position(), 
+                        part.remaining());
+                part.position(part.limit());
+                continue;
+            }
+            byte[] scratch = scratch();
+            while(part.hasRemaining()) {
+                int length = Math.min(part.remaining(), scratch.length);
+                part.get(scratch, 0, length);
+                output.write(scratch, 0, length);
+            }
+        }
+        output.flush();
+        return size;
+    }
+    
+    /**
+     * Reads a complete response from the connection, always draining the body.
+     * @param method the method of the request (HEAD responses have no body)
+     * @return the response
+     * @throws IOException if the response is invalid or its body larger
+     * than the maximum size
+     */
+    public TransportResponse read(String method) throws IOException {
+        return read(method, false);
+    }
+    
+    /**
+     * Reads a complete response from the connection, always draining the body.
+     * @param method the method of the request (HEAD responses have no body)
+     * @param discard true to skip the body, whatever its size, only 
+     * counting its bytes
+     * @return the response, with an empty body if discarded
+     * @throws IOException if the response is invalid or its body larger
+     * than the maximum size
+     * @see #getBodySize()
+     */
+    public TransportResponse read(String method, boolean discard) throws IOException {
+        TransportResponse response;
+        do {
+            response = readResponse(method, discard);
+        }
+        //interim responses (100 Continue) are followed by the final one
+        while(response.getStatus() >= 100 && response.getStatus() < 200
+                && response.getStatus() != 101);
+        return response;
+    }
+
+    private TransportResponse readResponse(String method, boolean discard) 
+            throws IOException {
+        String statusLine = readLine();
+        if(statusLine == null) {
+            throw new EOFException("Connection closed by the server");
+        }
+        //HTTP/1.1 200 OK
+        int first = statusLine.indexOf(' ');
+        int second = statusLine.indexOf(' ', first + 1);
+        if(first == -1) {
+            throw new IOException("Invalid status line: " + statusLine);
+        }
+        String version = statusLine.substring(0, first);
+        int status;
+        try {
+            status = Integer.parseInt((second == -1) ? 
+                    statusLine.substring(first + 1) : 
+                    statusLine.substring(first + 1, second));
+        } catch (NumberFormatException ex) {
+            throw new IOException("Invalid status line: " + statusLine);
+        }
+        String message = (second == -1) ? "" : statusLine.substring(second + 1);
+        
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        String line;
+        while((line = readLine()) != null && line.length() > 0) {
+            int colon = line.indexOf(':');
+            if(colon > 0) {
+                String name = line.substring(0, colon).trim().toLowerCase();
+                String value = line.substring(colon + 1).trim();
+                String previous = headers.get(name);
+                headers.put(name, (previous == null) ? value : previous + ", " + value);
+            }
+        }
+        
+        String connection = headers.get("connection");
+        if("HTTP/1.0".equals(version)) {
+            reusable = "keep-alive".equalsIgnoreCase(connection);
+        }
+        else {
+            reusable = !"close".equalsIgnoreCase(connection);
+        }
+        
+        byte[] body;
+        bodySize = 0;
+        String length = headers.get("content-length");
+        String encoding = headers.get("transfer-encoding");
+        if("HEAD".equalsIgnoreCase(method) || status == 204 || status == 304 || 
+                (status >= 100 && status < 200)) {
+            body = new byte[0];
+        }
+        else if(encoding != null && encoding.toLowerCase().contains("chunked")) {
+            body = readChunked(discard);
+        }
+        else if(length != null) {
+            int size = parseNumber(length.trim(), 10, "content length");
+            if(discard) {
+                skip(size);
+                body = new byte[0];
+            }
+            else {
+                checkBodySize(size);
+                body = readFully(size);
+            }
+        }
+        else {
+            body = readToEnd(discard);
+            reusable = false;
+        }
+        lastUsed = System.currentTimeMillis();
+        return new TransportResponse(status, message, headers, body);
+    }
+    
+    /**
+     * Closes the socket quietly
+     */
+    public void close() {
+        reusable = false;
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            //nothing to do
+        }
+    }
+
+    public boolean isReusable() {
+        return reusable && !socket.isClosed();
+    }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    public long getConnectTime() {
+        return connectTime;
+    }
+    
+    /**
+     * @return the size in bytes of the body of the last response read, even
+     * if discarded, without the chunk framing
+     */
+    public long getBodySize() {
+        return bodySize;
+    }
+
+    public int getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * @param maxBodySize maximum size in bytes of the response bodies kept 
+     * in memory, larger ones fail the read
+     */
+    public void setMaxBodySize(int maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+    
+    private byte[] readChunked(boolean discard) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while(true) {
+            String line = readLine();
+            if(line == null) {
+                throw new EOFException("Truncated chunked body");
+            }
+            int ext = line.indexOf(';');
+            int size = parseNumber((ext == -1 ? line : line.substring(0, ext)).trim(),
+                    16, "chunk size");
+            if(size == 0) {
+                //skip trailers
+                while((line = readLine()) != null && line.length() > 0) {
+                }
+                return out.toByteArray();
+            }
+            if(discard) {
+                skip(size);
+            }
+            else {
+                checkBodySize(bodySize + size);
+                out.write(readFully(size));
+            }
+            readLine();
+        }
+    }
+    
+    /**
+     * Parses a non negative number of the response.
+     * @throws IOException if the number is malformed
+     */
+    private static int parseNumber(String text, int radix, String name)
+            throws IOException {
+        try {
+            int value = Integer.parseInt(text, radix);
+            if(value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException ex) {
+            //invalid below
+        }
+        throw new IOException("Invalid " + name + ": " + text);
+    }
+    
+    /**
+     * Fails before a body larger than the maximum is read into memory; the 
+     * rest of the response is left unread, so the connection can't be reused.
+     */
+    private void checkBodySize(long size) throws IOException {
+        if(size > maxBodySize) {
+            reusable = false;
+            throw new IOException("Response body larger than " 
+                    + maxBodySize + " bytes");
+        }
+    }
+    
+    private byte[] readFully(int length) throws IOException {
+        byte[] data = new byte[length];
+        int offset = 0;
+        while(offset < length) {
+            int read = input.read(data, offset, length - offset);
+            if(read == -1) {
+                throw new EOFException("Truncated response body");
+            }
+            offset += read;
+        }
+        bodySize += length;
+        return data;
+    }
+    
+    /**
+     * Reads and drops the bytes of a body.
+     */
+    private void skip(int length) throws IOException {
+        byte[] buffer = scratch();
+        int remaining = length;
+        while(remaining > 0) {
+            int read = input.read(buffer, 0, Math.min(remaining, buffer.length));
+            if(read == -1) {
+                throw new EOFException("Truncated response body");
+            }
+            remaining -= read;
+        }
+        bodySize += length;
+    }
+    
+    private byte[] readToEnd(boolean discard) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = scratch();
+        int read;
+        while((read = input.read(buffer)) != -1) {
+            bodySize += read;
+            if(!discard) {
+                checkBodySize(bodySize);
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    private byte[] scratch() {
+        if(scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        return scratch;
+    }
+    
+    /**
+     * Reads a CRLF (or LF) terminated line
+     * @return the line without the terminator or null on end of stream
+     * @throws IOException 
+     */
+    private String readLine() throws IOException {
+        StringBuilder builder = new StringBuilder(64);
+        int c;
+        while((c = input.read()) != -1) {
+            if(c == '\n') {
+                int last = builder.length() - 1;
+                if(last >= 0 && builder.charAt(last) == '\r') {
+                    builder.setLength(last);
+                }
+                return builder.toString();
+            }
+            builder.append((char) c);
+        }
+        return (builder.length() == 0) ? null : builder.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package io.blitz.curl.transport;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking HTTP layer used by the asynchronous <code>Client</code> 
+ * methods. No thread is held while the request is in flight.
+ * @author ghermeto
+ * @see HttpClientTransport
+ */
+public interface IAsyncTransport {
+    
+    /**
+     * Sends a request without blocking the calling thread.
+     * @param method the HTTP method (GET, POST, PUT...)
+     * @param url the absolute URL of the resource
+     * @param headers request headers to be sent
+     * @param body the request body or null if there is none
+     * @return a future completed with the drained response or completed 
+     * exceptionally with an <code>IOException</code>
+     */
+    CompletableFuture<TransportResponse> executeAsync(String method, URL url, 
+            Map<String, String> headers, byte[] body);
+}
@@ -0,0 +1,33 @@
+package io.blitz.curl.transport;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Describes the HTTP layer used by the <code>Client</code> to talk with the 
+ * blitz RESTful API. Implementations must always consume the whole response 
+ * body before returning, so the underlying connection can be reused.
+ * @author ghermeto
+ * @see URLConnectionTransport
+ * @see PooledTransport
+ */
+public interface ITransport {
+    
+    /**
+     * Sends a request and reads the complete response.
+     * @param method the HTTP method (GET, POST, PUT...)
+     * @param url the absolute URL of the resource
+     * @param headers request headers to be sent
+     * @param body the request body or null if there is none
+     * @return the drained response
+     * @throws IOException if the request can't be completed
+     */
+    TransportResponse execute(String method, URL url, 
+            Map<String, String> headers, byte[] body) throws IOException;
+    
+    /**
+     * Releases any resource (connections, sockets) held by the transport.
+     */
+    void close();
+}
@@ -0,0 +1,299 @@
+package io.blitz.curl.transport;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keep-alive transport with an explicit, bounded connection pool per host.
+ * <p>
+ * Each host (protocol, host and port) has a limited number of connections 
+ * that can be in use at the same time and a limited number of idle 
+ * connections kept for reuse. Idle connections older than the idle timeout
+ * are evicted. The pool keeps track of how many requests were served by a 
+ * pooled connection (hits) and how many needed a new one (misses).
+ * </p>
+ * <pre>
+ * PooledTransport transport = new PooledTransport(4, 8, 30000);
+ * Client client = new Client("you@example.com", "my-bitz-api-key");
+ * client.setTransport(transport);
+ * </pre>
+ * @author ghermeto
+ */
+public class PooledTransport implements ITransport {
+    
+    /**
+     * Default number of idle connections kept per host
+     */
+    public static final int DEFAULT_MAX_IDLE = 4;
+    
+    /**
+     * Default number of connections in use per host
+     */
+    public static final int DEFAULT_MAX_ACTIVE = 16;
+    
+    /**
+     * Default idle timeout in milliseconds
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 30000;
+    
+    private final int maxIdle;
+    
+    private final int maxActive;
+    
+    private final long idleTimeout;
+    
+    private int connectTimeout;
+    
+    private int readTimeout;
+    
+    private final Map<String, HostPool> pools;
+    
+    private final AtomicLong hits;
+    
+    private final AtomicLong misses;
+    
+    private final AtomicLong evictions;
+    
+    /**
+     * Set by <code>close</code>, the connections returned after are closed
+     */
+    private volatile boolean closed;
+
+    public PooledTransport() {
+        this(DEFAULT_MAX_IDLE, DEFAULT_MAX_ACTIVE, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param maxIdle maximum number of idle connections per host
+     * @param maxActive maximum number of connections in use per host
+     * @param idleTimeout time in milliseconds an idle connection is kept
+     */
+    public PooledTransport(int maxIdle, int maxActive, long idleTimeout) {
+        if(maxIdle < 0 || maxActive < 1 || idleTimeout < 0) {
+            throw new IllegalArgumentException("Invalid pool configuration");
+        }
+        this.maxIdle = maxIdle;
+        this.maxActive = maxActive;
+        this.idleTimeout = idleTimeout;
+        this.connectTimeout = 30000;
+        this.readTimeout = 60000;
+        this.pools = new HashMap<String, HostPool>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    /**
+     * Sends the request using a pooled connection when available. If a pooled
+     * connection turns out to be stale, idempotent requests are retried once 
+     * on a new connection.
+     * @see ITransport#execute(java.lang.String, java.net.URL, java.util.Map, byte[]) 
+     */
+    public TransportResponse execute(String method, URL url, 
+            Map<String, String> headers, byte[] body) throws IOException {
+        
+        HostPool pool = getPool(url);
+        try {
+            pool.permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a connection");
+        }
+        try {
+            TransportResponse response = null;
+            HttpConnection connection = pool.poll(System.currentTimeMillis());
+            if(connection != null) {
+                hits.incrementAndGet();
+                try {
+                    response = send(pool, connection, method, url, headers, body);
+                } catch (IOException ex) {
+                    connection.close();
+                    //a POST may have reached the server, never send it twice
+                    if("POST".equalsIgnoreCase(method)) {
+                        throw ex;
+                    }
+                }
+            }
+            if(response == null) {
+                misses.incrementAndGet();
+                connection = new HttpConnection(url, connectTimeout, readTimeout);
+                try {
+                    response = send(pool, connection, method, url, headers, body);
+                } catch (IOException ex) {
+                    connection.close();
+                    throw ex;
+                }
+            }
+            if(response.getStatus() >= 400) {
+                throw new IOException("Server returned HTTP response code: " 
+                        + response.getStatus() + " for URL: " + url);
+            }
+            return response;
+        } finally {
+            pool.permits.release();
+        }
+    }
+    
+    /**
+     * Closes every idle connection. Connections in use are closed when 
+     * returned, as are the ones of the requests sent after.
+     */
+    public void close() {
+        closed = true;
+        synchronized(pools) {
+            for(HostPool pool : pools.values()) {
+                pool.clear();
+            }
+        }
+    }
+    
+    /**
+     * Closes all idle connections that exceeded the idle timeout.
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        synchronized(pools) {
+            for(HostPool pool : pools.values()) {
+                pool.evict(now);
+            }
+        }
+    }
+    
+    /**
+     * @return the number of requests served by a pooled connection
+     */
+    public long getHits() {
+        return hits.get();
+    }
+    
+    /**
+     * @return the number of requests that had to open a new connection
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    /**
+     * @return the number of idle connections closed by the timeout
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    /**
+     * @return the number of idle connections on all hosts
+     */
+    public int getIdleCount() {
+        int count = 0;
+        synchronized(pools) {
+            for(HostPool pool : pools.values()) {
+                count += pool.size();
+            }
+        }
+        return count;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+    
+    private TransportResponse send(HostPool pool, HttpConnection connection, 
+            String method, URL url, Map<String, String> headers, byte[] body) 
+            throws IOException {
+        
+        connection.write(method, url, headers, body);
+        TransportResponse response = connection.read(method);
+        //the body was drained, so the connection can go back to the pool
+        if(connection.isReusable()) {
+            pool.offer(connection);
+        }
+        else {
+            connection.close();
+        }
+        return response;
+    }
+    
+    private HostPool getPool(URL url) {
+        int port = (url.getPort() == -1) ? url.getDefaultPort() : url.getPort();
+        String key = url.getProtocol().toLowerCase() + "://" 
+                + url.getHost().toLowerCase() + ":" + port;
+        synchronized(pools) {
+            HostPool pool = pools.get(key);
+            if(pool == null) {
+                pool = new HostPool();
+                pools.put(key, pool);
+            }
+            return pool;
+        }
+    }
+    
+    /**
+     * Idle connections and in use permits of a single host
+     */
+    private class HostPool {
+        
+        private final Semaphore permits = new Semaphore(maxActive, true);
+        
+        private final Deque<HttpConnection> idle = new ArrayDeque<HttpConnection>();
+        
+        /**
+         * @return the most recently used connection that is still valid
+         */
+        synchronized HttpConnection poll(long now) {
+            evict(now);
+            return idle.pollFirst();
+        }
+        
+        synchronized void offer(HttpConnection connection) {
+            if(closed || idle.size() >= maxIdle) {
+                connection.close();
+                return;
+            }
+            idle.offerFirst(connection);
+        }
+        
+        synchronized void evict(long now) {
+            Iterator<HttpConnection> it = idle.descendingIterator();
+            while(it.hasNext()) {
+                HttpConnection connection = it.next();
+                if(now - connection.getLastUsed() < idleTimeout && 
+                        connection.isReusable()) {
+                    break;
+                }
+                it.remove();
+                connection.close();
+                evictions.incrementAndGet();
+            }
+        }
+        
+        synchronized void clear() {
+            for(HttpConnection connection : idle) {
+                connection.close();
+            }
+            idle.clear();
+        }
+        
+        synchronized int size() {
+            return idle.size();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.blitz.curl.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * A fully drained HTTP response returned by a <code>ITransport</code>.
+ * @author ghermeto
+ */
+public class TransportResponse {
+    
+    /**
+     * The response status code or -1 if unknown
+     */
+    private int status;
+    
+    /**
+     * The message in the response line
+     */
+    private String message;
+    
+    /**
+     * The response headers (names in lower case)
+     */
+    private Map<String, String> headers;
+    
+    /**
+     * The response payload
+     */
+    private byte[] body;
+
+    public TransportResponse(int status, String message, 
+            Map<String, String> headers, byte[] body) {
+        this.status = status;
+        this.message = message;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+    
+    /**
+     * Stream view over the response payload
+     * @return the body as a <code>InputStream</code>
+     */
+    public InputStream getBodyStream() {
+        return new ByteArrayInputStream(body);
+    }
+}
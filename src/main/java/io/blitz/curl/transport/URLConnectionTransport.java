@@ -0,0 +1,91 @@
+package io.blitz.curl.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Default transport based on <code>HttpURLConnection</code>. Every response 
+ * (including the error stream) is drained and closed so the JVM keep-alive 
+ * cache is able to reuse the underlying socket.
+ * @author ghermeto
+ */
+public class URLConnectionTransport implements ITransport {
+
+    /**
+     * Sends the request using <code>URL.openConnection()</code>.
+     * @see ITransport#execute(java.lang.String, java.net.URL, java.util.Map, byte[]) 
+     */
+    public TransportResponse execute(String method, URL url, 
+            Map<String, String> headers, byte[] body) throws IOException {
+        
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        //set the method
+        connection.setRequestMethod(method);
+        //set the headers
+        if(headers != null) {
+            for(Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        //sends the data
+        if(body != null) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            OutputStream ost = connection.getOutputStream();
+            try {
+                ost.write(body);
+                ost.flush();
+            } finally {
+                ost.close();
+            }
+        }
+        //gets the response
+        InputStream stream;
+        try {
+            stream = connection.getInputStream();
+        } catch (IOException ex) {
+            //drain the error stream or the socket will not be reused
+            drain(connection.getErrorStream());
+            throw ex;
+        }
+        byte[] data = drain(stream);
+        Map<String, String> empty = Collections.emptyMap();
+        return new TransportResponse(connection.getResponseCode(), 
+                connection.getResponseMessage(), empty, data);
+    }
+
+    /**
+     * Nothing to release. The sockets are owned by the JVM keep-alive cache.
+     */
+    public void close() {
+    }
+    
+    /**
+     * Reads the stream until the end and closes it.
+     * @param stream stream to be consumed (can be null)
+     * @return the bytes read
+     * @throws IOException 
+     */
+    private byte[] drain(InputStream stream) throws IOException {
+        if(stream == null) {
+            return new byte[0];
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package io.blitz.gson;
+
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.blitz.curl.JobStatus;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming decoder of job status responses. Reads the JSON straight into a
+ * <code>JobStatus</code> and its typed result, without building the 
+ * intermediate map tree.
+ * @author ghermeto
+ * @see RushResultReader
+ * @see SprintResultReader
+ */
+public abstract class JobStatusReader<Result> {
+    
+    /**
+     * Reads a complete job status response.
+     * @param reader the JSON reader positioned before the response object
+     * @return the job status or null if the document is empty
+     * @throws IOException 
+     */
+    public JobStatus<Result> read(JsonReader reader) throws IOException {
+        if(reader.peek() == JsonToken.END_DOCUMENT) {
+            return null;
+        }
+        JobStatus<Result> job = new JobStatus<Result>();
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            if("status".equals(name)) {
+                job.setStatus(nextString(reader));
+            }
+            else if("error".equals(name)) {
+                job.setError(nextString(reader));
+            }
+            else if("reason".equals(name)) {
+                job.setReason(nextString(reader));
+            }
+            else if("result".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                job.setResultPresent(true);
+                job.setResult(readResult(reader, job));
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return job;
+    }
+    
+    /**
+     * Reads the result object. Implementations should hand the fields they 
+     * don't know to <code>readResultField</code>.
+     * @param reader the reader positioned before the result object
+     * @param job the job status being read
+     * @return the decoded result
+     * @throws IOException 
+     */
+    protected abstract Result readResult(JsonReader reader, JobStatus<Result> job) 
+            throws IOException;
+    
+    /**
+     * Reads the common fields of a result object (error and reason) and 
+     * skips any other field.
+     * @param name name of the field
+     * @param reader the reader positioned before the value
+     * @param job the job status being read
+     * @throws IOException 
+     */
+    protected void readResultField(String name, JsonReader reader, 
+            JobStatus<Result> job) throws IOException {
+        if("error".equals(name)) {
+            job.setResultError(nextString(reader));
+        }
+        else if("reason".equals(name)) {
+            job.setResultReason(nextString(reader));
+        }
+        else {
+            reader.skipValue();
+        }
+    }
+    
+    /**
+     * @return the next string value or null
+     */
+    protected String nextString(JsonReader reader) throws IOException {
+        if(reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+    
+    /**
+     * @return the next number as a Double or null
+     */
+    protected Double nextDouble(JsonReader reader) throws IOException {
+        if(reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextDouble();
+    }
+    
+    /**
+     * @return the next number truncated to an Integer or null
+     */
+    protected Integer nextInteger(JsonReader reader) throws IOException {
+        if(reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return (int) reader.nextDouble();
+    }
+    
+    /**
+     * Reads any JSON value the same way <code>MapDeserializer</code> does: 
+     * objects become maps, arrays become lists and numbers are lazily parsed.
+     * @param reader the reader positioned before the value
+     * @return the value
+     * @throws IOException 
+     */
+    protected Object readValue(JsonReader reader) throws IOException {
+        switch(reader.peek()) {
+            case BEGIN_OBJECT:
+                Map<String, Object> map = new HashMap<String, Object>();
+                reader.beginObject();
+                while(reader.hasNext()) {
+                    map.put(reader.nextName(), readValue(reader));
+                }
+                reader.endObject();
+                return map;
+            case BEGIN_ARRAY:
+                Collection<Object> list = new ArrayList<Object>();
+                reader.beginArray();
+                while(reader.hasNext()) {
+                    list.add(readValue(reader));
+                }
+                reader.endArray();
+                return list;
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER:
+                return new LazilyParsedNumber(reader.nextString());
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                return reader.nextString();
+        }
+    }
+}
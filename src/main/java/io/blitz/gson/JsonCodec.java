@@ -0,0 +1,147 @@
+package io.blitz.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import io.blitz.curl.config.BasicAuthentication;
+import io.blitz.curl.config.HttpHeader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.lang.reflect.Modifier;
+import java.net.HttpCookie;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared JSON codec. The <code>Gson</code> instances (and all the serializers
+ * and deserializers registered on them) are built once and are thread-safe.
+ * Type adapters are resolved once per type and kept in a lock-free cache, 
+ * so the hot paths don't touch Gson's synchronized adapter cache.
+ * @author ghermeto
+ */
+public final class JsonCodec {
+    
+    /**
+     * Gson used to deserialize the blitz.io responses into maps and lists
+     */
+    private static final Gson READER = new GsonBuilder()
+            .registerTypeAdapter(Map.class, new MapDeserializer())
+            .registerTypeAdapter(Collection.class, new ArrayDeserializer())
+            .disableHtmlEscaping().create();
+    
+    /**
+     * Gson used to serialize the tests (excluding transient properties)
+     */
+    private static final Gson WRITER = new GsonBuilder()
+            .excludeFieldsWithModifiers(Modifier.TRANSIENT, Modifier.FINAL)
+            .registerTypeAdapter(HttpHeader.class, new HttpHeaderSerializer())
+            .registerTypeAdapter(HttpCookie.class, new HttpCookieSerializer())
+            .registerTypeAdapter(BasicAuthentication.class, new BasicAuthenticationSerializer())
+            .disableHtmlEscaping().create();
+    
+    private static final TypeAdapter<Map> MAP_ADAPTER = READER.getAdapter(Map.class);
+    
+    private static final ConcurrentMap<Class<?>, TypeAdapter<?>> WRITE_ADAPTERS = 
+            new ConcurrentHashMap<Class<?>, TypeAdapter<?>>();
+
+    private JsonCodec() {
+    }
+    
+    /**
+     * @return the shared Gson used to read responses
+     */
+    public static Gson getReader() {
+        return READER;
+    }
+    
+    /**
+     * @return the shared Gson used to write tests
+     */
+    public static Gson getWriter() {
+        return WRITER;
+    }
+    
+    /**
+     * Deserializes a JSON object into a map of maps, lists and primitives. 
+     * Behaves like <code>Gson.fromJson(reader, Map.class)</code>.
+     * @param reader the JSON source
+     * @return the deserialized map or null if the document is empty
+     * @throws JsonSyntaxException if the JSON is not valid
+     * @throws JsonIOException if the JSON can't be read
+     */
+    public static Map<String, Object> fromJson(Reader reader) {
+        JsonReader json = new JsonReader(reader);
+        json.setLenient(true);
+        boolean empty = true;
+        try {
+            json.peek();
+            empty = false;
+            Map<String, Object> result = MAP_ADAPTER.read(json);
+            if(json.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonIOException("JSON document was not fully consumed.");
+            }
+            return result;
+        } catch (EOFException ex) {
+            if(empty) {
+                return null;
+            }
+            throw new JsonSyntaxException(ex);
+        } catch (MalformedJsonException ex) {
+            throw new JsonSyntaxException(ex);
+        } catch (IllegalStateException ex) {
+            throw new JsonSyntaxException(ex);
+        } catch (IOException ex) {
+            throw new JsonIOException(ex);
+        }
+    }
+    
+    /**
+     * Serializes all the non transient properties of an object to a JSON 
+     * string. Behaves like <code>Gson.toJson(src)</code>.
+     * @param src object to be serialized
+     * @return JSON string
+     */
+    public static String toJson(Object src) {
+        if(src == null) {
+            return WRITER.toJson(null);
+        }
+        StringWriter out = new StringWriter(256);
+        JsonWriter json = new JsonWriter(out);
+        json.setLenient(true);
+        json.setHtmlSafe(false);
+        json.setSerializeNulls(false);
+        try {
+            writeAdapter(src.getClass()).write(json, src);
+            json.flush();
+        } catch (IOException ex) {
+            throw new JsonIOException(ex);
+        }
+        return out.toString();
+    }
+    
+    /**
+     * @return the cached adapter used to serialize the given type
+     */
+    private static TypeAdapter<Object> writeAdapter(Class<?> type) {
+        TypeAdapter<?> adapter = WRITE_ADAPTERS.get(type);
+        if(adapter == null) {
+            adapter = WRITER.getAdapter(TypeToken.get(type));
+            TypeAdapter<?> previous = WRITE_ADAPTERS.putIfAbsent(type, adapter);
+            if(previous != null) {
+                adapter = previous;
+            }
+        }
+        return (TypeAdapter<Object>) adapter;
+    }
+}
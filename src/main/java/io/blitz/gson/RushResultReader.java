@@ -0,0 +1,255 @@
+package io.blitz.gson;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.blitz.curl.JobStatus;
+import io.blitz.curl.rush.RushAnalytics;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.curl.rush.Timeline;
+import java.io.IOException;
+
+/**
+ * Streaming decoder of rush job status responses. Reads the timeline straight
+ * into the columns of a <code>Timeline</code>, without creating any object
+ * per point or step.
+ * <p>
+ * When created with a <code>Timeline</code> the decoding is incremental: the 
+ * points decoded on previous polls are kept and only the points newer than
+ * the last seen timestamp are created.
+ * </p>
+ * @author ghermeto
+ * @see RushResult
+ */
+public class RushResultReader extends JobStatusReader<RushResult> {
+    
+    /**
+     * Timeline kept between polls, null to decode every point on each read
+     */
+    private final Timeline timeline;
+    
+    /**
+     * Analytics fed with the new points, kept between polls with the timeline
+     */
+    private final RushAnalytics analytics;
+
+    public RushResultReader() {
+        this(null);
+    }
+
+    /**
+     * @param timeline the timeline where new points are appended
+     */
+    public RushResultReader(Timeline timeline) {
+        this(timeline, null);
+    }
+
+    /**
+     * @param timeline the timeline where new points are appended
+     * @param analytics updated with each new point, ignored without a 
+     * timeline
+     */
+    public RushResultReader(Timeline timeline, RushAnalytics analytics) {
+        this.timeline = timeline;
+        this.analytics = (timeline == null) ? null : analytics;
+    }
+
+    @Override
+    protected RushResult readResult(JsonReader reader, JobStatus<RushResult> job) 
+            throws IOException {
+        String region = null;
+        Timeline target = (timeline == null) ? new Timeline() : timeline;
+        int mark = target.size();
+        
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            if("region".equals(name)) {
+                region = nextString(reader);
+            }
+            else if("timeline".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                int index = 0;
+                reader.beginArray();
+                while(reader.hasNext()) {
+                    readPoint(reader, target, index++);
+                }
+                reader.endArray();
+            }
+            else {
+                readResultField(name, reader, job);
+            }
+        }
+        reader.endObject();
+        int size = target.size();
+        if(analytics != null) {
+            for(int row = mark; row < size; row++) {
+                analytics.update(target, row);
+            }
+        }
+        return new RushResult(region, target.view(0, size), 
+                target.view(mark, size), analytics);
+    }
+    
+    /**
+     * Reads a single snapshot of the timeline and appends it to the target.
+     * Points already present in the timeline are skipped.
+     * @param reader the reader positioned before the point object
+     * @param target the timeline being decoded
+     * @param index position of the point in the response
+     * @return false if the point was already decoded
+     * @throws IOException 
+     */
+    protected boolean readPoint(JsonReader reader, Timeline target, int index) 
+            throws IOException {
+        double timestamp = Double.NaN;
+        double duration = Double.NaN;
+        int total = Timeline.ABSENT_INT;
+        int hits = Timeline.ABSENT_INT;
+        int errors = Timeline.ABSENT_INT;
+        int timeouts = Timeline.ABSENT_INT;
+        int volume = Timeline.ABSENT_INT;
+        long txBytes = Timeline.ABSENT_LONG;
+        long rxBytes = Timeline.ABSENT_LONG;
+        boolean steps = false;
+        
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            if("timestamp".equals(name)) {
+                timestamp = nextPrimitiveDouble(reader);
+            }
+            else if("duration".equals(name)) {
+                duration = nextPrimitiveDouble(reader);
+            }
+            else if("total".equals(name)) {
+                total = nextPrimitiveInt(reader);
+            }
+            else if("executed".equals(name)) {
+                hits = nextPrimitiveInt(reader);
+            }
+            else if("errors".equals(name)) {
+                errors = nextPrimitiveInt(reader);
+            }
+            else if("timeouts".equals(name)) {
+                timeouts = nextPrimitiveInt(reader);
+            }
+            else if("volume".equals(name)) {
+                volume = nextPrimitiveInt(reader);
+            }
+            else if("txbytes".equals(name)) {
+                txBytes = nextPrimitiveLong(reader);
+            }
+            else if("rxbytes".equals(name)) {
+                rxBytes = nextPrimitiveLong(reader);
+            }
+            else if("steps".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                //old point, the steps are the only expensive part to decode;
+                //before the timestamp they are decoded and discarded if old
+                if(!Double.isNaN(timestamp) && target.contains(index, timestamp)) {
+                    reader.skipValue();
+                    continue;
+                }
+                steps = true;
+                reader.beginArray();
+                while(reader.hasNext()) {
+                    readStep(reader, target);
+                }
+                reader.endArray();
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if(target.contains(index, timestamp)) {
+            //the timestamp came after the steps
+            if(steps) {
+                target.discardSteps();
+            }
+            return false;
+        }
+        target.addPoint(timestamp, duration, total, hits, errors, timeouts, 
+                volume, txBytes, rxBytes);
+        return true;
+    }
+    
+    /**
+     * Reads the per-step metrics of a point and adds them to the pending 
+     * steps of the target
+     * @param reader the reader positioned before the step object
+     * @param target the timeline being decoded
+     * @throws IOException 
+     */
+    protected void readStep(JsonReader reader, Timeline target) throws IOException {
+        double d = Double.NaN;
+        double c = Double.NaN;
+        int e = Timeline.ABSENT_INT;
+        int t = Timeline.ABSENT_INT;
+        int a = Timeline.ABSENT_INT;
+        
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            if("d".equals(name)) {
+                d = nextPrimitiveDouble(reader);
+            }
+            else if("c".equals(name)) {
+                c = nextPrimitiveDouble(reader);
+            }
+            else if("e".equals(name)) {
+                e = nextPrimitiveInt(reader);
+            }
+            else if("t".equals(name)) {
+                t = nextPrimitiveInt(reader);
+            }
+            else if("a".equals(name)) {
+                a = nextPrimitiveInt(reader);
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        target.addStep(d, c, e, t, a);
+    }
+    
+    /**
+     * @return the next number or NaN if null
+     */
+    private double nextPrimitiveDouble(JsonReader reader) throws IOException {
+        if(reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return Double.NaN;
+        }
+        return reader.nextDouble();
+    }
+    
+    /**
+     * @return the next number truncated to an int or ABSENT_INT if null
+     */
+    private int nextPrimitiveInt(JsonReader reader) throws IOException {
+        if(reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return Timeline.ABSENT_INT;
+        }
+        return (int) reader.nextDouble();
+    }
+    
+    /**
+     * Reads a 64-bit counter. Integral values (including "1.0") are parsed 
+     * exactly, without going through a double; fractional ones are 
+     * truncated.
+     * @return the next number as a long or ABSENT_LONG if null
+     */
+    private long nextPrimitiveLong(JsonReader reader) throws IOException {
+        if(reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return Timeline.ABSENT_LONG;
+        }
+        try {
+            return reader.nextLong();
+        } catch(NumberFormatException ex) {
+            //the value stays buffered when it is not integral
+            return (long) reader.nextDouble();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package io.blitz.gson;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.blitz.curl.JobStatus;
+import io.blitz.curl.sprint.HeaderMap;
+import io.blitz.curl.sprint.Request;
+import io.blitz.curl.sprint.Response;
+import io.blitz.curl.sprint.SprintResult;
+import io.blitz.curl.sprint.Step;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Streaming decoder of sprint job status responses. Reads the steps straight
+ * into <code>Step</code>, <code>Request</code> and <code>Response</code> 
+ * objects.
+ * @author ghermeto
+ * @see SprintResult
+ */
+public class SprintResultReader extends JobStatusReader<SprintResult> {
+
+    @Override
+    protected SprintResult readResult(JsonReader reader, 
+            JobStatus<SprintResult> job) throws IOException {
+        String region = null;
+        Double duration = null;
+        Collection<Step> steps = new ArrayList<Step>();
+        
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            if("region".equals(name)) {
+                region = nextString(reader);
+            }
+            else if("duration".equals(name)) {
+                duration = nextDouble(reader);
+            }
+            else if("steps".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while(reader.hasNext()) {
+                    steps.add(readStep(reader));
+                }
+                reader.endArray();
+            }
+            else {
+                readResultField(name, reader, job);
+            }
+        }
+        reader.endObject();
+        return new SprintResult(region, duration, steps);
+    }
+    
+    /**
+     * Reads a single sprint step
+     * @param reader the reader positioned before the step object
+     * @return the step
+     * @throws IOException 
+     */
+    protected Step readStep(JsonReader reader) throws IOException {
+        Double duration = null;
+        Double connect = null;
+        Request request = null;
+        Response response = null;
+        
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            if("duration".equals(name)) {
+                duration = nextDouble(reader);
+            }
+            else if("connect".equals(name)) {
+                connect = nextDouble(reader);
+            }
+            else if("request".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                request = readRequest(reader);
+            }
+            else if("response".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                response = readResponse(reader);
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Step(duration, connect, request, response);
+    }
+    
+    /**
+     * @return the request generated by the sprint
+     */
+    protected Request readRequest(JsonReader reader) throws IOException {
+        String line = null;
+        String method = null;
+        String url = null;
+        String content = null;
+        Map<String, Object> headers = null;
+        
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            if("line".equals(name)) {
+                line = nextString(reader);
+            }
+            else if("method".equals(name)) {
+                method = nextString(reader);
+            }
+            else if("url".equals(name)) {
+                url = nextString(reader);
+            }
+            else if("content".equals(name)) {
+                content = nextString(reader);
+            }
+            else if("headers".equals(name)) {
+                headers = readHeaders(reader);
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Request(line, method, url, headers, content);
+    }
+    
+    /**
+     * @return the response received by the sprint
+     */
+    protected Response readResponse(JsonReader reader) throws IOException {
+        String line = null;
+        Integer status = null;
+        String message = null;
+        String content = null;
+        Map<String, Object> headers = null;
+        
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            if("line".equals(name)) {
+                line = nextString(reader);
+            }
+            else if("status".equals(name)) {
+                status = nextInteger(reader);
+            }
+            else if("message".equals(name)) {
+                message = nextString(reader);
+            }
+            else if("content".equals(name)) {
+                content = nextString(reader);
+            }
+            else if("headers".equals(name)) {
+                headers = readHeaders(reader);
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Response(line, status, message, headers, content);
+    }
+    
+    /**
+     * @return the headers as an immutable case-insensitive map or null
+     */
+    protected Map<String, Object> readHeaders(JsonReader reader) throws IOException {
+        if(reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        String[] names = new String[16];
+        Object[] values = new Object[16];
+        int count = 0;
+        reader.beginObject();
+        while(reader.hasNext()) {
+            if(count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            names[count] = reader.nextName();
+            values[count] = (reader.peek() == JsonToken.STRING)
+                    ? reader.nextString() : readValue(reader);
+            count++;
+        }
+        reader.endObject();
+        return new HeaderMap(names, values, count);
+    }
+}
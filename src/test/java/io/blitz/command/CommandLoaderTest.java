@@ -0,0 +1,95 @@
+package io.blitz.command;
+
+import io.blitz.curl.AbstractTest;
+import io.blitz.gson.JsonCodec;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class CommandLoaderTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void loadInOrder() throws IOException {
+        List<String> commands = new ArrayList<String>();
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 1000; i++) {
+            String line;
+            if(i % 97 == 0) {
+                line = "--bogus http://example.com/" + i;
+            }
+            else if(i % 50 == 0) {
+                line = "# comment " + i;
+            }
+            else if(i % 31 == 0) {
+                line = "   ";
+            }
+            else if(i % 2 == 0) {
+                line = "-p 1-" + (i + 10) + ":60 -A 'caf\u00e9' http://example.com/" + i;
+                commands.add(line);
+            }
+            else {
+                line = "-X POST -d '{\"id\":" + i + "}' http://example.com/" + i;
+                commands.add(line);
+            }
+            text.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        File file = File.createTempFile("commands", ".txt");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.toString().getBytes(UTF8));
+        }
+        finally {
+            out.close();
+        }
+
+        CommandLoader loader = new CommandLoader("user", "key");
+        loader.setPool(new ForkJoinPool(4));
+        CommandBatch batch = loader.load(file);
+        List<AbstractTest> tests = batch.getTests();
+        assertEquals(commands.size(), tests.size());
+        for(int i = 0; i < tests.size(); i++) {
+            AbstractTest expected = Curl.parse("user", "key", commands.get(i));
+            assertEquals(JsonCodec.toJson(expected), JsonCodec.toJson(tests.get(i)));
+            assertTrue(commands.get(i).endsWith("/" + (batch.getLine(i) - 1)));
+        }
+
+        assertTrue(batch.hasErrors());
+        assertEquals(11, batch.getErrors().size());
+        for(int i = 0; i < batch.getErrors().size(); i++) {
+            CommandError error = batch.getErrors().get(i);
+            assertEquals(i * 97 + 1, error.getLine());
+            assertEquals("--bogus http://example.com/" + (i * 97), error.getCommand());
+            assertEquals("Unknown option --bogus", error.getMessage());
+        }
+    }
+
+    @Test
+    public void loadBuffer() {
+        ByteBuffer buffer = ByteBuffer.wrap(
+                "\u00ef\u00bb\u00bfhttp://a.com\n\nhttp://b.com".getBytes(Charset.forName("ISO-8859-1")));
+        CommandBatch batch = new CommandLoader("user", "key").load(buffer);
+        assertEquals(2, batch.getTests().size());
+        assertEquals(1, batch.getLine(0));
+        assertEquals(3, batch.getLine(1));
+        assertEquals("http://b.com", batch.getTests().get(1).getSteps().iterator().next().getUrl().toString());
+        assertFalse(batch.hasErrors());
+        assertEquals(0, buffer.position());
+
+        assertTrue(new CommandLoader("user", "key").load(ByteBuffer.allocate(0)).getTests().isEmpty());
+    }
+}
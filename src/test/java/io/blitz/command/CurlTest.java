@@ -536,4 +536,70 @@ public class CurlTest {
         }
         assertTrue(throwed);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sameAsRegexParser() {
+        String[] commands = {"http://example.com",
+            "-p 1-250:60 http://example.com", "--pattern 1-10:5,10-1:5 http://a.com",
+            "http://a.com -p 1-2:3", "x\n-p 1-2:3 http://a.com",
+            "-p\n1-2:3 http://a.com", "-p 1-2:3\nhttp://a.com", "-p ", "-p x",
+            "-p 1-2:3", "-p 99999999999-1:1 http://a.com", "-p 1-2:3, http://a.com",
+            "-A \"a \\\" b\" http://a.com", "-A 'it''s' http://a.com",
+            "-A \"open http://a.com", "-A \"a\"b http://a.com", "-A\nhttp://a.com",
+            "-A \u2028x http://a.com", "-A \u0085x http://a.com", "-A \u00a0x http://a.com",
+            "-A\u000bx http://a.com", "-A \u001cx http://a.com", "-A \u2003x http://a.com",
+            "-b a=b -b c=d=e http://a.com", "-b a http://a.com", "-b =x http://a.com",
+            "-d '{\"a\":1}' -d x http://a.com", "-e http://r.com http://a.com",
+            "-e nourl http://a.com", "-H 'X-A: b' -H a:b:c http://a.com", "-H a http://a.com",
+            "-r ireland http://a.com", "-r", "-r '' http://a.com", "-s 200 http://a.com",
+            "-s x http://a.com", "-T 100 http://a.com", "-T 1e3 http://a.com",
+            "-u a:b http://a.com", "-u a http://a.com", "-X POST http://a.com",
+            "-1 -2 -3 --tlsv1 --sslv2 --sslv3 http://a.com", "-v:a list[a,b] http://a.com",
+            "--variable:b alpha[1,5] -v:c n[-5,5,2] -v:d u -v:e a -v:f number http://a.com",
+            "-v:1a a http://a.com", "-v: a http://a.com", "-v:a x http://a.com",
+            "-v:a\u0085 a http://a.com", "-v:a n[1,99999999999] http://a.com",
+            "-q http://a.com", "--user-agent", "-s 200 -X POST http://a.com -X GET http://b.com",
+            "  \t http://a.com \r\n -A x \r\n http://b.com  ", "not a url", "-A x"};
+        for(String command : commands) {
+            assertSameParse(command);
+        }
+        //random commands from the same pieces
+        String[] pieces = {"-p", "--pattern", "1-2:3", "1-2:3,4-5:6", "-A", "\"a b\"",
+            "'c d'", "\"e", "-b", "k=v", "-H", "h:v", "-r", "ireland", "-s", "200",
+            "-T", "x", "-u", "a:b", "-X", "PUT", "-v:a", "-v:b", "list[1,2]",
+            "n[1,2]", "a", "-1", "http://a.com", "http://b.com/x?y=1", "-d", "\\"};
+        String[] blanks = {" ", "  ", "\t", "\n", "\r\n", "\u2028", "\u0085", "\u000b", ""};
+        java.util.Random random = new java.util.Random(42);
+        for(int i = 0; i < 5000; i++) {
+            StringBuilder command = new StringBuilder();
+            int count = 1 + random.nextInt(8);
+            for(int j = 0; j < count; j++) {
+                command.append(pieces[random.nextInt(pieces.length)]);
+                //mostly spaces
+                command.append(random.nextInt(4) > 0 ? " " : blanks[random.nextInt(blanks.length)]);
+            }
+            assertSameParse(command.toString());
+        }
+    }
+
+    private static void assertSameParse(String command) {
+        assertEquals(command, describe(command, true), describe(command, false));
+    }
+
+    /**
+     * @return the JSON of the test or the error parsing the command
+     */
+    private static String describe(String command, boolean regex) {
+        try {
+            AbstractTest test = regex
+                    ? RegexCurl.parse(null, null, null, null, command, null)
+                    : Curl.parse(null, null, null, null, command, null);
+            return test.getClass().getName() + " " + test.getRegion() + " "
+                    + io.blitz.gson.JsonCodec.toJson(test);
+        }
+        catch(RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage() + " caused by "
+                    + ((e.getCause() == null) ? null : e.getCause().getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.blitz.curl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.blitz.curl.exception.BlitzException;
+import io.blitz.curl.transport.HttpClientTransport;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class ClientAsyncTest {
+    
+    private HttpServer server;
+    private int port;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/login/api", new JsonHandler(
+                "{\"ok\":true, \"api_key\":\"private-key\"}"));
+        server.createContext("/api/1/jobs/c123/status", new JsonHandler(
+                "{\"_id\":\"c123\",\"ok\":true,\"status\":\"running\"}"));
+        server.createContext("/api/1/jobs/c123/abort", new JsonHandler(
+                "{\"_id\":\"c123\",\"ok\":true}"));
+        server.start();
+        port = server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+    
+    @Test
+    public void successfulLoginAsync() {
+        Client client = new Client("user", "apiKey", "127.0.0.1", port);
+        Map<String, Object> response = client.loginAsync().join();
+        
+        assertEquals("private-key", response.get("api_key"));
+        assertTrue(client.isAuthenticated());
+    }
+    
+    @Test
+    public void sharesDefaultAsyncTransport() {
+        Client first = new Client("user", "apiKey", "127.0.0.1", port);
+        Client second = new Client("user", "apiKey", "127.0.0.1", port);
+        assertSame(HttpClientTransport.getDefault(), first.getAsyncTransport());
+        assertSame(first.getAsyncTransport(), second.getAsyncTransport());
+
+        HttpClientTransport own = new HttpClientTransport();
+        second.setAsyncTransport(own);
+        assertSame(own, second.getAsyncTransport());
+        assertEquals(Boolean.TRUE, second.abortAsync("c123").join().get("ok"));
+    }
+    
+    @Test
+    public void concurrentJobStatusAsync() {
+        Client client = new Client("user", "apiKey", "127.0.0.1", port);
+        List<CompletableFuture<Map<String, Object>>> futures = 
+                new ArrayList<CompletableFuture<Map<String, Object>>>();
+        for(int i = 0; i < 200; i++) {
+            futures.add(client.getJobStatusAsync("c123"));
+        }
+        for(CompletableFuture<Map<String, Object>> future : futures) {
+            assertEquals("running", future.join().get("status"));
+        }
+        assertEquals(Boolean.TRUE, client.abortAsync("c123").join().get("ok"));
+    }
+    
+    @Test
+    public void failedConnectionAsync() {
+        Client client = new Client("user", "apiKey", "127.0.0.1", port);
+        try {
+            client.getJobStatusAsync("unknown").join();
+            fail("expected a BlitzException");
+        } catch(CompletionException ex) {
+            assertTrue(ex.getCause() instanceof BlitzException);
+            assertEquals("server", ((BlitzException) ex.getCause()).getError());
+        }
+    }
+    
+    private static class JsonHandler implements HttpHandler {
+        
+        private final String json;
+
+        JsonHandler(String json) {
+            this.json = json;
+        }
+        
+        public void handle(HttpExchange exchange) throws IOException {
+            byte[] data = json.getBytes("UTF-8");
+            exchange.sendResponseHeaders(200, data.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(data);
+            out.close();
+        }
+    }
+}
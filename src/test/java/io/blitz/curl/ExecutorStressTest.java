@@ -0,0 +1,122 @@
+package io.blitz.curl;
+
+import io.blitz.curl.config.Interval;
+import io.blitz.curl.config.Pattern;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.mock.MockTransport;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Launches many mock jobs at once with <code>executeAsync</code>. Uses the
+ * thread-safe <code>MockTransport</code> as the shared mock connection can't
+ * serve concurrent requests. The peak thread count and the heap used are
+ * logged, only the release of the finished tests is checked.
+ * @author ghermeto
+ */
+public class ExecutorStressTest {
+    
+    private static final Logger LOGGER = Logger.getLogger(ExecutorStressTest.class.getName());
+    
+    /**
+     * Time in milliseconds the finished tests have to be collected
+     */
+    private static final long COLLECT_TIMEOUT = 10000;
+    
+    @Test
+    public void manyConcurrentJobs() throws Exception {
+        int jobs = TestExecutors.isVirtualThreadSupported() ? 20000 : 1000;
+        MockTransport transport = new MockTransport();
+        transport.setMappedData("/login/api", 
+                "{\"ok\":true, \"api_key\":\"private-key\"}");
+        transport.setMappedData("/api/1/curl/execute", 
+                "{\"ok\":true, \"status\":\"queued\", \"job_id\":\"c123\"}");
+        transport.setMappedData("/api/1/jobs/c123/status",
+                "{\"_id\":\"c123\",\"ok\":true, \"status\":\"completed\","
+                + "\"result\":{\"region\":\"california\",\"timeline\":["
+                + "{\"timestamp\":1.0,\"duration\":0.1,\"total\":10,\"executed\":8,"
+                + "\"errors\":1,\"timeouts\":1,\"volume\":10}]}}");
+        
+        //loads the classes and caches outside of the measure
+        run(100, transport, new ArrayList<WeakReference<Rush>>());
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        Runtime runtime = Runtime.getRuntime();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        
+        List<WeakReference<Rush>> finished = new ArrayList<WeakReference<Rush>>(jobs);
+        long heap = run(jobs, transport, finished) - before;
+        assertEquals((100 + jobs) * 3, transport.getRequests());
+        LOGGER.log(Level.INFO, "{0} jobs ({1} threads): peak of {2} threads, {3} KB more heap", 
+                new Object[] {jobs, TestExecutors.isVirtualThreadSupported() ? "virtual" : "platform",
+                    threads.getPeakThreadCount(), heap / 1024});
+        
+        //the finished jobs don't keep anything alive
+        long deadline = System.currentTimeMillis() + COLLECT_TIMEOUT;
+        int alive = countAlive(finished);
+        while(alive > 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+            alive = countAlive(finished);
+        }
+        assertEquals("Finished tests still reachable", 0, alive);
+    }
+    
+    private static int countAlive(List<WeakReference<Rush>> references) {
+        int alive = 0;
+        for(WeakReference<Rush> reference : references) {
+            if(reference.get() != null) {
+                alive++;
+            }
+        }
+        return alive;
+    }
+    
+    /**
+     * Runs the jobs on a new executor until all of them complete.
+     * @param finished where the references to the tests are added
+     * @return the heap used when all the jobs completed
+     */
+    private long run(int jobs, MockTransport transport, 
+            List<WeakReference<Rush>> finished) throws Exception {
+        ExecutorService executor = TestExecutors.newVirtualThreadExecutor();
+        Collection<TestStep> steps = new ArrayList<TestStep>();
+        steps.add(new TestStep(new URL("http://example.com")));
+        Collection<Interval> intervals = new ArrayList<Interval>();
+        intervals.add(new Interval(1, 10, 10));
+        List<CompletableFuture<RushResult>> futures = 
+                new ArrayList<CompletableFuture<RushResult>>();
+        for(int i = 0; i < jobs; i++) {
+            Rush r = new Rush("user", "public-key", "localhost", 9295);
+            r.setSteps(steps);
+            r.setPattern(new Pattern(intervals));
+            r.setTransport(transport);
+            r.setPollStrategy(new FixedPollStrategy(200));
+            r.setExecutor(executor);
+            futures.add(r.executeAsync());
+            finished.add(new WeakReference<Rush>(r));
+        }
+        for(CompletableFuture<RushResult> future : futures) {
+            RushResult result = future.get(60, TimeUnit.SECONDS);
+            assertEquals("california", result.getRegion());
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return heap;
+    }
+}
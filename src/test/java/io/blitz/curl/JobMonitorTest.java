@@ -0,0 +1,125 @@
+package io.blitz.curl;
+
+import io.blitz.curl.config.Interval;
+import io.blitz.curl.config.Pattern;
+import io.blitz.curl.exception.BlitzException;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.curl.transport.PooledTransport;
+import io.blitz.mock.MockTransport;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class JobMonitorTest {
+    
+    private Rush createRush(MockTransport transport) throws MalformedURLException {
+        Rush r = new Rush("user", "public-key", "localhost", 9295);
+        Collection<TestStep> steps = new ArrayList<TestStep>();
+        steps.add(new TestStep(new URL("http://example.com")));
+        r.setSteps(steps);
+        Collection<Interval> intervals = new ArrayList<Interval>();
+        intervals.add(new Interval(1, 10, 10));
+        r.setPattern(new Pattern(intervals));
+        r.setPollStrategy(new FixedPollStrategy(10));
+        return r;
+    }
+    
+    @Test
+    public void monitorsManyJobs() throws Exception {
+        MockTransport transport = new MockTransport();
+        transport.setMappedData("/login/api", 
+                "{\"ok\":true, \"api_key\":\"private-key\"}");
+        transport.setMappedData("/api/1/curl/execute", 
+                "{\"ok\":true, \"status\":\"queued\", \"job_id\":\"c123\"}");
+        transport.setMappedData("/api/1/jobs/c123/status",
+                "{\"_id\":\"c123\",\"ok\":true, \"status\":\"completed\","
+                + "\"result\":{\"region\":\"california\",\"timeline\":["
+                + "{\"timestamp\":1.0,\"duration\":0.1,\"total\":10,\"executed\":8,"
+                + "\"errors\":1,\"timeouts\":1,\"volume\":10}]}}");
+        
+        JobMonitor monitor = new JobMonitor(2, transport);
+        List<CompletableFuture<RushResult>> futures = 
+                new ArrayList<CompletableFuture<RushResult>>();
+        for(int i = 0; i < 200; i++) {
+            futures.add(monitor.submit(createRush(transport)));
+        }
+        for(CompletableFuture<RushResult> future : futures) {
+            RushResult result = future.get(10, TimeUnit.SECONDS);
+            assertEquals("california", result.getRegion());
+            assertEquals(1, result.getTimeline().size());
+        }
+        assertEquals(0, monitor.getActiveJobs());
+        monitor.shutdown();
+    }
+    
+    @Test
+    public void reportsErrors() throws Exception {
+        MockTransport transport = new MockTransport();
+        transport.setMappedData("/login/api", 
+                "{\"ok\":true, \"api_key\":\"private-key\"}");
+        transport.setMappedData("/api/1/curl/execute", 
+                "{\"ok\":true, \"status\":\"queued\", \"job_id\":\"c124\"}");
+        transport.setMappedData("/api/1/jobs/c124/status",
+                "{\"_id\":\"c124\",\"ok\":true, \"status\":\"running\","
+                + "\"result\":{\"error\":\"dns\",\"reason\":\"unknown host\"}}");
+        
+        JobMonitor monitor = new JobMonitor(1, transport);
+        Rush r = createRush(transport);
+        try {
+            monitor.submit(r).get(10, TimeUnit.SECONDS);
+            fail();
+        }
+        catch(ExecutionException ex) {
+            BlitzException cause = (BlitzException) ex.getCause();
+            assertEquals("dns", cause.getError());
+            assertEquals("unknown host", cause.getReason());
+        }
+        assertEquals(0, monitor.getActiveJobs());
+        monitor.shutdown();
+    }
+    
+    @Test
+    public void shutdownFailsPendingJobs() throws Exception {
+        MockTransport transport = new MockTransport();
+        transport.setMappedData("/login/api", 
+                "{\"ok\":true, \"api_key\":\"private-key\"}");
+        transport.setMappedData("/api/1/curl/execute", 
+                "{\"ok\":true, \"status\":\"queued\", \"job_id\":\"c125\"}");
+        transport.setMappedData("/api/1/jobs/c125/status",
+                "{\"_id\":\"c125\",\"ok\":true, \"status\":\"queued\"}");
+        
+        JobMonitor monitor = new JobMonitor(1, transport);
+        Rush r = createRush(transport);
+        r.setPollStrategy(new FixedPollStrategy(60000));
+        CompletableFuture<RushResult> future = monitor.submit(r);
+        assertEquals(1, monitor.getActiveJobs());
+        monitor.shutdown();
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail();
+        }
+        catch(ExecutionException ex) {
+            assertEquals("client", ((BlitzException) ex.getCause()).getError());
+        }
+        assertEquals(0, monitor.getActiveJobs());
+    }
+    
+    @Test
+    public void sharesPooledTransportByDefault() {
+        JobMonitor monitor = new JobMonitor(2);
+        assertTrue(monitor.getTransport() instanceof PooledTransport);
+        monitor.shutdown();
+    }
+}
@@ -0,0 +1,167 @@
+package io.blitz.curl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class ListenerDispatcherTest {
+    
+    private ExecutorService executor;
+    
+    private CountDownLatch gate;
+    
+    private List<Integer> received;
+    
+    private IListener<Integer> listener;
+
+    @Before
+    public void setup() {
+        executor = Executors.newSingleThreadExecutor();
+        gate = new CountDownLatch(1);
+        received = Collections.synchronizedList(new ArrayList<Integer>());
+        listener = new IListener<Integer>() {
+            public boolean onStatus(Integer result) {
+                try {
+                    gate.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add(result);
+                return result < 100;
+            }
+            public void onComplete(Integer result) {
+                received.add(-result);
+            }
+        };
+    }
+    
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private ListenerDispatcher<Integer> fill(OverflowPolicy policy) 
+            throws InterruptedException {
+        ListenerDispatcher<Integer> dispatcher = new ListenerDispatcher<Integer>(
+                listener, executor, 2, policy, new Runnable() {
+            public void run() {}
+        });
+        //first status is taken by the (blocked) listener thread
+        dispatcher.offerStatus(1);
+        Thread.sleep(100);
+        for(int i = 2; i <= 5; i++) {
+            assertTrue(dispatcher.offerStatus(i));
+        }
+        dispatcher.offerComplete(9);
+        gate.countDown();
+        assertTrue(dispatcher.awaitDrained(5, TimeUnit.SECONDS));
+        return dispatcher;
+    }
+    
+    @Test
+    public void dropOldest() throws InterruptedException {
+        ListenerDispatcher<Integer> dispatcher = fill(OverflowPolicy.DROP_OLDEST);
+        assertEquals(Arrays.asList(1, 4, 5, -9), received);
+        assertEquals(2, dispatcher.getDropped());
+    }
+    
+    @Test
+    public void coalesceLatest() throws InterruptedException {
+        ListenerDispatcher<Integer> dispatcher = fill(OverflowPolicy.COALESCE_LATEST);
+        assertEquals(Arrays.asList(1, 2, 5, -9), received);
+        assertEquals(2, dispatcher.getDropped());
+    }
+    
+    @Test
+    public void abortsOnFalse() throws InterruptedException {
+        final AtomicInteger aborts = new AtomicInteger();
+        gate.countDown();
+        ListenerDispatcher<Integer> dispatcher = new ListenerDispatcher<Integer>(
+                listener, executor, 4, OverflowPolicy.BLOCK, new Runnable() {
+            public void run() {
+                aborts.incrementAndGet();
+            }
+        });
+        dispatcher.offerStatus(100);
+        dispatcher.offerStatus(101);
+        assertTrue(dispatcher.awaitDrained(5, TimeUnit.SECONDS));
+        assertFalse(dispatcher.offerStatus(102));
+        assertTrue(dispatcher.isAborted());
+        assertEquals(1, aborts.get());
+        assertEquals(Arrays.asList(100), received);
+    }
+    
+    @Test(timeout=5000)
+    public void rejectedDelivery() throws InterruptedException {
+        final AtomicInteger calls = new AtomicInteger();
+        Executor rejectFirst = new Executor() {
+            public void execute(Runnable command) {
+                if(calls.incrementAndGet() == 1) {
+                    throw new RejectedExecutionException("full");
+                }
+                executor.execute(command);
+            }
+        };
+        gate.countDown();
+        ListenerDispatcher<Integer> dispatcher = new ListenerDispatcher<Integer>(
+                listener, rejectFirst, 1, OverflowPolicy.BLOCK, new Runnable() {
+            public void run() {}
+        });
+        try {
+            dispatcher.offerStatus(1);
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException ex) {
+        }
+        //the rejected status doesn't hold the only slot of the queue
+        assertTrue(dispatcher.offerStatus(2));
+        dispatcher.offerComplete(3);
+        assertTrue(dispatcher.awaitDrained(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(2, -3), received);
+    }
+    
+    @Test
+    public void rethrowsListenerFailure() throws InterruptedException {
+        IListener<Integer> failing = new IListener<Integer>() {
+            public boolean onStatus(Integer result) {
+                throw new IllegalStateException("status " + result);
+            }
+            public void onComplete(Integer result) {
+                received.add(-result);
+            }
+        };
+        ListenerDispatcher<Integer> dispatcher = new ListenerDispatcher<Integer>(
+                failing, executor, 4, OverflowPolicy.BLOCK, new Runnable() {
+            public void run() {}
+        });
+        dispatcher.offerStatus(1);
+        dispatcher.offerStatus(2);
+        dispatcher.offerComplete(3);
+        try {
+            dispatcher.awaitDrained(5, TimeUnit.SECONDS);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertEquals("status 1", ex.getMessage());
+            assertEquals(1, ex.getSuppressed().length);
+        }
+        assertEquals(Arrays.asList(-3), received);
+        //reported once
+        assertTrue(dispatcher.awaitDrained(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,92 @@
+package io.blitz.curl;
+
+import io.blitz.curl.config.Interval;
+import io.blitz.curl.config.Pattern;
+import java.util.ArrayList;
+import java.util.Collection;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class PollStrategyTest {
+    
+    @Test
+    public void fixedDelay() {
+        FixedPollStrategy strategy = new FixedPollStrategy(2000);
+        PollStats stats = new PollStats();
+        assertEquals(2000, strategy.getDelay(stats));
+        stats.record("queued", false);
+        assertEquals(2000, strategy.getDelay(stats));
+    }
+    
+    @Test
+    public void backsOffWhileQueued() {
+        AdaptivePollStrategy strategy = 
+                new AdaptivePollStrategy(500, 1000, 1000, 4000, 2);
+        PollStats stats = new PollStats();
+        assertEquals(500, strategy.getDelay(stats));
+        stats.record("queued", false);
+        assertEquals(2000, strategy.getDelay(stats));
+        stats.record("queued", false);
+        assertEquals(4000, strategy.getDelay(stats));
+        stats.record("queued", false);
+        assertEquals(4000, strategy.getDelay(stats));
+        assertEquals(3, stats.getPolls());
+        assertEquals(3, stats.getWastedPolls());
+    }
+    
+    @Test
+    public void followsResolutionWhileRunning() {
+        AdaptivePollStrategy strategy = 
+                new AdaptivePollStrategy(500, 1000, 1000, 4000, 2);
+        PollStats stats = new PollStats();
+        stats.record("queued", false);
+        stats.record("running", true);
+        assertEquals(1000, strategy.getDelay(stats));
+        stats.setResolution(3000);
+        assertEquals(3000, strategy.getDelay(stats));
+        stats.record("running", false);
+        assertEquals(4000, strategy.getDelay(stats));
+        assertEquals(1, stats.getConsecutiveWastedPolls());
+        stats.record("running", true);
+        assertEquals(0, stats.getConsecutiveWastedPolls());
+        assertEquals(2, stats.getWastedPolls());
+        assertEquals(4, stats.getPolls());
+    }
+    
+    @Test
+    public void restartsBackoffWhenRunning() {
+        AdaptivePollStrategy strategy = 
+                new AdaptivePollStrategy(500, 1000, 1000, 10000, 2);
+        PollStats stats = new PollStats();
+        for(int i = 0; i < 5; i++) {
+            stats.record("queued", false);
+        }
+        assertEquals(10000, strategy.getDelay(stats));
+        //running without result yet: the queued backoff doesn't carry over
+        stats.record("running", false);
+        assertEquals(0, stats.getConsecutiveWastedPolls());
+        assertEquals(1000, strategy.getDelay(stats));
+        stats.record("running", false);
+        assertEquals(2000, strategy.getDelay(stats));
+        assertEquals(7, stats.getWastedPolls());
+    }
+    
+    @Test
+    public void capsDelayByPattern() {
+        Collection<Interval> intervals = new ArrayList<Interval>();
+        intervals.add(new Interval(1, 10, 60));
+        intervals.add(new Interval(10, 10, 8));
+        AdaptivePollStrategy strategy = 
+                AdaptivePollStrategy.forPattern(new Pattern(intervals));
+        assertEquals(2000, strategy.getMaxDelay());
+        PollStats stats = new PollStats();
+        stats.record("running", true);
+        stats.setResolution(5000);
+        assertEquals(2000, strategy.getDelay(stats));
+    }
+}
@@ -0,0 +1,172 @@
+package io.blitz.curl;
+
+import io.blitz.curl.config.Interval;
+import io.blitz.curl.config.Pattern;
+import io.blitz.curl.rush.IRushListener;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.mock.MockTransport;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class ResultPublisherTest {
+    
+    private static final String RUNNING = "{\"_id\":\"c1\",\"ok\":true, "
+            + "\"status\":\"running\",\"result\":{\"region\":\"california\","
+            + "\"timeline\":[{\"timestamp\":%d.0,\"duration\":0.1,\"total\":10,"
+            + "\"executed\":8,\"errors\":1,\"timeouts\":1,\"volume\":10}]}}";
+    
+    private MockTransport transport;
+    
+    private Rush rush;
+    
+    @Before
+    public void setup() throws Exception {
+        transport = new MockTransport();
+        transport.setMappedData("/login/api", 
+                "{\"ok\":true, \"api_key\":\"private-key\"}");
+        transport.setMappedData("/api/1/curl/execute", 
+                "{\"ok\":true, \"status\":\"queued\", \"job_id\":\"c1\"}");
+        transport.setMappedData("/api/1/jobs/c1/abort", "{\"ok\":true}");
+        
+        rush = new Rush("user", "public-key", "localhost", 9295);
+        Collection<TestStep> steps = new ArrayList<TestStep>();
+        steps.add(new TestStep(new URL("http://example.com")));
+        rush.setSteps(steps);
+        Collection<Interval> intervals = new ArrayList<Interval>();
+        intervals.add(new Interval(1, 10, 10));
+        rush.setPattern(new Pattern(intervals));
+        rush.setTransport(transport);
+        rush.setPollStrategy(new FixedPollStrategy(10));
+    }
+    
+    @Test
+    public void boundedDemand() throws Exception {
+        transport.setMappedData("/api/1/jobs/c1/status", 
+                String.format(RUNNING, 1), String.format(RUNNING, 2), 
+                String.format(RUNNING, 3), String.format(RUNNING, 4),
+                String.format(RUNNING, 5).replace("running", "completed"));
+        
+        ResultPublisher<RushResult> publisher = 
+                rush.publisher(2, OverflowPolicy.DROP_OLDEST);
+        final List<RushResult> received = new ArrayList<RushResult>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final Flow.Subscription[] subscription = new Flow.Subscription[1];
+        publisher.subscribe(new Flow.Subscriber<RushResult>() {
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+                s.request(1);
+            }
+            public void onNext(RushResult item) {
+                received.add(item);
+            }
+            public void onError(Throwable error) {
+                fail(error.getMessage());
+            }
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        publisher.start().get(10, TimeUnit.SECONDS);
+        
+        //one requested, the last two buffered and the final result
+        assertEquals(1, received.size());
+        assertEquals(1, done.getCount());
+        subscription[0].request(10);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(4, received.size());
+        assertEquals(1, received.get(0).getTimeline().size());
+        assertEquals(5, received.get(3).getTimeline().size());
+        assertFalse(transport.getPaths().contains("/api/1/jobs/c1/abort"));
+    }
+    
+    @Test
+    public void cancelAborts() throws Exception {
+        transport.setMappedData("/api/1/jobs/c1/status", 
+                String.format(RUNNING, 1), String.format(RUNNING, 2));
+        
+        ResultPublisher<RushResult> publisher = 
+                rush.publisher(4, OverflowPolicy.BLOCK);
+        final List<RushResult> received = new ArrayList<RushResult>();
+        publisher.subscribe(new Flow.Subscriber<RushResult>() {
+            private Flow.Subscription subscription;
+            public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+                s.request(Long.MAX_VALUE);
+            }
+            public void onNext(RushResult item) {
+                received.add(item);
+                subscription.cancel();
+            }
+            public void onError(Throwable error) {
+                fail(error.getMessage());
+            }
+            public void onComplete() {
+                fail();
+            }
+        });
+        RushResult last = publisher.start().get(10, TimeUnit.SECONDS);
+        assertNotNull(last);
+        assertEquals(1, received.size());
+        assertEquals(0, publisher.getSubscriberCount());
+        int aborts = 0;
+        for(String path : transport.getPaths()) {
+            if(path.endsWith("/abort")) {
+                aborts++;
+            }
+        }
+        assertEquals(1, aborts);
+    }
+    
+    @Test
+    public void completesWhenListenerAborts() throws Exception {
+        transport.setMappedData("/api/1/jobs/c1/status", 
+                String.format(RUNNING, 1), String.format(RUNNING, 2));
+        
+        ResultPublisher<RushResult> publisher = 
+                rush.publisher(4, OverflowPolicy.BLOCK);
+        rush.addListener(new IRushListener() {
+            public boolean onStatus(RushResult result) {
+                return false;
+            }
+            public void onComplete(RushResult result) {
+                fail();
+            }
+        });
+        final List<RushResult> received = new ArrayList<RushResult>();
+        final CountDownLatch done = new CountDownLatch(1);
+        publisher.subscribe(new Flow.Subscriber<RushResult>() {
+            public void onSubscribe(Flow.Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+            public void onNext(RushResult item) {
+                received.add(item);
+            }
+            public void onError(Throwable error) {
+                fail(error.getMessage());
+            }
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        RushResult last = publisher.start().get(10, TimeUnit.SECONDS);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        //the last result was already published
+        assertEquals(1, received.size());
+        assertSame(last, received.get(0));
+        assertEquals(0, publisher.getSubscriberCount());
+        assertTrue(transport.getPaths().contains("/api/1/jobs/c1/abort"));
+    }
+}
@@ -0,0 +1,199 @@
+package io.blitz.curl;
+
+import com.google.gson.stream.JsonReader;
+import io.blitz.curl.rush.Point;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.curl.rush.Timeline;
+import io.blitz.curl.sprint.SprintResult;
+import io.blitz.gson.JsonCodec;
+import io.blitz.gson.RushResultReader;
+import io.blitz.gson.SprintResultReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class StatusReaderTest {
+    
+    private static final String RUSH = "{\"_id\":\"c123\",\"ok\":true, \"status\":\"running\","
+            + "\"result\":{\"region\":\"california\",\"timeline\":["
+            + "{\"timestamp\":1.5,\"duration\":0.1,\"total\":10,\"executed\":8,\"errors\":1,"
+            + "\"timeouts\":1,\"volume\":10,\"txbytes\":1000,\"rxbytes\":2000.0,"
+            + "\"steps\":[{\"d\":0.1,\"c\":0.01,\"e\":1,\"t\":1,\"a\":0}]},"
+            + "{\"timestamp\":2.5,\"duration\":0.2,\"total\":100,\"executed\":80,\"errors\":10,"
+            + "\"timeouts\":10,\"volume\":100,\"extra\":{\"a\":[1,2]}}"
+            + "]}}";
+    
+    private static final String SPRINT = "{\"_id\":\"a123\",\"ok\":true, \"status\":\"completed\","
+            + "\"result\":{\"region\":\"california\",\"duration\":10,"
+            + "\"steps\":[{\"duration\":10,\"connect\":1,"
+            + "\"request\":{\"line\":\"GET / HTTP/1.1\",\"method\":\"GET\","
+            + "\"url\":\"http://localhost:9295\",\"headers\":{\"a\":\"b\"},\"content\":\"YWJj\"},"
+            + "\"response\":{\"line\":\"HTTP/1.1 200 OK\",\"message\":\"OK\","
+            + "\"status\":200,\"headers\":{\"c\":\"d\"},\"content\":\"YWJk\"}}]}}";
+    
+    @Test
+    public void rushMatchesMapDecoding() throws IOException {
+        JobStatus<RushResult> job = new RushResultReader().read(reader(RUSH));
+        RushResult expected = new Rush("user", "key")
+                .createSuccessResult(mapResult(RUSH));
+        
+        assertEquals("running", job.getStatus());
+        assertTrue(job.hasResult());
+        RushResult result = job.getResult();
+        assertEquals(expected.getRegion(), result.getRegion());
+        assertEquals(expected.getTimeline().size(), result.getTimeline().size());
+        Iterator<Point> it = expected.getTimeline().iterator();
+        for(Point point : result.getTimeline()) {
+            Point other = it.next();
+            assertEquals(other.getTimestamp(), point.getTimestamp());
+            assertEquals(other.getDuration(), point.getDuration());
+            assertEquals(other.getTotal(), point.getTotal());
+            assertEquals(other.getHits(), point.getHits());
+            assertEquals(other.getErrors(), point.getErrors());
+            assertEquals(other.getTimeouts(), point.getTimeouts());
+            assertEquals(other.getVolume(), point.getVolume());
+            assertEquals(other.getTxBytes(), point.getTxBytes());
+            assertEquals(other.getRxBytes(), point.getRxBytes());
+            assertEquals(other.getSteps().size(), point.getSteps().size());
+        }
+    }
+    
+    @Test
+    public void incrementalTimeline() throws IOException {
+        Timeline timeline = new Timeline();
+        RushResultReader statusReader = new RushResultReader(timeline);
+        String first = "{\"status\":\"running\",\"result\":{\"timeline\":["
+                + "{\"timestamp\":1,\"duration\":0.1,\"total\":1,\"steps\":[]}]}}";
+        String second = "{\"status\":\"running\",\"result\":{\"timeline\":["
+                + "{\"timestamp\":1,\"duration\":0.1,\"total\":1,\"steps\":[]},"
+                + "{\"timestamp\":2,\"duration\":0.2,\"total\":2,\"steps\":[]}]}}";
+        
+        RushResult r1 = statusReader.read(reader(first)).getResult();
+        Point kept = r1.getTimeline().iterator().next();
+        RushResult r2 = statusReader.read(reader(second)).getResult();
+        
+        assertEquals(1, r1.getTimeline().size());
+        assertEquals(2, r2.getTimeline().size());
+        assertEquals(1, r2.getDelta().size());
+        assertEquals(new Double(2), r2.getDelta().iterator().next().getTimestamp());
+        //the prefix is not decoded again
+        assertEquals(kept.getTimestamp(), r2.getTimeline().iterator().next().getTimestamp());
+        assertEquals(new Double(0.1), r1.getTimeline().iterator().next().getDuration());
+    }
+    
+    @Test
+    public void stepsBeforeTimestamp() throws IOException {
+        Timeline timeline = new Timeline();
+        RushResultReader statusReader = new RushResultReader(timeline);
+        String first = "{\"status\":\"running\",\"result\":{\"timeline\":["
+                + "{\"steps\":[{\"d\":0.1}],\"timestamp\":1,\"total\":1},"
+                + "{\"steps\":[{\"d\":0.2}],\"timestamp\":2,\"total\":2}]}}";
+        //sliding window: the oldest point is gone, the new one is at index 1
+        String second = "{\"status\":\"running\",\"result\":{\"timeline\":["
+                + "{\"steps\":[{\"d\":0.2}],\"timestamp\":2,\"total\":2},"
+                + "{\"steps\":[{\"d\":0.3}],\"timestamp\":3,\"total\":3}]}}";
+        
+        statusReader.read(reader(first));
+        RushResult result = statusReader.read(reader(second)).getResult();
+        
+        assertEquals(3, result.getTimeline().size());
+        assertEquals(1, result.getDelta().size());
+        Point added = result.getDelta().iterator().next();
+        assertEquals(new Double(3), added.getTimestamp());
+        assertEquals(1, added.getSteps().size());
+        assertEquals(new Double(0.3), added.getSteps().iterator().next().getDuration());
+        List<Point> points = (List<Point>) result.getTimeline();
+        assertEquals(new Double(0.2), points.get(1).getSteps().iterator().next().getDuration());
+    }
+    
+    @Test
+    public void wideByteCounters() throws IOException {
+        String status = "{\"status\":\"running\",\"result\":{\"timeline\":["
+                + "{\"timestamp\":1,\"duration\":0.1,\"total\":100,\"errors\":0,"
+                + "\"timeouts\":0,\"volume\":10,\"executed\":100,\"txbytes\":1250000000,"
+                + "\"rxbytes\":9007199254740993},"
+                + "{\"timestamp\":3,\"duration\":0.1,\"total\":500,\"errors\":0,"
+                + "\"timeouts\":0,\"volume\":10,\"executed\":500,\"txbytes\":6250000000.0,"
+                + "\"rxbytes\":9007199254740995}]}}";
+        RushResult result = new RushResultReader().read(reader(status)).getResult();
+        List<Point> points = (List<Point>) result.getTimeline();
+        Point first = points.get(0);
+        Point second = points.get(1);
+        
+        assertEquals(1250000000L, first.getTxByteCount());
+        assertEquals(6250000000L, second.getTxByteCount());
+        assertEquals(9007199254740995L, second.getRxByteCount());
+        assertEquals(Integer.valueOf(Integer.MAX_VALUE), second.getTxBytes());
+        assertEquals(1.25e9, first.getTxBytesPerSecond(), 0);
+        assertEquals(2.5e9, second.getTxBytesPerSecond(), 0);
+        assertEquals(1, second.getRxBytesPerSecond(), 0);
+        assertEquals(200, second.getHitsPerSecond(), 0);
+        
+        RushResult mapped = new Rush("user", "key")
+                .createSuccessResult(mapResult(status));
+        Point copy = ((List<Point>) mapped.getTimeline()).get(1);
+        assertEquals(6250000000L, copy.getTxByteCount());
+        assertEquals(9007199254740995L, copy.getRxByteCount());
+        //a standalone point doesn't know its predecessor
+        assertTrue(Double.isNaN(copy.getHitsPerSecond()));
+        assertTrue(Double.isNaN(copy.getTxBytesPerSecond()));
+        
+        Point unknown = new Point(1.0, 0.1, 10, 10, 0, 0, 1, null, null, null);
+        assertEquals(-1, unknown.getTxByteCount());
+        assertNull(unknown.getRxBytes());
+    }
+    
+    @Test
+    public void sprintMatchesMapDecoding() throws IOException {
+        JobStatus<SprintResult> job = new SprintResultReader().read(reader(SPRINT));
+        SprintResult expected = new Sprint("user", "key")
+                .createSuccessResult(mapResult(SPRINT));
+        
+        assertEquals("completed", job.getStatus());
+        SprintResult result = job.getResult();
+        assertEquals(expected.getRegion(), result.getRegion());
+        assertEquals(expected.getDuration(), result.getDuration());
+        List<io.blitz.curl.sprint.Step> steps = 
+                new ArrayList<io.blitz.curl.sprint.Step>(result.getSteps());
+        List<io.blitz.curl.sprint.Step> others = 
+                new ArrayList<io.blitz.curl.sprint.Step>(expected.getSteps());
+        assertEquals(others.get(0).getConnect(), steps.get(0).getConnect());
+        assertEquals("abc", steps.get(0).getRequest().getContent());
+        assertEquals(others.get(0).getRequest().getHeaders(), steps.get(0).getRequest().getHeaders());
+        assertEquals(others.get(0).getResponse().getStatus(), steps.get(0).getResponse().getStatus());
+        assertEquals("abd", steps.get(0).getResponse().getContent());
+    }
+    
+    @Test
+    public void resultError() throws IOException {
+        JobStatus<RushResult> job = new RushResultReader().read(reader(
+                "{\"status\":\"completed\",\"result\":{\"error\":\"dns\",\"reason\":\"no host\"}}"));
+        assertEquals("dns", job.getResultError());
+        assertEquals("no host", job.getResultReason());
+        
+        job = new RushResultReader().read(reader(
+                "{\"error\":\"throttle\",\"reason\":\"Slow down please!\"}"));
+        assertFalse(job.hasResult());
+        assertEquals("throttle", job.getError());
+    }
+    
+    private JsonReader reader(String json) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        return reader;
+    }
+    
+    private Map<String, Object> mapResult(String json) {
+        return (Map<String, Object>) JsonCodec.fromJson(new StringReader(json)).get("result");
+    }
+}
@@ -0,0 +1,257 @@
+package io.blitz.curl;
+
+import io.blitz.command.Curl;
+import io.blitz.curl.config.BasicAuthentication;
+import io.blitz.curl.config.Content;
+import io.blitz.curl.config.HttpHeader;
+import io.blitz.curl.config.Interval;
+import io.blitz.curl.config.Pattern;
+import io.blitz.curl.config.variable.AlphaVariable;
+import io.blitz.curl.config.variable.ListVariable;
+import io.blitz.curl.config.variable.NumberVariable;
+import io.blitz.curl.config.variable.UdidVariable;
+import io.blitz.gson.JsonCodec;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class TestTemplateTest {
+
+    private static final String RUSH = "-p 1-250:60 -r california -A 'Mozilla \"5\"' "
+            + "-X POST -d '{\"user\":\"#{name}\"}' -v:name alpha[3,8] http://example.com/users";
+
+    /**
+     * Every option, so that every serialized field has a value
+     */
+    private static final String FULL = "-p 1-250:60,250-250:30 -r california -A agent "
+            + "-b a=1 -b b=2 -d x -d y -e http://example.com/from -H 'X-A: 1' "
+            + "-s 200 -T 1000 -u john:secret -X POST -v:a alpha[3,8] "
+            + "-v:n number[1,5] -v:l list[p,q] -v:u udid http://example.com/users";
+
+    /**
+     * Serialized fields copied and compared by <code>TestTemplate</code>. 
+     * When this test fails, update <code>copy</code> and <code>same</code> 
+     * in the template for the new fields, then this list.
+     */
+    private static final Map<Class<?>, String> SERIALIZED = 
+            new LinkedHashMap<Class<?>, String>();
+
+    static {
+        SERIALIZED.put(Rush.class, "pattern,region,steps");
+        SERIALIZED.put(Sprint.class, "region,steps");
+        SERIALIZED.put(TestStep.class, "content,cookies,headers,referrer,request,"
+                + "ssl,status,timeout,url,user,userAgent,variables");
+        SERIALIZED.put(Pattern.class, "interactions,intervals");
+        SERIALIZED.put(Interval.class, "duration,end,interactions,start");
+        SERIALIZED.put(BasicAuthentication.class, "password,username");
+        SERIALIZED.put(Content.class, "data");
+        SERIALIZED.put(HttpHeader.class, "field,value");
+        SERIALIZED.put(AlphaVariable.class, "max,min,type");
+        SERIALIZED.put(NumberVariable.class, "max,min,type");
+        SERIALIZED.put(ListVariable.class, "entries,type");
+        SERIALIZED.put(UdidVariable.class, "type");
+    }
+
+    @Test
+    public void sameJsonAsParse() {
+        TestTemplate template = Curl.compile(RUSH);
+        assertTrue(template.isRush());
+        assertEquals("california", template.getRegion());
+
+        AbstractTest test = template.newTest("user", "key", "ireland");
+        assertTrue(test instanceof Rush);
+        assertEquals("ireland", test.getRegion());
+        //each test has its own copy
+        assertNotSame(template.newTest("user", "key", null).getSteps(), test.getSteps());
+        assertNotSame(template.getPattern(), ((Rush) test).getPattern());
+        AbstractTest parsed = Curl.parse("user", "key", RUSH);
+        parsed.setRegion("ireland");
+        assertEquals(JsonCodec.toJson(parsed), test.toJson());
+
+        //the template region by default, or no region at all
+        test = template.newTest("user", "key", null);
+        assertEquals("california", test.getRegion());
+        assertEquals(JsonCodec.toJson(Curl.parse("user", "key", RUSH)), test.toJson());
+        test.setRegion(null);
+        parsed.setRegion(null);
+        assertEquals(JsonCodec.toJson(parsed), test.toJson());
+        //escaped like any other value
+        test.setRegion("a\"b");
+        parsed.setRegion("a\"b");
+        assertEquals(JsonCodec.toJson(parsed), test.toJson());
+
+        template = Curl.compile("http://example.com");
+        test = template.newTest("user", "key", "virginia");
+        assertTrue(test instanceof Sprint);
+        parsed = Curl.parse("user", "key", "http://example.com");
+        parsed.setRegion("virginia");
+        assertEquals(JsonCodec.toJson(parsed), test.toJson());
+    }
+
+    @Test
+    public void modifiedTestSerialized() {
+        TestTemplate template = Curl.compile(RUSH);
+        AbstractTest test = template.newTest("user", "key", "ireland");
+        ArrayList<TestStep> steps = new ArrayList<TestStep>(test.getSteps());
+        steps.add(new TestStep());
+        test.setSteps(steps);
+        assertEquals(JsonCodec.toJson(test), test.toJson());
+        assertFalse(test.toJson().equals(template.newTest("user", "key", "ireland").toJson()));
+    }
+
+    @Test
+    public void mutatedTestSerialized() throws MalformedURLException {
+        TestTemplate template = Curl.compile(RUSH);
+        String json = template.newTest("user", "key", "ireland").toJson();
+
+        AbstractTest test = template.newTest("user", "key", "ireland");
+        test.getSteps().iterator().next().setUrl(new URL("http://example.com/other"));
+        assertEquals(JsonCodec.toJson(test), test.toJson());
+        assertTrue(test.toJson().contains("/other"));
+
+        test = template.newTest("user", "key", "ireland");
+        ((Rush) test).getPattern().getIntervals().add(new Interval(250, 1, 30));
+        assertEquals(JsonCodec.toJson(test), test.toJson());
+
+        test = template.newTest("user", "key", "ireland");
+        ((AlphaVariable) test.getSteps().iterator().next().getVariables().get("name")).setMax(9);
+        assertEquals(JsonCodec.toJson(test), test.toJson());
+
+        //changes to the copies of the template don't affect it
+        template.getSteps().iterator().next().setUrl(new URL("http://example.com/other"));
+        template.getPattern().getIntervals().clear();
+        test = template.newTest("user", "key", "ireland");
+        assertEquals(json, test.toJson());
+        assertEquals(JsonCodec.toJson(test), test.toJson());
+
+        //nor do changes to the prototype
+        AbstractTest prototype = Curl.parse(null, null, RUSH);
+        template = new TestTemplate(prototype);
+        prototype.getSteps().iterator().next().setUserAgent("other");
+        ((Rush) prototype).getPattern().getIntervals().clear();
+        assertEquals(json, template.newTest("user", "key", "ireland").toJson());
+    }
+
+    @Test
+    public void knownSerializedFields() {
+        for(Map.Entry<Class<?>, String> entry : SERIALIZED.entrySet()) {
+            TreeSet<String> names = new TreeSet<String>();
+            for(Field field : serializedFields(entry.getKey())) {
+                names.add(field.getName());
+            }
+            assertEquals(entry.getKey().getSimpleName(), 
+                    new TreeSet<String>(Arrays.asList(entry.getValue().split(","))), 
+                    names);
+        }
+    }
+
+    @Test
+    public void everySetterSerialized() throws Exception {
+        TestTemplate template = Curl.compile(FULL);
+        assertEquals(JsonCodec.toJson(Curl.parse("user", "key", FULL)), 
+                template.newTest("user", "key", null).toJson());
+        int parts = parts(template.newTest("user", "key", null)).size();
+        int changes = 0;
+        for(int i = 0; i < parts; i++) {
+            Object part = parts(template.newTest("user", "key", null)).get(i);
+            for(Field field : serializedFields(part.getClass())) {
+                //a new test for each change
+                AbstractTest test = template.newTest("user", "key", null);
+                part = parts(test).get(i);
+                Method setter = setter(part.getClass(), field);
+                if(setter == null) {
+                    continue;
+                }
+                field.setAccessible(true);
+                String name = part.getClass().getSimpleName() + "." + field.getName();
+                setter.invoke(part, changed(name, field.getType(), field.get(part)));
+                assertEquals(name, JsonCodec.toJson(test), test.toJson());
+                assertFalse(name, test.toJson().equals(
+                        template.newTest("user", "key", null).toJson()));
+                changes++;
+            }
+        }
+        assertTrue(changes > 30);
+    }
+
+    /**
+     * @return the test and every object of its steps and pattern
+     */
+    private static List<Object> parts(AbstractTest test) {
+        List<Object> parts = new ArrayList<Object>();
+        parts.add(test);
+        TestStep step = (TestStep) test.getSteps().iterator().next();
+        parts.add(step);
+        parts.add(step.getUser());
+        parts.add(step.getContent());
+        parts.add(step.getHeaders().iterator().next());
+        Pattern pattern = ((Rush) test).getPattern();
+        parts.add(pattern);
+        parts.add(pattern.getIntervals().iterator().next());
+        parts.addAll(step.getVariables().values());
+        return parts;
+    }
+
+    private static List<Field> serializedFields(Class<?> type) {
+        List<Field> fields = new ArrayList<Field>();
+        for(Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for(Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if(!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)
+                        && !Modifier.isFinal(modifiers)) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static Method setter(Class<?> type, Field field) {
+        String name = "set" + Character.toUpperCase(field.getName().charAt(0)) 
+                + field.getName().substring(1);
+        try {
+            return type.getMethod(name, field.getType());
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return a value serialized differently
+     */
+    private static Object changed(String name, Class<?> type, Object value) 
+            throws MalformedURLException {
+        if(type == String.class) {
+            return (value == null) ? "changed" : value + "-changed";
+        }
+        if(type == Integer.class || type == int.class) {
+            return (value == null) ? 1 : (Integer) value + 1;
+        }
+        if(value instanceof URL) {
+            return new URL(value + "/changed");
+        }
+        if(value instanceof Collection && !((Collection) value).isEmpty()) {
+            List<Object> list = new ArrayList<Object>((Collection) value);
+            list.add(list.get(0));
+            return list;
+        }
+        assertNotNull(name, value);
+        return null;
+    }
+}
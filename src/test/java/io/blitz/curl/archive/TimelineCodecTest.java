@@ -0,0 +1,133 @@
+package io.blitz.curl.archive;
+
+import io.blitz.curl.rush.Point;
+import io.blitz.curl.rush.Step;
+import io.blitz.curl.rush.Timeline;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class TimelineCodecTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        Timeline timeline = sample(1000);
+        byte[] archive = encode(timeline, 64);
+        Timeline decoded = new TimelineDecoder(
+                new ByteArrayInputStream(archive)).readAll(new Timeline());
+        assertEquals(timeline.size(), decoded.size());
+        assertTimeline(timeline, 0, decoded);
+        //the regular points compress to a few bytes
+        assertTrue(archive.length < timeline.size() * 40);
+    }
+
+    @Test
+    public void rangeRead() throws IOException {
+        Timeline timeline = sample(1000);
+        TimelineArchive archive = new TimelineArchive(
+                ByteBuffer.wrap(encode(timeline, 64)));
+        assertEquals(16, archive.getBlockCount());
+        assertEquals(1000, archive.getPointCount());
+        assertEquals(timeline.getTimestamp(0), archive.getFirstTimestamp(), 0);
+        assertEquals(timeline.getLastTimestamp(), archive.getLastTimestamp(), 0);
+
+        double from = timeline.getTimestamp(100);
+        double to = timeline.getTimestamp(199);
+        Timeline range = archive.read(from, to, new Timeline());
+        assertEquals(100, range.size());
+        assertTimeline(timeline, 100, range);
+        assertEquals(0, archive.read(-10, -1, new Timeline()).size());
+    }
+
+    @Test
+    public void irregularValues() throws IOException {
+        Collection<Point> points = new ArrayList<Point>();
+        Collection<Step> steps = new ArrayList<Step>();
+        steps.add(new Step(null, 0.5, null, 3, Integer.MAX_VALUE));
+        points.add(Point.withByteCounts(Math.PI, null, null, 10, 
+                Integer.MIN_VALUE + 1, 0, 0, -1, 5000000000L, steps));
+        points.add(Point.withByteCounts(null, 1e300, Integer.MAX_VALUE, 0, 1, 
+                2, 3, Long.MAX_VALUE, 0, null));
+        points.add(new Point(1e17, -0.0, 0, 0, 0, 0, 0, 0, 0,
+                new ArrayList<Step>()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TimelineEncoder encoder = new TimelineEncoder(out);
+        encoder.append(points);
+        encoder.close();
+        Timeline expected = new Timeline();
+        for(Point point : points) {
+            expected.add(point);
+        }
+        Timeline decoded = new TimelineArchive(ByteBuffer.wrap(out.toByteArray()))
+                .readAll(new Timeline());
+        assertEquals(3, decoded.size());
+        assertTimeline(expected, 0, decoded);
+    }
+
+    private static Timeline sample(int size) {
+        Timeline timeline = new Timeline();
+        for(int i = 0; i < size; i++) {
+            int steps = (i % 100 == 0) ? 1 : 2;
+            for(int s = 0; s < steps; s++) {
+                timeline.addStep(0.01 * (s + 1) + 0.001 * (i % 7), 0.002,
+                        i / 4, i / 5, Timeline.ABSENT_INT);
+            }
+            //mostly one point per second, with some jitter
+            double timestamp = 1000.5 + i + ((i % 10 == 0) ? 0.013 : 0);
+            timeline.addPoint(timestamp, 0.1 + (i % 50) / 1000.0, i * 10,
+                    i * 9, i / 2, i / 3, i, i * 1000L, (i == 500)
+                    ? Timeline.ABSENT_LONG : i * 3000000000L);
+        }
+        return timeline;
+    }
+
+    private static byte[] encode(Timeline timeline, int blockSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TimelineEncoder encoder = new TimelineEncoder(out, blockSize);
+        encoder.append(timeline.view(0, timeline.size()));
+        encoder.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Compares the rows of actual with the rows of expected from offset.
+     */
+    private static void assertTimeline(Timeline expected, int offset, Timeline actual) {
+        for(int i = 0; i < actual.size(); i++) {
+            int row = offset + i;
+            assertEquals(Double.doubleToRawLongBits(expected.getTimestamp(row)),
+                    Double.doubleToRawLongBits(actual.getTimestamp(i)));
+            assertEquals(Double.doubleToRawLongBits(expected.getDuration(row)),
+                    Double.doubleToRawLongBits(actual.getDuration(i)));
+            assertEquals(expected.getTotal(row), actual.getTotal(i));
+            assertEquals(expected.getHits(row), actual.getHits(i));
+            assertEquals(expected.getErrors(row), actual.getErrors(i));
+            assertEquals(expected.getTimeouts(row), actual.getTimeouts(i));
+            assertEquals(expected.getVolume(row), actual.getVolume(i));
+            assertEquals(expected.getTxBytes(row), actual.getTxBytes(i));
+            assertEquals(expected.getRxBytes(row), actual.getRxBytes(i));
+            assertEquals(expected.getStepCount(row), actual.getStepCount(i));
+            for(int s = 0; s < actual.getStepCount(i); s++) {
+                assertEquals(expected.getStepDuration(row, s),
+                        actual.getStepDuration(i, s), 0);
+                assertEquals(expected.getStepConnect(row, s),
+                        actual.getStepConnect(i, s), 0);
+                assertEquals(expected.getStepErrors(row, s), actual.getStepErrors(i, s));
+                assertEquals(expected.getStepTimeouts(row, s),
+                        actual.getStepTimeouts(i, s));
+                assertEquals(expected.getStepAsserts(row, s),
+                        actual.getStepAsserts(i, s));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package io.blitz.curl.journal;
+
+import io.blitz.curl.rush.IRushListener;
+import io.blitz.curl.rush.Point;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.curl.rush.Timeline;
+import io.blitz.curl.sprint.ISprintListener;
+import io.blitz.curl.sprint.Response;
+import io.blitz.curl.sprint.SprintResult;
+import io.blitz.curl.sprint.Step;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class ResultJournalTest {
+    
+    @Test
+    public void replayRush() throws IOException {
+        File file = File.createTempFile("rush", ".journal");
+        file.deleteOnExit();
+        //small mapping to force it to grow
+        ResultJournal journal = new ResultJournal(file, 256);
+        IRushListener writer = journal.rushListener();
+        Timeline timeline = new Timeline();
+        int mark = 0;
+        for(int poll = 0; poll < 10; poll++) {
+            for(int i = 0; i < 5; i++) {
+                int n = poll * 5 + i;
+                timeline.addStep(0.1 * n, 0.01, n, 0, Timeline.ABSENT_INT);
+                timeline.addStep(0.2 * n, 0.02, 0, n, 1);
+                timeline.addPoint(n, 0.3 * n, n * 10, n * 9, n, 0, n, 
+                        3000000000L + n, Timeline.ABSENT_LONG);
+            }
+            int size = timeline.size();
+            RushResult result = new RushResult("california", 
+                    timeline.view(0, size), timeline.view(mark, size));
+            mark = size;
+            if(poll == 9) {
+                writer.onComplete(result);
+            }
+            else {
+                writer.onStatus(result);
+            }
+        }
+        assertEquals(50 * 3 + 10, journal.getRecordCount());
+        journal.close();
+        assertEquals(64 + 160 * 64, file.length());
+        
+        JournalReader reader = new JournalReader(file);
+        assertEquals("california", reader.getRegion());
+        final List<RushResult> statuses = new ArrayList<RushResult>();
+        final RushResult[] complete = new RushResult[1];
+        assertTrue(reader.replay(new IRushListener() {
+            public boolean onStatus(RushResult result) {
+                statuses.add(result);
+                return true;
+            }
+            public void onComplete(RushResult result) {
+                complete[0] = result;
+            }
+        }));
+        assertEquals(9, statuses.size());
+        assertEquals(5, statuses.get(3).getDelta().size());
+        assertEquals(20, statuses.get(3).getTimeline().size());
+        assertEquals(50, complete[0].getTimeline().size());
+        
+        Point point = ((List<Point>) complete[0].getTimeline()).get(42);
+        assertEquals(Double.valueOf(42), point.getTimestamp());
+        assertEquals(0.3 * 42, point.getDuration(), 0);
+        assertEquals(Integer.valueOf(378), point.getHits());
+        assertEquals(3000000042L, point.getTxByteCount());
+        assertEquals(-1, point.getRxByteCount());
+        List<io.blitz.curl.rush.Step> steps = 
+                (List<io.blitz.curl.rush.Step>) point.getSteps();
+        assertEquals(2, steps.size());
+        assertNull(steps.get(0).getAsserts());
+        assertEquals(Integer.valueOf(42), steps.get(1).getTimeouts());
+        assertEquals(50, complete[0].getAnalytics().getPoints());
+        assertEquals(50, reader.readRush().getTimeline().size());
+    }
+    
+    @Test
+    public void replaySprint() throws IOException {
+        File file = File.createTempFile("sprint", ".journal");
+        file.deleteOnExit();
+        ResultJournal journal = new ResultJournal(file);
+        Collection<Step> steps = new ArrayList<Step>();
+        steps.add(new Step(0.5, 0.1, null, 
+                new Response("HTTP/1.1 200 OK", 200, "OK", null, null)));
+        steps.add(new Step(0.7, 0.2, null, null));
+        journal.sprintListener().onComplete(new SprintResult("virginia", 1.2, steps));
+        journal.close();
+        
+        final SprintResult[] complete = new SprintResult[1];
+        new JournalReader(file).replay(new ISprintListener() {
+            public boolean onStatus(SprintResult result) {
+                fail();
+                return true;
+            }
+            public void onComplete(SprintResult result) {
+                complete[0] = result;
+            }
+        });
+        assertEquals("virginia", complete[0].getRegion());
+        assertEquals(Double.valueOf(1.2), complete[0].getDuration());
+        List<Step> replayed = (List<Step>) complete[0].getSteps();
+        assertEquals(2, replayed.size());
+        assertEquals(Integer.valueOf(200), replayed.get(0).getResponse().getStatus());
+        assertNull(replayed.get(1).getResponse());
+        assertEquals(Double.valueOf(0.7), replayed.get(1).getDuration());
+    }
+}
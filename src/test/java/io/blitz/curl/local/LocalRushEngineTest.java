@@ -0,0 +1,224 @@
+package io.blitz.curl.local;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.blitz.command.Curl;
+import io.blitz.curl.Rush;
+import io.blitz.curl.TestStep;
+import io.blitz.curl.config.Interval;
+import io.blitz.curl.exception.BlitzException;
+import io.blitz.curl.rush.IRushListener;
+import io.blitz.curl.rush.Point;
+import io.blitz.curl.rush.RushResult;
+import io.blitz.curl.rush.Step;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class LocalRushEngineTest {
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private String base;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] data = "ok".getBytes("UTF-8");
+                int status = exchange.getRequestURI().getPath().equals("/missing") ? 404 : 200;
+                exchange.sendResponseHeaders(status, data.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(data);
+                out.close();
+            }
+        });
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void ramps() {
+        List<Interval> intervals = Arrays.asList(new Interval(1, 10, 2), new Interval(10, 10, 1));
+        assertEquals(1, LocalRushEngine.concurrency(intervals, 0));
+        assertEquals(6, LocalRushEngine.concurrency(intervals, 1000));
+        assertEquals(10, LocalRushEngine.concurrency(intervals, 2500));
+        assertEquals(10, LocalRushEngine.concurrency(intervals, 5000));
+    }
+
+    @Test
+    public void runsPattern() {
+        Rush rush = (Rush) Curl.parse(null, null, "-p 1-4:1 " + base + "/a -s 404 " + base + "/missing");
+        LocalRushEngine engine = new LocalRushEngine();
+        engine.setSampleInterval(100);
+        final List<Integer> volumes = new ArrayList<Integer>();
+        final AtomicInteger completed = new AtomicInteger();
+        engine.addListener(new IRushListener() {
+            public boolean onStatus(RushResult result) {
+                assertEquals(1, result.getDelta().size());
+                volumes.add(result.getDelta().iterator().next().getVolume());
+                return true;
+            }
+            public void onComplete(RushResult result) {
+                completed.incrementAndGet();
+            }
+        });
+        RushResult result = engine.execute(rush);
+        assertEquals(1, completed.get());
+        assertEquals(LocalSprintExecutor.REGION, result.getRegion());
+        assertTrue(volumes.size() >= 5);
+        assertTrue(volumes.get(0) <= 2);
+        assertTrue(volumes.get(volumes.size() - 1) >= 3);
+
+        Point last = null;
+        for(Point point : result.getTimeline()) {
+            last = point;
+        }
+        assertTrue(last.getTotal() > 0);
+        assertEquals(last.getTotal(), last.getHits());
+        assertEquals(Integer.valueOf(0), last.getErrors());
+        assertTrue(last.getTxByteCount() > 0);
+        assertTrue(last.getRxByteCount() > last.getTotal() * 4L);
+        assertEquals(2, last.getSteps().size());
+        Iterator<Step> steps = last.getSteps().iterator();
+        assertTrue(steps.next().getDuration() > 0);
+        assertEquals(Integer.valueOf(0), steps.next().getAsserts());
+        assertEquals(result.getTimeline().size(), result.getAnalytics().getPoints());
+    }
+
+    @Test
+    public void countsAssertsAndAborts() {
+        Rush rush = (Rush) Curl.parse(null, null, "-p 2-2:10 -s 200 " + base + "/missing");
+        final LocalRushEngine engine = new LocalRushEngine();
+        engine.setSampleInterval(100);
+        engine.addListener(new IRushListener() {
+            public boolean onStatus(RushResult result) {
+                return result.getTimeline().size() < 3;
+            }
+            public void onComplete(RushResult result) {
+            }
+        });
+        long start = System.currentTimeMillis();
+        RushResult result = engine.execute(rush);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        Point last = null;
+        for(Point point : result.getTimeline()) {
+            last = point;
+        }
+        assertEquals(4, result.getTimeline().size());
+        assertTrue(last.getErrors() > 0);
+        assertEquals(last.getTotal(), last.getErrors());
+        assertEquals(last.getErrors(), last.getSteps().iterator().next().getAsserts());
+        //no successful hit
+        assertNull(last.getDuration());
+    }
+
+    @Test
+    public void nonBlocking() {
+        Rush rush = (Rush) Curl.parse(null, null, "-p 1-50:1 " + base + "/a -s 200 " + base + "/b");
+        LocalRushEngine engine = new LocalRushEngine(new NioLoadDriver(2, 4));
+        engine.setSampleInterval(100);
+        RushResult result = engine.execute(rush);
+        Point last = null;
+        for(Point point : result.getTimeline()) {
+            last = point;
+        }
+        assertTrue(last.getVolume() >= 40);
+        assertTrue(last.getHits() > 100);
+        assertEquals(Integer.valueOf(0), last.getErrors());
+        assertEquals(Integer.valueOf(0), last.getTimeouts());
+        assertTrue(last.getRxByteCount() > last.getHits() * 2L * 40);
+        for(Step step : last.getSteps()) {
+            assertEquals(Integer.valueOf(0), step.getErrors());
+        }
+    }
+
+    @Test
+    public void expandsVariables() {
+        final Set<String> queries = Collections.synchronizedSet(new HashSet<String>());
+        server.createContext("/vars", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                queries.add(exchange.getRequestURI().getQuery());
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+        });
+        Rush rush = (Rush) Curl.parse(null, null, "-p 2-2:1 -v:n number -v:s alpha "
+                + base + "/vars?n=#{n}&s=#{s}");
+        //threads by default
+        LocalRushEngine engine = new LocalRushEngine();
+        engine.setSampleInterval(200);
+        engine.execute(rush);
+        assertTrue(queries.size() > 10);
+        for(String query : queries) {
+            assertTrue(query, query.matches("n=[0-9]+&s=[a-zA-Z]{1,16}"));
+        }
+    }
+
+    @Test
+    public void unknownHost() {
+        Rush rush = (Rush) Curl.parse(null, null, "-p 2-2:1 http://no-such-host.invalid:80/");
+        LocalRushEngine engine = new LocalRushEngine(new NioLoadDriver(1, 1));
+        engine.setSampleInterval(200);
+        RushResult result = engine.execute(rush);
+        Point last = null;
+        for(Point point : result.getTimeline()) {
+            last = point;
+        }
+        assertEquals(Integer.valueOf(2), last.getVolume());
+        assertTrue(last.getErrors() > 0);
+        assertEquals(last.getTotal(), last.getErrors());
+        assertEquals(last.getErrors(), last.getSteps().iterator().next().getErrors());
+    }
+
+    @Test
+    public void deadLoopFails() throws InterruptedException {
+        Rush rush = (Rush) Curl.parse(null, null, "-p 1-1:1 " + base + "/a " + base + "/b");
+        NioLoadDriver driver = new NioLoadDriver(1, 1);
+        //the stats have one step: recording the second one kills the loop
+        driver.start(new ArrayList<TestStep>(rush.getSteps()), 1000, new LoadStats(1));
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while(System.currentTimeMillis() < deadline) {
+                driver.setConcurrency(1);
+                Thread.sleep(20);
+            }
+            fail("Dead event loop not reported");
+        }
+        catch(BlitzException ex) {
+            assertTrue(ex.getCause() instanceof ArrayIndexOutOfBoundsException);
+        }
+        finally {
+            driver.stop();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.blitz.curl.local;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.blitz.command.Curl;
+import io.blitz.curl.Sprint;
+import io.blitz.curl.exception.BlitzException;
+import io.blitz.curl.sprint.SprintResult;
+import io.blitz.curl.sprint.Step;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class LocalSprintExecutorTest {
+
+    private HttpServer server;
+    private String base;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                int read;
+                while((read = in.read()) != -1) {
+                    body.write(read);
+                }
+                String echo = exchange.getRequestMethod() + "|"
+                        + exchange.getRequestHeaders().getFirst("User-Agent") + "|"
+                        + exchange.getRequestHeaders().getFirst("Cookie") + "|"
+                        + exchange.getRequestHeaders().getFirst("Authorization") + "|"
+                        + exchange.getRequestHeaders().getFirst("X-Custom") + "|"
+                        + body.toString("UTF-8");
+                byte[] data = echo.getBytes("UTF-8");
+                exchange.getResponseHeaders().add("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(201, data.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(data);
+                out.close();
+            }
+        });
+        server.createContext("/slow", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException ex) {
+                }
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void runsSteps() {
+        Sprint sprint = (Sprint) Curl.parse(null, null, "-A 'smoke' -b 'session=abc' "
+                + "-u 'john:secret' -H 'X-Custom: 1' -d 'a=1' -d 'b=2' -s 201 " + base + "/echo "
+                + "-X PUT -s 201 " + base + "/echo?x=1");
+        SprintResult result = new LocalSprintExecutor().execute(sprint);
+        assertEquals(LocalSprintExecutor.REGION, result.getRegion());
+        assertEquals(2, result.getSteps().size());
+
+        Iterator<Step> steps = result.getSteps().iterator();
+        Step first = steps.next();
+        assertEquals("POST /echo HTTP/1.1", first.getRequest().getLine());
+        assertEquals("a=1&b=2", first.getRequest().getContent());
+        assertEquals(Integer.valueOf(201), first.getResponse().getStatus());
+        assertEquals("text/plain", first.getResponse().getHeader("Content-Type"));
+        assertEquals("POST|smoke|session=abc|Basic am9objpzZWNyZXQ=|1|a=1&b=2",
+                first.getResponse().getContent());
+        assertTrue(first.getConnect() > 0);
+        assertTrue(first.getDuration() >= first.getConnect());
+
+        Step second = steps.next();
+        assertEquals("PUT /echo?x=1 HTTP/1.1", second.getRequest().getLine());
+        assertEquals("PUT|null|null|null|null|", second.getResponse().getContent());
+        //same host, kept alive
+        assertEquals(0.0, second.getConnect(), 0.0);
+        assertTrue(result.getDuration() >= first.getDuration() + second.getDuration());
+    }
+
+    @Test
+    public void expandsVariables() {
+        Sprint sprint = (Sprint) Curl.parse(null, null, "-v:id number[1,9] -v:s alpha "
+                + "-A 'agent #{id}' -d s=#{s} -s 201 " + base + "/echo?id=#{id}");
+        Step step = new LocalSprintExecutor().execute(sprint).getSteps().iterator().next();
+        String line = step.getRequest().getLine();
+        assertTrue(line, line.matches("POST /echo\\?id=[1-9] HTTP/1.1"));
+        String id = line.substring("POST /echo?id=".length(), "POST /echo?id=".length() + 1);
+        assertEquals(base + "/echo?id=" + id, step.getRequest().getUrl());
+        assertEquals("agent " + id, step.getRequest().getHeader("User-Agent"));
+        String content = step.getRequest().getContent();
+        assertTrue(content, content.matches("s=[a-zA-Z]{1,16}"));
+        assertEquals(String.valueOf(content.length()), step.getRequest().getHeader("Content-Length"));
+        assertEquals("POST|agent " + id + "|null|null|null|" + content,
+                step.getResponse().getContent());
+    }
+
+    @Test
+    public void failsSteps() {
+        LocalSprintExecutor executor = new LocalSprintExecutor();
+        try {
+            executor.execute((Sprint) Curl.parse(null, null, "-s 200 " + base + "/echo"));
+            fail("status must be asserted");
+        }
+        catch(BlitzException e) {
+            assertEquals("assert", e.getError());
+        }
+        try {
+            executor.execute((Sprint) Curl.parse(null, null, "-T 100 " + base + "/slow"));
+            fail("must time out");
+        }
+        catch(BlitzException e) {
+            assertEquals("timeout", e.getError());
+        }
+        SprintResult result = executor.execute((Sprint) Curl.parse(null, null, "-T 2000 " + base + "/slow"));
+        assertEquals(Integer.valueOf(204), result.getSteps().iterator().next().getResponse().getStatus());
+    }
+}
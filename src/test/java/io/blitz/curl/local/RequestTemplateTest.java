@@ -0,0 +1,130 @@
+package io.blitz.curl.local;
+
+import io.blitz.command.Curl;
+import io.blitz.curl.AbstractTest;
+import io.blitz.curl.TestStep;
+import io.blitz.curl.config.variable.IVariable;
+import io.blitz.curl.config.variable.NumberVariable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class RequestTemplateTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    @Test
+    public void staticRequest() {
+        AbstractTest test = Curl.parse(null, null, "-A blitz -b a=1 -u user:pass "
+                + "-H 'X-Name: value' -d a=1 -d b=\u00e9 http://example.com:8080/path?q=1");
+        TestStep step = test.getSteps().iterator().next();
+        RequestTemplate template = RequestTemplate.compile(step);
+        assertEquals(1, template.getPartCount());
+        assertTrue(template.getSlotNames().isEmpty());
+
+        byte[] expected = encode(new StepRequest(step, LocalSprintExecutor.DEFAULT_TIMEOUT));
+        RequestTemplate.Writer writer = template.newWriter();
+        ByteBuffer[] parts = writer.next();
+        assertArrayEquals(expected, bytes(parts));
+        //sent again from the start
+        assertSame(parts, writer.next());
+        assertArrayEquals(expected, bytes(parts));
+    }
+
+    @Test
+    public void slots() {
+        TestStep step = Curl.parse(null, null, "-A agent-#{id} -d id=#{id}&n=#{n}&x=#{other} "
+                + "http://example.com/users/#{id}").getSteps().iterator().next();
+        Map<String, IVariable> variables = new LinkedHashMap<String, IVariable>();
+        variables.put("id", new NumberVariable(0, 100000));
+        variables.put("n", new NumberVariable(0, 10));
+        step.setVariables(variables);
+        Map<String, IValueGenerator> generators = new HashMap<String, IValueGenerator>();
+        generators.put("id", new Counter());
+        generators.put("n", new Counter());
+
+        RequestTemplate template = RequestTemplate.compile(step, generators);
+        assertEquals("[id, n]", template.getSlotNames().toString());
+        RequestTemplate.Writer writer = template.newWriter();
+        assertEquals("POST /users/1 HTTP/1.1\r\n"
+                + "Host: example.com\r\n"
+                + "User-Agent: agent-1\r\n"
+                + "Content-Type: application/x-www-form-urlencoded\r\n"
+                + "Content-Length: 19\r\n\r\n"
+                + "id=1&n=1&x=#{other}", text(writer.next()));
+        for(int i = 0; i < 8; i++) {
+            writer.next();
+        }
+        String request = text(writer.next());
+        assertTrue(request, request.startsWith("POST /users/10 HTTP/1.1\r\n"));
+        assertTrue(request, request.contains("User-Agent: agent-10\r\n"));
+        assertTrue(request, request.endsWith("Content-Length: 21\r\n\r\nid=10&n=10&x=#{other}"));
+    }
+
+    /**
+     * Encodes the request like <code>HttpConnection.write</code> does.
+     */
+    private static byte[] encode(StepRequest request) {
+        String file = request.getUrl().getFile();
+        StringBuilder builder = new StringBuilder(256);
+        request.head(builder, file.length() == 0 ? "/" : file);
+        byte[] body = request.getBody();
+        if(body != null) {
+            builder.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        builder.append("\r\n");
+        byte[] head = builder.toString().getBytes(ISO_8859_1);
+        if(body == null) {
+            return head;
+        }
+        byte[] bytes = Arrays.copyOf(head, head.length + body.length);
+        System.arraycopy(body, 0, bytes, head.length, body.length);
+        return bytes;
+    }
+
+    private static String text(ByteBuffer[] parts) {
+        return new String(bytes(parts), UTF8);
+    }
+
+    private static byte[] bytes(ByteBuffer[] parts) {
+        int size = 0;
+        for(ByteBuffer part : parts) {
+            size += part.remaining();
+        }
+        ByteBuffer all = ByteBuffer.allocate(size);
+        for(ByteBuffer part : parts) {
+            all.put(part);
+        }
+        return all.array();
+    }
+
+    /**
+     * Counts the values, from one.
+     */
+    private static class Counter implements IValueGenerator {
+
+        private int count;
+
+        public int getMaxLength() {
+            return 10;
+        }
+
+        public int next(byte[] slot, int offset) {
+            byte[] value = String.valueOf(++count).getBytes(UTF8);
+            System.arraycopy(value, 0, slot, offset, value.length);
+            return value.length;
+        }
+    }
+}
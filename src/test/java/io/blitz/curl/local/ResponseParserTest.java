@@ -0,0 +1,81 @@
+package io.blitz.curl.local;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class ResponseParserTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    @Test
+    public void framing() throws IOException {
+        String pipelined = "HTTP/1.1 100 Continue\r\n\r\n"
+                + "HTTP/1.1 201 Created\r\nContent-Length: 5\r\nX-Other: a\r\n\r\nhello"
+                + "HTTP/1.1 200 OK\r\ntransfer-encoding: Chunked\r\n\r\n"
+                + "3;ext=1\r\nabc\r\nA\r\n0123456789\r\n0\r\nTrailer: x\r\n\r\n"
+                + "HTTP/1.1 204 No Content\r\n\r\n";
+        int[] statuses = {201, 200, 204};
+        //the whole buffer at once and one byte at a time
+        for(int size : new int[] {pipelined.length(), 1, 7}) {
+            ByteBuffer buffer = ByteBuffer.wrap(pipelined.getBytes(ASCII));
+            ResponseParser parser = new ResponseParser();
+            int parsed = 0;
+            int end = 0;
+            while(buffer.position() < buffer.capacity()) {
+                end = Math.min(buffer.capacity(), Math.max(end, buffer.position()) + size);
+                buffer.limit(end);
+                while(buffer.hasRemaining() && parser.parse(buffer)) {
+                    assertEquals(statuses[parsed++], parser.getStatus());
+                    assertTrue(parser.isKeepAlive());
+                    parser.reset(false);
+                }
+            }
+            assertEquals(3, parsed);
+        }
+    }
+
+    @Test
+    public void connection() throws IOException {
+        ResponseParser parser = new ResponseParser();
+        parser.reset(true);
+        assertTrue(parser.parse(buffer("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\n")));
+        parser.reset(false);
+        assertTrue(parser.parse(buffer("HTTP/1.0 200 OK\r\nContent-Length: 0\r\n\r\n")));
+        assertFalse(parser.isKeepAlive());
+        parser.reset(false);
+        assertTrue(parser.parse(buffer("HTTP/1.0 200 OK\r\nConnection: Keep-Alive\r\nContent-Length: 0\r\n\r\n")));
+        assertTrue(parser.isKeepAlive());
+        parser.reset(false);
+        assertTrue(parser.parse(buffer("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 0\r\n\r\n")));
+        assertFalse(parser.isKeepAlive());
+
+        //body until the connection closes
+        parser.reset(false);
+        assertFalse(parser.parse(buffer("HTTP/1.1 200 OK\r\n\r\nsome body")));
+        assertTrue(parser.endOfStream());
+        assertFalse(parser.isKeepAlive());
+        parser.reset(false);
+        assertFalse(parser.parse(buffer("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nshort")));
+        assertFalse(parser.endOfStream());
+
+        parser.reset(false);
+        try {
+            parser.parse(buffer("SSH-2.0-OpenSSH\r\n"));
+            fail("not HTTP");
+        }
+        catch(IOException e) {
+        }
+    }
+
+    private static ByteBuffer buffer(String text) {
+        return ByteBuffer.wrap(text.getBytes(ASCII));
+    }
+}
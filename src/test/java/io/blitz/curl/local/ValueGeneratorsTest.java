@@ -0,0 +1,142 @@
+package io.blitz.curl.local;
+
+import io.blitz.command.Curl;
+import io.blitz.curl.TestStep;
+import io.blitz.curl.config.variable.AlphaVariable;
+import io.blitz.curl.config.variable.ListVariable;
+import io.blitz.curl.config.variable.NumberVariable;
+import io.blitz.curl.config.variable.UdidVariable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class ValueGeneratorsTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void bounds() {
+        IValueGenerator alpha = ValueGenerators.create(new AlphaVariable(2, 5));
+        IValueGenerator number = ValueGenerators.create(new NumberVariable(-12, 7));
+        IValueGenerator list = ValueGenerators.create(
+                new ListVariable(Arrays.asList("a", "\u00e9t\u00e9", "ccc")));
+        assertEquals(5, alpha.getMaxLength());
+        assertEquals(3, number.getMaxLength());
+        assertEquals(5, list.getMaxLength());
+
+        Set<Integer> lengths = new HashSet<Integer>();
+        Set<Integer> numbers = new HashSet<Integer>();
+        Set<String> entries = new HashSet<String>();
+        for(int i = 0; i < 2000; i++) {
+            String value = next(alpha);
+            assertTrue(value, value.matches("[a-zA-Z]{2,5}"));
+            lengths.add(value.length());
+            int n = Integer.parseInt(next(number));
+            assertTrue(n >= -12 && n <= 7);
+            numbers.add(n);
+            entries.add(next(list));
+        }
+        assertEquals(4, lengths.size());
+        assertEquals(20, numbers.size());
+        assertEquals(new HashSet<String>(Arrays.asList("a", "\u00e9t\u00e9", "ccc")), entries);
+        assertEquals("7", next(ValueGenerators.create(new NumberVariable(7, 7))));
+    }
+
+    @Test
+    public void udid() {
+        IValueGenerator udid = ValueGenerators.create(new UdidVariable());
+        Set<String> values = new HashSet<String>();
+        for(int i = 0; i < 100; i++) {
+            String value = next(udid);
+            assertTrue(value, value.matches(
+                    "[0-9a-f]{8}-[0-9a-f]{4}-4[0-9a-f]{3}-[89ab][0-9a-f]{3}-[0-9a-f]{12}"));
+            values.add(value);
+        }
+        assertEquals(100, values.size());
+    }
+
+    @Test
+    public void unbounded() {
+        IValueGenerator alpha = ValueGenerators.create(new AlphaVariable());
+        IValueGenerator number = ValueGenerators.create(new NumberVariable());
+        assertEquals(AlphaGenerator.DEFAULT_MAX, alpha.getMaxLength());
+        assertEquals(String.valueOf(NumberGenerator.DEFAULT_MAX).length(), number.getMaxLength());
+        Set<String> values = new HashSet<String>();
+        for(int i = 0; i < 100; i++) {
+            String value = next(alpha);
+            assertTrue(value, value.matches("[a-zA-Z]{1,16}"));
+            values.add(value);
+            long n = Long.parseLong(next(number));
+            assertTrue(n >= 0 && n <= Integer.MAX_VALUE);
+            values.add(String.valueOf(n));
+        }
+        assertTrue(values.size() > 150);
+
+        TestStep step = Curl.parse(null, null, "-v:n number -v:s alpha "
+                + "http://example.com/x?n=#{n}&s=#{s}").getSteps().iterator().next();
+        RequestTemplate.Writer writer = RequestTemplate.compile(step).newWriter();
+        Set<String> lines = new HashSet<String>();
+        for(int i = 0; i < 10; i++) {
+            String line = text(writer.next()).split("\r\n")[0];
+            assertTrue(line, line.matches("GET /x\\?n=[0-9]+&s=[a-zA-Z]{1,16} HTTP/1.1"));
+            lines.add(line);
+        }
+        assertEquals(10, lines.size());
+    }
+
+    @Test
+    public void invalid() {
+        try {
+            ValueGenerators.create(new AlphaVariable(5, 2));
+            fail();
+        }
+        catch(IllegalArgumentException ex) {
+            //expected
+        }
+        try {
+            ValueGenerators.create(new ListVariable());
+            fail();
+        }
+        catch(IllegalArgumentException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void expanded() {
+        TestStep step = Curl.parse(null, null, "-v:id number[100,999] -v:name alpha[4,4] "
+                + "-d name=#{name} http://example.com/users/#{id}").getSteps().iterator().next();
+        RequestTemplate.Writer writer = RequestTemplate.compile(step).newWriter();
+        for(int i = 0; i < 10; i++) {
+            String request = text(writer.next());
+            assertTrue(request, request.matches(
+                    "(?s)POST /users/[1-9][0-9]{2} HTTP/1.1\r\n.*"
+                    + "Content-Length: 9\r\n\r\nname=[a-zA-Z]{4}"));
+        }
+    }
+
+    private static String text(ByteBuffer[] parts) {
+        StringBuilder request = new StringBuilder();
+        for(ByteBuffer part : parts) {
+            byte[] bytes = new byte[part.remaining()];
+            part.get(bytes);
+            request.append(new String(bytes, UTF8));
+        }
+        return request.toString();
+    }
+
+    private static String next(IValueGenerator generator) {
+        byte[] slot = new byte[generator.getMaxLength() + 2];
+        int length = generator.next(slot, 1);
+        return new String(slot, 1, length, UTF8);
+    }
+}
@@ -0,0 +1,78 @@
+package io.blitz.curl.rush;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class RushAnalyticsTest {
+    
+    private static void addPoint(Timeline timeline, double timestamp, 
+            double duration, int total, int hits, int errors, int timeouts) {
+        timeline.addStep(duration, duration / 10, errors, timeouts, 0);
+        timeline.addPoint(timestamp, duration, total, hits, errors, timeouts, 
+                10, Timeline.ABSENT_LONG, Timeline.ABSENT_LONG);
+    }
+    
+    @Test
+    public void rollingWindow() {
+        Timeline timeline = new Timeline();
+        RushAnalytics analytics = new RushAnalytics(2, 0.5);
+        //cumulative counters: 100 hits generated per second
+        addPoint(timeline, 1, 0.1, 100, 90, 10, 0);
+        addPoint(timeline, 2, 0.3, 200, 170, 20, 10);
+        addPoint(timeline, 4, 0.2, 400, 380, 20, 10);
+        for(int row = 0; row < timeline.size(); row++) {
+            analytics.update(timeline, row);
+        }
+        
+        assertEquals(3, analytics.getPoints());
+        //window holds the last two points: 300 generated in 3 seconds
+        assertEquals(100, analytics.getTotalPerSecond(), 1e-9);
+        assertEquals(290 / 3.0, analytics.getHitsPerSecond(), 1e-9);
+        assertEquals(10 / 300.0, analytics.getErrorRatio(), 1e-9);
+        assertEquals(10 / 300.0, analytics.getTimeoutRatio(), 1e-9);
+        assertEquals(0.3, analytics.getDurationPercentile(100), 0);
+        assertEquals(0.2, analytics.getDurationPercentile(50), 0);
+        //ewma: 0.1 -> 0.2 -> 0.2
+        assertEquals(0.2, analytics.getDurationEwma(), 1e-9);
+        assertEquals(0.2, analytics.getDuration().getMean(), 1e-9);
+        assertEquals(0.1, analytics.getDuration().getStandardDeviation(), 1e-9);
+        
+        assertEquals(1, analytics.getStepCount());
+        StepSummary step = analytics.getStep(0);
+        assertEquals(3, step.getDuration().getCount());
+        assertEquals(0.1, step.getDuration().getMin(), 0);
+        assertEquals(0.3, step.getDuration().getMax(), 0);
+        assertEquals(0.02, step.getConnect().getMean(), 1e-9);
+        assertEquals(20, step.getErrors());
+    }
+    
+    @Test
+    public void pointsMatchColumns() {
+        Timeline timeline = new Timeline();
+        addPoint(timeline, 1, 0.1, 100, 90, 10, 0);
+        addPoint(timeline, 2, 0.3, 200, 170, 20, 10);
+        RushAnalytics columns = new RushAnalytics();
+        RushAnalytics points = new RushAnalytics();
+        for(int row = 0; row < timeline.size(); row++) {
+            columns.update(timeline, row);
+        }
+        for(Point point : timeline.view(0, timeline.size())) {
+            points.update(point);
+        }
+        assertEquals(columns.getHitsPerSecond(), points.getHitsPerSecond(), 0);
+        assertEquals(columns.getDurationEwma(), points.getDurationEwma(), 0);
+        assertEquals(columns.getStep(0).getConnect().getMean(), 
+                points.getStep(0).getConnect().getMean(), 0);
+        
+        Collection<Point> boxed = new ArrayList<Point>(timeline.view(0, 2));
+        RushResult result = new RushResult("california", boxed);
+        assertEquals(columns.getErrorRatio(), result.getAnalytics().getErrorRatio(), 0);
+    }
+}
@@ -0,0 +1,69 @@
+package io.blitz.curl.sprint;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class ContentTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void decodedOnce() {
+        Response response = new Response("HTTP/1.1 200 OK", 200, "OK", null,
+                Base64.encodeBase64String("ol\u00e1".getBytes(UTF8)));
+        byte[] bytes = response.getContentBytes();
+        assertSame(bytes, response.getContentBytes());
+        //the bytes are cached, not the string
+        assertEquals(response.getContent(), response.getContent());
+        assertNotSame(response.getContent(), response.getContent());
+        assertEquals("ol\u00e1", response.getContent(UTF8));
+
+        ByteBuffer buffer = response.getContentBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(bytes.length, buffer.remaining());
+        assertEquals('o', buffer.get(0));
+
+        Request request = new Request("GET / HTTP/1.1", "GET", "/", null, null);
+        assertNull(request.getContent());
+        assertNull(request.getContentBytes());
+        assertNull(request.getContentBuffer());
+        assertNull(request.getContentStream());
+    }
+
+    @Test
+    public void streamed() throws IOException {
+        byte[] body = new byte[100000];
+        for(int i = 0; i < body.length; i++) {
+            body[i] = (byte) (i * 31);
+        }
+        Request request = new Request("POST / HTTP/1.1", "POST", "/", null,
+                Base64.encodeBase64String(body));
+        //decodes on the fly before the content is cached
+        assertArrayEquals(body, read(request.getContentStream()));
+        assertArrayEquals(body, request.getContentBytes());
+        //and reads the cached content after
+        assertArrayEquals(body, read(request.getContentStream()));
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,65 @@
+package io.blitz.curl.sprint;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class HeaderMapTest {
+
+    @Test
+    public void caseInsensitive() {
+        Map<String, Object> source = new LinkedHashMap<String, Object>();
+        source.put("content-type", "text/html");
+        source.put("X-Custom", "1");
+        source.put("Set-Cookie", Arrays.asList("a=1", "b=2"));
+        Response response = new Response("HTTP/1.1 200 OK", 200, "OK", source, null);
+        Map<String, Object> headers = response.getHeaders();
+
+        assertTrue(headers instanceof HeaderMap);
+        assertEquals(3, headers.size());
+        assertEquals("text/html", headers.get("Content-Type"));
+        assertEquals("1", response.getHeader("x-custom"));
+        assertEquals(Arrays.asList("a=1", "b=2"), headers.get("SET-COOKIE"));
+        assertTrue(headers.containsKey("CONTENT-TYPE"));
+        assertNull(headers.get("Content-Length"));
+        assertNull(headers.get(null));
+        //spelling and order are kept
+        assertArrayEquals(new String[] {"content-type", "X-Custom", "Set-Cookie"},
+                ((HeaderMap) headers).names());
+        assertEquals(source, headers);
+        assertEquals(source.hashCode(), headers.hashCode());
+    }
+
+    @Test
+    public void internedAndImmutable() {
+        String name = new String("Content-Type");
+        HeaderMap headers = new HeaderMap(new String[] {name, "content-TYPE", "Host"},
+                new Object[] {"text/plain", "text/html", "example.com"}, 3);
+        assertEquals(2, headers.size());
+        //the last repeated header wins
+        assertEquals("text/html", headers.get("content-type"));
+        assertNotSame(name, headers.names()[0]);
+        HeaderMap other = new HeaderMap(new String[] {new String("Content-Type")},
+                new Object[] {"text/css"}, 1);
+        assertSame(other.names()[0], headers.names()[0]);
+        try {
+            headers.put("Host", "other");
+            fail("headers must be immutable");
+        }
+        catch(UnsupportedOperationException e) {
+        }
+        try {
+            headers.entrySet().iterator().next().setValue("other");
+            fail("headers must be immutable");
+        }
+        catch(UnsupportedOperationException e) {
+        }
+    }
+}
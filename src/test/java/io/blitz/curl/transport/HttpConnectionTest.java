@@ -0,0 +1,241 @@
+package io.blitz.curl.transport;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.security.KeyStore;
+import java.util.Arrays;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class HttpConnectionTest {
+
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ServerSocket server;
+
+    @After
+    public void stopServer() throws IOException {
+        if(server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void checksHostName() throws Exception {
+        SSLContext valid = context(keyStore("localhost"));
+        serve(valid, "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+        URL url = new URL("https", "localhost", server.getLocalPort(), "/");
+        HttpConnection connection = new HttpConnection(url, 2000, 2000,
+                valid.getSocketFactory());
+        connection.write("GET", url, null, null);
+        assertEquals(200, connection.read("GET").getStatus());
+        connection.close();
+        server.close();
+
+        //trusted, but issued to another host
+        SSLContext other = context(keyStore("other.example.com"));
+        serve(other, "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+        url = new URL("https", "localhost", server.getLocalPort(), "/");
+        try {
+            new HttpConnection(url, 2000, 2000, other.getSocketFactory());
+            fail("Certificate of another host accepted");
+        }
+        catch(IOException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void skipsInterimResponses() throws IOException {
+        serve(null, "HTTP/1.1 100 Continue\r\n\r\n"
+                + "HTTP/1.1 102 Processing\r\n\r\n"
+                + "HTTP/1.1 201 Created\r\nContent-Length: 4\r\n\r\ndone"
+                + "HTTP/1.1 200 OK\r\nContent-Length: 4\r\n\r\nnext");
+        URL url = new URL("http", "127.0.0.1", server.getLocalPort(), "/");
+        HttpConnection connection = new HttpConnection(url, 2000, 2000);
+        connection.write("POST", url, null, "data".getBytes("UTF-8"));
+        TransportResponse response = connection.read("POST");
+        assertEquals(201, response.getStatus());
+        assertEquals("done", new String(response.getBody(), "UTF-8"));
+        connection.write("GET", url, null, null);
+        response = connection.read("GET");
+        assertEquals(200, response.getStatus());
+        assertEquals("next", new String(response.getBody(), "UTF-8"));
+        connection.close();
+    }
+
+    @Test
+    public void rejectsMalformedNumbers() throws IOException {
+        String[] responses = {
+            "HTTP/1.1 2x0 OK\r\n\r\n",
+            "HTTP/1.1 200 OK\r\nContent-Length: ten\r\n\r\n",
+            "HTTP/1.1 200 OK\r\nContent-Length: -1\r\n\r\n",
+            "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n"
+        };
+        for(String raw : responses) {
+            serve(null, raw);
+            URL url = new URL("http", "127.0.0.1", server.getLocalPort(), "/");
+            HttpConnection connection = new HttpConnection(url, 2000, 2000);
+            connection.write("GET", url, null, null);
+            try {
+                connection.read("GET");
+                fail("Accepted " + raw);
+            }
+            catch(IOException ex) {
+                //expected, not a NumberFormatException
+            }
+            connection.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void limitsBodySize() throws IOException {
+        String[] responses = {
+            "HTTP/1.1 200 OK\r\nContent-Length: 2000000000\r\n\r\n",
+            "HTTP/1.1 200 OK\r\nContent-Length: 2000\r\n\r\n",
+            "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + "3e8\r\n" + repeat('a', 1000) + "\r\n3e8\r\n",
+            "HTTP/1.1 200 OK\r\nConnection: close\r\n\r\n" + repeat('a', 2000)
+        };
+        for(int i = 0; i < responses.length; i++) {
+            serve(null, responses[i]);
+            URL url = new URL("http", "127.0.0.1", server.getLocalPort(), "/");
+            HttpConnection connection = new HttpConnection(url, 2000, 2000);
+            if(i > 0) {
+                connection.setMaxBodySize(1500);
+            }
+            connection.write("GET", url, null, null);
+            try {
+                connection.read("GET");
+                fail("Accepted a body of " + responses[i].length() + " bytes");
+            }
+            catch(IOException ex) {
+                //expected, before the body is read
+                assertFalse(connection.isReusable());
+            }
+            connection.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void discardsBodies() throws IOException {
+        serve(null, "HTTP/1.1 200 OK\r\nContent-Length: 2000\r\n\r\n" + repeat('a', 2000)
+                + "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "3e8\r\n" + repeat('b', 1000) + "\r\n3e8\r\n" + repeat('b', 1000)
+                + "\r\n0\r\n\r\n");
+        URL url = new URL("http", "127.0.0.1", server.getLocalPort(), "/");
+        HttpConnection connection = new HttpConnection(url, 2000, 2000);
+        connection.setMaxBodySize(1500);
+        for(int i = 0; i < 2; i++) {
+            connection.write("GET", url, null, null);
+            TransportResponse response = connection.read("GET", true);
+            assertEquals(200, response.getStatus());
+            assertEquals(0, response.getBody().length);
+            assertEquals(2000, connection.getBodySize());
+            assertTrue(connection.isReusable());
+        }
+        connection.close();
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    /**
+     * Accepts one connection and writes the raw response after the first
+     * bytes of the request.
+     */
+    private void serve(SSLContext context, final String response) throws IOException {
+        server = (context == null) ? new ServerSocket(0)
+                : context.getServerSocketFactory().createServerSocket(0);
+        final ServerSocket socket = server;
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Socket client = socket.accept();
+                    try {
+                        InputStream in = client.getInputStream();
+                        in.read(new byte[4096]);
+                        OutputStream out = client.getOutputStream();
+                        out.write(response.getBytes("ISO-8859-1"));
+                        out.flush();
+                        //keeps the connection open for the next request
+                        in.read(new byte[4096]);
+                    } finally {
+                        client.close();
+                    }
+                } catch (IOException ex) {
+                    //closed by the test or failed handshake
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Generates a self signed key pair for the host with keytool.
+     */
+    private KeyStore keyStore(String host) throws Exception {
+        File file = new File(folder.getRoot(), host + ".p12");
+        String keytool = System.getProperty("java.home") + File.separator
+                + "bin" + File.separator + "keytool";
+        Process process = new ProcessBuilder(keytool, "-genkeypair",
+                "-alias", "server", "-keyalg", "RSA", "-keysize", "2048",
+                "-dname", "CN=" + host, "-ext", "SAN=dns:" + host,
+                "-validity", "2", "-storetype", "PKCS12",
+                "-keystore", file.getPath(), "-storepass", new String(PASSWORD),
+                "-keypass", new String(PASSWORD))
+                .redirectErrorStream(true).start();
+        InputStream out = process.getInputStream();
+        while(out.read() != -1) {}
+        assertEquals(0, process.waitFor());
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        FileInputStream in = new FileInputStream(file);
+        try {
+            store.load(in, PASSWORD);
+        } finally {
+            in.close();
+        }
+        return store;
+    }
+
+    /**
+     * Context serving and trusting the key pair of the store.
+     */
+    private static SSLContext context(KeyStore store) throws Exception {
+        KeyManagerFactory keys = KeyManagerFactory.getInstance(
+                KeyManagerFactory.getDefaultAlgorithm());
+        keys.init(store, PASSWORD);
+        TrustManagerFactory trust = TrustManagerFactory.getInstance(
+                TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(store);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keys.getKeyManagers(), trust.getTrustManagers(), null);
+        return context;
+    }
+}
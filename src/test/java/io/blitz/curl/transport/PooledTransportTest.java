@@ -0,0 +1,192 @@
+package io.blitz.curl.transport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author ghermeto
+ */
+public class PooledTransportTest {
+    
+    private HttpServer server;
+    private int port;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/fixed", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                while(in.read() != -1) {}
+                byte[] data = "{\"ok\":true}".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, data.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(data);
+                out.close();
+            }
+        });
+        server.createContext("/chunked", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                out.write("abc".getBytes("UTF-8"));
+                out.flush();
+                out.write("def".getBytes("UTF-8"));
+                out.close();
+            }
+        });
+        server.createContext("/missing", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] data = "nope".getBytes("UTF-8");
+                exchange.sendResponseHeaders(404, data.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(data);
+                out.close();
+            }
+        });
+        server.start();
+        port = server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+    
+    @Test
+    public void reusesConnections() throws IOException {
+        PooledTransport transport = new PooledTransport();
+        URL url = new URL("http", "127.0.0.1", port, "/fixed");
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("X-API-Client", "java");
+        
+        for(int i = 0; i < 5; i++) {
+            TransportResponse response = transport.execute("GET", url, headers, null);
+            assertEquals(200, response.getStatus());
+            assertEquals("{\"ok\":true}", new String(response.getBody(), "UTF-8"));
+        }
+        TransportResponse response = transport.execute("POST", url, headers, 
+                "{}".getBytes("UTF-8"));
+        assertEquals(200, response.getStatus());
+        
+        assertEquals(1, transport.getMisses());
+        assertEquals(5, transport.getHits());
+        assertEquals(1, transport.getIdleCount());
+        transport.close();
+        assertEquals(0, transport.getIdleCount());
+    }
+    
+    @Test
+    public void drainsChunkedBodies() throws IOException {
+        PooledTransport transport = new PooledTransport();
+        URL url = new URL("http", "127.0.0.1", port, "/chunked");
+        
+        TransportResponse first = transport.execute("GET", url, null, null);
+        TransportResponse second = transport.execute("GET", url, null, null);
+        assertEquals("abcdef", new String(first.getBody(), "UTF-8"));
+        assertEquals("abcdef", new String(second.getBody(), "UTF-8"));
+        assertEquals(1, transport.getHits());
+        transport.close();
+    }
+    
+    @Test
+    public void evictsIdleConnections() throws IOException {
+        PooledTransport transport = new PooledTransport(2, 4, 0);
+        URL url = new URL("http", "127.0.0.1", port, "/fixed");
+        
+        transport.execute("GET", url, null, null);
+        transport.execute("GET", url, null, null);
+        assertEquals(0, transport.getHits());
+        assertEquals(2, transport.getMisses());
+        assertTrue(transport.getEvictions() >= 1);
+        transport.close();
+    }
+    
+    @Test
+    public void errorStatusKeepsConnection() throws IOException {
+        PooledTransport transport = new PooledTransport();
+        URL url = new URL("http", "127.0.0.1", port, "/missing");
+        try {
+            transport.execute("GET", url, null, null);
+            fail("expected an IOException");
+        } catch(IOException ex) {
+            assertTrue(ex.getMessage().contains("404"));
+        }
+        assertEquals(1, transport.getIdleCount());
+        transport.close();
+    }
+
+    @Test
+    public void closesConnectionsInUse() throws Exception {
+        final ServerSocket socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        final CountDownLatch received = new CountDownLatch(1);
+        final CountDownLatch respond = new CountDownLatch(1);
+        final AtomicBoolean closedByClient = new AtomicBoolean();
+        Thread server = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Socket client = socket.accept();
+                    try {
+                        InputStream in = client.getInputStream();
+                        in.read(new byte[4096]);
+                        received.countDown();
+                        respond.await();
+                        OutputStream out = client.getOutputStream();
+                        out.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes("ISO-8859-1"));
+                        out.flush();
+                        client.setSoTimeout(2000);
+                        closedByClient.set(in.read() == -1);
+                    } finally {
+                        client.close();
+                    }
+                } catch (Exception ex) {
+                    //not closed by the client
+                }
+            }
+        });
+        server.start();
+        final PooledTransport transport = new PooledTransport();
+        final URL url = new URL("http", "127.0.0.1", socket.getLocalPort(), "/");
+        Thread request = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    transport.execute("GET", url, null, null);
+                } catch (IOException ex) {
+                    //checked by the server
+                }
+            }
+        });
+        request.start();
+        try {
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            transport.close();
+            respond.countDown();
+            request.join(5000);
+            server.join(5000);
+        } finally {
+            socket.close();
+        }
+        assertTrue(closedByClient.get());
+        assertEquals(0, transport.getIdleCount());
+    }
+}
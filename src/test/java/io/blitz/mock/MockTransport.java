@@ -0,0 +1,73 @@
+package io.blitz.mock;
+
+import io.blitz.curl.transport.ITransport;
+import io.blitz.curl.transport.TransportResponse;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe transport returning canned responses by path. Unlike the 
+ * shared <code>MockHttpURLConnection</code> it can be used by many tests
+ * at the same time.
+ * @author ghermeto
+ */
+public class MockTransport implements ITransport {
+    
+    private final Map<String, Queue<String>> data = 
+            new ConcurrentHashMap<String, Queue<String>>();
+    
+    private final Queue<String> paths = new ConcurrentLinkedQueue<String>();
+    
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Maps responses to a path. When many are given they are returned in 
+     * sequence and the last one is repeated.
+     * @param path the request path
+     * @param json the responses
+     */
+    public void setMappedData(String path, String... json) {
+        data.put(path, new ConcurrentLinkedQueue<String>(Arrays.asList(json)));
+    }
+
+    /**
+     * @return the paths requested so far, in order
+     */
+    public Collection<String> getPaths() {
+        return paths;
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public TransportResponse execute(String method, URL url, 
+            Map<String, String> headers, byte[] body) throws IOException {
+        requests.incrementAndGet();
+        paths.add(url.getPath());
+        Queue<String> responses = data.get(url.getPath());
+        String json = null;
+        if(responses != null) {
+            synchronized(responses) {
+                json = responses.size() > 1 ? responses.poll() : responses.peek();
+            }
+        }
+        if(json == null) {
+            throw new IOException("No data for " + url.getPath());
+        }
+        return new TransportResponse(200, "OK", new HashMap<String, String>(), 
+                json.getBytes(Charset.forName("UTF-8")));
+    }
+
+    public void close() {
+    }
+}